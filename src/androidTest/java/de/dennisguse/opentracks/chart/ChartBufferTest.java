@@ -0,0 +1,93 @@
+package de.dennisguse.opentracks.chart;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.BitSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class ChartBufferTest {
+
+    @Test
+    public void append_growsAndTracksExtremities() {
+        // given
+        ChartBuffer chartBuffer = new ChartBuffer();
+
+        // when
+        for (int i = 0; i < 5000; i++) {
+            assertEquals(i, chartBuffer.append(new ChartPoint(i, i % 100)));
+        }
+
+        // then
+        assertEquals(5000, chartBuffer.size());
+        assertEquals(4999, chartBuffer.getX(4999), 0.01);
+        assertEquals(99, chartBuffer.get(ChartBuffer.CHANNEL_ELEVATION, 4999), 0.01);
+        assertEquals(4999, chartBuffer.getXExtremityMonitor().getMax(), 0.01);
+        assertEquals(0, chartBuffer.getExtremityMonitor(ChartBuffer.CHANNEL_ELEVATION).getMin(), 0.01);
+        assertEquals(99, chartBuffer.getExtremityMonitor(ChartBuffer.CHANNEL_ELEVATION).getMax(), 0.01);
+    }
+
+    @Test
+    public void append_missingValuesAreInvalid() {
+        // given
+        ChartBuffer chartBuffer = new ChartBuffer();
+
+        // when
+        int index = chartBuffer.append(new ChartPoint(0, 100));
+
+        // then
+        assertTrue(chartBuffer.isValid(ChartBuffer.CHANNEL_ELEVATION, index));
+        assertFalse(chartBuffer.isValid(ChartBuffer.CHANNEL_POWER, index));
+        assertFalse(chartBuffer.getExtremityMonitor(ChartBuffer.CHANNEL_POWER).hasData());
+    }
+
+    @Test
+    public void clear() {
+        // given
+        ChartBuffer chartBuffer = new ChartBuffer();
+        chartBuffer.append(new ChartPoint(0, 100));
+
+        // when
+        chartBuffer.clear();
+        int index = chartBuffer.append(new ChartPoint(1, Double.NaN));
+
+        // then
+        assertEquals(0, index);
+        assertFalse(chartBuffer.isValid(ChartBuffer.CHANNEL_ELEVATION, index));
+        assertFalse(chartBuffer.getExtremityMonitor(ChartBuffer.CHANNEL_ELEVATION).hasData());
+    }
+
+    @Test
+    public void retain() {
+        // given
+        ChartBuffer chartBuffer = new ChartBuffer();
+        chartBuffer.append(new ChartPoint(0, 100));
+        chartBuffer.append(new ChartPoint(1, Double.NaN));
+        chartBuffer.append(new ChartPoint(2, 300));
+        chartBuffer.append(new ChartPoint(3, 50));
+
+        BitSet keptPositions = new BitSet();
+        keptPositions.set(1);
+        keptPositions.set(2);
+
+        // when
+        chartBuffer.retain(keptPositions);
+
+        // then
+        assertEquals(2, chartBuffer.size());
+        assertEquals(1, chartBuffer.getX(0), 0.01);
+        assertFalse(chartBuffer.isValid(ChartBuffer.CHANNEL_ELEVATION, 0));
+        assertEquals(2, chartBuffer.getX(1), 0.01);
+        assertTrue(chartBuffer.isValid(ChartBuffer.CHANNEL_ELEVATION, 1));
+        assertEquals(300, chartBuffer.get(ChartBuffer.CHANNEL_ELEVATION, 1), 0.01);
+        assertFalse(chartBuffer.isValid(ChartBuffer.CHANNEL_ELEVATION, 2));
+        assertEquals(2, chartBuffer.getXExtremityMonitor().getMax(), 0.01);
+        assertEquals(300, chartBuffer.getExtremityMonitor(ChartBuffer.CHANNEL_ELEVATION).getMin(), 0.01);
+    }
+}
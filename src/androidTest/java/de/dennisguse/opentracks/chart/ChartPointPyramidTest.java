@@ -0,0 +1,133 @@
+package de.dennisguse.opentracks.chart;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import de.dennisguse.opentracks.R;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class ChartPointPyramidTest {
+
+    private ChartBuffer chartBuffer;
+    private ChartPointPyramid chartPointPyramid;
+
+    @Before
+    public void setUp() {
+        chartBuffer = new ChartBuffer();
+        ChartValueSeries series = new ChartValueSeries(
+                ApplicationProvider.getApplicationContext(),
+                chartBuffer,
+                ChartBuffer.CHANNEL_ELEVATION,
+                Integer.MIN_VALUE,
+                Integer.MAX_VALUE,
+                new int[]{100, 1000},
+                R.string.description_elevation_metric,
+                R.string.description_elevation_imperial,
+                R.color.chart_elevation_fill,
+                R.color.chart_elevation_border,
+                15,
+                18) {
+            @Override
+            protected boolean drawIfChartPointHasNoData() {
+                return false;
+            }
+        };
+        chartPointPyramid = new ChartPointPyramid(chartBuffer, Collections.singletonList(series));
+    }
+
+    @Test
+    public void getLevel_coarseLevelKeepsPeak() {
+        // given
+        for (int i = 0; i < 1000; i++) {
+            chartPointPyramid.add(chartBuffer.append(new ChartPoint(i, i == 501 ? 500 : 100)));
+        }
+
+        // when
+        int level = chartPointPyramid.getLevel(100);
+
+        // then
+        assertEquals(1000, chartPointPyramid.size());
+        assertEquals(4, level);
+        assertEquals(62, chartPointPyramid.size(level));
+        assertEquals(0, chartBuffer.getX(chartPointPyramid.get(level, 0)), 0.01);
+        boolean hasPeak = false;
+        for (int i = 0; i < chartPointPyramid.size(level); i++) {
+            hasPeak |= chartBuffer.get(ChartBuffer.CHANNEL_ELEVATION, chartPointPyramid.get(level, i)) == 500;
+        }
+        assertTrue(hasPeak);
+    }
+
+    @Test
+    public void getLevel_finestIfFewChartPoints() {
+        // given
+        for (int i = 0; i < 50; i++) {
+            chartPointPyramid.add(chartBuffer.append(new ChartPoint(i, 100)));
+        }
+
+        // when
+        int level = chartPointPyramid.getLevel(100);
+
+        // then
+        assertEquals(0, level);
+        assertEquals(50, chartPointPyramid.size(level));
+        assertEquals(49, chartBuffer.getX(chartPointPyramid.get(level, 49)), 0.01);
+    }
+
+    @Test
+    public void getEnvelope_minMaxMeanOfLevelZero() {
+        // given
+        ChartValueSeries series = new ChartValueSeries(
+                ApplicationProvider.getApplicationContext(),
+                chartBuffer,
+                ChartBuffer.CHANNEL_ELEVATION,
+                Integer.MIN_VALUE,
+                Integer.MAX_VALUE,
+                new int[]{100, 1000},
+                R.string.description_elevation_metric,
+                R.string.description_elevation_imperial,
+                R.color.chart_elevation_fill,
+                R.color.chart_elevation_border,
+                15,
+                18) {
+            @Override
+            protected boolean drawIfChartPointHasNoData() {
+                return false;
+            }
+
+            @Override
+            protected boolean drawEnvelope() {
+                return true;
+            }
+        };
+        chartPointPyramid = new ChartPointPyramid(chartBuffer, Collections.singletonList(series));
+
+        // when
+        for (int i = 0; i < 16; i++) {
+            chartPointPyramid.add(chartBuffer.append(new ChartPoint(i, i % 4 == 3 ? Double.NaN : i)));
+        }
+
+        // then
+        int channel = ChartBuffer.CHANNEL_ELEVATION;
+        // Level 2: each chartPoint stands for 4 chartPoints of level 0 (i.e., values 4k, 4k + 1, 4k + 2)
+        assertEquals(4, chartPointPyramid.size(2));
+        for (int k = 0; k < 4; k++) {
+            assertTrue(chartPointPyramid.hasEnvelope(2, k, channel));
+            assertEquals(4 * k, chartPointPyramid.getEnvelopeMin(2, k, channel), 0.01);
+            assertEquals(4 * k + 2, chartPointPyramid.getEnvelopeMax(2, k, channel), 0.01);
+            assertEquals(4 * k + 1, chartPointPyramid.getEnvelopeMean(2, k, channel), 0.01);
+        }
+        // Level 4: all chartPoints
+        assertEquals(0, chartPointPyramid.getEnvelopeMin(4, 0, channel), 0.01);
+        assertEquals(14, chartPointPyramid.getEnvelopeMax(4, 0, channel), 0.01);
+        assertEquals(7, chartPointPyramid.getEnvelopeMean(4, 0, channel), 0.01);
+    }
+}
@@ -15,7 +15,6 @@
  */
 package de.dennisguse.opentracks.chart;
 
-import androidx.annotation.NonNull;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 
@@ -36,12 +35,16 @@ import static org.junit.Assert.assertTrue;
  */
 @RunWith(AndroidJUnit4.class)
 public class ChartValueSeriesTest {
+    private ChartBuffer chartBuffer;
     private ChartValueSeries series;
 
     @Before
     public void setUp() {
+        chartBuffer = new ChartBuffer();
         series = new ChartValueSeries(
                 ApplicationProvider.getApplicationContext(),
+                chartBuffer,
+                ChartBuffer.CHANNEL_ELEVATION,
                 Integer.MIN_VALUE,
                 Integer.MAX_VALUE,
                 new int[]{100, 1000},
@@ -51,11 +54,6 @@ public class ChartValueSeriesTest {
                 R.color.chart_elevation_border,
                 15,
                 18) {
-            @Override
-            double extractDataFromChartPoint(@NonNull ChartPoint chartPoint) {
-                return chartPoint.getElevation();
-            }
-
             @Override
             protected boolean drawIfChartPointHasNoData() {
                 return false;
@@ -79,8 +77,8 @@ public class ChartValueSeriesTest {
 
     @Test
     public void testSmallUpdates() {
-        series.update(new ChartPoint(0));
-        series.update(new ChartPoint(10));
+        chartBuffer.append(new ChartPoint(0));
+        chartBuffer.append(new ChartPoint(10));
         series.updateDimension();
         assertEquals(100, series.getInterval());
         assertEquals(0, series.getMinMarkerValue());
@@ -89,8 +87,8 @@ public class ChartValueSeriesTest {
 
     @Test
     public void testBigUpdates() {
-        series.update(new ChartPoint(0));
-        series.update(new ChartPoint(901));
+        chartBuffer.append(new ChartPoint(0));
+        chartBuffer.append(new ChartPoint(901));
         series.updateDimension();
         assertEquals(1000, series.getInterval());
         assertEquals(0, series.getMinMarkerValue());
@@ -99,8 +97,8 @@ public class ChartValueSeriesTest {
 
     @Test
     public void testNotZeroBasedUpdates() {
-        series.update(new ChartPoint(220));
-        series.update(new ChartPoint(250));
+        chartBuffer.append(new ChartPoint(220));
+        chartBuffer.append(new ChartPoint(250));
         series.updateDimension();
         assertEquals(100, series.getInterval());
         assertEquals(200, series.getMinMarkerValue());
@@ -0,0 +1,103 @@
+package de.dennisguse.opentracks.chart;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.util.Log;
+import android.view.View;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Frame times of {@link ChartView} for a large synthetic series (e.g., a long recording).
+ * The frame time (UI thread) and the geometry time (background) should not depend on the number of chartPoints; so, the number of drawn chartPoints is bounded by the width.
+ * Timings are written to logcat.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class ChartViewBenchmarkTest {
+
+    private static final String TAG = ChartViewBenchmarkTest.class.getSimpleName();
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 720;
+    private static final int NUM_BATCHES = 200;
+    private static final int BATCH_SIZE = 500;
+
+    private ChartView chartView;
+    private Canvas canvas;
+
+    @Before
+    public void setUp() {
+        chartView = new ChartView(ApplicationProvider.getApplicationContext(), false);
+        chartView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        chartView.layout(0, 0, WIDTH, HEIGHT);
+        canvas = new Canvas(Bitmap.createBitmap(WIDTH, HEIGHT, Bitmap.Config.ARGB_8888));
+    }
+
+    @Test
+    public void drawnChartPoints_independentOfNumberOfChartPoints() throws ExecutionException, InterruptedException {
+        // given
+        long[] geometryTimes_ns = new long[NUM_BATCHES];
+        long[] frameTimes_ns = new long[NUM_BATCHES];
+
+        // when: appending like a live recording (one frame per batch)
+        for (int batch = 0; batch < NUM_BATCHES; batch++) {
+            List<ChartPoint> chartPoints = new ArrayList<>(BATCH_SIZE);
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                int x = batch * BATCH_SIZE + i;
+                chartPoints.add(new ChartPoint(x * 1000d, 500 + 100 * Math.sin(x / 500d)));
+            }
+
+            long start = System.nanoTime();
+            chartView.addChartPoints(chartPoints);
+            chartView.awaitGeometry();
+            long geometryDone = System.nanoTime();
+            chartView.draw(canvas);
+            geometryTimes_ns[batch] = geometryDone - start;
+            frameTimes_ns[batch] = System.nanoTime() - geometryDone;
+
+            // then
+            assertTrue(chartView.getNumberOfPathPoints() > 0);
+            assertTrue(chartView.getNumberOfPathPoints() <= WIDTH);
+        }
+
+        // when: zooming with all chartPoints
+        long zoomStart = System.nanoTime();
+        for (int zoomLevel = 1; zoomLevel <= 10; zoomLevel++) {
+            chartView.setZoomLevel(zoomLevel);
+            chartView.awaitGeometry();
+            chartView.draw(canvas);
+
+            // then
+            assertTrue(chartView.getNumberOfPathPoints() <= WIDTH * zoomLevel);
+        }
+        long zoomFrameTime_ns = (System.nanoTime() - zoomStart) / 10;
+
+        // then: timings vary on devices; so, these are only logged
+        long early_ns = average(frameTimes_ns, 10, 20);
+        long late_ns = average(frameTimes_ns, NUM_BATCHES - 10, NUM_BATCHES);
+        long earlyGeometry_ns = average(geometryTimes_ns, 10, 20);
+        long lateGeometry_ns = average(geometryTimes_ns, NUM_BATCHES - 10, NUM_BATCHES);
+        Log.i(TAG, "Frame (geometry) time with " + 20 * BATCH_SIZE + " chartPoints: " + early_ns / 1000 + "µs (" + earlyGeometry_ns / 1000 + "µs); with " + NUM_BATCHES * BATCH_SIZE + " chartPoints: " + late_ns / 1000 + "µs (" + lateGeometry_ns / 1000 + "µs); zoom: " + zoomFrameTime_ns / 1000 + "µs.");
+    }
+
+    private static long average(long[] values, int from, int to) {
+        long sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += values[i];
+        }
+        return sum / (to - from);
+    }
+}
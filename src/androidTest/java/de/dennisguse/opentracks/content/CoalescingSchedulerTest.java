@@ -0,0 +1,87 @@
+package de.dennisguse.opentracks.content;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class CoalescingSchedulerTest {
+
+    private HandlerThread handlerThread;
+    private Handler handler;
+
+    @Before
+    public void setUp() {
+        handlerThread = new HandlerThread(CoalescingSchedulerTest.class.getSimpleName());
+        handlerThread.start();
+        handler = new Handler(handlerThread.getLooper());
+    }
+
+    @After
+    public void tearDown() {
+        handlerThread.quit();
+    }
+
+    @Test
+    public void onChange_burstIsLoadedOnce() throws InterruptedException {
+        // given
+        AtomicInteger numLoads = new AtomicInteger();
+        CountDownLatch loaded = new CountDownLatch(1);
+        CoalescingScheduler scheduler = new CoalescingScheduler(handler, Duration.ofMillis(200), () -> {
+            numLoads.incrementAndGet();
+            loaded.countDown();
+        });
+
+        // when
+        for (int i = 0; i < 10; i++) {
+            scheduler.onChange();
+        }
+
+        // then
+        assertTrue(loaded.await(5, TimeUnit.SECONDS));
+        assertEquals(1, numLoads.get());
+        assertEquals(10, scheduler.getNumChanges());
+        assertEquals(9, scheduler.getNumSuppressed());
+        assertEquals(1, scheduler.getNumLoads());
+    }
+
+    @Test
+    public void isStale_newerChangeDuringLoad() throws InterruptedException {
+        // given
+        CountDownLatch loaded = new CountDownLatch(2);
+        AtomicInteger numStaleLoads = new AtomicInteger();
+        CoalescingScheduler[] scheduler = new CoalescingScheduler[1];
+        scheduler[0] = new CoalescingScheduler(handler, Duration.ZERO, () -> {
+            if (loaded.getCount() == 2) {
+                // A change arrives while loading.
+                scheduler[0].onChange();
+            }
+            if (scheduler[0].isStale()) {
+                numStaleLoads.incrementAndGet();
+            }
+            loaded.countDown();
+        });
+
+        // when
+        scheduler[0].onChange();
+
+        // then
+        assertTrue(loaded.await(5, TimeUnit.SECONDS));
+        assertEquals(1, numStaleLoads.get());
+        assertEquals(2, scheduler[0].getNumLoads());
+    }
+}
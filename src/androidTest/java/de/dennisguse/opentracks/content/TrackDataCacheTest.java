@@ -0,0 +1,151 @@
+package de.dennisguse.opentracks.content;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.os.SystemClock;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+import java.util.Collections;
+
+import de.dennisguse.opentracks.content.data.Track;
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.content.data.TrackPoint;
+import de.dennisguse.opentracks.content.provider.ContentProviderUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+@RunWith(AndroidJUnit4.class)
+public class TrackDataCacheTest {
+
+    @Test
+    public void acquire_sharesEntryAfterRelease() {
+        // given
+        TrackDataCache trackDataCache = new TrackDataCache();
+        Track.Id trackId = new Track.Id(1);
+        TrackDataCache.Entry entry = trackDataCache.acquire(trackId);
+        entry.append(Collections.singletonList(createTrackPoint(5)));
+
+        // when
+        TrackDataCache.Entry other = trackDataCache.acquire(trackId);
+        trackDataCache.release(entry);
+        trackDataCache.release(other);
+        TrackDataCache.Entry recreated = trackDataCache.acquire(trackId);
+
+        // then
+        assertSame(entry, other);
+        assertSame(entry, recreated);
+        assertEquals(1, recreated.size());
+        assertEquals(new TrackPoint.Id(5), recreated.getLastTrackPointId());
+    }
+
+    @Test
+    public void release_evictsLeastRecentlyUsed() {
+        // given
+        TrackDataCache trackDataCache = new TrackDataCache();
+        TrackDataCache.Entry first = trackDataCache.acquire(new Track.Id(1));
+
+        // when
+        trackDataCache.release(first);
+        for (int i = 2; i <= TrackDataCache.MAX_UNREFERENCED_ENTRIES + 1; i++) {
+            trackDataCache.release(trackDataCache.acquire(new Track.Id(i)));
+        }
+
+        // then
+        assertEquals(TrackDataCache.MAX_UNREFERENCED_ENTRIES, trackDataCache.getNumberOfEntries());
+        assertNotSame(first, trackDataCache.acquire(new Track.Id(1)));
+    }
+
+    @Test
+    public void onTrimMemory_keepsReferencedEntries() {
+        // given
+        TrackDataCache trackDataCache = new TrackDataCache();
+        TrackDataCache.Entry referenced = trackDataCache.acquire(new Track.Id(1));
+        trackDataCache.release(trackDataCache.acquire(new Track.Id(2)));
+
+        // when
+        trackDataCache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+
+        // then
+        assertEquals(1, trackDataCache.getNumberOfEntries());
+        assertSame(referenced, trackDataCache.acquire(new Track.Id(1)));
+    }
+
+    @Test
+    public void onTrimMemory_critical_trimsReferencedEntries() {
+        // given
+        TrackDataCache trackDataCache = new TrackDataCache();
+        TrackDataCache.Entry referenced = trackDataCache.acquire(new Track.Id(1));
+        referenced.append(Collections.singletonList(createTrackPoint(5)));
+        int generation = referenced.getGeneration();
+
+        // when
+        trackDataCache.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+
+        // then
+        assertEquals(0, referenced.getNumberOfCachedTrackPoints());
+        assertEquals(1, referenced.getFirstIndex());
+        assertEquals(1, referenced.size());
+        assertEquals(new TrackPoint.Id(5), referenced.getLastTrackPointId());
+        assertEquals(generation, referenced.getGeneration());
+    }
+
+    @Test
+    public void invalidateAll() {
+        // given
+        TrackDataCache trackDataCache = new TrackDataCache();
+        TrackDataCache.Entry referenced = trackDataCache.acquire(new Track.Id(1));
+        referenced.append(Collections.singletonList(createTrackPoint(5)));
+        int generation = referenced.getGeneration();
+        trackDataCache.release(trackDataCache.acquire(new Track.Id(2)));
+
+        // when
+        trackDataCache.invalidateAll();
+
+        // then
+        assertEquals(1, trackDataCache.getNumberOfEntries());
+        assertEquals(0, referenced.size());
+        assertNull(referenced.getLastTrackPointId());
+        assertNotEquals(generation, referenced.getGeneration());
+    }
+
+    @Test
+    public void registerContentObserver_invalidatesOnDeletedTrack() {
+        // given
+        Context context = ApplicationProvider.getApplicationContext();
+        ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, 10);
+
+        TrackDataCache trackDataCache = new TrackDataCache();
+        trackDataCache.registerContentObserver(context.getContentResolver());
+        TrackDataCache.Entry referenced = trackDataCache.acquire(trackId);
+        referenced.append(Collections.singletonList(createTrackPoint(5)));
+        int generation = referenced.getGeneration();
+
+        // when
+        contentProviderUtils.deleteTrack(context, trackId);
+
+        // then: notifications are delivered asynchronously
+        long timeout = SystemClock.elapsedRealtime() + 5000;
+        while (referenced.getGeneration() == generation && SystemClock.elapsedRealtime() < timeout) {
+            SystemClock.sleep(10);
+        }
+        assertNotEquals(generation, referenced.getGeneration());
+    }
+
+    private static TrackPoint createTrackPoint(long id) {
+        TrackPoint trackPoint = new TrackPoint(TrackPoint.Type.TRACKPOINT, Instant.ofEpochMilli(id));
+        trackPoint.setId(new TrackPoint.Id(id));
+        return trackPoint;
+    }
+}
@@ -0,0 +1,103 @@
+package de.dennisguse.opentracks.content;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import de.dennisguse.opentracks.content.data.Marker;
+import de.dennisguse.opentracks.content.data.Track;
+import de.dennisguse.opentracks.content.data.TrackPoint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class TrackPointBatchTest {
+
+    private static TrackPoint createTrackPoint(int i) {
+        TrackPoint trackPoint = new TrackPoint(TrackPoint.Type.TRACKPOINT);
+        trackPoint.setId(new TrackPoint.Id(i));
+        return trackPoint;
+    }
+
+    @Test
+    public void builder_build() {
+        // given
+        TrackPointBatch.Builder builder = new TrackPointBatch.Builder();
+        builder.add(createTrackPoint(0), true);
+        builder.add(createTrackPoint(1), false);
+
+        // when
+        TrackPointBatch batch = builder.build();
+
+        // then
+        assertEquals(2, batch.size());
+        assertTrue(batch.isSampledIn(0));
+        assertFalse(batch.isSampledIn(1));
+        assertEquals(1, batch.getLast().getId().getId());
+        assertEquals(0, builder.size());
+    }
+
+    @Test
+    public void onTrackPoints_defaultCallsPerTrackPoint() {
+        // given
+        TrackPointBatch.Builder builder = new TrackPointBatch.Builder();
+        builder.add(createTrackPoint(0), true);
+        builder.add(createTrackPoint(1), false);
+        builder.add(createTrackPoint(2), true);
+
+        List<String> calls = new ArrayList<>();
+        TrackDataListener listener = new TrackDataListener() {
+            @Override
+            public void onTrackUpdated(Track track) {
+            }
+
+            @Override
+            public void clearTrackPoints() {
+            }
+
+            @Override
+            public void onSampledInTrackPoint(TrackPoint trackPoint) {
+                calls.add("in " + trackPoint.getId().getId());
+            }
+
+            @Override
+            public void onSampledOutTrackPoint(TrackPoint trackPoint) {
+                calls.add("out " + trackPoint.getId().getId());
+            }
+
+            @Override
+            public void onSampledInTrackPointsDecimated(BitSet keptPositions) {
+            }
+
+            @Override
+            public void onNewTrackPointsDone() {
+            }
+
+            @Override
+            public void clearMarkers() {
+            }
+
+            @Override
+            public void onNewMarker(Marker marker) {
+            }
+
+            @Override
+            public void onNewMarkersDone() {
+            }
+        };
+
+        // when
+        listener.onTrackPoints(builder.build());
+
+        // then
+        assertEquals(Arrays.asList("in 0", "out 1", "in 2"), calls);
+    }
+}
@@ -0,0 +1,134 @@
+package de.dennisguse.opentracks.content;
+
+import androidx.annotation.NonNull;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import de.dennisguse.opentracks.content.data.TrackPoint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class TrackPointSamplerTest {
+
+    private static TrackPoint createTrackPoint(int i, float heartRate) {
+        TrackPoint trackPoint = new TrackPoint(TrackPoint.Type.TRACKPOINT);
+        trackPoint.setId(new TrackPoint.Id(i));
+        trackPoint.setTime(Instant.ofEpochSecond(i));
+        trackPoint.setHeartRate_bpm(heartRate);
+        return trackPoint;
+    }
+
+    /**
+     * Keeps the sampled in trackPoints like a {@link TrackDataListener}.
+     */
+    private static class Collector implements TrackPointSampler.Callback {
+        final List<TrackPoint> sampledIn = new ArrayList<>();
+        int numSampledOut = 0;
+        int numDecimated = 0;
+
+        @Override
+        public void onSampledIn(@NonNull TrackPoint trackPoint) {
+            sampledIn.add(trackPoint);
+        }
+
+        @Override
+        public void onSampledOut(@NonNull TrackPoint trackPoint) {
+            numSampledOut++;
+        }
+
+        @Override
+        public void onDecimated(@NonNull BitSet keptPositions) {
+            int numSampledIn = sampledIn.size();
+            TrackPointSampler.decimate(sampledIn, 0, keptPositions);
+            numDecimated += numSampledIn - sampledIn.size();
+        }
+
+        int numHandled() {
+            return sampledIn.size() + numSampledOut + numDecimated;
+        }
+
+        boolean containsHeartRate(float heartRate) {
+            return sampledIn.stream().anyMatch(trackPoint -> trackPoint.getHeartRate_bpm() == heartRate);
+        }
+    }
+
+    @Test
+    public void stride_decimatesLikeResampling() {
+        // given
+        int targetNumPoints = 10;
+        StrideTrackPointSampler sampler = new StrideTrackPointSampler(targetNumPoints);
+        Collector collector = new Collector();
+
+        // when
+        for (int i = 0; i < 1000; i++) {
+            sampler.add(createTrackPoint(i, 100), collector);
+        }
+        sampler.flush(collector);
+
+        // then
+        assertEquals(sampler.getNumSampledIn(), collector.sampledIn.size());
+        assertEquals(1000, collector.numHandled());
+        assertTrue(collector.sampledIn.size() >= targetNumPoints);
+        assertTrue(collector.sampledIn.size() < 2 * targetNumPoints);
+        for (int i = 0; i < collector.sampledIn.size(); i++) {
+            assertEquals(i * sampler.getStride(), collector.sampledIn.get(i).getId().getId());
+        }
+    }
+
+    @Test
+    public void lttb_keepsPeak() {
+        // given
+        int targetNumPoints = 10;
+        float peak = 190;
+        TrackPointSampler stride = new StrideTrackPointSampler(targetNumPoints);
+        TrackPointSampler lttb = new LttbTrackPointSampler(targetNumPoints, LttbTrackPointSampler.CHART_CHANNELS);
+        Collector strideCollector = new Collector();
+        Collector lttbCollector = new Collector();
+
+        // when
+        for (int i = 0; i < 1000; i++) {
+            TrackPoint trackPoint = createTrackPoint(i, i == 501 ? peak : 100);
+            stride.add(trackPoint, strideCollector);
+            lttb.add(trackPoint, lttbCollector);
+        }
+        stride.flush(strideCollector);
+        lttb.flush(lttbCollector);
+
+        // then
+        assertFalse(strideCollector.containsHeartRate(peak));
+        assertTrue(lttbCollector.containsHeartRate(peak));
+
+        assertTrue(lttbCollector.sampledIn.size() < 2 * targetNumPoints);
+        assertEquals(1000, lttbCollector.numHandled());
+        assertEquals(0, lttbCollector.sampledIn.get(0).getId().getId());
+        for (int i = 1; i < lttbCollector.sampledIn.size(); i++) {
+            assertTrue(lttbCollector.sampledIn.get(i - 1).getId().getId() < lttbCollector.sampledIn.get(i).getId().getId());
+        }
+    }
+
+    @Test
+    public void decimate_withOffset() {
+        // given
+        List<Integer> list = new ArrayList<>(Arrays.asList(5, 6, 7, 8, 9));
+        BitSet keptPositions = new BitSet();
+        keptPositions.set(6);
+        keptPositions.set(9);
+
+        // when
+        TrackPointSampler.decimate(list, 5, keptPositions);
+
+        // then
+        assertEquals(Arrays.asList(6, 9), list);
+    }
+}
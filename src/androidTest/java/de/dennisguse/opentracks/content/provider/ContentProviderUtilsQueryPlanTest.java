@@ -0,0 +1,128 @@
+package de.dennisguse.opentracks.content.provider;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteQueryBuilder;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.dennisguse.opentracks.content.data.TrackPointsArchiveColumns;
+import de.dennisguse.opentracks.content.data.TrackPointsColumns;
+import de.dennisguse.opentracks.content.data.TrackStatisticsCheckpointsColumns;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Verifies that the frequently used trackPoint queries of {@link ContentProviderUtils} are answered by index searches.
+ * A full table scan or a temporary b-tree for sorting would make them O(n) in the number of all trackPoints.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ContentProviderUtilsQueryPlanTest {
+
+    private static final String DATABASE_NAME = "test.db";
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+
+    private SQLiteDatabase db;
+
+    @Before
+    public void setUp() {
+        context.deleteDatabase(DATABASE_NAME);
+        db = new CustomSQLiteOpenHelper(context, DATABASE_NAME).getWritableDatabase();
+    }
+
+    @After
+    public void tearDown() {
+        db.close();
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    /**
+     * Returns the details of EXPLAIN QUERY PLAN for the query.
+     */
+    private List<String> getQueryPlan(String table, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+        String sql = SQLiteQueryBuilder.buildQueryString(false, table, projection, selection, null, null, sortOrder, null);
+
+        List<String> details = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery("EXPLAIN QUERY PLAN " + sql, selectionArgs)) {
+            while (cursor.moveToNext()) {
+                details.add(cursor.getString(cursor.getColumnIndexOrThrow("detail")));
+            }
+        }
+        return details;
+    }
+
+    private void assertIndexSearch(String table, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+        List<String> details = getQueryPlan(table, projection, selection, selectionArgs, sortOrder);
+
+        assertFalse(details.isEmpty());
+        boolean search = false;
+        for (String detail : details) {
+            assertFalse("Full table scan: " + details, detail.startsWith("SCAN"));
+            assertFalse("Temporary b-tree: " + details, detail.contains("TEMP B-TREE"));
+            search |= detail.startsWith("SEARCH") && (detail.contains("INDEX") || detail.contains("PRIMARY KEY"));
+        }
+        assertTrue("No index search: " + details, search);
+    }
+
+    @Test
+    public void trackPoints_byTrack() {
+        assertIndexSearch(TrackPointsColumns.TABLE_NAME, null, ContentProviderUtils.SELECTION_TRACKPOINTS, new String[]{"1"}, TrackPointsColumns.DEFAULT_SORT_ORDER + " LIMIT 100");
+    }
+
+    @Test
+    public void trackPoints_fromTrackPointId() {
+        assertIndexSearch(TrackPointsColumns.TABLE_NAME, null, ContentProviderUtils.SELECTION_TRACKPOINTS_FROM, new String[]{"1", "1000"}, TrackPointsColumns.DEFAULT_SORT_ORDER + " LIMIT 100");
+    }
+
+    @Test
+    public void trackPoints_afterTrackPointId() {
+        assertIndexSearch(TrackPointsColumns.TABLE_NAME, null, ContentProviderUtils.SELECTION_TRACKPOINTS_AFTER, new String[]{"1", "1000"}, TrackPointsColumns.DEFAULT_SORT_ORDER + " LIMIT 100");
+    }
+
+    @Test
+    public void trackPoints_firstTrackPointId() {
+        assertIndexSearch(TrackPointsColumns.TABLE_NAME, new String[]{TrackPointsColumns._ID}, ContentProviderUtils.SELECTION_FIRST_TRACKPOINT_ID, new String[]{"1"}, TrackPointsColumns._ID);
+    }
+
+    @Test
+    public void trackPoints_lastTrackPointId() {
+        assertIndexSearch(TrackPointsColumns.TABLE_NAME, new String[]{TrackPointsColumns._ID}, ContentProviderUtils.SELECTION_LAST_TRACKPOINT_ID, new String[]{"1"}, TrackPointsColumns._ID);
+    }
+
+    @Test
+    public void trackPoints_trackPointIdByTime() {
+        assertIndexSearch(TrackPointsColumns.TABLE_NAME, new String[]{TrackPointsColumns._ID}, ContentProviderUtils.SELECTION_TRACKPOINT_ID_BY_TIME, new String[]{"1", "1000"}, TrackPointsColumns._ID);
+    }
+
+    @Test
+    public void trackPoints_lastValidTrackPoint() {
+        assertIndexSearch(TrackPointsColumns.TABLE_NAME, null, ContentProviderUtils.SELECTION_LAST_VALID_TRACKPOINT, new String[]{"1"}, null);
+    }
+
+    @Test
+    public void trackPointsArchive_byTrack() {
+        assertIndexSearch(TrackPointsArchiveColumns.TABLE_NAME, null, ContentProviderUtils.SELECTION_ARCHIVED_TRACKPOINTS, new String[]{"1"}, TrackPointsArchiveColumns.DEFAULT_SORT_ORDER);
+    }
+
+    @Test
+    public void trackPointsArchive_afterTrackPointId() {
+        assertIndexSearch(TrackPointsArchiveColumns.TABLE_NAME, null, ContentProviderUtils.SELECTION_ARCHIVED_TRACKPOINTS_AFTER, new String[]{"1", "1000"}, TrackPointsArchiveColumns.DEFAULT_SORT_ORDER + " LIMIT 1");
+    }
+
+    @Test
+    public void trackStatisticsCheckpoints_last() {
+        assertIndexSearch(TrackStatisticsCheckpointsColumns.TABLE_NAME, null, ContentProviderUtils.SELECTION_TRACKSTATISTICS_CHECKPOINTS, new String[]{"1", "5"}, TrackStatisticsCheckpointsColumns.DEFAULT_SORT_ORDER + " DESC LIMIT 1");
+    }
+}
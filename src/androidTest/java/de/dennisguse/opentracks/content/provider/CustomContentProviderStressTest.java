@@ -0,0 +1,147 @@
+package de.dennisguse.opentracks.content.provider;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.content.data.Track;
+import de.dennisguse.opentracks.content.data.TrackPoint;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Runs a simulated recording (group commits of trackPoints and statistics) while several readers query the same track.
+ * Read and write latency percentiles are written to logcat.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class CustomContentProviderStressTest {
+
+    private static final String TAG = CustomContentProviderStressTest.class.getSimpleName();
+
+    private static final int NUM_COMMITS = 500;
+    private static final int TRACKPOINTS_PER_COMMIT = 10;
+    private static final long COMMIT_INTERVAL_MS = 10;
+    private static final int NUM_READERS = 4;
+    private static final int READ_PAGE_SIZE = 500;
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
+
+    private final Track.Id trackId = new Track.Id(1);
+
+    @Before
+    public void setUp() {
+        contentProviderUtils.deleteAllTracks(context);
+    }
+
+    @After
+    public void tearDown() {
+        contentProviderUtils.deleteAllTracks(context);
+    }
+
+    @Test
+    public void recordingWithConcurrentReaders() throws Exception {
+        // given
+        Track track = TestDataUtil.createTrack(trackId);
+        contentProviderUtils.insertTrack(track);
+
+        AtomicBoolean recording = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(NUM_READERS);
+        List<Future<List<Long>>> readers = new ArrayList<>();
+        for (int i = 0; i < NUM_READERS; i++) {
+            readers.add(executor.submit(() -> read(recording)));
+        }
+
+        // when
+        List<Long> writeLatencies = new ArrayList<>();
+        try {
+            for (int commit = 0; commit < NUM_COMMITS; commit++) {
+                List<TrackPoint> trackPoints = new ArrayList<>(TRACKPOINTS_PER_COMMIT);
+                for (int i = 0; i < TRACKPOINTS_PER_COMMIT; i++) {
+                    trackPoints.add(TestDataUtil.createTrackPoint(commit * TRACKPOINTS_PER_COMMIT + i));
+                }
+
+                long start = SystemClock.elapsedRealtimeNanos();
+                contentProviderUtils.insertTrackPointsAndUpdateTrackStatistics(trackPoints, track);
+                writeLatencies.add(SystemClock.elapsedRealtimeNanos() - start);
+
+                SystemClock.sleep(COMMIT_INTERVAL_MS);
+            }
+        } finally {
+            recording.set(false);
+        }
+
+        List<Long> readLatencies = new ArrayList<>();
+        for (Future<List<Long>> reader : readers) {
+            readLatencies.addAll(reader.get());
+        }
+        executor.shutdown();
+
+        // then
+        Log.i(TAG, "write " + formatPercentiles(writeLatencies));
+        Log.i(TAG, "read " + formatPercentiles(readLatencies));
+
+        assertEquals(NUM_COMMITS * TRACKPOINTS_PER_COMMIT, contentProviderUtils.getTrackPoints(trackId).size());
+    }
+
+    /**
+     * Simulates readers like TrackDataHub, charts, and Dashboard API clients while recording.
+     *
+     * @return the latency of each read in nanoseconds
+     */
+    private List<Long> read(AtomicBoolean recording) {
+        List<Long> latencies = new ArrayList<>();
+        TrackPoint.Id lastTrackPointId = null;
+        while (recording.get()) {
+            long start = SystemClock.elapsedRealtimeNanos();
+            contentProviderUtils.getTrack(trackId);
+            contentProviderUtils.getLastValidTrackPoint(trackId);
+            try (Cursor cursor = contentProviderUtils.getTrackPointCursorAfter(trackId, lastTrackPointId, READ_PAGE_SIZE)) {
+                CachedTrackPointsIndexes indexes = new CachedTrackPointsIndexes(cursor);
+                while (cursor.moveToNext()) {
+                    lastTrackPointId = ContentProviderUtils.fillTrackPoint(cursor, indexes).getId();
+                }
+            }
+            latencies.add(SystemClock.elapsedRealtimeNanos() - start);
+        }
+        return latencies;
+    }
+
+    private static String formatPercentiles(List<Long> latenciesNanos) {
+        Collections.sort(latenciesNanos);
+        return String.format("latency (%d samples): p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms", latenciesNanos.size(),
+                getPercentileMillis(latenciesNanos, 0.5), getPercentileMillis(latenciesNanos, 0.95), getPercentileMillis(latenciesNanos, 0.99), getPercentileMillis(latenciesNanos, 1));
+    }
+
+    /**
+     * @param sortedNanos the sorted latencies
+     * @param percentile  in [0, 1]
+     */
+    private static double getPercentileMillis(List<Long> sortedNanos, double percentile) {
+        if (sortedNanos.isEmpty()) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(percentile * sortedNanos.size()) - 1;
+        return sortedNanos.get(Math.max(0, index)) / 1E6;
+    }
+}
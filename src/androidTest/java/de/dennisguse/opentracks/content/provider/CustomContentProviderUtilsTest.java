@@ -45,8 +45,11 @@ import de.dennisguse.opentracks.content.data.MarkerColumns;
 import de.dennisguse.opentracks.content.data.TestDataUtil;
 import de.dennisguse.opentracks.content.data.Track;
 import de.dennisguse.opentracks.content.data.TrackPoint;
+import de.dennisguse.opentracks.content.data.TrackPointBuffer;
 import de.dennisguse.opentracks.content.data.TrackPointsColumns;
+import de.dennisguse.opentracks.content.data.TrackStatisticsCheckpoint;
 import de.dennisguse.opentracks.content.data.TracksColumns;
+import de.dennisguse.opentracks.stats.SensorStatistics;
 import de.dennisguse.opentracks.stats.TrackStatistics;
 import de.dennisguse.opentracks.util.FileUtils;
 import de.dennisguse.opentracks.util.UUIDUtils;
@@ -780,27 +783,27 @@ public class CustomContentProviderUtilsTest {
         // given
         when(cursorMock.getColumnIndex(TrackPointsColumns._ID)).thenReturn(1);
 
-        when(cursorMock.getColumnIndexOrThrow(TrackPointsColumns.LONGITUDE)).thenReturn(2);
+        when(cursorMock.getColumnIndex(TrackPointsColumns.LONGITUDE)).thenReturn(2);
         when(cursorMock.isNull(2)).thenReturn(false);
         int longitude = 11;
         when(cursorMock.getInt(2)).thenReturn(longitude * 1000000);
 
-        when(cursorMock.getColumnIndexOrThrow(TrackPointsColumns.LATITUDE)).thenReturn(3);
+        when(cursorMock.getColumnIndex(TrackPointsColumns.LATITUDE)).thenReturn(3);
         when(cursorMock.isNull(3)).thenReturn(false);
         int latitude = 22;
         when(cursorMock.getInt(3)).thenReturn(latitude * 1000000);
 
-        when(cursorMock.getColumnIndexOrThrow(TrackPointsColumns.TIME)).thenReturn(4);
+        when(cursorMock.getColumnIndex(TrackPointsColumns.TIME)).thenReturn(4);
         when(cursorMock.isNull(4)).thenReturn(false);
         long time = System.currentTimeMillis();
         when(cursorMock.getLong(4)).thenReturn(time);
 
-        when(cursorMock.getColumnIndexOrThrow(TrackPointsColumns.SPEED)).thenReturn(5);
+        when(cursorMock.getColumnIndex(TrackPointsColumns.SPEED)).thenReturn(5);
         when(cursorMock.isNull(5)).thenReturn(false);
         float speed = 2.2f;
         when(cursorMock.getFloat(5)).thenReturn(speed);
 
-        when(cursorMock.getColumnIndexOrThrow(TrackPointsColumns.SENSOR_HEARTRATE)).thenReturn(6);
+        when(cursorMock.getColumnIndex(TrackPointsColumns.SENSOR_HEARTRATE)).thenReturn(6);
         when(cursorMock.isNull(6)).thenReturn(false);
 
         // when
@@ -814,6 +817,89 @@ public class CustomContentProviderUtilsTest {
         assertFalse(trackPoint.hasHeartRate());
     }
 
+    @Test
+    public void testGetTrackPoints_projection() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, 10);
+        List<TrackPoint> expected = contentProviderUtils.getTrackPoints(trackId);
+
+        // when
+        List<TrackPoint> locations = contentProviderUtils.getTrackPoints(trackId, TrackPointProjection.LOCATION);
+        List<TrackPoint> sensors = contentProviderUtils.getTrackPoints(trackId, TrackPointProjection.SENSORS);
+
+        // then
+        assertEquals(expected.size(), locations.size());
+        assertEquals(expected.size(), sensors.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), locations.get(i).getId());
+            assertEquals(expected.get(i).getType(), locations.get(i).getType());
+            assertEquals(expected.get(i).getTime(), locations.get(i).getTime());
+            assertEquals(expected.get(i).hasLocation(), locations.get(i).hasLocation());
+            if (expected.get(i).hasLocation()) {
+                assertEquals(expected.get(i).getLatitude(), locations.get(i).getLatitude(), 0.000001);
+                assertEquals(expected.get(i).getLongitude(), locations.get(i).getLongitude(), 0.000001);
+            }
+            assertFalse(locations.get(i).hasSpeed());
+            assertFalse(locations.get(i).hasHeartRate());
+
+            assertEquals(expected.get(i).getId(), sensors.get(i).getId());
+            assertEquals(expected.get(i).hasHeartRate(), sensors.get(i).hasHeartRate());
+            assertEquals(expected.get(i).hasPower(), sensors.get(i).hasPower());
+            assertFalse(sensors.get(i).hasLocation());
+        }
+    }
+
+    @Test
+    public void testReadTrackPoints() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, 10);
+        List<TrackPoint> expected = contentProviderUtils.getTrackPoints(trackId);
+        TrackPointBuffer buffer = new TrackPointBuffer(1);
+
+        // when
+        contentProviderUtils.readTrackPoints(trackId, null, TrackPointProjection.FULL, buffer);
+
+        // then
+        TrackPointCodecTest.assertTrackPointsEquals(expected, buffer.toTrackPoints());
+
+        // when
+        buffer.clear();
+        contentProviderUtils.archiveTrack(trackId);
+        contentProviderUtils.readTrackPoints(trackId, null, TrackPointProjection.FULL, buffer);
+
+        // then
+        TrackPointCodecTest.assertTrackPointsEquals(expected, buffer.toTrackPoints());
+        assertEquals(expected.get(0).getTime().toEpochMilli(), buffer.getTime_ms(0));
+        assertEquals(expected.get(0).getHeartRate_bpm(), buffer.getChannel(0, TrackPointBuffer.CHANNEL_HEARTRATE), 0.01);
+    }
+
+    @Test
+    public void testReadTrackPoints_afterTrackPointId() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, 10);
+        List<TrackPoint> trackPoints = contentProviderUtils.getTrackPoints(trackId);
+        List<TrackPoint> expected = trackPoints.subList(4, trackPoints.size());
+        TrackPoint.Id afterTrackPointId = trackPoints.get(3).getId();
+        TrackPointBuffer buffer = new TrackPointBuffer();
+
+        // when
+        contentProviderUtils.readTrackPoints(trackId, afterTrackPointId, TrackPointProjection.FULL, buffer);
+
+        // then
+        TrackPointCodecTest.assertTrackPointsEquals(expected, buffer.toTrackPoints());
+
+        // when
+        buffer.clear();
+        contentProviderUtils.archiveTrack(trackId);
+        contentProviderUtils.readTrackPoints(trackId, afterTrackPointId, TrackPointProjection.FULL, buffer);
+
+        // then
+        TrackPointCodecTest.assertTrackPointsEquals(expected, buffer.toTrackPoints());
+    }
+
     /**
      * Tests the method
      * {@link ContentProviderUtils#insertTrackPoint(TrackPoint, Track.Id)}.
@@ -921,6 +1007,180 @@ public class CustomContentProviderUtilsTest {
         assertEquals(i * TestDataUtil.ALTITUDE_INTERVAL, location.getAltitude(), 0.01);
     }
 
+    @Test
+    public void testArchiveTrack() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        Track track = TestDataUtil.createTrack(trackId);
+        List<TrackPoint> trackPoints = new ArrayList<>();
+        trackPoints.add(TrackPoint.createSegmentStartManualWithTime(Instant.ofEpochSecond(1)));
+        for (int i = 0; i < 5; i++) {
+            trackPoints.add(TestDataUtil.createTrackPoint(i));
+        }
+        trackPoints.add(TrackPoint.createSegmentEndWithTime(Instant.ofEpochSecond(10)));
+        trackPoints.add(TrackPoint.createSegmentStartManualWithTime(Instant.ofEpochSecond(11)));
+        trackPoints.add(TestDataUtil.createTrackPoint(12));
+        trackPoints.forEach(track.getSensorAggregates()::add);
+        contentProviderUtils.insertTrack(track);
+        contentProviderUtils.bulkInsertTrackPoint(trackPoints, trackId);
+        List<TrackPoint> expected = contentProviderUtils.getTrackPoints(trackId);
+        SensorStatistics expectedSensorStatistics = contentProviderUtils.getSensorStats(trackId);
+
+        // when
+        contentProviderUtils.archiveTrack(trackId);
+
+        // then
+        assertTrue(contentProviderUtils.isTrackArchived(trackId));
+        assertEquals(0, contentProviderUtils.getTrackPointCursor(trackId, null, 1000).getCount());
+        TrackPointCodecTest.assertTrackPointsEquals(expected, contentProviderUtils.getTrackPoints(trackId));
+        assertEquals(expected.get(expected.size() - 1).getId(), contentProviderUtils.getLastTrackPointId(trackId));
+        assertEquals(expectedSensorStatistics.getMaxHeartRate(), contentProviderUtils.getSensorStats(trackId).getMaxHeartRate(), 0.01);
+        assertEquals(expectedSensorStatistics.getAvgPower(), contentProviderUtils.getSensorStats(trackId).getAvgPower(), 0.01);
+
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(trackId, expected.get(3).getId())) {
+            assertTrue(trackPointIterator.hasNext());
+            assertEquals(expected.get(3).getId(), trackPointIterator.next().getId());
+        }
+    }
+
+    @Test
+    public void testArchiveTrack_accessors() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, 10);
+        List<TrackPoint> expected = contentProviderUtils.getTrackPoints(trackId);
+        TrackPoint expectedLastValidTrackPoint = contentProviderUtils.getLastValidTrackPoint(trackId);
+
+        // when
+        contentProviderUtils.archiveTrack(trackId);
+
+        // then
+        assertEquals(expected.get(0).getId().getId(), contentProviderUtils.getFirstTrackPointId(trackId).getId());
+        assertEquals(expectedLastValidTrackPoint.getId(), contentProviderUtils.getLastValidTrackPoint(trackId).getId());
+        assertEquals(expected.get(3).getId(), contentProviderUtils.getTrackPointId(trackId, expected.get(3).getLocation()));
+    }
+
+    @Test
+    public void testTrackPointIterator_archivedWhileIterating() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, 10);
+        List<TrackPoint> expected = contentProviderUtils.getTrackPoints(trackId);
+
+        List<TrackPoint> trackPoints = new ArrayList<>();
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(trackId, null, 2)) {
+            trackPoints.add(trackPointIterator.next());
+
+            // when
+            contentProviderUtils.archiveTrack(trackId);
+            trackPointIterator.forEachRemaining(trackPoints::add);
+        }
+
+        // then
+        TrackPointCodecTest.assertTrackPointsEquals(expected, trackPoints);
+    }
+
+    @Test
+    public void testInsertTrackPointsAndUpdateTrackStatistics_sensorAggregates() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        Track track = TestDataUtil.createTrack(trackId);
+        contentProviderUtils.insertTrack(track);
+
+        List<TrackPoint> trackPoints = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            TrackPoint trackPoint = TestDataUtil.createTrackPoint(i);
+            trackPoints.add(trackPoint);
+            track.getSensorAggregates().add(trackPoint);
+        }
+
+        // when
+        contentProviderUtils.insertTrackPointsAndUpdateTrackStatistics(trackPoints, track);
+
+        // then
+        SensorStatistics sensorStatistics = contentProviderUtils.getSensorStats(trackId);
+        assertEquals(104, sensorStatistics.getMaxHeartRate(), 0.01);
+        assertEquals(102, sensorStatistics.getAvgHeartRate(), 0.01);
+        assertEquals(304, sensorStatistics.getMaxCadence(), 0.01);
+        assertEquals(302, sensorStatistics.getAvgCadence(), 0.01);
+        assertEquals(402, sensorStatistics.getAvgPower(), 0.01);
+        assertEquals(5, contentProviderUtils.getTrack(trackId).getSensorAggregates().getHeartRate().getCount());
+    }
+
+    @Test
+    public void testArchiveTrack_restoreArchivedTrack_keepsCoordinates() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        contentProviderUtils.insertTrack(TestDataUtil.createTrack(trackId));
+        List<TrackPoint> trackPoints = new ArrayList<>();
+        trackPoints.add(new TrackPoint(-67108859 / 1E6, -134217718 / 1E6, null, Instant.ofEpochSecond(1)));
+        trackPoints.add(new TrackPoint(67108859 / 1E6, 134217718 / 1E6, null, Instant.ofEpochSecond(2)));
+        contentProviderUtils.bulkInsertTrackPoint(trackPoints, trackId);
+        List<TrackPoint> expected = contentProviderUtils.getTrackPoints(trackId);
+
+        // when
+        contentProviderUtils.archiveTrack(trackId);
+        contentProviderUtils.restoreArchivedTrack(trackId);
+
+        // then
+        List<TrackPoint> actual = contentProviderUtils.getTrackPoints(trackId);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getLatitude(), actual.get(i).getLatitude(), 0);
+            assertEquals(expected.get(i).getLongitude(), actual.get(i).getLongitude(), 0);
+        }
+    }
+
+    @Test
+    public void testRestoreArchivedTrack() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, 10);
+        List<TrackPoint> expected = contentProviderUtils.getTrackPoints(trackId);
+        contentProviderUtils.archiveTrack(trackId);
+
+        // when
+        contentProviderUtils.restoreArchivedTrack(trackId);
+
+        // then
+        assertFalse(contentProviderUtils.isTrackArchived(trackId));
+        assertEquals(10, contentProviderUtils.getTrackPointCursor(trackId, null, 1000).getCount());
+        TrackPointCodecTest.assertTrackPointsEquals(expected, contentProviderUtils.getTrackPoints(trackId));
+    }
+
+    @Test
+    public void testGetTrackStatisticsCheckpoint() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, 10);
+        contentProviderUtils.insertTrackStatisticsCheckpoint(trackId, new TrackStatisticsCheckpoint(new TrackPoint.Id(3), 5, new byte[]{3}));
+        contentProviderUtils.insertTrackStatisticsCheckpoint(trackId, new TrackStatisticsCheckpoint(new TrackPoint.Id(7), 5, new byte[]{7}, new byte[]{8}));
+        contentProviderUtils.insertTrackStatisticsCheckpoint(trackId, new TrackStatisticsCheckpoint(new TrackPoint.Id(9), 10, new byte[]{9}));
+
+        // when
+        TrackStatisticsCheckpoint last = contentProviderUtils.getTrackStatisticsCheckpoint(trackId, 5);
+
+        // then
+        assertEquals(new TrackPoint.Id(7), last.getTrackPointId());
+        assertEquals(7, last.getData()[0]);
+        assertEquals(8, last.getIntervals()[0]);
+        assertNull(contentProviderUtils.getTrackStatisticsCheckpoint(trackId, 20));
+    }
+
+    @Test
+    public void testGetTrackStatisticsCheckpoint_deletedWithTrack() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, 10);
+        contentProviderUtils.insertTrackStatisticsCheckpoint(trackId, new TrackStatisticsCheckpoint(new TrackPoint.Id(3), 5, new byte[]{3}));
+
+        // when
+        contentProviderUtils.deleteTrack(context, trackId);
+
+        // then
+        assertNull(contentProviderUtils.getTrackStatisticsCheckpoint(trackId, 5));
+    }
+
     @Test
     public void testFormatIdListForUri() {
         assertEquals("", ContentProviderUtils.formatIdListForUri());
@@ -21,10 +21,13 @@ import java.util.List;
 import java.util.Map;
 
 import de.dennisguse.opentracks.content.data.MarkerColumns;
+import de.dennisguse.opentracks.content.data.TrackPointsArchiveColumns;
 import de.dennisguse.opentracks.content.data.TrackPointsColumns;
+import de.dennisguse.opentracks.content.data.TrackStatisticsCheckpointsColumns;
 import de.dennisguse.opentracks.content.data.TracksColumns;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -85,18 +88,53 @@ public class CustomSQLiteOpenHelperTest {
     @Test
     public void onCreate() {
         try (SQLiteDatabase db = new CustomSQLiteOpenHelper(context, DATABASE_NAME).getWritableDatabase()) {
+            assertEquals(CustomSQLiteOpenHelper.AUTO_VACUUM_INCREMENTAL, CustomSQLiteOpenHelper.getAutoVacuum(db));
+
             assertTrue(hasSqlCreate(db, TracksColumns.CREATE_TABLE));
 
             assertTrue(hasSqlCreate(db, TrackPointsColumns.CREATE_TABLE));
             assertTrue(hasSqlCreate(db, TrackPointsColumns.CREATE_TABLE_INDEX));
+            assertTrue(hasSqlCreate(db, TrackPointsColumns.CREATE_TABLE_INDEX_TIME));
+            assertTrue(hasSqlCreate(db, TrackPointsColumns.CREATE_TABLE_INDEX_TYPE));
 
             assertTrue(hasSqlCreate(db, MarkerColumns.CREATE_TABLE));
             assertTrue(hasSqlCreate(db, MarkerColumns.CREATE_TABLE_INDEX));
+
+            assertTrue(hasSqlCreate(db, TrackPointsArchiveColumns.CREATE_TABLE));
+            assertTrue(hasSqlCreate(db, TrackPointsArchiveColumns.CREATE_TABLE_INDEX));
+
+            assertTrue(hasSqlCreate(db, TrackStatisticsCheckpointsColumns.CREATE_TABLE));
+            assertTrue(hasSqlCreate(db, TrackStatisticsCheckpointsColumns.CREATE_TABLE_INDEX));
         } catch (Exception e) {
             fail("Database could not be created: " + e);
         }
     }
 
+    @Test
+    public void onConfigure_writeAheadLogging() {
+        try (SQLiteDatabase db = new CustomSQLiteOpenHelper(context, DATABASE_NAME).getWritableDatabase()) {
+            assertTrue(db.isWriteAheadLoggingEnabled());
+            try (Cursor cursor = db.rawQuery("PRAGMA wal_autocheckpoint", null)) {
+                assertTrue(cursor.moveToFirst());
+                assertEquals(CustomSQLiteOpenHelper.WAL_AUTOCHECKPOINT_PAGES, cursor.getInt(0));
+            }
+        }
+    }
+
+    @Test
+    public void onUpgrade_incrementalAutoVacuumIsEnabledByScheduler() {
+        createVersion23();
+
+        try (SQLiteDatabase db = new CustomSQLiteOpenHelper(context, DATABASE_NAME).getWritableDatabase()) {
+            // Opening does not rewrite the database file.
+            assertNotEquals(CustomSQLiteOpenHelper.AUTO_VACUUM_INCREMENTAL, CustomSQLiteOpenHelper.getAutoVacuum(db));
+
+            IncrementalVacuumScheduler.enableIncrementalVacuum(db);
+
+            assertEquals(CustomSQLiteOpenHelper.AUTO_VACUUM_INCREMENTAL, CustomSQLiteOpenHelper.getAutoVacuum(db));
+        }
+    }
+
     @Test
     public void onUpgrade_FromVersion23() {
         createVersion23();
@@ -120,19 +158,24 @@ public class CustomSQLiteOpenHelperTest {
 
 
         // then - verify table structure
-        int tableCount = 3 + 2; //Three with data tables + two SQLite
+        int tableCount = 5 + 2; //Five with data tables + two SQLite
         assertEquals(tableCount, tableByUpgrade.size());
         assertEquals(tableByUpgrade.size(), tablesByCreate.size());
 
         assertEquals(tablesByCreate.get(TracksColumns.TABLE_NAME), tableByUpgrade.get(TracksColumns.TABLE_NAME));
         assertEquals(tablesByCreate.get(TrackPointsColumns.TABLE_NAME), tableByUpgrade.get(TrackPointsColumns.TABLE_NAME));
         assertEquals(tablesByCreate.get(MarkerColumns.TABLE_NAME), tableByUpgrade.get(MarkerColumns.TABLE_NAME));
+        assertEquals(tablesByCreate.get(TrackPointsArchiveColumns.TABLE_NAME), tableByUpgrade.get(TrackPointsArchiveColumns.TABLE_NAME));
+        assertEquals(tablesByCreate.get(TrackStatisticsCheckpointsColumns.TABLE_NAME), tableByUpgrade.get(TrackStatisticsCheckpointsColumns.TABLE_NAME));
 
         // then - verify custom indices
-        assertEquals(3, indicesByCreate.size());
+        assertEquals(7, indicesByCreate.size());
+        assertEquals(indicesByCreate, indicesByUpgrade);
         assertEquals(indicesByUpgrade.get(TracksColumns.TABLE_NAME), indicesByCreate.get(TracksColumns.TABLE_NAME));
         assertEquals(indicesByUpgrade.get(TrackPointsColumns.TABLE_NAME), indicesByCreate.get(TrackPointsColumns.TABLE_NAME));
         assertEquals(indicesByUpgrade.get(MarkerColumns.TABLE_NAME), indicesByCreate.get(MarkerColumns.TABLE_NAME));
+        assertEquals(indicesByUpgrade.get(TrackPointsArchiveColumns.TABLE_NAME), indicesByCreate.get(TrackPointsArchiveColumns.TABLE_NAME));
+        assertEquals(indicesByUpgrade.get(TrackStatisticsCheckpointsColumns.TABLE_NAME), indicesByCreate.get(TrackStatisticsCheckpointsColumns.TABLE_NAME));
     }
 
     @Test
@@ -0,0 +1,59 @@
+package de.dennisguse.opentracks.content.provider;
+
+import android.content.Context;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class IncrementalVacuumSchedulerTest {
+
+    private static final String DATABASE_NAME = "test.db";
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+
+    @Before
+    @After
+    public void setUp() {
+        context.deleteDatabase(DATABASE_NAME);
+    }
+
+    @Test
+    public void incrementalVacuum_reclaimsBoundedNumberOfPages() {
+        try (SQLiteDatabase db = new CustomSQLiteOpenHelper(context, DATABASE_NAME).getWritableDatabase()) {
+            // given
+            db.beginTransaction();
+            for (int i = 0; i < 5000; i++) {
+                db.execSQL("INSERT INTO tracks (name, description) VALUES (?, ?)", new Object[]{"track" + i, new String(new char[500]).replace('\0', 'x')});
+            }
+            db.setTransactionSuccessful();
+            db.endTransaction();
+            db.execSQL("DELETE FROM tracks");
+
+            long pageSize = DatabaseUtils.longForQuery(db, "PRAGMA page_size", null);
+            int freePages = getFreePageCount(db);
+            assertTrue(freePages > 10);
+
+            // when
+            IncrementalVacuumScheduler.incrementalVacuum(db, 10);
+
+            // then
+            assertEquals(freePages - 10, getFreePageCount(db));
+            assertEquals((freePages - 10) * pageSize, IncrementalVacuumScheduler.getReclaimableBytes(db));
+        }
+    }
+
+    private static int getFreePageCount(SQLiteDatabase db) {
+        return (int) DatabaseUtils.longForQuery(db, "PRAGMA freelist_count", null);
+    }
+}
@@ -0,0 +1,147 @@
+package de.dennisguse.opentracks.content.provider;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.content.data.TrackPoint;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class TrackPointCodecTest {
+
+    @Test
+    public void encode_decode_empty() {
+        // when
+        List<TrackPoint> decoded = TrackPointCodec.decode(TrackPointCodec.encode(Collections.emptyList()));
+
+        // then
+        assertTrue(decoded.isEmpty());
+    }
+
+    @Test
+    public void encode_decode() {
+        // given
+        List<TrackPoint> trackPoints = new ArrayList<>();
+        trackPoints.add(TrackPoint.createSegmentStartManualWithTime(Instant.ofEpochMilli(1000)));
+        for (int i = 0; i < 100; i++) {
+            trackPoints.add(TestDataUtil.createTrackPoint(i));
+        }
+        // Only some sensor data
+        TrackPoint trackPoint = new TrackPoint(-33.5, 151.25, null, Instant.ofEpochMilli(200000));
+        trackPoint.setBearing(359.9f);
+        trackPoint.setHeartRate_bpm(60f);
+        trackPoints.add(trackPoint);
+        // Time going backwards
+        trackPoints.add(TrackPoint.createSegmentStartAutomaticWithTime(Instant.ofEpochMilli(500)));
+        trackPoints.add(TrackPoint.createSegmentEndWithTime(Instant.ofEpochMilli(300000)));
+        for (int i = 0; i < trackPoints.size(); i++) {
+            trackPoints.get(i).setId(new TrackPoint.Id(1000 + i * 3));
+        }
+
+        // when
+        List<TrackPoint> decoded = TrackPointCodec.decode(TrackPointCodec.encode(trackPoints));
+
+        // then
+        assertTrackPointsEquals(trackPoints, decoded);
+    }
+
+    @Test
+    public void encode_decode_storedCoordinates() {
+        // given: coordinates as read from the trackpoints table (micro degrees / 1E6); (int) (value * 1E6) would not restore these.
+        int[] microDegrees = {-134217718, -89999999, -12345679, -1, 0, 1, 12345679, 89999999, 134217718, 179999999};
+        List<TrackPoint> trackPoints = new ArrayList<>();
+        for (int i = 0; i < microDegrees.length; i++) {
+            TrackPoint trackPoint = new TrackPoint(microDegrees[i] / 2 / 1E6, microDegrees[i] / 1E6, null, Instant.ofEpochMilli(1000 + i));
+            trackPoint.setId(new TrackPoint.Id(i + 1));
+            trackPoints.add(trackPoint);
+        }
+
+        // when
+        List<TrackPoint> decoded = TrackPointCodec.decode(TrackPointCodec.encode(trackPoints));
+
+        // then
+        for (int i = 0; i < microDegrees.length; i++) {
+            assertEquals(trackPoints.get(i).getLatitude(), decoded.get(i).getLatitude(), 0);
+            assertEquals(trackPoints.get(i).getLongitude(), decoded.get(i).getLongitude(), 0);
+        }
+    }
+
+    @Test
+    public void encode_compact() {
+        // given
+        List<TrackPoint> trackPoints = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            TrackPoint trackPoint = TestDataUtil.createTrackPoint(i);
+            trackPoint.setId(new TrackPoint.Id(i + 1));
+            trackPoints.add(trackPoint);
+        }
+
+        // when
+        byte[] data = TrackPointCodec.encode(trackPoints);
+
+        // then
+        assertTrue("size: " + data.length, data.length < 24 * trackPoints.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decode_invalidVersion() {
+        TrackPointCodec.decode(new byte[]{(byte) (TrackPointCodec.VERSION + 1), 0});
+    }
+
+    /**
+     * Asserts that all attributes (as stored in the database) are equal.
+     */
+    static void assertTrackPointsEquals(List<TrackPoint> expected, List<TrackPoint> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            TrackPoint e = expected.get(i);
+            TrackPoint a = actual.get(i);
+            assertEquals(e.getId(), a.getId());
+            assertEquals(e.getType(), a.getType());
+            assertEquals(e.getTime(), a.getTime());
+
+            assertEquals(e.hasLocation(), a.hasLocation());
+            if (e.hasLocation()) {
+                assertEquals(Math.round(e.getLatitude() * 1E6), Math.round(a.getLatitude() * 1E6));
+                assertEquals(Math.round(e.getLongitude() * 1E6), Math.round(a.getLongitude() * 1E6));
+            }
+            assertEquals(e.hasAltitude(), a.hasAltitude());
+            if (e.hasAltitude()) {
+                assertEquals((float) e.getAltitude(), (float) a.getAltitude(), 0);
+            }
+            assertEquals(e.hasAccuracy(), a.hasAccuracy());
+            if (e.hasAccuracy()) {
+                assertEquals(e.getAccuracy(), a.getAccuracy(), 0);
+            }
+            assertEquals(e.hasSpeed(), a.hasSpeed());
+            if (e.hasSpeed()) {
+                assertEquals(e.getSpeed(), a.getSpeed(), 0);
+            }
+            assertEquals(e.hasBearing(), a.hasBearing());
+            if (e.hasBearing()) {
+                assertEquals(e.getBearing(), a.getBearing(), 0);
+            }
+            assertEquals(e.hasHeartRate(), a.hasHeartRate());
+            if (e.hasHeartRate()) {
+                assertEquals(e.getHeartRate_bpm(), a.getHeartRate_bpm(), 0);
+            }
+            assertEquals(e.getCyclingCadence_rpm(), a.getCyclingCadence_rpm());
+            assertEquals(e.getPower(), a.getPower());
+            assertEquals(e.getElevationGain(), a.getElevationGain());
+            assertEquals(e.hasElevationLoss(), a.hasElevationLoss());
+            if (e.hasElevationLoss()) {
+                assertEquals(e.getElevationLoss(), a.getElevationLoss(), 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package de.dennisguse.opentracks.content.provider;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.content.data.Track;
+import de.dennisguse.opentracks.content.data.TrackPoint;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Benchmarks iterating a long track with {@link TrackPointIterator} against the former iteration (`_id >= lastId + 1` with a new cursor per page; see {@link #iterateBaseline(int)}) and against paging without prefetching.
+ * Also compares storage size and iteration speed of archived tracks (see {@link TrackPointCodec}) against the row format.
+ * Results are written to logcat.
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class TrackPointIteratorBenchmarkTest {
+
+    private static final String TAG = TrackPointIteratorBenchmarkTest.class.getSimpleName();
+
+    private static final int NUM_TRACKPOINTS = 500000;
+    private static final int INSERT_BATCH_SIZE = 10000;
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
+
+    private final Track.Id trackId = new Track.Id(1);
+
+    @Before
+    public void setUp() {
+        contentProviderUtils.deleteAllTracks(context);
+        contentProviderUtils.insertTrack(TestDataUtil.createTrack(trackId));
+
+        List<TrackPoint> trackPoints = new ArrayList<>(INSERT_BATCH_SIZE);
+        for (int i = 0; i < NUM_TRACKPOINTS; i++) {
+            trackPoints.add(TestDataUtil.createTrackPoint(i));
+            if (trackPoints.size() == INSERT_BATCH_SIZE) {
+                contentProviderUtils.bulkInsertTrackPoint(trackPoints, trackId);
+                trackPoints.clear();
+            }
+        }
+        contentProviderUtils.bulkInsertTrackPoint(trackPoints, trackId);
+    }
+
+    @After
+    public void tearDown() {
+        contentProviderUtils.deleteAllTracks(context);
+    }
+
+    @Test
+    public void iterate_longTrack() {
+        for (int pageSize : new int[]{500, 2000, 10000}) {
+            long baselineMillis = iterateBaseline(pageSize);
+            long pagedMillis = iterateWithoutPrefetch(pageSize);
+            long iteratorMillis = iterateWithIterator(pageSize);
+
+            Log.i(TAG, String.format("%d trackPoints, pageSize %d: baseline %d ms, without prefetch %d ms, TrackPointIterator %d ms (%.2fx baseline)", NUM_TRACKPOINTS, pageSize, baselineMillis, pagedMillis, iteratorMillis, (double) baselineMillis / Math.max(1, iteratorMillis)));
+        }
+    }
+
+    @Test
+    public void archive_longTrack() {
+        long rowBytes = getUsedDatabaseBytes();
+        long rowMillis = iterateWithIterator(contentProviderUtils.getDefaultCursorBatchSize());
+
+        long start = SystemClock.elapsedRealtime();
+        contentProviderUtils.archiveTrack(trackId);
+        long archiveMillis = SystemClock.elapsedRealtime() - start;
+
+        long archivedBytes = getUsedDatabaseBytes();
+        long archivedIteratorMillis = iterateWithIterator(contentProviderUtils.getDefaultCursorBatchSize());
+
+        Log.i(TAG, String.format("%d trackPoints: row format %d bytes, %d ms; archived %d bytes, %d ms (archiving took %d ms)", NUM_TRACKPOINTS, rowBytes, rowMillis, archivedBytes, archivedIteratorMillis, archiveMillis));
+    }
+
+    /**
+     * Bytes of the database file that are in use (i.e., excluding free pages).
+     */
+    private long getUsedDatabaseBytes() {
+        String path = context.getDatabasePath(CustomSQLiteOpenHelper.DATABASE_NAME).getPath();
+        try (SQLiteDatabase db = SQLiteDatabase.openDatabase(path, null, SQLiteDatabase.OPEN_READONLY)) {
+            return (getPragma(db, "page_count") - getPragma(db, "freelist_count")) * getPragma(db, "page_size");
+        }
+    }
+
+    private static long getPragma(SQLiteDatabase db, String pragma) {
+        try (Cursor cursor = db.rawQuery("PRAGMA " + pragma, null)) {
+            cursor.moveToFirst();
+            return cursor.getLong(0);
+        }
+    }
+
+    private long iterateWithIterator(int pageSize) {
+        long start = SystemClock.elapsedRealtime();
+        int count = 0;
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(trackId, null, pageSize)) {
+            while (trackPointIterator.hasNext()) {
+                consume(trackPointIterator.next());
+                count++;
+            }
+        }
+        assertEquals(NUM_TRACKPOINTS, count);
+        return SystemClock.elapsedRealtime() - start;
+    }
+
+    /**
+     * Like the former TrackPointIterator: the next page starts at the id after the last read trackPoint (`_id >= lastId + 1`) and loads all columns.
+     */
+    private long iterateBaseline(int pageSize) {
+        long start = SystemClock.elapsedRealtime();
+        int count = 0;
+        TrackPoint.Id startTrackPointId = null;
+        while (true) {
+            int pageCount = 0;
+            try (Cursor cursor = contentProviderUtils.getTrackPointCursor(trackId, startTrackPointId, pageSize)) {
+                CachedTrackPointsIndexes indexes = new CachedTrackPointsIndexes(cursor);
+                while (cursor.moveToNext()) {
+                    TrackPoint trackPoint = ContentProviderUtils.fillTrackPoint(cursor, indexes);
+                    consume(trackPoint);
+                    startTrackPointId = new TrackPoint.Id(trackPoint.getId().getId() + 1);
+                    pageCount++;
+                }
+            }
+            count += pageCount;
+            if (pageCount < pageSize) {
+                break;
+            }
+        }
+        assertEquals(NUM_TRACKPOINTS, count);
+        return SystemClock.elapsedRealtime() - start;
+    }
+
+    private long iterateWithoutPrefetch(int pageSize) {
+        long start = SystemClock.elapsedRealtime();
+        int count = 0;
+        TrackPoint.Id lastTrackPointId = null;
+        while (true) {
+            int pageCount = 0;
+            try (Cursor cursor = contentProviderUtils.getTrackPointCursorAfter(trackId, lastTrackPointId, pageSize)) {
+                CachedTrackPointsIndexes indexes = new CachedTrackPointsIndexes(cursor);
+                while (cursor.moveToNext()) {
+                    TrackPoint trackPoint = ContentProviderUtils.fillTrackPoint(cursor, indexes);
+                    consume(trackPoint);
+                    lastTrackPointId = trackPoint.getId();
+                    pageCount++;
+                }
+            }
+            count += pageCount;
+            if (pageCount < pageSize) {
+                break;
+            }
+        }
+        assertEquals(NUM_TRACKPOINTS, count);
+        return SystemClock.elapsedRealtime() - start;
+    }
+
+    /**
+     * Simulates a consumer (e.g., an exporter or the statistics).
+     */
+    private static void consume(TrackPoint trackPoint) {
+        trackPoint.getLocation();
+    }
+}
@@ -0,0 +1,100 @@
+package de.dennisguse.opentracks.services;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.content.data.Track;
+import de.dennisguse.opentracks.content.data.TrackPoint;
+import de.dennisguse.opentracks.content.provider.ContentProviderUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+@RunWith(AndroidJUnit4.class)
+public class TrackPointWriterTest {
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+
+    private TrackPointWriter trackPointWriter;
+    private Track track;
+
+    @Before
+    public void setUp() {
+        contentProviderUtils.deleteAllTracks(context);
+
+        track = TestDataUtil.createTrack(new Track.Id(1));
+        contentProviderUtils.insertTrack(track);
+
+        trackPointWriter = new TrackPointWriter(contentProviderUtils, executor);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        contentProviderUtils.deleteAllTracks(context);
+    }
+
+    @Test
+    public void insertTrackPoint_segmentStartAndFirstTrackPointAreCommittedImmediately() {
+        // when
+        trackPointWriter.insertTrackPoint(track, TrackPoint.createSegmentStartManualWithTime(Instant.ofEpochSecond(1)));
+        trackPointWriter.insertTrackPoint(track, TestDataUtil.createTrackPoint(1));
+
+        // then
+        assertEquals(2, contentProviderUtils.getTrackPoints(track.getId()).size());
+    }
+
+    @Test
+    public void insertTrackPoint_bufferedUntilMaxBufferedTrackPoints() {
+        // given
+        trackPointWriter.insertTrackPoint(track, TrackPoint.createSegmentStartManualWithTime(Instant.ofEpochSecond(1)));
+        trackPointWriter.insertTrackPoint(track, TestDataUtil.createTrackPoint(1));
+
+        // when
+        for (int i = 2; i < TrackPointWriter.MAX_BUFFERED_TRACKPOINTS + 1; i++) {
+            trackPointWriter.insertTrackPoint(track, TestDataUtil.createTrackPoint(i));
+        }
+
+        // then
+        assertEquals(2, contentProviderUtils.getTrackPoints(track.getId()).size());
+
+        // when
+        trackPointWriter.insertTrackPoint(track, TestDataUtil.createTrackPoint(TrackPointWriter.MAX_BUFFERED_TRACKPOINTS + 1));
+
+        // then
+        assertEquals(TrackPointWriter.MAX_BUFFERED_TRACKPOINTS + 2, contentProviderUtils.getTrackPoints(track.getId()).size());
+    }
+
+    @Test
+    public void close_commitsTrackPointsAndTrackStatistics() {
+        // given
+        trackPointWriter.insertTrackPoint(track, TrackPoint.createSegmentStartManualWithTime(Instant.ofEpochSecond(1)));
+        trackPointWriter.insertTrackPoint(track, TestDataUtil.createTrackPoint(1));
+        TrackPoint trackPoint = TestDataUtil.createTrackPoint(2);
+        track.getTrackStatistics().setTotalDistance(42);
+        trackPointWriter.insertTrackPoint(track, trackPoint);
+
+        // when
+        trackPointWriter.close();
+
+        // then
+        assertEquals(3, contentProviderUtils.getTrackPoints(track.getId()).size());
+        assertNotNull(trackPoint.getId());
+        assertEquals(42, contentProviderUtils.getTrack(track.getId()).getTrackStatistics().getTotalDistance(), 0.01);
+    }
+}
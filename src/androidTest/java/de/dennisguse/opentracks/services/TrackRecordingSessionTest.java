@@ -0,0 +1,131 @@
+package de.dennisguse.opentracks.services;
+
+import android.util.Pair;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.content.data.Track;
+import de.dennisguse.opentracks.content.data.TrackPoint;
+import de.dennisguse.opentracks.util.UnitConversions;
+import de.dennisguse.opentracks.viewmodels.IntervalStatistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class TrackRecordingSessionTest {
+
+    @Test
+    public void getLastInterval_likeWholeTrack() {
+        // given
+        Pair<Track, List<TrackPoint>> pair = TestDataUtil.createTrack(new Track.Id(1), 500);
+        TrackRecordingSession session = new TrackRecordingSession(pair.first);
+
+        // when
+        for (TrackPoint trackPoint : pair.second) {
+            session.onTrackPointInserted(trackPoint);
+        }
+
+        // then
+        IntervalStatistics.Interval expectedMetric = new IntervalStatistics(pair.second, (float) UnitConversions.KM_TO_M).getLastInterval();
+        IntervalStatistics.Interval metric = session.getLastInterval(true);
+        assertNotNull(metric);
+        assertEquals(expectedMetric.getDistance_m(), metric.getDistance_m(), 0.01);
+        assertEquals(expectedMetric.getSpeed_ms(), metric.getSpeed_ms(), 0.01);
+
+        IntervalStatistics.Interval expectedImperial = new IntervalStatistics(pair.second, (float) UnitConversions.MI_TO_M).getLastInterval();
+        IntervalStatistics.Interval imperial = session.getLastInterval(false);
+        assertNotNull(imperial);
+        assertEquals(expectedImperial.getDistance_m(), imperial.getDistance_m(), 0.01);
+        assertEquals(expectedImperial.getSpeed_ms(), imperial.getSpeed_ms(), 0.01);
+    }
+
+    @Test
+    public void getLastInterval_noTrackPoints() {
+        // given
+        TrackRecordingSession session = new TrackRecordingSession(TestDataUtil.createTrack(new Track.Id(1)));
+
+        // when / then
+        assertNull(session.getLastInterval(true));
+    }
+
+    @Test
+    public void intervals_constantSize() {
+        for (int numPoints : new int[]{100, 10000}) {
+            // given
+            IntervalStatistics intervalStatistics = new IntervalStatistics(1000f, 1);
+            Pair<Track, List<TrackPoint>> pair = TestDataUtil.createTrack(new Track.Id(1), numPoints);
+
+            // when
+            for (TrackPoint trackPoint : pair.second) {
+                intervalStatistics.add(trackPoint);
+            }
+
+            // then
+            assertTrue(intervalStatistics.getIntervalList().size() <= 2);
+        }
+    }
+
+    @Test
+    public void restoreIntervals_likeWholeTrack() {
+        // given
+        Pair<Track, List<TrackPoint>> pair = TestDataUtil.createTrack(new Track.Id(1), 500);
+        TrackRecordingSession expected = new TrackRecordingSession(pair.first);
+        pair.second.forEach(expected::addToIntervals);
+
+        for (int i : new int[]{0, 1, 250, 499, 500}) {
+            TrackRecordingSession head = new TrackRecordingSession(pair.first);
+            pair.second.subList(0, i).forEach(head::addToIntervals);
+
+            // when
+            TrackRecordingSession session = new TrackRecordingSession(pair.first);
+            assertTrue(session.restoreIntervals(head.intervalsToCheckpoint()));
+            pair.second.subList(i, pair.second.size()).forEach(session::addToIntervals);
+
+            // then
+            for (boolean metricUnits : new boolean[]{true, false}) {
+                IntervalStatistics.Interval expectedInterval = expected.getLastInterval(metricUnits);
+                IntervalStatistics.Interval interval = session.getLastInterval(metricUnits);
+                assertNotNull(interval);
+                assertEquals(expectedInterval.getDistance_m(), interval.getDistance_m(), 0);
+                assertEquals(expectedInterval.getSpeed_ms(), interval.getSpeed_ms(), 0);
+                assertEquals(expectedInterval.getGain_m(), interval.getGain_m(), 0);
+            }
+        }
+    }
+
+    @Test
+    public void restoreIntervals_invalid() {
+        // given
+        TrackRecordingSession session = new TrackRecordingSession(TestDataUtil.createTrack(new Track.Id(1)));
+
+        // when / then
+        assertFalse(session.restoreIntervals(new byte[0]));
+        assertFalse(session.restoreIntervals(new byte[]{0, 0, 0, 99}));
+        assertNull(session.getLastInterval(true));
+    }
+
+    @Test
+    public void isStatisticsCheckpointDue() {
+        // given
+        TrackRecordingSession session = new TrackRecordingSession(TestDataUtil.createTrack(new Track.Id(1)));
+        for (int i = 1; i < TrackRecordingSession.STATISTICS_CHECKPOINT_INTERVAL; i++) {
+            assertFalse(session.isStatisticsCheckpointDue(TestDataUtil.createTrackPoint(i)));
+        }
+
+        // when / then
+        assertTrue(session.isStatisticsCheckpointDue(TestDataUtil.createTrackPoint(0)));
+        assertFalse(session.isStatisticsCheckpointDue(TestDataUtil.createTrackPoint(1)));
+        assertTrue(session.isStatisticsCheckpointDue(TrackPoint.createSegmentEnd()));
+        assertFalse(session.isStatisticsCheckpointDue(TestDataUtil.createTrackPoint(2)));
+    }
+}
@@ -9,6 +9,9 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 import de.dennisguse.opentracks.content.data.TrackPoint;
 
 import static org.mockito.Mockito.verify;
@@ -25,17 +28,20 @@ public class HandlerServerTest {
     @Mock
     private LocationHandler locationHandler;
 
+    private final ExecutorService serviceExecutor = Executors.newSingleThreadExecutor();
+
     private HandlerServer subject;
 
     @Before
     public void setUp() {
-        subject = new HandlerServer(locationHandler, server);
+        subject = new HandlerServer(locationHandler, server, serviceExecutor);
         subject.start(context);
     }
 
     @After
     public void tearDown() {
         subject.stop(context);
+        serviceExecutor.shutdownNow();
     }
 
     @Test
@@ -0,0 +1,151 @@
+package de.dennisguse.opentracks.stats;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(AndroidJUnit4.class)
+public class SmoothingFilterTest {
+
+    @Test
+    public void movingAverage_likeSumOfWindow() {
+        // given
+        int size = 5;
+        SmoothingFilter filter = SmoothingFilter.create(SmoothingFilter.Type.MOVING_AVERAGE, size);
+        double[] values = new double[1000];
+        Random random = new Random(1);
+
+        for (int i = 0; i < values.length; i++) {
+            // when
+            values[i] = 1000 + random.nextDouble();
+            filter.setNext(values[i]);
+
+            // then
+            int from = Math.max(0, i - size + 1);
+            double expected = Arrays.stream(values, from, i + 1).average().getAsDouble();
+            assertEquals(expected, filter.getValue(), 1.0E-9);
+            assertEquals(i >= size - 1, filter.isFull());
+        }
+    }
+
+    @Test
+    public void median_ignoresOutlier() {
+        // given
+        SmoothingFilter filter = SmoothingFilter.create(SmoothingFilter.Type.MEDIAN, 5);
+
+        // when
+        for (int i = 0; i < 20; i++) {
+            filter.setNext(i == 17 ? 1000 : 10);
+        }
+
+        // then
+        assertEquals(10, filter.getValue(), 0.01);
+        assertTrue(filter.isFull());
+    }
+
+    @Test
+    public void median_window() {
+        // given
+        SmoothingFilter filter = SmoothingFilter.create(SmoothingFilter.Type.MEDIAN, 4);
+
+        // when
+        filter.setNext(5);
+        filter.setNext(1);
+        filter.setNext(3);
+
+        // then
+        assertEquals(3, filter.getValue(), 0.01);
+        assertFalse(filter.isFull());
+
+        // when
+        filter.setNext(8);
+        filter.setNext(9);
+        filter.setNext(10);
+
+        // then (window: 3, 8, 9, 10)
+        assertEquals(8.5, filter.getValue(), 0.01);
+    }
+
+    @Test
+    public void exponential_convergesToConstant() {
+        // given
+        SmoothingFilter filter = SmoothingFilter.create(SmoothingFilter.Type.EXPONENTIAL, 3);
+
+        // when
+        filter.setNext(0);
+        filter.setNext(10);
+
+        // then
+        assertEquals(5, filter.getValue(), 0.01);
+
+        // when
+        for (int i = 0; i < 100; i++) {
+            filter.setNext(10);
+        }
+
+        // then
+        assertEquals(10, filter.getValue(), 0.01);
+        assertTrue(filter.isFull());
+    }
+
+    @Test
+    public void reset() {
+        for (SmoothingFilter.Type type : SmoothingFilter.Type.values()) {
+            // given
+            SmoothingFilter filter = SmoothingFilter.create(type, 3);
+            filter.setNext(100);
+
+            // when
+            filter.reset();
+            filter.setNext(1);
+
+            // then
+            assertEquals(1, filter.getValue(), 0.01);
+            assertFalse(filter.isFull());
+        }
+    }
+
+    @Test
+    public void writeTo_readFrom() throws IOException {
+        for (SmoothingFilter.Type type : SmoothingFilter.Type.values()) {
+            for (int readings : new int[]{0, 3, 12}) {
+                // given
+                SmoothingFilter filter = SmoothingFilter.create(type, 5);
+                SmoothingFilter expected = SmoothingFilter.create(type, 5);
+                Random random = new Random(readings);
+                for (int i = 0; i < readings; i++) {
+                    double value = random.nextDouble();
+                    filter.setNext(value);
+                    expected.setNext(value);
+                }
+
+                // when
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                filter.writeTo(new DataOutputStream(bytes));
+                SmoothingFilter restored = SmoothingFilter.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+                // then
+                assertEquals(type, restored.getType());
+                assertEquals(expected.isFull(), restored.isFull());
+                for (int i = 0; i < 10; i++) {
+                    assertEquals(expected.getValue(), restored.getValue(), 0);
+                    expected.setNext(i);
+                    restored.setNext(i);
+                }
+            }
+        }
+    }
+}
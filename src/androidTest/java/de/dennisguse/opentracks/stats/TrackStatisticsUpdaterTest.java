@@ -3,11 +3,16 @@ package de.dennisguse.opentracks.stats;
 import org.junit.Test;
 
 import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 
 import de.dennisguse.opentracks.content.data.TestDataUtil;
 import de.dennisguse.opentracks.content.data.Track;
+import de.dennisguse.opentracks.content.data.TrackPoint;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 public class TrackStatisticsUpdaterTest {
 
@@ -35,4 +40,64 @@ public class TrackStatisticsUpdaterTest {
         assertEquals(14.226, statistics.getAverageMovingSpeed(), 0.01);
         assertEquals(6.566, statistics.getAverageSpeed(), 0.01);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void fromCheckpoint_likeAllTrackPoints() {
+        // given
+        TestDataUtil.TrackData data = TestDataUtil.createTestingTrack(new Track.Id(1));
+        TrackStatisticsUpdater expected = new TrackStatisticsUpdater();
+        data.trackPoints.forEach(it -> expected.addTrackPoint(it, 50));
+
+        for (int i = 0; i <= data.trackPoints.size(); i++) {
+            TrackStatisticsUpdater head = new TrackStatisticsUpdater();
+            data.trackPoints.subList(0, i).forEach(it -> head.addTrackPoint(it, 50));
+
+            // when
+            TrackStatisticsUpdater updater = TrackStatisticsUpdater.fromCheckpoint(head.toCheckpoint());
+            assertNotNull(updater);
+            data.trackPoints.subList(i, data.trackPoints.size()).forEach(it -> updater.addTrackPoint(it, 50));
+
+            // then
+            assertEquals(expected.getTrackStatistics().toString(), updater.getTrackStatistics().toString());
+            assertEquals(expected.getSmoothedElevation(), updater.getSmoothedElevation(), 0);
+            assertEquals(expected.getSmoothedSpeed(), updater.getSmoothedSpeed(), 0);
+        }
+    }
+
+    @Test
+    public void fromCheckpoint_resetSegment_likeTrackStatistics() {
+        // given
+        TestDataUtil.TrackData data = TestDataUtil.createTestingTrack(new Track.Id(1));
+        Instant resumeTime = data.trackPoints.get(data.trackPoints.size() - 1).getTime().plus(Duration.ofHours(1));
+        List<TrackPoint> resumedTrackPoints = List.of(
+                TrackPoint.createSegmentStartManualWithTime(resumeTime),
+                TrackPoint.createSegmentEndWithTime(resumeTime.plusSeconds(10))
+        );
+
+        for (int i = 1; i <= data.trackPoints.size(); i++) {
+            TrackStatisticsUpdater head = new TrackStatisticsUpdater();
+            data.trackPoints.subList(0, i).forEach(it -> head.addTrackPoint(it, 50));
+
+            TrackStatistics trackStatistics = head.getTrackStatistics();
+            trackStatistics.setStopTime(resumeTime);
+            TrackStatisticsUpdater expected = new TrackStatisticsUpdater(trackStatistics);
+            resumedTrackPoints.forEach(it -> expected.addTrackPoint(it, 50));
+
+            // when
+            TrackStatisticsUpdater updater = TrackStatisticsUpdater.fromCheckpoint(head.toCheckpoint());
+            assertNotNull(updater);
+            updater.resetSegment();
+            resumedTrackPoints.forEach(it -> updater.addTrackPoint(it, 50));
+
+            // then
+            assertEquals(expected.getTrackStatistics().getTotalTime(), updater.getTrackStatistics().getTotalTime());
+            assertEquals(expected.getTrackStatistics().toString(), updater.getTrackStatistics().toString());
+        }
+    }
+
+    @Test
+    public void fromCheckpoint_invalid() {
+        assertNull(TrackStatisticsUpdater.fromCheckpoint(new byte[0]));
+        assertNull(TrackStatisticsUpdater.fromCheckpoint(new byte[]{0, 0, 0, 99}));
+    }
+}
@@ -0,0 +1,69 @@
+package de.dennisguse.opentracks.util;
+
+import android.location.Location;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(AndroidJUnit4.class)
+public class GeodesicUtilsTest {
+
+    // latitude1, longitude1, latitude2, longitude2
+    private static final double[][] COORDINATES = {
+            // Short hops
+            {52.5, 13.4, 52.50009, 13.4001},
+            {52.5, 13.4, 52.55, 13.45},
+            {-33.9, 151.2, -33.9, 151.2001},
+            {10, 179.99, 10.01, -179.99},
+            // Long distances
+            {0, 0, 0, 1},
+            {52.5, 13.4, 48.1, 11.6},
+            {-33.9, 151.2, 51.5, -0.1},
+            {89.5, 0, 89.5, 90},
+    };
+
+    @Test
+    public void distance_likeAndroid() {
+        for (double[] c : COORDINATES) {
+            // given
+            float[] results = new float[2];
+            Location.distanceBetween(c[0], c[1], c[2], c[3], results);
+
+            // when
+            double distance = GeodesicUtils.distance(c[0], c[1], c[2], c[3]);
+
+            // then
+            assertEquals(results[0], distance, Math.max(0.01, results[0] * 1.0E-6));
+        }
+    }
+
+    @Test
+    public void bearing_likeAndroid() {
+        for (double[] c : COORDINATES) {
+            // given
+            float[] results = new float[2];
+            Location.distanceBetween(c[0], c[1], c[2], c[3], results);
+
+            // when
+            double bearing = GeodesicUtils.bearing(c[0], c[1], c[2], c[3]);
+
+            // then
+            assertEquals(results[1], bearing, 0.1);
+        }
+    }
+
+    @Test
+    public void distance_coincident() {
+        assertEquals(0, GeodesicUtils.distance(52.5, 13.4, 52.5, 13.4), 0);
+        assertEquals(0, GeodesicUtils.distance(0, 0, 0, 0), 0);
+    }
+
+    @Test
+    public void distanceE6() {
+        assertEquals(GeodesicUtils.distance(52.5, 13.4, 52.55, 13.45), GeodesicUtils.distanceE6(52_500_000, 13_400_000, 52_550_000, 13_450_000), 0.001);
+    }
+}
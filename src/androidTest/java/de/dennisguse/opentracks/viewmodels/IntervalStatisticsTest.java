@@ -9,6 +9,7 @@ import java.util.List;
 import de.dennisguse.opentracks.content.data.TestDataUtil;
 import de.dennisguse.opentracks.content.data.Track;
 import de.dennisguse.opentracks.content.data.TrackPoint;
+import de.dennisguse.opentracks.content.data.TrackPointBuffer;
 import de.dennisguse.opentracks.stats.TrackStatistics;
 import de.dennisguse.opentracks.stats.TrackStatisticsUpdater;
 import de.dennisguse.opentracks.util.UnitConversions;
@@ -112,6 +113,70 @@ public class IntervalStatisticsTest {
 		whenAndThen(trackPoints, trackStatistics, distanceInterval);
 	}
 
+	/**
+	 * Tests that the model computes the intervals of all options in one pass like building them from all trackPoints.
+	 */
+	@Test
+	public void testModel_allIntervalOptions() {
+		// given
+		List<TrackPoint> trackPoints = buildTrackPoints(1000);
+		IntervalStatisticsModel model = new IntervalStatisticsModel();
+
+		// when
+		model.addAll(trackPoints.subList(0, 500));
+		for (TrackPoint trackPoint : trackPoints.subList(500, trackPoints.size())) {
+			model.add(trackPoint);
+		}
+
+		// then
+		for (IntervalStatisticsModel.IntervalOption option : IntervalStatisticsModel.IntervalOption.values()) {
+			float distanceInterval = (float) (option.getValue() * UnitConversions.KM_TO_M);
+			List<IntervalStatistics.Interval> expected = new IntervalStatistics(trackPoints, distanceInterval).getIntervalList();
+			List<IntervalStatistics.Interval> actual = model.getIntervalStats(true, option).getIntervalList();
+
+			assertEquals(expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(expected.get(i).getDistance_m(), actual.get(i).getDistance_m(), 0.001);
+				assertEquals(expected.get(i).getSpeed_ms(), actual.get(i).getSpeed_ms(), 0.001);
+				assertEquals(expected.get(i).getGain_m(), actual.get(i).getGain_m(), 0.001);
+			}
+		}
+	}
+
+	/**
+	 * Tests that adding trackPoints from a {@link TrackPointBuffer} is like adding them one by one.
+	 */
+	@Test
+	public void testAddAll_trackPointBuffer() {
+		// given: the coordinates as stored (micro degrees)
+		TrackPointBuffer stored = new TrackPointBuffer();
+		buildTrackPoints(1000).forEach(stored::append);
+		List<TrackPoint> trackPoints = stored.toTrackPoints();
+		float distanceInterval = 1000f;
+		TrackPointBuffer first = new TrackPointBuffer();
+		trackPoints.subList(0, 300).forEach(first::append);
+		TrackPointBuffer second = new TrackPointBuffer();
+		trackPoints.subList(300, 600).forEach(second::append);
+		IntervalStatistics intervalStatistics = new IntervalStatistics(distanceInterval);
+
+		// when
+		intervalStatistics.addAll(first);
+		intervalStatistics.addAll(second);
+		for (TrackPoint trackPoint : trackPoints.subList(600, trackPoints.size())) {
+			intervalStatistics.add(trackPoint);
+		}
+
+		// then
+		List<IntervalStatistics.Interval> expected = new IntervalStatistics(trackPoints, distanceInterval).getIntervalList();
+		List<IntervalStatistics.Interval> actual = intervalStatistics.getIntervalList();
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getDistance_m(), actual.get(i).getDistance_m(), 0.01);
+			assertEquals(expected.get(i).getSpeed_ms(), actual.get(i).getSpeed_ms(), 0.01);
+			assertEquals(expected.get(i).getGain_m(), actual.get(i).getGain_m(), 0.01);
+		}
+	}
+
 	private void whenAndThen(List<TrackPoint> trackPoints, TrackStatistics trackStatistics, float distanceInterval) {
 		IntervalStatistics intervalStatistics = new IntervalStatistics(trackPoints, distanceInterval);
 		List<IntervalStatistics.Interval> intervalList = intervalStatistics.getIntervalList();
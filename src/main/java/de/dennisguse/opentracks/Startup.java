@@ -6,6 +6,7 @@ import android.util.Log;
 
 import java.util.Locale;
 
+import de.dennisguse.opentracks.content.TrackDataCache;
 import de.dennisguse.opentracks.util.ActivityUtils;
 import de.dennisguse.opentracks.util.PreferencesUtils;
 
@@ -35,6 +36,8 @@ public class Startup extends Application {
 
         ActivityUtils.applyNightMode(this);
 
+        TrackDataCache.getInstance().registerContentObserver(getContentResolver());
+
         //TODO Workaround to reset recordingTrackId on app startup as the TrackRecordingService (likely) crashed.
         if (PreferencesUtils.isRecording(this)) {
             Log.e(TAG, "Reset recordingTrackId; likely the TrackRecordingService crashed.");
@@ -54,4 +57,10 @@ public class Startup extends Application {
                     .build());
         }
     }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        TrackDataCache.getInstance().onTrimMemory(level);
+    }
 }
@@ -0,0 +1,166 @@
+package de.dennisguse.opentracks.chart;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import de.dennisguse.opentracks.stats.ExtremityMonitor;
+
+/**
+ * The chart data stored as columns (one double[] per channel) with a validity bitmap per channel; one index per {@link ChartPoint}.
+ * The extremities of x (timeOrDistance) and of each channel are tracked while appending.
+ * <p>
+ * Not thread-safe.
+ */
+class ChartBuffer {
+
+    static final int CHANNEL_ELEVATION = 0;
+    static final int CHANNEL_SPEED = 1;
+    static final int CHANNEL_PACE = 2;
+    static final int CHANNEL_HEART_RATE = 3;
+    static final int CHANNEL_CADENCE = 4;
+    static final int CHANNEL_POWER = 5;
+    static final int NUM_CHANNELS = 6;
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private int size = 0;
+
+    private double[] xs = new double[DEFAULT_CAPACITY];
+    private final double[][] channels = new double[NUM_CHANNELS][];
+    private final BitSet[] valid = new BitSet[NUM_CHANNELS];
+
+    private final ExtremityMonitor xExtremityMonitor = new ExtremityMonitor();
+    private final ExtremityMonitor[] extremityMonitors = new ExtremityMonitor[NUM_CHANNELS];
+
+    ChartBuffer() {
+        for (int channel = 0; channel < NUM_CHANNELS; channel++) {
+            channels[channel] = new double[DEFAULT_CAPACITY];
+            valid[channel] = new BitSet();
+            extremityMonitors[channel] = new ExtremityMonitor();
+        }
+    }
+
+    /**
+     * @return the index of the chartPoint
+     */
+    int append(@NonNull ChartPoint chartPoint) {
+        if (size == xs.length) {
+            int capacity = xs.length * 2;
+            xs = Arrays.copyOf(xs, capacity);
+            for (int channel = 0; channel < NUM_CHANNELS; channel++) {
+                channels[channel] = Arrays.copyOf(channels[channel], capacity);
+            }
+        }
+
+        xs[size] = chartPoint.getTimeOrDistance();
+        xExtremityMonitor.update(xs[size]);
+        for (int channel = 0; channel < NUM_CHANNELS; channel++) {
+            double value = getValue(chartPoint, channel);
+            if (!Double.isNaN(value)) {
+                channels[channel][size] = value;
+                valid[channel].set(size);
+                extremityMonitors[channel].update(value);
+            }
+        }
+        return size++;
+    }
+
+    /**
+     * Removes all data; keeps the allocated arrays.
+     */
+    void clear() {
+        size = 0;
+        xExtremityMonitor.reset();
+        for (int channel = 0; channel < NUM_CHANNELS; channel++) {
+            valid[channel].clear();
+            extremityMonitors[channel].reset();
+        }
+    }
+
+    /**
+     * Keeps only the chartPoints at the kept positions (in order) and recomputes the extremities.
+     *
+     * @param keptPositions the indexes to keep
+     */
+    void retain(@NonNull BitSet keptPositions) {
+        int oldSize = size;
+        size = 0;
+        xExtremityMonitor.reset();
+        for (int channel = 0; channel < NUM_CHANNELS; channel++) {
+            extremityMonitors[channel].reset();
+        }
+
+        for (int index = keptPositions.nextSetBit(0); index >= 0 && index < oldSize; index = keptPositions.nextSetBit(index + 1)) {
+            xs[size] = xs[index];
+            xExtremityMonitor.update(xs[size]);
+            for (int channel = 0; channel < NUM_CHANNELS; channel++) {
+                boolean isValid = valid[channel].get(index);
+                valid[channel].set(size, isValid);
+                if (isValid) {
+                    channels[channel][size] = channels[channel][index];
+                    extremityMonitors[channel].update(channels[channel][size]);
+                }
+            }
+            size++;
+        }
+
+        for (int channel = 0; channel < NUM_CHANNELS; channel++) {
+            valid[channel].clear(size, Math.max(size, oldSize));
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    double getX(int index) {
+        return xs[index];
+    }
+
+    boolean isValid(int channel, int index) {
+        return valid[channel].get(index);
+    }
+
+    /**
+     * @return the value; undefined if not {@link #isValid(int, int)}
+     */
+    double get(int channel, int index) {
+        return channels[channel][index];
+    }
+
+    ExtremityMonitor getXExtremityMonitor() {
+        return xExtremityMonitor;
+    }
+
+    ExtremityMonitor getExtremityMonitor(int channel) {
+        return extremityMonitors[channel];
+    }
+
+    /**
+     * @return the value of a channel of a chartPoint; NaN if not present
+     */
+    static double getValue(@NonNull ChartPoint chartPoint, int channel) {
+        switch (channel) {
+            case CHANNEL_ELEVATION:
+                return chartPoint.getElevation();
+            case CHANNEL_SPEED:
+                return chartPoint.getSpeed();
+            case CHANNEL_PACE:
+                return chartPoint.getPace();
+            case CHANNEL_HEART_RATE:
+                return chartPoint.getHeartRate();
+            case CHANNEL_CADENCE:
+                return chartPoint.getCadence();
+            case CHANNEL_POWER:
+                return chartPoint.getPower();
+            default:
+                throw new IllegalArgumentException("Unknown channel " + channel);
+        }
+    }
+}
@@ -25,6 +25,12 @@ public class ChartPoint {
         this.elevation = elevation;
     }
 
+    @VisibleForTesting
+    ChartPoint(double timeOrDistance, double elevation) {
+        this.timeOrDistance = timeOrDistance;
+        this.elevation = elevation;
+    }
+
     public ChartPoint(@NonNull TrackStatisticsUpdater trackStatisticsUpdater, TrackPoint trackPoint, boolean chartByDistance, boolean metricUnits) {
         TrackStatistics trackStatistics = trackStatisticsUpdater.getTrackStatistics();
 
@@ -0,0 +1,251 @@
+package de.dennisguse.opentracks.chart;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The {@link ChartPoint}s of a track at power-of-two resolutions (level of detail); stores indexes into a {@link ChartBuffer}.
+ * Level 0 contains all chartPoints; level k+1 contains one chartPoint of each pair of level k.
+ * Of each pair the chartPoint is kept that differs more from the previously kept one; so, peaks remain visible on coarse levels.
+ * <p>
+ * The chartPoints must be added ordered by timeOrDistance; adding is O(1) amortized and needs at most twice the memory of level 0.
+ * All levels are only appended; so, drawing the level with about one chartPoint per pixel (see {@link #getLevel(int)}) costs about the same for all track lengths.
+ * <p>
+ * For series drawing an envelope (see {@link ChartValueSeries#drawEnvelope()}), level k+1 additionally stores per chartPoint the min, max, and mean of the 2^(k+1) chartPoints of level 0 it stands for.
+ * <p>
+ * Not thread-safe.
+ */
+class ChartPointPyramid {
+
+    private final ChartBuffer chartBuffer;
+    private final List<ChartValueSeries> seriesList;
+    private final List<Level> levels = new ArrayList<>();
+
+    /**
+     * @param chartBuffer the data of the chartPoints
+     * @param seriesList  the series used to compare chartPoints
+     */
+    ChartPointPyramid(@NonNull ChartBuffer chartBuffer, @NonNull List<ChartValueSeries> seriesList) {
+        this.chartBuffer = chartBuffer;
+        this.seriesList = seriesList;
+        levels.add(createLevel(0));
+    }
+
+    /**
+     * @param index the index of a chartPoint in the {@link ChartBuffer}
+     */
+    void add(int index) {
+        int next = index;
+        for (int level = 0; next >= 0; level++) {
+            if (level == levels.size()) {
+                levels.add(createLevel(level));
+            }
+            Level indexes = levels.get(level);
+            indexes.add(next);
+            if (level > 0) {
+                mergeEnvelopes(level - 1, indexes);
+            }
+
+            next = -1;
+            if (indexes.size % 2 == 0) {
+                next = select(level + 1, indexes.get(indexes.size - 2), indexes.get(indexes.size - 1));
+            }
+        }
+    }
+
+    void clear() {
+        levels.clear();
+        levels.add(createLevel(0));
+    }
+
+    boolean isEmpty() {
+        return levels.get(0).size == 0;
+    }
+
+    int size() {
+        return levels.get(0).size;
+    }
+
+    /**
+     * @param maxPoints e.g., the number of pixels
+     * @return the finest level with at most maxPoints chartPoints (or the coarsest level)
+     */
+    int getLevel(int maxPoints) {
+        int level = 0;
+        while (size(level) > maxPoints && level + 1 < levels.size()) {
+            level++;
+        }
+        return level;
+    }
+
+    int size(int level) {
+        return levels.get(level).size;
+    }
+
+    /**
+     * @return the index of the chartPoint in the {@link ChartBuffer}
+     */
+    int get(int level, int index) {
+        return levels.get(level).get(index);
+    }
+
+    /**
+     * @return true if the chartPoint at level (> 0) has an envelope of the channel with at least one value
+     */
+    boolean hasEnvelope(int level, int index, int channel) {
+        Envelope envelope = levels.get(level).envelopes[channel];
+        return envelope != null && envelope.count[index] > 0;
+    }
+
+    float getEnvelopeMin(int level, int index, int channel) {
+        return levels.get(level).envelopes[channel].min[index];
+    }
+
+    float getEnvelopeMax(int level, int index, int channel) {
+        return levels.get(level).envelopes[channel].max[index];
+    }
+
+    float getEnvelopeMean(int level, int index, int channel) {
+        return levels.get(level).envelopes[channel].mean[index];
+    }
+
+    private Level createLevel(int level) {
+        Level created = new Level();
+        if (level > 0) {
+            for (ChartValueSeries chartValueSeries : seriesList) {
+                if (chartValueSeries.drawEnvelope()) {
+                    created.envelopes[chartValueSeries.getChannel()] = new Envelope();
+                }
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Sets the envelopes of the last chartPoint of upper from the last pair of chartPoints of the level below.
+     */
+    private void mergeEnvelopes(int lowerLevel, Level upper) {
+        Level lower = levels.get(lowerLevel);
+        int first = lower.size - 2;
+        int second = lower.size - 1;
+        int target = upper.size - 1;
+        for (int channel = 0; channel < ChartBuffer.NUM_CHANNELS; channel++) {
+            Envelope envelope = upper.envelopes[channel];
+            if (envelope == null) {
+                continue;
+            }
+            if (lowerLevel == 0) {
+                envelope.reset(target);
+                envelope.add(target, chartBuffer, channel, lower.get(first));
+                envelope.add(target, chartBuffer, channel, lower.get(second));
+            } else {
+                envelope.merge(target, lower.envelopes[channel], first, second);
+            }
+        }
+    }
+
+    /**
+     * Of a pair, selects the chartPoint that differs more from the previously selected one (relative to each series' range).
+     */
+    private int select(int level, int first, int second) {
+        if (level >= levels.size() || levels.get(level).size == 0) {
+            // Keep the track's first chartPoint.
+            return first;
+        }
+        Level selected = levels.get(level);
+        int previous = selected.get(selected.size - 1);
+        return difference(previous, second) > difference(previous, first) ? second : first;
+    }
+
+    private double difference(int a, int b) {
+        double difference = 0;
+        for (ChartValueSeries chartValueSeries : seriesList) {
+            int channel = chartValueSeries.getChannel();
+            if (!chartBuffer.isValid(channel, a) || !chartBuffer.isValid(channel, b)) {
+                continue;
+            }
+            double range = Math.max(1, chartValueSeries.getMaxMarkerValue() - chartValueSeries.getMinMarkerValue());
+            difference += Math.abs(chartBuffer.get(channel, a) - chartBuffer.get(channel, b)) / range;
+        }
+        return difference;
+    }
+
+    /**
+     * Growable array of indexes with the envelopes of some channels (null otherwise).
+     */
+    private static class Level {
+        private int[] indexes = new int[16];
+        private int size = 0;
+        private final Envelope[] envelopes = new Envelope[ChartBuffer.NUM_CHANNELS];
+
+        void add(int index) {
+            if (size == indexes.length) {
+                indexes = Arrays.copyOf(indexes, size * 2);
+                for (Envelope envelope : envelopes) {
+                    if (envelope != null) {
+                        envelope.grow(size * 2);
+                    }
+                }
+            }
+            indexes[size++] = index;
+        }
+
+        int get(int index) {
+            return indexes[index];
+        }
+    }
+
+    /**
+     * Min, max, and mean of the valid values of a channel; one per chartPoint of a {@link Level}.
+     */
+    private static class Envelope {
+        private float[] min = new float[16];
+        private float[] max = new float[16];
+        private float[] mean = new float[16];
+        private int[] count = new int[16];
+
+        void grow(int capacity) {
+            min = Arrays.copyOf(min, capacity);
+            max = Arrays.copyOf(max, capacity);
+            mean = Arrays.copyOf(mean, capacity);
+            count = Arrays.copyOf(count, capacity);
+        }
+
+        void reset(int target) {
+            min[target] = Float.POSITIVE_INFINITY;
+            max[target] = Float.NEGATIVE_INFINITY;
+            mean[target] = 0;
+            count[target] = 0;
+        }
+
+        void add(int target, ChartBuffer chartBuffer, int channel, int index) {
+            if (!chartBuffer.isValid(channel, index)) {
+                return;
+            }
+            float value = (float) chartBuffer.get(channel, index);
+            min[target] = Math.min(min[target], value);
+            max[target] = Math.max(max[target], value);
+            count[target]++;
+            mean[target] += (value - mean[target]) / count[target];
+        }
+
+        void merge(int target, Envelope lower, int first, int second) {
+            int countFirst = lower.count[first];
+            int countSecond = lower.count[second];
+            count[target] = countFirst + countSecond;
+            if (countFirst == 0 || countSecond == 0) {
+                int source = countFirst == 0 ? second : first;
+                min[target] = lower.min[source];
+                max[target] = lower.max[source];
+                mean[target] = lower.mean[source];
+                return;
+            }
+            min[target] = Math.min(lower.min[first], lower.min[second]);
+            max[target] = Math.max(lower.max[first], lower.max[second]);
+            mean[target] = (lower.mean[first] * countFirst + lower.mean[second] * countSecond) / count[target];
+        }
+    }
+}
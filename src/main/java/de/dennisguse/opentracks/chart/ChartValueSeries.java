@@ -18,6 +18,7 @@ package de.dennisguse.opentracks.chart;
 
 import android.content.Context;
 import android.graphics.Canvas;
+import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Paint.Align;
 import android.graphics.Paint.Style;
@@ -26,6 +27,7 @@ import android.graphics.Path;
 import androidx.annotation.NonNull;
 
 import java.text.NumberFormat;
+import java.util.Arrays;
 
 import de.dennisguse.opentracks.stats.ExtremityMonitor;
 
@@ -38,6 +40,8 @@ abstract class ChartValueSeries {
 
     private static final float STROKE_WIDTH = 2f;
 
+    private final ChartBuffer chartBuffer;
+    private final int channel;
     private final int absoluteMin;
     private final int absoluteMax;
     private final int[] intervalValues;
@@ -47,9 +51,22 @@ abstract class ChartValueSeries {
     private final Paint strokePaint;
     private final Paint titlePaint;
     private final Paint markerPaint;
-    private final ExtremityMonitor extremityMonitor = new ExtremityMonitor();
     private final NumberFormat numberFormat = NumberFormat.getIntegerInstance();
-    private final Path path = new Path();
+    // The line in data coordinates (x: timeOrDistance, y: value) as segments (x0, y0, x1, y1); only appended.
+    private float[] dataSegments = new float[256];
+    private int numDataSegmentValues = 0;
+    private boolean hasDataPoint = false;
+    private final float[] firstDataPoint = new float[2];
+    private final float[] lastDataPoint = new float[2];
+    // The envelope in data coordinates as points (x, max) and (x, min); only appended.
+    private float[] dataEnvelopeMax = new float[256];
+    private float[] dataEnvelopeMin = new float[256];
+    private int numDataEnvelopeValues = 0;
+
+    // Geometry in view coordinates: the back buffer is built by the geometry thread, the front buffer is drawn by the UI thread.
+    private Geometry front = new Geometry();
+    private Geometry back = new Geometry();
+    private final float[] point = new float[2];
 
     private int interval = 1;
     private int minMarkerValue = 0;
@@ -60,6 +77,8 @@ abstract class ChartValueSeries {
      * Constructor.
      *
      * @param context         the context
+     * @param chartBuffer     the chart data
+     * @param channel         the channel of the chartBuffer (e.g., {@link ChartBuffer#CHANNEL_ELEVATION})
      * @param absoluteMin     the absolute min value
      * @param absoluteMax     the absolute max value
      * @param intervalValues  the list of interval values
@@ -68,7 +87,9 @@ abstract class ChartValueSeries {
      * @param fillColor       the fill color
      * @param strokeColor     the stroke color
      */
-    ChartValueSeries(Context context, int absoluteMin, int absoluteMax, int[] intervalValues, int metricTitleId, int imperialTitleId, int fillColor, int strokeColor, int fontSizeSmall, int fontSizeMedium) {
+    ChartValueSeries(Context context, ChartBuffer chartBuffer, int channel, int absoluteMin, int absoluteMax, int[] intervalValues, int metricTitleId, int imperialTitleId, int fillColor, int strokeColor, int fontSizeSmall, int fontSizeMedium) {
+        this.chartBuffer = chartBuffer;
+        this.channel = channel;
         this.absoluteMin = absoluteMin;
         this.absoluteMax = absoluteMax;
         this.intervalValues = intervalValues;
@@ -98,6 +119,8 @@ abstract class ChartValueSeries {
 
         // Set stroke paint thickness
         strokePaint.setStrokeWidth(STROKE_WIDTH);
+        // Segments are drawn without joins
+        strokePaint.setStrokeCap(Paint.Cap.ROUND);
     }
 
     /**
@@ -120,39 +143,174 @@ abstract class ChartValueSeries {
      * Returns true if the series has data.
      */
     boolean hasData() {
-        return extremityMonitor.hasData();
+        return chartBuffer.getExtremityMonitor(channel).hasData();
     }
 
     /**
-     * Updates the series with a new {@link ChartPoint}.
+     * Returns the channel of the {@link ChartBuffer}.
      */
-    void update(ChartPoint chartPoint) {
-        if (isChartPointValid(chartPoint)) {
-            extremityMonitor.update(extractDataFromChartPoint(chartPoint));
+    int getChannel() {
+        return channel;
+    }
+
+    protected abstract boolean drawIfChartPointHasNoData();
+
+    /**
+     * Returns true if the series is drawn as a min/max band with a mean line if there are more chartPoints than pixels (e.g., dense sensor data).
+     */
+    protected boolean drawEnvelope() {
+        return false;
+    }
+
+    void resetDataSegments() {
+        numDataSegmentValues = 0;
+        numDataEnvelopeValues = 0;
+        hasDataPoint = false;
+    }
+
+    /**
+     * Appends a chartPoint to the line in data coordinates; ignored if the chartPoint has no value.
+     *
+     * @param index the index of the chartPoint in the {@link ChartBuffer}
+     */
+    void appendToDataSegments(int index) {
+        if (!chartBuffer.isValid(channel, index)) {
+            return;
         }
+        appendToDataSegments((float) chartBuffer.getX(index), (float) chartBuffer.get(channel, index));
     }
 
-    abstract double extractDataFromChartPoint(@NonNull ChartPoint chartPoint);
+    /**
+     * Appends the min, max, and mean of a group of chartPoints to the envelope and its mean to the line in data coordinates.
+     */
+    void appendToDataEnvelope(float x, float min, float max, float mean) {
+        if (numDataEnvelopeValues + 2 > dataEnvelopeMax.length) {
+            dataEnvelopeMax = Arrays.copyOf(dataEnvelopeMax, dataEnvelopeMax.length * 2);
+            dataEnvelopeMin = Arrays.copyOf(dataEnvelopeMin, dataEnvelopeMin.length * 2);
+        }
+        dataEnvelopeMax[numDataEnvelopeValues] = x;
+        dataEnvelopeMax[numDataEnvelopeValues + 1] = max;
+        dataEnvelopeMin[numDataEnvelopeValues] = x;
+        dataEnvelopeMin[numDataEnvelopeValues + 1] = min;
+        numDataEnvelopeValues += 2;
 
-    boolean isChartPointValid(@NonNull ChartPoint chartPoint) {
-        return !Double.isNaN(extractDataFromChartPoint(chartPoint));
+        appendToDataSegments(x, mean);
     }
 
-    protected abstract boolean drawIfChartPointHasNoData();
+    private void appendToDataSegments(float x, float y) {
+        if (!hasDataPoint) {
+            hasDataPoint = true;
+            firstDataPoint[0] = x;
+            firstDataPoint[1] = y;
+        } else {
+            if (numDataSegmentValues + 4 > dataSegments.length) {
+                dataSegments = Arrays.copyOf(dataSegments, dataSegments.length * 2);
+            }
+            dataSegments[numDataSegmentValues++] = lastDataPoint[0];
+            dataSegments[numDataSegmentValues++] = lastDataPoint[1];
+            dataSegments[numDataSegmentValues++] = x;
+            dataSegments[numDataSegmentValues++] = y;
+        }
+        lastDataPoint[0] = x;
+        lastDataPoint[1] = y;
+    }
 
-    Path getPath() {
-        return path;
+    /**
+     * Updates the geometry (back buffer) in view coordinates and swaps the buffers; not on the UI thread.
+     * The line is extended to the latest chartPoint and closed to the bottom for the fill; if there is an envelope, it is filled instead.
+     *
+     * @param matrix    from data coordinates to view coordinates
+     * @param lastIndex the index of the latest chartPoint in the {@link ChartBuffer} (or -1); appended if it is not part of the line (e.g., coarse level)
+     * @param bottom    the bottom in view coordinates
+     */
+    void updateGeometry(@NonNull Matrix matrix, int lastIndex, float bottom) {
+        Geometry geometry = back;
+        geometry.numSegmentValues = 0;
+        geometry.fill.reset();
+
+        if (hasDataPoint) {
+            geometry.ensureCapacity(numDataSegmentValues + 4);
+            matrix.mapPoints(geometry.segments, 0, dataSegments, 0, numDataSegmentValues / 2);
+            geometry.numSegmentValues = numDataSegmentValues;
+
+            point[0] = firstDataPoint[0];
+            point[1] = firstDataPoint[1];
+            matrix.mapPoints(point);
+            float firstX = point[0];
+            geometry.fill.moveTo(firstX, point[1]);
+            for (int i = 2; i < geometry.numSegmentValues; i += 4) {
+                geometry.fill.lineTo(geometry.segments[i], geometry.segments[i + 1]);
+            }
+
+            if (lastIndex >= 0 && chartBuffer.isValid(channel, lastIndex) && (float) chartBuffer.getX(lastIndex) > lastDataPoint[0]) {
+                point[0] = lastDataPoint[0];
+                point[1] = lastDataPoint[1];
+                matrix.mapPoints(point);
+                geometry.segments[geometry.numSegmentValues++] = point[0];
+                geometry.segments[geometry.numSegmentValues++] = point[1];
+
+                point[0] = (float) chartBuffer.getX(lastIndex);
+                point[1] = (float) chartBuffer.get(channel, lastIndex);
+                matrix.mapPoints(point);
+                geometry.segments[geometry.numSegmentValues++] = point[0];
+                geometry.segments[geometry.numSegmentValues++] = point[1];
+                geometry.fill.lineTo(point[0], point[1]);
+            } else {
+                point[0] = lastDataPoint[0];
+                point[1] = lastDataPoint[1];
+                matrix.mapPoints(point);
+            }
+            if (numDataEnvelopeValues > 0) {
+                updateEnvelope(matrix, geometry);
+            } else {
+                // Bottom right corner
+                geometry.fill.lineTo(point[0], bottom);
+                // Bottom left corner
+                geometry.fill.lineTo(firstX, bottom);
+                geometry.fill.close();
+            }
+        }
+
+        synchronized (this) {
+            back = front;
+            front = geometry;
+        }
+    }
+
+    /**
+     * Replaces the fill by the band along the max values and back along the min values.
+     */
+    private void updateEnvelope(@NonNull Matrix matrix, @NonNull Geometry geometry) {
+        geometry.ensureEnvelopeCapacity(numDataEnvelopeValues);
+        matrix.mapPoints(geometry.envelopeMax, 0, dataEnvelopeMax, 0, numDataEnvelopeValues / 2);
+        matrix.mapPoints(geometry.envelopeMin, 0, dataEnvelopeMin, 0, numDataEnvelopeValues / 2);
+
+        geometry.fill.reset();
+        geometry.fill.moveTo(geometry.envelopeMax[0], geometry.envelopeMax[1]);
+        for (int i = 2; i < numDataEnvelopeValues; i += 2) {
+            geometry.fill.lineTo(geometry.envelopeMax[i], geometry.envelopeMax[i + 1]);
+        }
+        for (int i = numDataEnvelopeValues - 2; i >= 0; i -= 2) {
+            geometry.fill.lineTo(geometry.envelopeMin[i], geometry.envelopeMin[i + 1]);
+        }
+        geometry.fill.close();
     }
 
+    /**
+     * Draws the front buffer; only waits for swapping the buffers.
+     */
     void drawPath(Canvas canvas) {
-        canvas.drawPath(path, fillPaint);
-        canvas.drawPath(path, strokePaint);
+        synchronized (this) {
+            canvas.drawPath(front.fill, fillPaint);
+            canvas.drawLines(front.segments, 0, front.numSegmentValues, strokePaint);
+        }
     }
 
     /**
      * Updates the y axis dimension.
      */
     void updateDimension() {
+        ExtremityMonitor extremityMonitor = chartBuffer.getExtremityMonitor(channel);
         double min = hasData() ? extremityMonitor.getMin() : 0.0;
         double max = hasData() ? extremityMonitor.getMax() : 1.0;
         min = Math.max(min, absoluteMin);
@@ -255,4 +413,25 @@ abstract class ChartValueSeries {
     String formatMarker(int value) {
         return numberFormat.format(value);
     }
+
+    private static class Geometry {
+        private float[] segments = new float[0];
+        private int numSegmentValues = 0;
+        private float[] envelopeMax = new float[0];
+        private float[] envelopeMin = new float[0];
+        private final Path fill = new Path();
+
+        private void ensureCapacity(int capacity) {
+            if (segments.length < capacity) {
+                segments = new float[Math.max(capacity, segments.length * 2)];
+            }
+        }
+
+        private void ensureEnvelopeCapacity(int capacity) {
+            if (envelopeMax.length < capacity) {
+                envelopeMax = new float[Math.max(capacity, envelopeMax.length * 2)];
+                envelopeMin = new float[envelopeMax.length];
+            }
+        }
+    }
 }
@@ -20,12 +20,14 @@ import android.content.Context;
 import android.content.Intent;
 import android.graphics.Canvas;
 import android.graphics.DashPathEffect;
+import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Paint.Align;
 import android.graphics.Paint.Style;
-import android.graphics.Path;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
 import android.view.GestureDetector;
 import android.view.MotionEvent;
 import android.view.ScaleGestureDetector;
@@ -34,16 +36,26 @@ import android.view.ViewParent;
 import android.widget.Scroller;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 import androidx.core.content.ContextCompat;
 import androidx.core.view.GestureDetectorCompat;
 
 import java.text.NumberFormat;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import de.dennisguse.opentracks.MarkerDetailActivity;
 import de.dennisguse.opentracks.R;
+import de.dennisguse.opentracks.content.TrackDataListener;
 import de.dennisguse.opentracks.content.data.Marker;
 import de.dennisguse.opentracks.stats.ExtremityMonitor;
 import de.dennisguse.opentracks.util.IntentUtils;
@@ -68,6 +80,18 @@ public class ChartView extends View {
     private static final int MIN_ZOOM_LEVEL = 1;
     private static final int MAX_ZOOM_LEVEL = 10;
 
+    /**
+     * Prepares the geometry of all ChartViews; so, the UI thread only draws.
+     * The tasks of a ChartView are cancelled if it is detached (see {@link #onDetachedFromWindow()}).
+     */
+    private static final ThreadPoolExecutor GEOMETRY_EXECUTOR = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+        Thread thread = new Thread(runnable, "ChartGeometry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Handler UI_HANDLER = new Handler(Looper.getMainLooper());
+
     private static final NumberFormat X_NUMBER_FORMAT = NumberFormat.getIntegerInstance();
     private static final NumberFormat X_FRACTION_FORMAT = NumberFormat.getNumberInstance();
     private static final int BORDER = 8;
@@ -86,9 +110,23 @@ public class ChartView extends View {
     private final ChartValueSeries speedSeries;
     private final ChartValueSeries paceSeries;
 
-    private final List<ChartPoint> chartPoints = new ArrayList<>();
+    private final ChartBuffer chartBuffer = new ChartBuffer();
+    // Guards chartBuffer
+    private final ChartPointPyramid chartPointPyramid = new ChartPointPyramid(chartBuffer, seriesList);
+    // The level of chartPointPyramid in the series' paths and its number of chartPoints.
+    private int pathLevel = -1;
+    private int numPathPoints = 0;
+    // Used by GEOMETRY_EXECUTOR
+    private final Matrix matrix = new Matrix();
+    private final AtomicBoolean geometryUpdateRequested = new AtomicBoolean(false);
+    // The dimensions for the next geometry update; taken on the UI thread.
+    private volatile GeometrySpec geometrySpec;
+    // For the UI thread
+    private Future<?> geometryTask;
+    private final Runnable requestGeometryUpdate = this::requestGeometryUpdate;
+    // For the UI thread (chartPointPyramid is guarded by its lock)
+    private volatile ChartPoint lastChartPoint;
     private final List<Marker> markers = new ArrayList<>();
-    private final ExtremityMonitor xExtremityMonitor = new ExtremityMonitor();
     private final int backgroundColor;
     private final Paint axisPaint;
     private final Paint xAxisMarkerPaint;
@@ -196,6 +234,8 @@ public class ChartView extends View {
         int fontSizeMedium = ThemeUtils.getFontSizeMediumInPx(context);
 
         seriesList.add(new ChartValueSeries(context,
+                chartBuffer,
+                ChartBuffer.CHANNEL_ELEVATION,
                 Integer.MIN_VALUE,
                 Integer.MAX_VALUE,
                 new int[]{5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000},
@@ -205,11 +245,6 @@ public class ChartView extends View {
                 R.color.chart_elevation_border,
                 fontSizeSmall,
                 fontSizeMedium) {
-            @Override
-            protected double extractDataFromChartPoint(@NonNull ChartPoint chartPoint) {
-                return chartPoint.getElevation();
-            }
-
             @Override
             protected boolean drawIfChartPointHasNoData() {
                 return true;
@@ -217,6 +252,8 @@ public class ChartView extends View {
         });
 
         speedSeries = new ChartValueSeries(context,
+                chartBuffer,
+                ChartBuffer.CHANNEL_SPEED,
                 0,
                 Integer.MAX_VALUE,
                 new int[]{1, 5, 10, 20, 50, 100},
@@ -226,11 +263,6 @@ public class ChartView extends View {
                 R.color.chart_speed_border,
                 fontSizeSmall,
                 fontSizeMedium) {
-            @Override
-            protected double extractDataFromChartPoint(@NonNull ChartPoint chartPoint) {
-                return chartPoint.getSpeed();
-            }
-
             @Override
             protected boolean drawIfChartPointHasNoData() {
                 return reportSpeed;
@@ -239,6 +271,8 @@ public class ChartView extends View {
         seriesList.add(speedSeries);
 
         paceSeries = new ChartValueSeries(context,
+                chartBuffer,
+                ChartBuffer.CHANNEL_PACE,
                 0,
                 Integer.MAX_VALUE,
                 new int[]{1, 2, 5, 10, 15, 20, 30, 60, 120},
@@ -248,11 +282,6 @@ public class ChartView extends View {
                 R.color.chart_pace_border,
                 fontSizeSmall,
                 fontSizeMedium) {
-            @Override
-            protected double extractDataFromChartPoint(@NonNull ChartPoint chartPoint) {
-                return chartPoint.getPace();
-            }
-
             @Override
             protected boolean drawIfChartPointHasNoData() {
                 return !reportSpeed;
@@ -261,6 +290,8 @@ public class ChartView extends View {
         seriesList.add(paceSeries);
 
         seriesList.add(new ChartValueSeries(context,
+                chartBuffer,
+                ChartBuffer.CHANNEL_HEART_RATE,
                 0,
                 Integer.MAX_VALUE,
                 new int[]{25, 50},
@@ -271,17 +302,19 @@ public class ChartView extends View {
                 fontSizeSmall,
                 fontSizeMedium) {
             @Override
-            protected double extractDataFromChartPoint(@NonNull ChartPoint chartPoint) {
-                return chartPoint.getHeartRate();
+            protected boolean drawIfChartPointHasNoData() {
+                return false;
             }
 
             @Override
-            protected boolean drawIfChartPointHasNoData() {
-                return false;
+            protected boolean drawEnvelope() {
+                return true;
             }
         });
 
         seriesList.add(new ChartValueSeries(context,
+                chartBuffer,
+                ChartBuffer.CHANNEL_CADENCE,
                 0,
                 Integer.MAX_VALUE,
                 new int[]{5, 10, 25, 50},
@@ -292,16 +325,18 @@ public class ChartView extends View {
                 fontSizeSmall,
                 fontSizeMedium) {
             @Override
-            protected double extractDataFromChartPoint(@NonNull ChartPoint chartPoint) {
-                return chartPoint.getCadence();
+            protected boolean drawIfChartPointHasNoData() {
+                return false;
             }
 
             @Override
-            protected boolean drawIfChartPointHasNoData() {
-                return false;
+            protected boolean drawEnvelope() {
+                return true;
             }
         });
         seriesList.add(new ChartValueSeries(context,
+                chartBuffer,
+                ChartBuffer.CHANNEL_POWER,
                 0,
                 1000,
                 new int[]{5, 50, 100, 200},
@@ -312,13 +347,13 @@ public class ChartView extends View {
                 fontSizeSmall,
                 fontSizeMedium) {
             @Override
-            protected double extractDataFromChartPoint(@NonNull ChartPoint chartPoint) {
-                return chartPoint.getPower();
+            protected boolean drawIfChartPointHasNoData() {
+                return false;
             }
 
             @Override
-            protected boolean drawIfChartPointHasNoData() {
-                return false;
+            protected boolean drawEnvelope() {
+                return true;
             }
         });
 
@@ -415,15 +450,30 @@ public class ChartView extends View {
     }
 
     public void addChartPoints(List<ChartPoint> dataPoints) {
-        synchronized (chartPoints) {
-            chartPoints.addAll(dataPoints);
+        synchronized (chartPointPyramid) {
             for (ChartPoint dataPoint : dataPoints) {
-                xExtremityMonitor.update(dataPoint.getTimeOrDistance());
-                for (ChartValueSeries i : seriesList) {
-                    i.update(dataPoint);
-                }
+                chartPointPyramid.add(chartBuffer.append(dataPoint));
+                lastChartPoint = dataPoint;
             }
-            updateDimensions();
+            updatePaths();
+        }
+    }
+
+    /**
+     * Keeps only the chartPoints at the kept positions; the {@link ChartPointPyramid} is rebuilt.
+     * To be called if the sampling interval of the added chartPoints was doubled (see {@link TrackDataListener#onSampledInTrackPointsDecimated(BitSet)}).
+     *
+     * @param keptPositions the positions of the kept chartPoints since {@link #reset()}
+     */
+    public void decimateChartPoints(BitSet keptPositions) {
+        synchronized (chartPointPyramid) {
+            chartBuffer.retain(keptPositions);
+            chartPointPyramid.clear();
+            for (int index = 0; index < chartBuffer.size(); index++) {
+                chartPointPyramid.add(index);
+            }
+            // All levels changed.
+            pathLevel = -1;
             updatePaths();
         }
     }
@@ -432,11 +482,12 @@ public class ChartView extends View {
      * Clears all data.
      */
     public void reset() {
-        synchronized (chartPoints) {
-            chartPoints.clear();
-            xExtremityMonitor.reset();
+        synchronized (chartPointPyramid) {
+            chartBuffer.clear();
+            chartPointPyramid.clear();
+            lastChartPoint = null;
             zoomLevel = 1;
-            updateDimensions();
+            updatePaths();
         }
     }
 
@@ -468,6 +519,12 @@ public class ChartView extends View {
         return zoomLevel > MIN_ZOOM_LEVEL;
     }
 
+    @VisibleForTesting
+    void setZoomLevel(int zoomLevel) {
+        this.zoomLevel = Math.max(MIN_ZOOM_LEVEL, Math.min(zoomLevel, MAX_ZOOM_LEVEL));
+        updatePaths();
+    }
+
     private void zoomIn() {
         if (canZoomIn()) {
             zoomLevel++;
@@ -569,29 +626,28 @@ public class ChartView extends View {
 
     @Override
     protected void onDraw(Canvas canvas) {
-        synchronized (chartPoints) {
-            canvas.save();
+        // The series' geometry is prepared by GEOMETRY_EXECUTOR; so, no need to wait for chartPointPyramid.
+        canvas.save();
 
-            canvas.drawColor(backgroundColor);
+        canvas.drawColor(backgroundColor);
 
-            canvas.save();
+        canvas.save();
 
-            clipToGraphArea(canvas);
-            drawDataSeries(canvas);
-            drawMarker(canvas);
-            drawGrid(canvas);
+        clipToGraphArea(canvas);
+        drawDataSeries(canvas);
+        drawMarker(canvas);
+        drawGrid(canvas);
 
-            canvas.restore();
+        canvas.restore();
 
-            drawSeriesTitles(canvas);
-            drawXAxis(canvas);
-            drawYAxis(canvas);
+        drawSeriesTitles(canvas);
+        drawXAxis(canvas);
+        drawYAxis(canvas);
 
-            canvas.restore();
+        canvas.restore();
 
-            if (showPointer) {
-                drawPointer(canvas);
-            }
+        if (showPointer) {
+            drawPointer(canvas);
         }
     }
 
@@ -843,9 +899,10 @@ public class ChartView extends View {
                 break;
             }
         }
-        if (firstChartValueSeries != null && chartPoints.size() > 0) {
+        ChartPoint lastChartPoint = this.lastChartPoint;
+        if (firstChartValueSeries != null && lastChartPoint != null) {
             int dx = getX(maxX) - pointer.getIntrinsicWidth() / 2;
-            double value = firstChartValueSeries.extractDataFromChartPoint(chartPoints.get(chartPoints.size() - 1));
+            double value = ChartBuffer.getValue(lastChartPoint, firstChartValueSeries.getChannel());
             int dy = getY(firstChartValueSeries, value) - pointer.getIntrinsicHeight();
             canvas.translate(dx, dy);
             pointer.draw(canvas);
@@ -854,80 +911,140 @@ public class ChartView extends View {
 
     /**
      * Updates paths.
-     * The path needs to be updated any time after the data or the dimensions change.
+     * The path needs to be updated any time after the data, the dimensions, or the zoom change; scrolling is done by the view.
+     * The geometry is prepared by the GEOMETRY_EXECUTOR and redrawn afterwards; requests are coalesced.
+     * The dimensions are computed on the UI thread (i.e., if called by another thread, the request is posted); other threads only append data.
      */
     private void updatePaths() {
-        synchronized (chartPoints) {
-            for (ChartValueSeries chartValueSeries : seriesList) {
-                chartValueSeries.getPath().reset();
-            }
-            drawPaths();
-            closePaths();
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            requestGeometryUpdate();
+        } else {
+            UI_HANDLER.removeCallbacks(requestGeometryUpdate);
+            UI_HANDLER.post(requestGeometryUpdate);
         }
     }
 
-    private void drawPaths() {
-        boolean[] hasMoved = new boolean[seriesList.size()];
+    /**
+     * To be run on the UI thread.
+     */
+    private void requestGeometryUpdate() {
+        synchronized (chartPointPyramid) {
+            updateDimensions();
+        }
+        geometrySpec = new GeometrySpec(this);
+        if (!geometryUpdateRequested.getAndSet(true)) {
+            geometryTask = GEOMETRY_EXECUTOR.submit(() -> {
+                geometryUpdateRequested.set(false);
+                updateGeometry(geometrySpec);
+                postInvalidate();
+            });
+        }
+    }
 
-        for (ChartPoint dataPoint : chartPoints) {
-            for (int i = 0; i < seriesList.size(); i++) {
-                ChartValueSeries chartValueSeries = seriesList.get(i);
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        updatePaths();
+    }
 
-                if (!chartValueSeries.isChartPointValid(dataPoint)) {
-                    continue;
-                }
+    /**
+     * Cancels the pending geometry update; so, the GEOMETRY_EXECUTOR does not keep detached ChartViews.
+     */
+    @Override
+    protected void onDetachedFromWindow() {
+        UI_HANDLER.removeCallbacks(requestGeometryUpdate);
+        if (geometryTask != null) {
+            geometryTask.cancel(false);
+            geometryTask = null;
+            GEOMETRY_EXECUTOR.purge();
+        }
+        geometryUpdateRequested.set(false);
+        super.onDetachedFromWindow();
+    }
 
-                double value = chartValueSeries.extractDataFromChartPoint(dataPoint);
-                Path path = chartValueSeries.getPath();
-                int x = getX(dataPoint.getTimeOrDistance());
-                int y = getY(chartValueSeries, value);
-                if (!hasMoved[i]) {
-                    hasMoved[i] = true;
-                    path.moveTo(x, y);
-                } else {
-                    path.lineTo(x, y);
-                }
-            }
+    /**
+     * Waits until the requested geometry is prepared.
+     */
+    @VisibleForTesting
+    void awaitGeometry() throws ExecutionException, InterruptedException {
+        // Requests of other threads are posted to the UI thread first.
+        FutureTask<Void> posted = new FutureTask<>(() -> {
+        }, null);
+        UI_HANDLER.post(posted);
+        posted.get();
+
+        GEOMETRY_EXECUTOR.submit(() -> {
+        }).get();
+    }
+
+    /**
+     * @return the number of chartPoints in the series' lines (i.e., of the drawn level of the {@link ChartPointPyramid})
+     */
+    @VisibleForTesting
+    int getNumberOfPathPoints() {
+        synchronized (chartPointPyramid) {
+            return numPathPoints;
         }
     }
 
-    private void closePaths() {
-        for (ChartValueSeries chartValueSeries : seriesList) {
-            int first = getFirstPopulatedChartDataIndex(chartValueSeries);
-
-            if (first != -1) {
-                int xCorner = getX(chartPoints.get(first).getTimeOrDistance());
-                int yCorner = topBorder + effectiveHeight;
-                Path path = chartValueSeries.getPath();
-                // Bottom right corner
-                path.lineTo(getX(chartPoints.get(chartPoints.size() - 1).getTimeOrDistance()), yCorner);
-                // Bottom left corner
-                path.lineTo(xCorner, yCorner);
-                // Top right corner
-                double value = chartValueSeries.extractDataFromChartPoint(chartPoints.get(first));
-                path.lineTo(xCorner, getY(chartValueSeries, value));
+    /**
+     * New chartPoints are appended to the series' lines in data coordinates; these are only transformed to view coordinates.
+     * To be run by the GEOMETRY_EXECUTOR.
+     */
+    private void updateGeometry(@NonNull GeometrySpec spec) {
+        synchronized (chartPointPyramid) {
+            updateDataPaths(spec.effectiveWidth * spec.zoomLevel);
+
+            int lastIndex = chartBuffer.size() - 1;
+            double scaleX = spec.maxX > 0 ? spec.effectiveWidth * spec.zoomLevel / spec.maxX : 0;
+            int rangeHeight = spec.effectiveHeight - 2 * spec.yAxisOffset;
+            for (int i = 0; i < seriesList.size(); i++) {
+                // Like getX() and getY()
+                double effectiveSpread = spec.intervals[i] * Y_AXIS_INTERVALS;
+                matrix.setScale((float) scaleX, (float) (-rangeHeight / effectiveSpread));
+                matrix.postTranslate(spec.leftBorder, (float) (spec.topBorder + spec.yAxisOffset + rangeHeight + spec.minMarkerValues[i] * rangeHeight / effectiveSpread));
+                seriesList.get(i).updateGeometry(matrix, lastIndex, spec.topBorder + spec.effectiveHeight);
             }
         }
     }
 
     /**
-     * Finds the index of the first data point containing data for a series.
-     *
-     * @return -1 if no data point contains data for the series.
+     * Appends the new chartPoints of the drawn level of the {@link ChartPointPyramid} (about one chartPoint per pixel) to the series' lines.
+     * On coarse levels, series drawing an envelope get the min/max/mean of the chartPoints per pixel; so, the drawing costs do not depend on the sampling rate.
+     * The lines are only rebuilt if the level changes (i.e., the zoom changed a lot or the track doubled).
      */
-    private int getFirstPopulatedChartDataIndex(ChartValueSeries chartValueSeries) {
-        for (int i = 0; i < chartPoints.size(); i++) {
-            if (chartValueSeries.isChartPointValid(chartPoints.get(i))) {
-                return i;
+    private void updateDataPaths(int zoomedWidth) {
+        int level = chartPointPyramid.getLevel(Math.max(1, zoomedWidth));
+        if (level != pathLevel || numPathPoints > chartPointPyramid.size(level)) {
+            pathLevel = level;
+            numPathPoints = 0;
+            for (ChartValueSeries chartValueSeries : seriesList) {
+                chartValueSeries.resetDataSegments();
+            }
+        }
+
+        for (; numPathPoints < chartPointPyramid.size(level); numPathPoints++) {
+            int index = chartPointPyramid.get(level, numPathPoints);
+            for (ChartValueSeries chartValueSeries : seriesList) {
+                int channel = chartValueSeries.getChannel();
+                if (level == 0 || !chartValueSeries.drawEnvelope()) {
+                    chartValueSeries.appendToDataSegments(index);
+                } else if (chartPointPyramid.hasEnvelope(level, numPathPoints, channel)) {
+                    chartValueSeries.appendToDataEnvelope((float) chartBuffer.getX(index),
+                            chartPointPyramid.getEnvelopeMin(level, numPathPoints, channel),
+                            chartPointPyramid.getEnvelopeMax(level, numPathPoints, channel),
+                            chartPointPyramid.getEnvelopeMean(level, numPathPoints, channel));
+                }
             }
         }
-        return -1;
     }
 
     /**
      * Updates the chart dimensions.
+     * To be run on the UI thread while holding the lock of chartPointPyramid (reads the extremities of the chartBuffer).
      */
     private void updateDimensions() {
+        ExtremityMonitor xExtremityMonitor = chartBuffer.getXExtremityMonitor();
         maxX = xExtremityMonitor.hasData() ? xExtremityMonitor.getMax() : 1.0;
         for (ChartValueSeries chartValueSeries : seriesList) {
             chartValueSeries.updateDimension();
@@ -1028,10 +1145,42 @@ public class ChartView extends View {
      * Returns true if the index is allowed when the chartData is empty.
      */
     private boolean allowIfEmpty(ChartValueSeries chartValueSeries) {
-        if (!chartPoints.isEmpty()) {
+        if (!chartPointPyramid.isEmpty()) {
             return false;
         }
 
         return chartValueSeries.drawIfChartPointHasNoData();
     }
+
+    /**
+     * The dimensions used to prepare the geometry.
+     */
+    private static class GeometrySpec {
+        private final int zoomLevel;
+        private final double maxX;
+        private final int effectiveWidth;
+        private final int effectiveHeight;
+        private final int leftBorder;
+        private final int topBorder;
+        private final int yAxisOffset;
+        // Per series of seriesList
+        private final int[] intervals;
+        private final int[] minMarkerValues;
+
+        GeometrySpec(ChartView chartView) {
+            zoomLevel = chartView.zoomLevel;
+            maxX = chartView.maxX;
+            effectiveWidth = chartView.effectiveWidth;
+            effectiveHeight = chartView.effectiveHeight;
+            leftBorder = chartView.leftBorder;
+            topBorder = chartView.topBorder;
+            yAxisOffset = chartView.yAxisOffset;
+            intervals = new int[chartView.seriesList.size()];
+            minMarkerValues = new int[chartView.seriesList.size()];
+            for (int i = 0; i < intervals.length; i++) {
+                intervals[i] = chartView.seriesList.get(i).getInterval();
+                minMarkerValues[i] = chartView.seriesList.get(i).getMinMarkerValue();
+            }
+        }
+    }
 }
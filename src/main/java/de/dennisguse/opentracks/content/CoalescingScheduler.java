@@ -0,0 +1,80 @@
+package de.dennisguse.opentracks.content;
+
+import android.os.Handler;
+
+import androidx.annotation.NonNull;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces bursts of changes into one load per interval; the load is run on the {@link Handler}'s thread.
+ * A change arriving while a load is scheduled is merged into it (i.e., suppressed).
+ * A change arriving while a load runs makes the load stale (see {@link #isStale()}); it may stop early as the next load is already scheduled.
+ * <p>
+ * {@link #onChange()} may be called from any thread.
+ */
+class CoalescingScheduler {
+
+    private final Handler handler;
+    private final Runnable load;
+    private final long interval_ms;
+
+    private final Runnable run = this::run;
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+    private final AtomicLong numChanges = new AtomicLong();
+    private final AtomicLong numSuppressed = new AtomicLong();
+    private final AtomicLong numLoads = new AtomicLong();
+
+    CoalescingScheduler(@NonNull Handler handler, @NonNull Duration interval, @NonNull Runnable load) {
+        this.handler = handler;
+        this.interval_ms = interval.toMillis();
+        this.load = load;
+    }
+
+    void onChange() {
+        numChanges.incrementAndGet();
+        if (scheduled.getAndSet(true)) {
+            numSuppressed.incrementAndGet();
+            return;
+        }
+        handler.postDelayed(run, interval_ms);
+    }
+
+    /**
+     * Removes a scheduled load; e.g., if all data is loaded anyhow.
+     */
+    void cancel() {
+        if (scheduled.getAndSet(false)) {
+            handler.removeCallbacks(run);
+            numSuppressed.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return true if a newer change arrived since the current load started
+     */
+    boolean isStale() {
+        return scheduled.get();
+    }
+
+    long getNumChanges() {
+        return numChanges.get();
+    }
+
+    long getNumSuppressed() {
+        return numSuppressed.get();
+    }
+
+    long getNumLoads() {
+        return numLoads.get();
+    }
+
+    private void run() {
+        scheduled.set(false);
+        numLoads.incrementAndGet();
+        load.run();
+    }
+}
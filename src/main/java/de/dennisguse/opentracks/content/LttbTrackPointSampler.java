@@ -0,0 +1,210 @@
+package de.dennisguse.opentracks.content;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+import de.dennisguse.opentracks.content.data.TrackPoint;
+import de.dennisguse.opentracks.stats.ExtremityMonitor;
+
+/**
+ * Streaming Largest-Triangle-Three-Buckets (LTTB) downsampling.
+ * The trackPoints are split into buckets of bucketSize; per bucket, the trackPoint is sampled in that forms the largest triangle with the previously sampled in trackPoint and the average of the next bucket.
+ * So, peaks (e.g., sprints, heart rate spikes, or summits) remain visible.
+ * <p>
+ * The area is computed per channel (x: time, y: the channel's value) relative to the channel's range and summed up.
+ * Channels without value are ignored; if no channel has a value, the first trackPoint of a bucket is sampled in.
+ * <p>
+ * If 2 * targetNumPoints trackPoints are sampled in, the bucketSize is doubled and each pair of sampled in trackPoints is reduced to the one with the larger triangle.
+ * TrackPoints are delayed until the next bucket is complete (i.e., up to 2 * bucketSize trackPoints) or {@link #flush(Callback)}.
+ */
+class LttbTrackPointSampler implements TrackPointSampler {
+
+    /**
+     * The channels shown by the charts.
+     */
+    static final List<ToDoubleFunction<TrackPoint>> CHART_CHANNELS = Arrays.asList(
+            trackPoint -> trackPoint.hasAltitude() ? trackPoint.getAltitude() : Double.NaN,
+            trackPoint -> trackPoint.hasSpeed() ? trackPoint.getSpeed() : Double.NaN,
+            trackPoint -> trackPoint.hasHeartRate() ? trackPoint.getHeartRate_bpm() : Double.NaN,
+            trackPoint -> trackPoint.hasCyclingCadence() ? trackPoint.getCyclingCadence_rpm() : Double.NaN,
+            trackPoint -> trackPoint.hasPower() ? trackPoint.getPower() : Double.NaN
+    );
+
+    private final int targetNumPoints;
+    private final List<ToDoubleFunction<TrackPoint>> channels;
+    private final ExtremityMonitor[] channelRanges;
+
+    private int bucketSize = 1;
+    // Complete bucket waiting for the next bucket.
+    private List<TrackPoint> previousBucket = null;
+    private List<TrackPoint> currentBucket = new ArrayList<>();
+
+    private final List<TrackPoint> sampledIn = new ArrayList<>();
+
+    LttbTrackPointSampler(int targetNumPoints, @NonNull List<ToDoubleFunction<TrackPoint>> channels) {
+        if (targetNumPoints < 2) {
+            throw new IllegalArgumentException("targetNumPoints must be greater than 1.");
+        }
+        this.targetNumPoints = targetNumPoints;
+        this.channels = channels;
+        channelRanges = new ExtremityMonitor[channels.size()];
+        for (int i = 0; i < channelRanges.length; i++) {
+            channelRanges[i] = new ExtremityMonitor();
+        }
+    }
+
+    @Override
+    public void add(@NonNull TrackPoint trackPoint, @NonNull Callback callback) {
+        for (int i = 0; i < channelRanges.length; i++) {
+            double value = channels.get(i).applyAsDouble(trackPoint);
+            if (!Double.isNaN(value)) {
+                channelRanges[i].update(value);
+            }
+        }
+
+        currentBucket.add(trackPoint);
+        if (currentBucket.size() < bucketSize) {
+            return;
+        }
+
+        if (previousBucket != null) {
+            emit(previousBucket, currentBucket, callback);
+            previousBucket = null;
+        }
+        if (currentBucket.size() == 1) {
+            // Nothing to choose from.
+            emit(currentBucket, null, callback);
+        } else {
+            previousBucket = currentBucket;
+        }
+        currentBucket = new ArrayList<>(bucketSize);
+    }
+
+    @Override
+    public void flush(@NonNull Callback callback) {
+        if (previousBucket != null) {
+            emit(previousBucket, currentBucket.isEmpty() ? null : currentBucket, callback);
+            previousBucket = null;
+        }
+        if (!currentBucket.isEmpty()) {
+            emit(currentBucket, null, callback);
+            currentBucket = new ArrayList<>(bucketSize);
+        }
+    }
+
+    /**
+     * @param nextBucket null to use the bucket's last trackPoint instead
+     */
+    private void emit(List<TrackPoint> bucket, @Nullable List<TrackPoint> nextBucket, Callback callback) {
+        TrackPoint previous = sampledIn.isEmpty() ? null : sampledIn.get(sampledIn.size() - 1);
+        int selected = 0;
+        if (previous != null) {
+            double[] next = nextBucket != null ? average(nextBucket) : values(bucket.get(bucket.size() - 1));
+            double maxArea = -1;
+            for (int i = 0; i < bucket.size(); i++) {
+                double area = area(previous, bucket.get(i), next);
+                if (area > maxArea) {
+                    maxArea = area;
+                    selected = i;
+                }
+            }
+        }
+
+        for (int i = 0; i < bucket.size(); i++) {
+            if (i == selected) {
+                sampledIn.add(bucket.get(i));
+                callback.onSampledIn(bucket.get(i));
+                if (sampledIn.size() >= 2 * targetNumPoints) {
+                    decimate(callback);
+                }
+            } else {
+                callback.onSampledOut(bucket.get(i));
+            }
+        }
+    }
+
+    /**
+     * Keeps the first and the last sampled in trackPoint; of the other pairs the one with the larger triangle.
+     */
+    private void decimate(Callback callback) {
+        BitSet keptPositions = new BitSet(sampledIn.size());
+        keptPositions.set(0);
+        int lastKept = 0;
+        for (int i = 2; i < sampledIn.size(); i += 2) {
+            if (i + 2 >= sampledIn.size()) {
+                // Last pair (or single trackPoint): keep the last trackPoint.
+                lastKept = sampledIn.size() - 1;
+            } else {
+                double[] next = values(sampledIn.get(i + 2));
+                TrackPoint previous = sampledIn.get(lastKept);
+                lastKept = area(previous, sampledIn.get(i), next) >= area(previous, sampledIn.get(i + 1), next) ? i : i + 1;
+            }
+            keptPositions.set(lastKept);
+        }
+
+        TrackPointSampler.decimate(sampledIn, 0, keptPositions);
+        bucketSize *= 2;
+        callback.onDecimated(keptPositions);
+    }
+
+    /**
+     * @return time and channel values
+     */
+    private double[] values(TrackPoint trackPoint) {
+        double[] values = new double[1 + channels.size()];
+        values[0] = trackPoint.getTime().toEpochMilli();
+        for (int i = 0; i < channels.size(); i++) {
+            values[1 + i] = channels.get(i).applyAsDouble(trackPoint);
+        }
+        return values;
+    }
+
+    /**
+     * @return average time and channel values; NaN for channels without values
+     */
+    private double[] average(List<TrackPoint> bucket) {
+        double[] sums = new double[1 + channels.size()];
+        int[] counts = new int[1 + channels.size()];
+        for (TrackPoint trackPoint : bucket) {
+            double[] values = values(trackPoint);
+            for (int i = 0; i < values.length; i++) {
+                if (!Double.isNaN(values[i])) {
+                    sums[i] += values[i];
+                    counts[i]++;
+                }
+            }
+        }
+        for (int i = 0; i < sums.length; i++) {
+            sums[i] = counts[i] > 0 ? sums[i] / counts[i] : Double.NaN;
+        }
+        return sums;
+    }
+
+    /**
+     * Sum of the triangle areas per channel relative to the channel's range.
+     */
+    private double area(TrackPoint a, TrackPoint b, double[] c) {
+        double xa = 0;
+        double xb = b.getTime().toEpochMilli() - a.getTime().toEpochMilli();
+        double xc = c[0] - a.getTime().toEpochMilli();
+
+        double area = 0;
+        for (int i = 0; i < channels.size(); i++) {
+            double range = channelRanges[i].hasData() ? channelRanges[i].getMax() - channelRanges[i].getMin() : 0;
+            double ya = channels.get(i).applyAsDouble(a);
+            double yb = channels.get(i).applyAsDouble(b);
+            double yc = c[1 + i];
+            if (range <= 0 || Double.isNaN(ya) || Double.isNaN(yb) || Double.isNaN(yc)) {
+                continue;
+            }
+            area += Math.abs((xa - xc) * (yb - ya) - (xa - xb) * (yc - ya)) / 2 / range;
+        }
+        return area;
+    }
+}
@@ -0,0 +1,66 @@
+package de.dennisguse.opentracks.content;
+
+import androidx.annotation.NonNull;
+
+import java.util.BitSet;
+
+import de.dennisguse.opentracks.content.data.TrackPoint;
+
+/**
+ * Samples in a trackPoint if its position in the track is a multiple of the stride.
+ * If 2 * targetNumPoints trackPoints are sampled in, the stride is doubled: of the sampled in trackPoints only the ones at even positions remain.
+ * So, less than 2 * targetNumPoints trackPoints are sampled in (at least targetNumPoints for long tracks) and each trackPoint is handled in O(1) amortized; the track is never re-read.
+ * <p>
+ * TrackPoints are not delayed.
+ */
+class StrideTrackPointSampler implements TrackPointSampler {
+
+    private final int targetNumPoints;
+
+    private long stride = 1;
+    private long numPoints = 0;
+    private int numSampledIn = 0;
+
+    StrideTrackPointSampler(int targetNumPoints) {
+        if (targetNumPoints < 1) {
+            throw new IllegalArgumentException("targetNumPoints must be greater than 0.");
+        }
+        this.targetNumPoints = targetNumPoints;
+    }
+
+    @Override
+    public void add(@NonNull TrackPoint trackPoint, @NonNull Callback callback) {
+        boolean sampledIn = numPoints % stride == 0;
+        numPoints++;
+        if (!sampledIn) {
+            callback.onSampledOut(trackPoint);
+            return;
+        }
+
+        numSampledIn++;
+        callback.onSampledIn(trackPoint);
+
+        if (numSampledIn >= 2 * targetNumPoints) {
+            BitSet keptPositions = new BitSet(numSampledIn);
+            for (int i = 0; i < numSampledIn; i += 2) {
+                keptPositions.set(i);
+            }
+            stride *= 2;
+            numSampledIn = (numSampledIn + 1) / 2;
+            callback.onDecimated(keptPositions);
+        }
+    }
+
+    @Override
+    public void flush(@NonNull Callback callback) {
+        // Nothing delayed.
+    }
+
+    long getStride() {
+        return stride;
+    }
+
+    int getNumSampledIn() {
+        return numSampledIn;
+    }
+}
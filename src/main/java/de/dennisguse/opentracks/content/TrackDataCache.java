@@ -0,0 +1,283 @@
+package de.dennisguse.opentracks.content;
+
+import android.content.ComponentCallbacks2;
+import android.content.ContentResolver;
+import android.database.ContentObserver;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import de.dennisguse.opentracks.content.data.Track;
+import de.dennisguse.opentracks.content.data.TrackPoint;
+import de.dennisguse.opentracks.content.data.TrackPointBuffer;
+import de.dennisguse.opentracks.content.data.TrackPointsColumns;
+import de.dennisguse.opentracks.content.provider.ContentProviderUtils;
+import de.dennisguse.opentracks.content.provider.TrackPointProjection;
+
+/**
+ * Process-wide cache of the {@link TrackPoint}s read by {@link TrackDataHub}s; one {@link Entry} per {@link Track.Id}.
+ * So, all TrackDataHubs (e.g., of a recreated activity after a configuration change) and their listeners are served from one load; only new trackPoints are read.
+ * The trackPoints are stored in a {@link TrackPointBuffer} (primitive arrays instead of objects).
+ * <p>
+ * Entries are reference counted: referenced entries are kept, unreferenced entries are kept up to {@link #MAX_UNREFERENCED_ENTRIES} and {@link #MAX_UNREFERENCED_TRACKPOINTS} (least recently used are evicted).
+ * Memory is bounded:
+ * an entry keeps up to {@link #MAX_TRACKPOINTS_PER_ENTRY} (see {@link Entry#trimIfFull()}),
+ * unreferenced entries are evicted on memory pressure and referenced entries are trimmed on critical memory pressure (see {@link #onTrimMemory(int)}).
+ * Trimmed or invalidated (see {@link #invalidateAll()}) entries are read again by the TrackDataHubs.
+ * The entries are invalidated by the notifications of {@link TrackPointsColumns#CONTENT_URI_INVALIDATED} (see {@link #registerContentObserver(ContentResolver)}).
+ * <p>
+ * Thread-safe.
+ */
+public class TrackDataCache {
+
+    private static final String TAG = TrackDataCache.class.getSimpleName();
+
+    @VisibleForTesting
+    static final int MAX_UNREFERENCED_ENTRIES = 2;
+
+    // About 60 bytes per trackPoint.
+    @VisibleForTesting
+    static final int MAX_UNREFERENCED_TRACKPOINTS = 100000;
+
+    @VisibleForTesting
+    static final int MAX_TRACKPOINTS_PER_ENTRY = 100000;
+
+    private static TrackDataCache instance;
+
+    private ContentObserver invalidatedObserver;
+
+    private final Map<Track.Id, Entry> referenced = new HashMap<>();
+    // Access order: least recently used first.
+    private final LinkedHashMap<Track.Id, Entry> unreferenced = new LinkedHashMap<>(MAX_UNREFERENCED_ENTRIES + 1, 0.75f, true);
+
+    public static synchronized TrackDataCache getInstance() {
+        if (instance == null) {
+            instance = new TrackDataCache();
+        }
+        return instance;
+    }
+
+    @VisibleForTesting
+    TrackDataCache() {
+    }
+
+    /**
+     * Gets the entry of a track and references it; needs to be released.
+     */
+    @NonNull
+    synchronized Entry acquire(@NonNull Track.Id trackId) {
+        Entry entry = referenced.get(trackId);
+        if (entry == null) {
+            entry = unreferenced.remove(trackId);
+            if (entry == null) {
+                entry = new Entry(trackId);
+            }
+            referenced.put(trackId, entry);
+        }
+        entry.references++;
+        return entry;
+    }
+
+    synchronized void release(@NonNull Entry entry) {
+        if (entry.references <= 0 || referenced.get(entry.trackId) != entry) {
+            Log.w(TAG, "Entry of track " + entry.trackId.getId() + " was not acquired.");
+            return;
+        }
+        entry.references--;
+        if (entry.references == 0) {
+            referenced.remove(entry.trackId);
+            unreferenced.put(entry.trackId, entry);
+            evictUnreferenced(MAX_UNREFERENCED_ENTRIES, MAX_UNREFERENCED_TRACKPOINTS);
+        }
+    }
+
+    /**
+     * Evicts unreferenced entries depending on the memory pressure; see {@link ComponentCallbacks2#onTrimMemory(int)}.
+     * On critical memory pressure, also the trackPoints of referenced entries are removed.
+     */
+    public synchronized void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            evictUnreferenced(0, 0);
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            evictUnreferenced(MAX_UNREFERENCED_ENTRIES / 2, MAX_UNREFERENCED_TRACKPOINTS / 2);
+        }
+
+        if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL || level >= ComponentCallbacks2.TRIM_MEMORY_COMPLETE) {
+            for (Entry entry : referenced.values()) {
+                entry.trim();
+            }
+        }
+    }
+
+    /**
+     * Invalidates all entries; to be called if stored trackPoints were changed or deleted (e.g., a track was deleted).
+     */
+    public synchronized void invalidateAll() {
+        unreferenced.clear();
+        for (Entry entry : referenced.values()) {
+            entry.invalidate();
+        }
+    }
+
+    /**
+     * Invalidates all entries if stored trackPoints were changed or deleted; to be called once per process (e.g., on application start).
+     */
+    public synchronized void registerContentObserver(@NonNull ContentResolver contentResolver) {
+        if (invalidatedObserver != null) {
+            return;
+        }
+        // onChange() is called on a binder thread.
+        invalidatedObserver = new ContentObserver(null) {
+            @Override
+            public void onChange(boolean selfChange) {
+                invalidateAll();
+            }
+        };
+        contentResolver.registerContentObserver(TrackPointsColumns.CONTENT_URI_INVALIDATED, false, invalidatedObserver);
+    }
+
+    @VisibleForTesting
+    synchronized int getNumberOfEntries() {
+        return referenced.size() + unreferenced.size();
+    }
+
+    private void evictUnreferenced(int maxEntries, int maxTrackPoints) {
+        int numTrackPoints = 0;
+        for (Entry entry : unreferenced.values()) {
+            numTrackPoints += entry.getNumberOfCachedTrackPoints();
+        }
+
+        Iterator<Entry> iterator = unreferenced.values().iterator();
+        while ((unreferenced.size() > maxEntries || numTrackPoints > maxTrackPoints) && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            iterator.remove();
+            numTrackPoints -= entry.getNumberOfCachedTrackPoints();
+            Log.d(TAG, "Evicted track " + entry.trackId.getId() + " with " + entry.getNumberOfCachedTrackPoints() + " trackPoints.");
+        }
+    }
+
+    /**
+     * The trackPoints of a track in order; only appended.
+     * The indices of the trackPoints are stable; if trackPoints are removed (trimmed), {@link #getFirstIndex()} increases.
+     * If the trackPoints were invalidated, the {@link #getGeneration()} changes and the indices start at 0 again.
+     */
+    static class Entry {
+
+        private final Track.Id trackId;
+        private TrackPointBuffer trackPoints = new TrackPointBuffer();
+        // Number of trackPoints removed by trim().
+        private int firstIndex = 0;
+        private TrackPoint.Id lastTrackPointId;
+        private int generation = 0;
+
+        // Guarded by TrackDataCache.
+        private int references = 0;
+
+        private Entry(@NonNull Track.Id trackId) {
+            this.trackId = trackId;
+        }
+
+        @NonNull
+        Track.Id getTrackId() {
+            return trackId;
+        }
+
+        synchronized int getGeneration() {
+            return generation;
+        }
+
+        /**
+         * @return the id of the last trackPoint or null if empty
+         */
+        synchronized TrackPoint.Id getLastTrackPointId() {
+            return lastTrackPointId;
+        }
+
+        /**
+         * Reads the trackPoints after the last trackPoint; other TrackDataHubs of the same track wait.
+         */
+        synchronized void readNewTrackPoints(@NonNull ContentProviderUtils contentProviderUtils) {
+            int size = trackPoints.size();
+            contentProviderUtils.readTrackPoints(trackId, lastTrackPointId, TrackPointProjection.FULL, trackPoints);
+            if (trackPoints.size() > size) {
+                lastTrackPointId = new TrackPoint.Id(trackPoints.getId(trackPoints.size() - 1));
+            }
+        }
+
+        @VisibleForTesting
+        synchronized void append(@NonNull List<TrackPoint> newTrackPoints) {
+            for (TrackPoint trackPoint : newTrackPoints) {
+                trackPoints.append(trackPoint);
+                lastTrackPointId = trackPoint.getId();
+            }
+        }
+
+        /**
+         * @return the index after the last trackPoint
+         */
+        synchronized int size() {
+            return firstIndex + trackPoints.size();
+        }
+
+        /**
+         * @return the index of the first available trackPoint
+         */
+        synchronized int getFirstIndex() {
+            return firstIndex;
+        }
+
+        synchronized int getNumberOfCachedTrackPoints() {
+            return trackPoints.size();
+        }
+
+        /**
+         * @return copies of the trackPoints from (inclusive) to (exclusive); from must not be less than {@link #getFirstIndex()}
+         */
+        @NonNull
+        synchronized List<TrackPoint> getTrackPoints(int from, int to) {
+            if (from < firstIndex) {
+                throw new IndexOutOfBoundsException("Trimmed trackPoint " + from + " requested; first is " + firstIndex);
+            }
+            List<TrackPoint> result = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                result.add(trackPoints.toTrackPoint(i - firstIndex));
+            }
+            return result;
+        }
+
+        /**
+         * Removes the trackPoints if there are more than {@link #MAX_TRACKPOINTS_PER_ENTRY}; new trackPoints are still appended.
+         */
+        synchronized void trimIfFull() {
+            if (trackPoints.size() > MAX_TRACKPOINTS_PER_ENTRY) {
+                trim();
+            }
+        }
+
+        /**
+         * Removes the trackPoints; new trackPoints are still appended.
+         */
+        synchronized void trim() {
+            firstIndex += trackPoints.size();
+            trackPoints = new TrackPointBuffer(1);
+        }
+
+        /**
+         * Removes the trackPoints; all trackPoints are read again.
+         */
+        synchronized void invalidate() {
+            firstIndex = 0;
+            lastTrackPointId = null;
+            trackPoints = new TrackPointBuffer(1);
+            generation++;
+        }
+    }
+}
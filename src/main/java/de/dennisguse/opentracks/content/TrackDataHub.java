@@ -28,7 +28,14 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import de.dennisguse.opentracks.R;
@@ -39,14 +46,16 @@ import de.dennisguse.opentracks.content.data.TrackPoint;
 import de.dennisguse.opentracks.content.data.TrackPointsColumns;
 import de.dennisguse.opentracks.content.data.TracksColumns;
 import de.dennisguse.opentracks.content.provider.ContentProviderUtils;
-import de.dennisguse.opentracks.content.provider.TrackPointIterator;
 import de.dennisguse.opentracks.util.PreferencesUtils;
 
 /**
  * Track data hub.
  * Receives data from {@link de.dennisguse.opentracks.content.provider.CustomContentProvider} and distributes it to {@link TrackDataListener} after some processing.
  * <p>
- * {@link TrackPoint}s are filtered/downsampled with a dynamic sampling frequency.
+ * {@link TrackPoint}s are downsampled per {@link TrackDataListener} by a {@link TrackPointSampler}; new {@link TrackPoint}s are appended without reloading the track.
+ * Content changes are coalesced per table by a {@link CoalescingScheduler}; so, a burst of changes (e.g., while recording) results in one load.
+ * The read {@link TrackPoint}s are kept in the process-wide {@link TrackDataCache}; so, recreated activities and other TrackDataHubs of the same track only read new trackPoints.
+ * If the cached trackPoints were trimmed or invalidated, all trackPoints are sent again.
  *
  * @author Rodrigo Damazio
  */
@@ -54,22 +63,33 @@ public class TrackDataHub implements SharedPreferences.OnSharedPreferenceChangeL
 
     /**
      * Target number of track points displayed by the diagrams (recommended).
-     * We may display more than this number of points.
+     * We may display up to twice this number of points.
      */
     private static final int TARGET_DISPLAYED_TRACKPOINTS = 5000;
 
+    /**
+     * {@link TrackPointSampler.Type#LTTB} keeps the shape of a track with fewer points; it gets this share of the target number.
+     */
+    private static final double LTTB_SHARE_OF_TARGET_DISPLAYED_TRACKPOINTS = 0.4;
+
     /**
      * Maximum number of markers to displayed in the diagrams.
      */
     @VisibleForTesting
     private static final int MAX_DISPLAYED_MARKERS = 128;
 
+    /**
+     * Content changes within this interval are loaded together.
+     */
+    public static final Duration DEFAULT_NOTIFICATION_INTERVAL = Duration.ofMillis(100);
+
     private static final String TAG = TrackDataHub.class.getSimpleName();
 
     private final Context context;
     private final TrackDataManager trackDataManager;
     private final ContentProviderUtils contentProviderUtils;
     private final int targetNumPoints;
+    private final Duration notificationInterval;
 
     private boolean started;
     private HandlerThread handlerThread;
@@ -80,26 +100,45 @@ public class TrackDataHub implements SharedPreferences.OnSharedPreferenceChangeL
     private Track.Id recordingTrackId;
     private boolean recordingTrackPaused;
 
+    // The cached trackPoints of the selected track.
+    private final TrackDataCache trackDataCache;
+    private TrackDataCache.Entry entry;
+    // The entry's generation the sampling state refers to.
+    private int entryGeneration;
+
     // Track points sampling state
-    private int numLoadedPoints;
-    private TrackPoint.Id firstSeenTrackPointId;
-    private TrackPoint.Id lastSeenTrackPointId;
+    private final Map<TrackDataListener, TrackPointSampler> samplers = new HashMap<>();
+    // Number of the entry's trackPoints sent to the listeners.
+    private int numSeenTrackPoints;
 
     // Registered listeners
     private ContentObserver tracksTableObserver;
     private ContentObserver markersTableObserver;
     private ContentObserver trackPointsTableObserver;
+    private ContentObserver trackPointsInvalidatedObserver;
+    private CoalescingScheduler tracksTableScheduler;
+    private CoalescingScheduler markersTableScheduler;
+    private CoalescingScheduler trackPointsTableScheduler;
 
     public TrackDataHub(Context context) {
-        this(context, new TrackDataManager(), new ContentProviderUtils(context), TARGET_DISPLAYED_TRACKPOINTS);
+        this(context, DEFAULT_NOTIFICATION_INTERVAL);
+    }
+
+    /**
+     * @param notificationInterval content changes within this interval are loaded together
+     */
+    public TrackDataHub(Context context, Duration notificationInterval) {
+        this(context, new TrackDataManager(), new ContentProviderUtils(context), TrackDataCache.getInstance(), TARGET_DISPLAYED_TRACKPOINTS, notificationInterval);
     }
 
     @VisibleForTesting
-    private TrackDataHub(Context context, TrackDataManager trackDataManager, ContentProviderUtils contentProviderUtils, int targetNumPoints) {
+    private TrackDataHub(Context context, TrackDataManager trackDataManager, ContentProviderUtils contentProviderUtils, TrackDataCache trackDataCache, int targetNumPoints, Duration notificationInterval) {
         this.context = context;
         this.trackDataManager = trackDataManager;
         this.contentProviderUtils = contentProviderUtils;
+        this.trackDataCache = trackDataCache;
         this.targetNumPoints = targetNumPoints;
+        this.notificationInterval = notificationInterval;
         resetSamplingState();
     }
 
@@ -113,31 +152,30 @@ public class TrackDataHub implements SharedPreferences.OnSharedPreferenceChangeL
         handlerThread.start();
         handler = new Handler(handlerThread.getLooper());
 
-        //register listeners
+        tracksTableScheduler = new CoalescingScheduler(handler, notificationInterval, () -> notifyTracksTableUpdate(trackDataManager.getListenerTracks()));
+        markersTableScheduler = new CoalescingScheduler(handler, notificationInterval, () -> notifyMarkersTableUpdate(trackDataManager.getListenerMarkers()));
+        trackPointsTableScheduler = new CoalescingScheduler(handler, notificationInterval, () -> notifyTrackPointsTableUpdate(true, trackDataManager.getListenerTrackPoints_SampledIn(), trackDataManager.getListenerTrackPoints_SampledOut()));
+
+        //register listeners; onChange() is called on a binder thread, so changes arriving during a load are visible to it.
         ContentResolver contentResolver = context.getContentResolver();
-        tracksTableObserver = new ContentObserver(handler) {
-            @Override
-            public void onChange(boolean selfChange) {
-                notifyTracksTableUpdate(trackDataManager.getListenerTracks());
-            }
-        };
+        tracksTableObserver = createContentObserver(tracksTableScheduler);
         contentResolver.registerContentObserver(TracksColumns.CONTENT_URI, false, tracksTableObserver);
 
-        markersTableObserver = new ContentObserver(handler) {
-            @Override
-            public void onChange(boolean selfChange) {
-                notifyMarkersTableUpdate(trackDataManager.getListenerMarkers());
-            }
-        };
+        markersTableObserver = createContentObserver(markersTableScheduler);
         contentResolver.registerContentObserver(MarkerColumns.CONTENT_URI, false, markersTableObserver);
 
-        trackPointsTableObserver = new ContentObserver(handler) {
+        trackPointsTableObserver = createContentObserver(trackPointsTableScheduler);
+        contentResolver.registerContentObserver(TrackPointsColumns.CONTENT_URI_BY_ID, false, trackPointsTableObserver);
+
+        // The order of the notifications of different observers is undefined; so, the cache is invalidated before the trackPoints are loaded again.
+        trackPointsInvalidatedObserver = new ContentObserver(null) {
             @Override
             public void onChange(boolean selfChange) {
-                notifyTrackPointsTableUpdate(true, trackDataManager.getListenerTrackPoints_SampledIn(), trackDataManager.getListenerTrackPoints_SampledOut());
+                trackDataCache.invalidateAll();
+                trackPointsTableScheduler.onChange();
             }
         };
-        contentResolver.registerContentObserver(TrackPointsColumns.CONTENT_URI_BY_ID, false, trackPointsTableObserver);
+        contentResolver.registerContentObserver(TrackPointsColumns.CONTENT_URI_INVALIDATED, false, trackPointsInvalidatedObserver);
 
 
         PreferencesUtils.register(context, this);
@@ -164,6 +202,18 @@ public class TrackDataHub implements SharedPreferences.OnSharedPreferenceChangeL
         contentResolver.unregisterContentObserver(tracksTableObserver);
         contentResolver.unregisterContentObserver(markersTableObserver);
         contentResolver.unregisterContentObserver(trackPointsTableObserver);
+        contentResolver.unregisterContentObserver(trackPointsInvalidatedObserver);
+
+        logNotificationCounters("tracks", tracksTableScheduler);
+        logNotificationCounters("markers", markersTableScheduler);
+        logNotificationCounters("trackPoints", trackPointsTableScheduler);
+
+        // Loaded again from the cache on start.
+        if (entry != null) {
+            trackDataCache.release(entry);
+            entry = null;
+        }
+        selectedTrackId = null;
 
         if (handlerThread != null) {
             handlerThread.getLooper().quit();
@@ -172,6 +222,19 @@ public class TrackDataHub implements SharedPreferences.OnSharedPreferenceChangeL
         handler = null;
     }
 
+    private static ContentObserver createContentObserver(CoalescingScheduler scheduler) {
+        return new ContentObserver(null) {
+            @Override
+            public void onChange(boolean selfChange) {
+                scheduler.onChange();
+            }
+        };
+    }
+
+    private static void logNotificationCounters(String table, CoalescingScheduler scheduler) {
+        Log.d(TAG, "Notifications of " + table + ": " + scheduler.getNumChanges() + " changes, " + scheduler.getNumLoads() + " loads, " + scheduler.getNumSuppressed() + " suppressed.");
+    }
+
     public void loadTrack(final @NonNull Track.Id trackId) {
         handler.post(() -> {
             if (trackId.equals(selectedTrackId)) {
@@ -179,18 +242,32 @@ public class TrackDataHub implements SharedPreferences.OnSharedPreferenceChangeL
                 return;
             }
             selectedTrackId = trackId;
+            if (entry != null) {
+                trackDataCache.release(entry);
+            }
+            entry = trackDataCache.acquire(trackId);
             loadDataForAll();
         });
     }
 
     /**
-     * Registers a {@link TrackDataListener}.
+     * Registers a {@link TrackDataListener} using {@link TrackPointSampler.Type#STRIDE}.
      *
      * @param trackDataListener the track data listener
      */
     public void registerTrackDataListener(final TrackDataListener trackDataListener, final boolean tracksTable, final boolean markersTable, final boolean trackPointsTable_SampleIn, final boolean trackPointsTable_SampleOut) {
+        registerTrackDataListener(trackDataListener, tracksTable, markersTable, trackPointsTable_SampleIn, trackPointsTable_SampleOut, TrackPointSampler.Type.STRIDE);
+    }
+
+    /**
+     * Registers a {@link TrackDataListener}.
+     *
+     * @param trackDataListener the track data listener
+     * @param samplerType       the sampler of the listener's trackPoints
+     */
+    public void registerTrackDataListener(final TrackDataListener trackDataListener, final boolean tracksTable, final boolean markersTable, final boolean trackPointsTable_SampleIn, final boolean trackPointsTable_SampleOut, final TrackPointSampler.Type samplerType) {
         handler.post(() -> {
-            trackDataManager.registerTrackDataListener(trackDataListener, tracksTable, markersTable, trackPointsTable_SampleIn, trackPointsTable_SampleOut);
+            trackDataManager.registerTrackDataListener(trackDataListener, tracksTable, markersTable, trackPointsTable_SampleIn, trackPointsTable_SampleOut, samplerType);
             if (started) {
                 loadDataForListener(trackDataListener);
             }
@@ -236,6 +313,11 @@ public class TrackDataHub implements SharedPreferences.OnSharedPreferenceChangeL
      * Loads data for all listeners. To be run in the {@link #handler} thread.
      */
     private void loadDataForAll() {
+        // Loads everything anyhow.
+        tracksTableScheduler.cancel();
+        markersTableScheduler.cancel();
+        trackPointsTableScheduler.cancel();
+
         resetSamplingState();
         if (!trackDataManager.hasListeners()) {
             return;
@@ -266,6 +348,7 @@ public class TrackDataHub implements SharedPreferences.OnSharedPreferenceChangeL
         boolean hasSampledOut = trackDataManager.listensForTrackPoints_SampledOut(trackDataListener);
         if (hasSampledIn || hasSampledOut) {
             trackDataListener.clearTrackPoints();
+            samplers.remove(trackDataListener);
             boolean isOnlyListener = trackDataManager.getNumberOfListeners() == 1;
             if (isOnlyListener) {
                 resetSamplingState();
@@ -312,6 +395,10 @@ public class TrackDataHub implements SharedPreferences.OnSharedPreferenceChangeL
         try (Cursor cursor = contentProviderUtils.getMarkerCursor(selectedTrackId, null, MAX_DISPLAYED_MARKERS)) {
             if (cursor != null && cursor.moveToFirst()) {
                 do {
+                    if (markersTableScheduler.isStale()) {
+                        // The markers are reloaded by the already scheduled load.
+                        return;
+                    }
                     Marker marker = contentProviderUtils.createMarker(cursor);
                     for (TrackDataListener trackDataListener : trackDataListeners) {
                         trackDataListener.onNewMarker(marker);
@@ -327,8 +414,9 @@ public class TrackDataHub implements SharedPreferences.OnSharedPreferenceChangeL
 
     /**
      * Notifies track points table update; to be run in the {@link #handler} thread.
+     * Only the trackPoints after the cached trackPoints are read.
      *
-     * @param updateSamplingState true to update the sampling state
+     * @param updateSamplingState true to update the sampling state; otherwise, the already seen trackPoints are sent again
      * @param sampledInListeners  the sampled-in listeners
      * @param sampledOutListeners the sampled-out listeners
      */
@@ -337,88 +425,159 @@ public class TrackDataHub implements SharedPreferences.OnSharedPreferenceChangeL
             return;
         }
 
-        if (updateSamplingState && numLoadedPoints >= targetNumPoints) {
-            // Reload and resample the track at a lower frequency.
-            Log.i(TAG, "Resampling track after " + numLoadedPoints + " points.");
-            resetSamplingState();
-            for (TrackDataListener listener : sampledInListeners) {
-                listener.clearTrackPoints();
-            }
+        if (entry == null) {
+            Log.w(TAG, "This should not happen, but it does"); //TODO
+            return;
         }
 
-        int localNumLoadedTrackPoints = updateSamplingState ? numLoadedPoints : 0;
-        TrackPoint.Id localFirstSeenTrackPointId = updateSamplingState ? firstSeenTrackPointId : null;
-        TrackPoint.Id localLastSeenTrackPointIdId = updateSamplingState ? lastSeenTrackPointId : null;
-        TrackPoint.Id maxPointId = updateSamplingState ? null : lastSeenTrackPointId;
+        Set<TrackDataListener> listeners = new HashSet<>(sampledInListeners);
+        listeners.addAll(sampledOutListeners);
+        List<ListenerCallback> callbacks = new ArrayList<>(listeners.size());
+        for (TrackDataListener listener : listeners) {
+            callbacks.add(new ListenerCallback(listener, getSampler(listener), sampledInListeners.contains(listener), sampledOutListeners.contains(listener)));
+        }
 
-        if (selectedTrackId == null) {
-            Log.w(TAG, "This should not happen, but it does"); //TODO
+        int from = updateSamplingState ? numSeenTrackPoints : 0;
+        int to = 0;
+        List<TrackPoint> trackPoints = null;
+        synchronized (entry) {
+            if (entry.getGeneration() == entryGeneration && from < entry.getFirstIndex()) {
+                // Needed trackPoints were trimmed from the cache; read all again.
+                entry.invalidate();
+            }
+            if (entry.getGeneration() == entryGeneration) {
+                if (updateSamplingState) {
+                    entry.readNewTrackPoints(contentProviderUtils);
+                }
+                to = updateSamplingState ? entry.size() : numSeenTrackPoints;
+                trackPoints = entry.getTrackPoints(from, to);
+            }
+        }
+        if (trackPoints == null) {
+            // The sampling state does not match the cached trackPoints anymore.
+            reloadTrackPoints();
             return;
         }
 
-        TrackPoint.Id lastTrackPointId = contentProviderUtils.getLastTrackPointId(selectedTrackId);
-        int samplingFrequency = -1;
+        for (TrackPoint trackPoint : trackPoints) {
+            for (ListenerCallback callback : callbacks) {
+                callback.sampler.add(trackPoint, callback);
+            }
+        }
 
+        if (!isSelectedTrackRecording()) {
+            // No more trackPoints will follow; send the delayed ones.
+            for (ListenerCallback callback : callbacks) {
+                callback.sampler.flush(callback);
+            }
+        }
+        for (ListenerCallback callback : callbacks) {
+            callback.dispatch();
+        }
 
-        TrackPoint.Id next = null;
-        if (localLastSeenTrackPointIdId != null) {
-            next = new TrackPoint.Id(localLastSeenTrackPointIdId.getId() + 1); //TODO startTrackPointId + 1 is an assumption assumption; should be derived from the DB.
+        if (updateSamplingState) {
+            numSeenTrackPoints = to;
+            entry.trimIfFull();
         }
 
-        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(selectedTrackId, next)) {
+        for (TrackDataListener listener : sampledInListeners) {
+            listener.onNewTrackPointsDone();
+        }
+    }
 
-            while (trackPointIterator.hasNext()) {
-                TrackPoint trackPoint = trackPointIterator.next();
-                TrackPoint.Id trackPointId = trackPoint.getId();
+    /**
+     * Sends all trackPoints to the listeners again; to be run in the {@link #handler} thread.
+     */
+    private void reloadTrackPoints() {
+        resetSamplingState();
+        for (TrackDataListener listener : trackDataManager.getListenerTrackPoints_SampledIn()) {
+            listener.clearTrackPoints();
+        }
+        notifyTrackPointsTableUpdate(true, trackDataManager.getListenerTrackPoints_SampledIn(), trackDataManager.getListenerTrackPoints_SampledOut());
+    }
 
-                // Stop if past the last wanted point
-                if (maxPointId != null && trackPointId.getId() > maxPointId.getId()) {
+    private TrackPointSampler getSampler(TrackDataListener listener) {
+        TrackPointSampler sampler = samplers.get(listener);
+        if (sampler == null) {
+            switch (trackDataManager.getSamplerType(listener)) {
+                case LTTB:
+                    sampler = new LttbTrackPointSampler(Math.max(2, (int) (targetNumPoints * LTTB_SHARE_OF_TARGET_DISPLAYED_TRACKPOINTS)), LttbTrackPointSampler.CHART_CHANNELS);
                     break;
-                }
+                case STRIDE:
+                default:
+                    sampler = new StrideTrackPointSampler(targetNumPoints);
+            }
+            samplers.put(listener, sampler);
+        }
+        return sampler;
+    }
 
-                if (localFirstSeenTrackPointId == null) {
-                    localFirstSeenTrackPointId = trackPointId;
-                }
+    /**
+     * Resets the track points sampling states.
+     */
+    private void resetSamplingState() {
+        samplers.clear();
+        numSeenTrackPoints = 0;
+        entryGeneration = entry != null ? entry.getGeneration() : 0;
+    }
 
-                if (samplingFrequency == -1) {
-                    long numTotalPoints = Math.max(0L, lastTrackPointId.getId() - localFirstSeenTrackPointId.getId()); //TODO That is an assumption; should be derived from the DB.
-                    samplingFrequency = 1 + (int) (numTotalPoints / targetNumPoints);
-                }
+    /**
+     * Passes the sampled trackPoints of a listener's {@link TrackPointSampler} to the listener in chunks of up to {@link #MAX_BATCH_SIZE}.
+     */
+    private static class ListenerCallback implements TrackPointSampler.Callback {
 
+        private static final int MAX_BATCH_SIZE = 1024;
 
-                // Also include the last point if the selected track is not recording.
-                if ((localNumLoadedTrackPoints % samplingFrequency == 0) || (trackPointId == lastTrackPointId && !isSelectedTrackRecording())) {
-                    for (TrackDataListener trackDataListener : sampledInListeners) {
-                        trackDataListener.onSampledInTrackPoint(trackPoint);
-                    }
-                } else {
-                    for (TrackDataListener trackDataListener : sampledOutListeners) {
-                        trackDataListener.onSampledOutTrackPoint(trackPoint);
-                    }
-                }
+        private final TrackDataListener listener;
+        private final TrackPointBatch.Builder batch = new TrackPointBatch.Builder();
+        private final TrackPointSampler sampler;
+        private final boolean sampledIn;
+        private final boolean sampledOut;
+
+        ListenerCallback(TrackDataListener listener, TrackPointSampler sampler, boolean sampledIn, boolean sampledOut) {
+            this.listener = listener;
+            this.sampler = sampler;
+            this.sampledIn = sampledIn;
+            this.sampledOut = sampledOut;
+        }
 
-                localNumLoadedTrackPoints++;
-                localLastSeenTrackPointIdId = trackPointId;
+        @Override
+        public void onSampledIn(@NonNull TrackPoint trackPoint) {
+            if (sampledIn) {
+                add(trackPoint, true);
             }
         }
 
-        if (updateSamplingState) {
-            numLoadedPoints = localNumLoadedTrackPoints;
-            firstSeenTrackPointId = localFirstSeenTrackPointId;
-            lastSeenTrackPointId = localLastSeenTrackPointIdId;
+        @Override
+        public void onSampledOut(@NonNull TrackPoint trackPoint) {
+            if (sampledOut) {
+                add(trackPoint, false);
+            }
         }
 
-        for (TrackDataListener listener : sampledInListeners) {
-            listener.onNewTrackPointsDone();
+        @Override
+        public void onDecimated(@NonNull BitSet keptPositions) {
+            if (sampledIn) {
+                // The kept positions include the pending trackPoints.
+                dispatch();
+                listener.onSampledInTrackPointsDecimated(keptPositions);
+            }
         }
-    }
 
-    /**
-     * Resets the track points sampling states.
-     */
-    private void resetSamplingState() {
-        numLoadedPoints = 0;
-        firstSeenTrackPointId = null;
-        lastSeenTrackPointId = null;
+        /**
+         * Sends the pending trackPoints to the listener.
+         */
+        void dispatch() {
+            if (batch.size() > 0) {
+                listener.onTrackPoints(batch.build());
+            }
+        }
+
+        private void add(TrackPoint trackPoint, boolean isSampledIn) {
+            batch.add(trackPoint, isSampledIn);
+            if (batch.size() >= MAX_BATCH_SIZE) {
+                dispatch();
+            }
+        }
     }
 }
\ No newline at end of file
@@ -16,6 +16,9 @@
 
 package de.dennisguse.opentracks.content;
 
+import java.util.BitSet;
+import java.util.List;
+
 import de.dennisguse.opentracks.content.data.Marker;
 import de.dennisguse.opentracks.content.data.Track;
 import de.dennisguse.opentracks.content.data.TrackPoint;
@@ -39,6 +42,22 @@ public interface TrackDataListener {
      */
     void clearTrackPoints();
 
+    /**
+     * Called with a chunk of new track points; replaces one call per track point.
+     * By default, calls {@link #onSampledInTrackPoint(TrackPoint)} or {@link #onSampledOutTrackPoint(TrackPoint)} for each track point.
+     *
+     * @param batch the track points in order
+     */
+    default void onTrackPoints(TrackPointBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.isSampledIn(i)) {
+                onSampledInTrackPoint(batch.get(i));
+            } else {
+                onSampledOutTrackPoint(batch.get(i));
+            }
+        }
+    }
+
     /**
      * Called when a sampled in track point is read.
      *
@@ -53,9 +72,17 @@ public interface TrackDataListener {
      */
     void onSampledOutTrackPoint(TrackPoint trackPoint);
 
+    /**
+     * Called when the sampling interval was doubled: of the previously sent sampled in track points only the ones at the kept positions remain sampled in.
+     * The listener should remove the others (see {@link TrackPointSampler#decimate(List, int, BitSet)}); the track points are not sent again.
+     *
+     * @param keptPositions the kept positions within the sampled in track points sent since {@link #clearTrackPoints()}
+     */
+    void onSampledInTrackPointsDecimated(BitSet keptPositions);
+
     /**
      * Called when finish sending new track points.
-     * This gets called after every batch of calls to {@link #onSampledInTrackPoint(TrackPoint)} and {@link #onSampledOutTrackPoint(TrackPoint)}.
+     * This gets called after every batch of calls to {@link #onTrackPoints(TrackPointBatch)}.
      */
     void onNewTrackPointsDone();
 
@@ -16,7 +16,9 @@
 
 package de.dennisguse.opentracks.content;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -32,12 +34,14 @@ class TrackDataManager {
     private final Set<TrackDataListener> dataListenerMarkers = new HashSet<>();
     private final Set<TrackDataListener> dataListenerTrackPoints_SampledIn = new HashSet<>();
     private final Set<TrackDataListener> dataListenerTrackPoints_SampledOut = new HashSet<>();
+    private final Map<TrackDataListener, TrackPointSampler.Type> samplerTypes = new HashMap<>();
 
-    void registerTrackDataListener(final TrackDataListener trackDataListener, boolean tracksTable, boolean markersTable, boolean trackPointsTable_SampleIn, boolean trackPointsTable_SampleOut) {
+    void registerTrackDataListener(final TrackDataListener trackDataListener, boolean tracksTable, boolean markersTable, boolean trackPointsTable_SampleIn, boolean trackPointsTable_SampleOut, TrackPointSampler.Type samplerType) {
         if (tracksTable) dataListenerTracks.add(trackDataListener);
         if (markersTable) dataListenerMarkers.add(trackDataListener);
         if (trackPointsTable_SampleIn) dataListenerTrackPoints_SampledIn.add(trackDataListener);
         if (trackPointsTable_SampleOut) dataListenerTrackPoints_SampledOut.add(trackDataListener);
+        samplerTypes.put(trackDataListener, samplerType);
     }
 
     void unregisterTrackDataListener(TrackDataListener trackDataListener) {
@@ -77,6 +81,11 @@ class TrackDataManager {
         return dataListenerTrackPoints_SampledOut.contains(listener);
     }
 
+    TrackPointSampler.Type getSamplerType(TrackDataListener listener) {
+        TrackPointSampler.Type samplerType = samplerTypes.get(listener);
+        return samplerType != null ? samplerType : TrackPointSampler.Type.STRIDE;
+    }
+
     Set<TrackDataListener> getListenerTracks() {
         return dataListenerTracks;
     }
@@ -0,0 +1,85 @@
+package de.dennisguse.opentracks.content;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import de.dennisguse.opentracks.content.data.TrackPoint;
+
+/**
+ * A chunk of consecutive {@link TrackPoint}s (in track order) sent to a {@link TrackDataListener} at once; each is either sampled in or sampled out.
+ */
+public class TrackPointBatch {
+
+    private final List<TrackPoint> trackPoints;
+    private final BitSet sampledIn;
+
+    private TrackPointBatch(@NonNull List<TrackPoint> trackPoints, @NonNull BitSet sampledIn) {
+        this.trackPoints = Collections.unmodifiableList(trackPoints);
+        this.sampledIn = sampledIn;
+    }
+
+    public int size() {
+        return trackPoints.size();
+    }
+
+    public boolean isEmpty() {
+        return trackPoints.isEmpty();
+    }
+
+    @NonNull
+    public TrackPoint get(int position) {
+        return trackPoints.get(position);
+    }
+
+    public boolean isSampledIn(int position) {
+        return sampledIn.get(position);
+    }
+
+    /**
+     * @return all trackPoints (sampled in and sampled out)
+     */
+    @NonNull
+    public List<TrackPoint> getTrackPoints() {
+        return trackPoints;
+    }
+
+    @NonNull
+    public TrackPoint getLast() {
+        return trackPoints.get(trackPoints.size() - 1);
+    }
+
+    /**
+     * Collects trackPoints into {@link TrackPointBatch}es.
+     */
+    static class Builder {
+
+        private List<TrackPoint> trackPoints = new ArrayList<>();
+        private BitSet sampledIn = new BitSet();
+
+        void add(@NonNull TrackPoint trackPoint, boolean isSampledIn) {
+            if (isSampledIn) {
+                sampledIn.set(trackPoints.size());
+            }
+            trackPoints.add(trackPoint);
+        }
+
+        int size() {
+            return trackPoints.size();
+        }
+
+        /**
+         * @return the collected trackPoints; the builder is empty afterwards
+         */
+        @NonNull
+        TrackPointBatch build() {
+            TrackPointBatch batch = new TrackPointBatch(trackPoints, sampledIn);
+            trackPoints = new ArrayList<>();
+            sampledIn = new BitSet();
+            return batch;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package de.dennisguse.opentracks.content;
+
+import androidx.annotation.NonNull;
+
+import java.util.BitSet;
+import java.util.List;
+
+import de.dennisguse.opentracks.content.data.TrackPoint;
+
+/**
+ * Downsamples the {@link TrackPoint}s of a track as a stream for {@link TrackDataHub}.
+ * <p>
+ * The trackPoints are passed to the {@link Callback} in track order, but may be delayed (e.g., until a bucket is complete).
+ * If too many trackPoints are sampled in, a sampler decimates them: of each pair of sampled in trackPoints (positions 2i and 2i+1) one is kept.
+ */
+public interface TrackPointSampler {
+
+    /**
+     * Adds the next trackPoint of the track.
+     */
+    void add(@NonNull TrackPoint trackPoint, @NonNull Callback callback);
+
+    /**
+     * Passes all delayed trackPoints to the callback; e.g., if the track is not recording.
+     */
+    void flush(@NonNull Callback callback);
+
+    interface Callback {
+
+        void onSampledIn(@NonNull TrackPoint trackPoint);
+
+        void onSampledOut(@NonNull TrackPoint trackPoint);
+
+        /**
+         * @param keptPositions the positions of the sampled in trackPoints that remain sampled in
+         */
+        void onDecimated(@NonNull BitSet keptPositions);
+    }
+
+    /**
+     * The samplers a {@link TrackDataListener} can choose.
+     */
+    enum Type {
+        /**
+         * Every n-th trackPoint; no delay (see {@link StrideTrackPointSampler}).
+         */
+        STRIDE,
+
+        /**
+         * Shape-preserving: keeps peaks (see {@link LttbTrackPointSampler}); needs fewer points for the same chart.
+         */
+        LTTB
+    }
+
+    /**
+     * Removes the elements that are not kept after a decimation.
+     *
+     * @param list          the sampled in elements (or a part of them)
+     * @param firstPosition the position of the list's first element within all sampled in elements
+     * @param keptPositions the kept positions (see {@link Callback#onDecimated(BitSet)})
+     */
+    static <T> void decimate(@NonNull List<T> list, int firstPosition, @NonNull BitSet keptPositions) {
+        int kept = 0;
+        for (int i = 0; i < list.size(); i++) {
+            if (keptPositions.get(firstPosition + i)) {
+                list.set(kept++, list.get(i));
+            }
+        }
+        list.subList(kept, list.size()).clear();
+    }
+}
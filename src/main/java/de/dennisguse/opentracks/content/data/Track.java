@@ -25,6 +25,7 @@ import androidx.annotation.Nullable;
 import java.util.Objects;
 import java.util.UUID;
 
+import de.dennisguse.opentracks.stats.SensorAggregates;
 import de.dennisguse.opentracks.stats.TrackStatistics;
 
 /**
@@ -46,6 +47,8 @@ public class Track {
 
     private TrackStatistics trackStatistics = new TrackStatistics();
 
+    private SensorAggregates sensorAggregates = new SensorAggregates();
+
     public Track() {
     }
 
@@ -109,6 +112,14 @@ public class Track {
         this.trackStatistics = trackStatistics;
     }
 
+    public SensorAggregates getSensorAggregates() {
+        return sensorAggregates;
+    }
+
+    public void setSensorAggregates(SensorAggregates sensorAggregates) {
+        this.sensorAggregates = sensorAggregates;
+    }
+
     public static class Id implements Parcelable {
 
         private final long id;
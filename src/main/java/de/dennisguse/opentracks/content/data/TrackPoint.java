@@ -24,6 +24,8 @@ import androidx.annotation.Nullable;
 import java.time.Instant;
 import java.util.Objects;
 
+import de.dennisguse.opentracks.util.GeodesicUtils;
+
 /**
  * This class extends the standard Android location with extra information.
  * <p>
@@ -295,15 +297,26 @@ public class TrackPoint {
     }
 
     public float distanceTo(@NonNull TrackPoint dest) {
-        return getLocation().distanceTo(dest.getLocation());
+        return (float) GeodesicUtils.distance(getLatitudeOrDefault(), getLongitudeOrDefault(), dest.getLatitudeOrDefault(), dest.getLongitudeOrDefault());
     }
 
     public float bearingTo(@NonNull TrackPoint dest) {
-        return getLocation().bearingTo(dest.getLocation());
+        return (float) GeodesicUtils.bearing(getLatitudeOrDefault(), getLongitudeOrDefault(), dest.getLatitudeOrDefault(), dest.getLongitudeOrDefault());
     }
 
     public float bearingTo(@NonNull Location dest) {
-        return getLocation().bearingTo(dest);
+        return (float) GeodesicUtils.bearing(getLatitudeOrDefault(), getLongitudeOrDefault(), dest.getLatitude(), dest.getLongitude());
+    }
+
+    /**
+     * Like {@link #getLocation()}: the default location is latitude=0.0 and longitude=0.0.
+     */
+    private double getLatitudeOrDefault() {
+        return latitude != null ? latitude : 0.0;
+    }
+
+    private double getLongitudeOrDefault() {
+        return longitude != null ? longitude : 0.0;
     }
 
     // Sensor data
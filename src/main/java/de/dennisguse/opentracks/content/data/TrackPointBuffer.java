@@ -0,0 +1,298 @@
+package de.dennisguse.opentracks.content.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * {@link TrackPoint}s of a track stored as primitive arrays (struct of arrays); one index per trackPoint.
+ * Filling the buffer does not allocate per trackPoint (except for growing); so, it can be reused to read large tracks without GC pressure.
+ * <p>
+ * Latitude/longitude are stored as micro degrees (like {@link TrackPointsColumns}); all other optional attributes are float channels.
+ * Attributes not loaded (see {@link de.dennisguse.opentracks.content.provider.TrackPointProjection}) or not present are marked in presence bitsets.
+ * <p>
+ * Not thread-safe.
+ */
+public class TrackPointBuffer {
+
+    // The order of the channels is part of the format of TrackPointCodec.
+    public static final int CHANNEL_ALTITUDE = 0;
+    public static final int CHANNEL_ACCURACY = 1;
+    public static final int CHANNEL_SPEED = 2;
+    public static final int CHANNEL_BEARING = 3;
+    public static final int CHANNEL_HEARTRATE = 4;
+    public static final int CHANNEL_CADENCE = 5;
+    public static final int CHANNEL_POWER = 6;
+    public static final int CHANNEL_ELEVATION_GAIN = 7;
+    public static final int CHANNEL_ELEVATION_LOSS = 8;
+    public static final int NUM_CHANNELS = 9;
+
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private int size = 0;
+
+    private long[] ids;
+    private byte[] types;
+    private long[] times;
+    private int[] latitudesE6;
+    private int[] longitudesE6;
+    private final BitSet hasLocation = new BitSet();
+    private final float[][] channels = new float[NUM_CHANNELS][];
+    private final BitSet[] hasChannel = new BitSet[NUM_CHANNELS];
+
+    public TrackPointBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public TrackPointBuffer(int initialCapacity) {
+        int capacity = Math.max(1, initialCapacity);
+        ids = new long[capacity];
+        types = new byte[capacity];
+        times = new long[capacity];
+        latitudesE6 = new int[capacity];
+        longitudesE6 = new int[capacity];
+        for (int channel = 0; channel < NUM_CHANNELS; channel++) {
+            channels[channel] = new float[capacity];
+            hasChannel[channel] = new BitSet();
+        }
+    }
+
+    /**
+     * Removes all trackPoints; keeps the allocated arrays.
+     */
+    public void clear() {
+        size = 0;
+        hasLocation.clear();
+        for (BitSet bitSet : hasChannel) {
+            bitSet.clear();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Appends a trackPoint without location and channels; set these via {@link #setLocation(int, int, int)} and {@link #setChannel(int, int, float)}.
+     *
+     * @param time_ms epoch milliseconds
+     * @return the index of the trackPoint
+     */
+    public int append(long id, @NonNull TrackPoint.Type type, long time_ms) {
+        ensureCapacity(size + 1);
+        ids[size] = id;
+        types[size] = (byte) type.type_db;
+        times[size] = time_ms;
+        return size++;
+    }
+
+    /**
+     * Appends a copy of a trackPoint.
+     *
+     * @return the index of the trackPoint
+     */
+    public int append(@NonNull TrackPoint trackPoint) {
+        int index = append(trackPoint.getId() != null ? trackPoint.getId().getId() : -1, trackPoint.getType(), trackPoint.getTime() != null ? trackPoint.getTime().toEpochMilli() : 0);
+        if (trackPoint.hasLocation()) {
+            setLocation(index, (int) Math.round(trackPoint.getLatitude() * 1E6), (int) Math.round(trackPoint.getLongitude() * 1E6));
+        }
+        for (int channel = 0; channel < NUM_CHANNELS; channel++) {
+            Float value = getChannel(trackPoint, channel);
+            if (value != null) {
+                setChannel(index, channel, value);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Appends a copy of a trackPoint of another buffer.
+     *
+     * @return the index of the trackPoint
+     */
+    public int append(@NonNull TrackPointBuffer other, int otherIndex) {
+        int index = append(other.ids[otherIndex], other.getType(otherIndex), other.times[otherIndex]);
+        if (other.hasLocation(otherIndex)) {
+            setLocation(index, other.latitudesE6[otherIndex], other.longitudesE6[otherIndex]);
+        }
+        for (int channel = 0; channel < NUM_CHANNELS; channel++) {
+            if (other.hasChannel(otherIndex, channel)) {
+                setChannel(index, channel, other.channels[channel][otherIndex]);
+            }
+        }
+        return index;
+    }
+
+    public void setLocation(int index, int latitudeE6, int longitudeE6) {
+        latitudesE6[index] = latitudeE6;
+        longitudesE6[index] = longitudeE6;
+        hasLocation.set(index);
+    }
+
+    public void setChannel(int index, int channel, float value) {
+        channels[channel][index] = value;
+        hasChannel[channel].set(index);
+    }
+
+    public long getId(int index) {
+        return ids[index];
+    }
+
+    @NonNull
+    public TrackPoint.Type getType(int index) {
+        return TrackPoint.Type.getById(types[index]);
+    }
+
+    public long getTime_ms(int index) {
+        return times[index];
+    }
+
+    public boolean hasLocation(int index) {
+        return hasLocation.get(index);
+    }
+
+    public int getLatitudeE6(int index) {
+        return latitudesE6[index];
+    }
+
+    public int getLongitudeE6(int index) {
+        return longitudesE6[index];
+    }
+
+    public double getLatitude(int index) {
+        return latitudesE6[index] / 1E6;
+    }
+
+    public double getLongitude(int index) {
+        return longitudesE6[index] / 1E6;
+    }
+
+    public boolean hasChannel(int index, int channel) {
+        return hasChannel[channel].get(index);
+    }
+
+    /**
+     * @return the value; undefined if not {@link #hasChannel(int, int)}
+     */
+    public float getChannel(int index, int channel) {
+        return channels[channel][index];
+    }
+
+    /**
+     * Creates a {@link TrackPoint} (i.e., allocates); for consumers that still require objects.
+     */
+    @NonNull
+    public TrackPoint toTrackPoint(int index) {
+        TrackPoint trackPoint = new TrackPoint(getType(index));
+        if (ids[index] >= 0) {
+            trackPoint.setId(new TrackPoint.Id(ids[index]));
+        }
+        trackPoint.setTime(Instant.ofEpochMilli(times[index]));
+        if (hasLocation(index)) {
+            trackPoint.setLatitude(getLatitude(index));
+            trackPoint.setLongitude(getLongitude(index));
+        }
+        for (int channel = 0; channel < NUM_CHANNELS; channel++) {
+            if (hasChannel(index, channel)) {
+                setChannel(trackPoint, channel, channels[channel][index]);
+            }
+        }
+        return trackPoint;
+    }
+
+    @NonNull
+    public List<TrackPoint> toTrackPoints() {
+        List<TrackPoint> trackPoints = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            trackPoints.add(toTrackPoint(i));
+        }
+        return trackPoints;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        types = Arrays.copyOf(types, newCapacity);
+        times = Arrays.copyOf(times, newCapacity);
+        latitudesE6 = Arrays.copyOf(latitudesE6, newCapacity);
+        longitudesE6 = Arrays.copyOf(longitudesE6, newCapacity);
+        for (int channel = 0; channel < NUM_CHANNELS; channel++) {
+            channels[channel] = Arrays.copyOf(channels[channel], newCapacity);
+        }
+    }
+
+    /**
+     * @return the value of the channel of a trackPoint; null if not present
+     */
+    @Nullable
+    public static Float getChannel(@NonNull TrackPoint trackPoint, int channel) {
+        switch (channel) {
+            case CHANNEL_ALTITUDE:
+                return trackPoint.hasAltitude() ? (float) trackPoint.getAltitude() : null;
+            case CHANNEL_ACCURACY:
+                return trackPoint.hasAccuracy() ? trackPoint.getAccuracy() : null;
+            case CHANNEL_SPEED:
+                return trackPoint.hasSpeed() ? trackPoint.getSpeed() : null;
+            case CHANNEL_BEARING:
+                return trackPoint.hasBearing() ? trackPoint.getBearing() : null;
+            case CHANNEL_HEARTRATE:
+                return trackPoint.hasHeartRate() ? trackPoint.getHeartRate_bpm() : null;
+            case CHANNEL_CADENCE:
+                return trackPoint.hasCyclingCadence() ? trackPoint.getCyclingCadence_rpm() : null;
+            case CHANNEL_POWER:
+                return trackPoint.hasPower() ? trackPoint.getPower() : null;
+            case CHANNEL_ELEVATION_GAIN:
+                return trackPoint.hasElevationGain() ? trackPoint.getElevationGain() : null;
+            case CHANNEL_ELEVATION_LOSS:
+                return trackPoint.hasElevationLoss() ? trackPoint.getElevationLoss() : null;
+            default:
+                throw new IllegalArgumentException("Unknown channel " + channel);
+        }
+    }
+
+    public static void setChannel(@NonNull TrackPoint trackPoint, int channel, float value) {
+        switch (channel) {
+            case CHANNEL_ALTITUDE:
+                trackPoint.setAltitude(value);
+                break;
+            case CHANNEL_ACCURACY:
+                trackPoint.setAccuracy(value);
+                break;
+            case CHANNEL_SPEED:
+                trackPoint.setSpeed(value);
+                break;
+            case CHANNEL_BEARING:
+                trackPoint.setBearing(value);
+                break;
+            case CHANNEL_HEARTRATE:
+                trackPoint.setHeartRate_bpm(value);
+                break;
+            case CHANNEL_CADENCE:
+                trackPoint.setCyclingCadence_rpm(value);
+                break;
+            case CHANNEL_POWER:
+                trackPoint.setPower(value);
+                break;
+            case CHANNEL_ELEVATION_GAIN:
+                trackPoint.setElevationGain(value);
+                break;
+            case CHANNEL_ELEVATION_LOSS:
+                trackPoint.setElevationLoss(value);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown channel " + channel);
+        }
+    }
+}
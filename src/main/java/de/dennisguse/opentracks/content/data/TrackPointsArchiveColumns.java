@@ -0,0 +1,39 @@
+package de.dennisguse.opentracks.content.data;
+
+import android.net.Uri;
+import android.provider.BaseColumns;
+
+import de.dennisguse.opentracks.content.provider.ContentProviderUtils;
+
+/**
+ * Constants for the archived track points table.
+ * Each row contains a run of consecutive {@link TrackPoint}s (at most one segment) of a finished track encoded by {@link de.dennisguse.opentracks.content.provider.TrackPointCodec}.
+ * If a track is archived, it has no rows in {@link TrackPointsColumns#TABLE_NAME}.
+ */
+public interface TrackPointsArchiveColumns extends BaseColumns {
+
+    String TABLE_NAME = "trackpoints_archive";
+    Uri CONTENT_URI = Uri.parse(ContentProviderUtils.CONTENT_BASE_URI + "/" + TABLE_NAME);
+    String CONTENT_TYPE = "vnd.android.cursor.dir/vnd.de.dennisguse.trackpoints_archive";
+    String CONTENT_ITEMTYPE = "vnd.android.cursor.item/vnd.de.dennisguse.trackpoints_archive";
+    String DEFAULT_SORT_ORDER = "first_trackpoint_id";
+
+    // Columns
+    String TRACKID = "trackid";
+    String FIRST_TRACKPOINT_ID = "first_trackpoint_id";
+    String LAST_TRACKPOINT_ID = "last_trackpoint_id";
+    String NUM_TRACKPOINTS = "numpoints";
+    String DATA = "data";
+
+    String CREATE_TABLE = "CREATE TABLE " + TABLE_NAME + " ("
+            + _ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+            + TRACKID + " INTEGER NOT NULL, "
+            + FIRST_TRACKPOINT_ID + " INTEGER NOT NULL, "
+            + LAST_TRACKPOINT_ID + " INTEGER NOT NULL, "
+            + NUM_TRACKPOINTS + " INTEGER NOT NULL, "
+            + DATA + " BLOB NOT NULL, "
+            + "FOREIGN KEY (" + TRACKID + ") REFERENCES " + TracksColumns.TABLE_NAME + "(" + TracksColumns._ID + ") ON UPDATE CASCADE ON DELETE CASCADE"
+            + ")";
+
+    String CREATE_TABLE_INDEX = "CREATE INDEX " + TABLE_NAME + "_" + TRACKID + "_index ON " + TABLE_NAME + "(" + TRACKID + ", " + FIRST_TRACKPOINT_ID + ")";
+}
@@ -31,6 +31,8 @@ public interface TrackPointsColumns extends BaseColumns {
     String TABLE_NAME = "trackpoints";
     Uri CONTENT_URI_BY_ID = Uri.parse(ContentProviderUtils.CONTENT_BASE_URI + "/" + TABLE_NAME);
     Uri CONTENT_URI_BY_TRACKID = Uri.parse(ContentProviderUtils.CONTENT_BASE_URI + "/" + TABLE_NAME + "/trackid");
+    // Only for notifications: stored trackPoints were changed or deleted (i.e., not only appended).
+    Uri CONTENT_URI_INVALIDATED = Uri.parse(ContentProviderUtils.CONTENT_BASE_URI + "/" + TABLE_NAME + "/invalidated");
     String CONTENT_TYPE = "vnd.android.cursor.dir/vnd.de.dennisguse.trackpoint";
     String CONTENT_ITEMTYPE = "vnd.android.cursor.item/vnd.de.dennisguse.trackpoint";
     String DEFAULT_SORT_ORDER = _ID;
@@ -73,5 +75,8 @@ public interface TrackPointsColumns extends BaseColumns {
             + "FOREIGN KEY (" + TRACKID + ") REFERENCES " + TracksColumns.TABLE_NAME + "(" + TracksColumns._ID + ") ON UPDATE CASCADE ON DELETE CASCADE"
             + ")";
 
-    String CREATE_TABLE_INDEX = "CREATE INDEX " + TABLE_NAME + "_" + TRACKID + "_index ON " + TABLE_NAME + "(" + TRACKID + ")";
+    // Indexes contain the _id (rowid); so they cover lookups of trackPoint ids within a track.
+    String CREATE_TABLE_INDEX = "CREATE INDEX " + TABLE_NAME + "_" + TRACKID + "_id_index ON " + TABLE_NAME + "(" + TRACKID + ", " + _ID + ")";
+    String CREATE_TABLE_INDEX_TIME = "CREATE INDEX " + TABLE_NAME + "_" + TRACKID + "_" + TIME + "_index ON " + TABLE_NAME + "(" + TRACKID + ", " + TIME + ")";
+    String CREATE_TABLE_INDEX_TYPE = "CREATE INDEX " + TABLE_NAME + "_" + TRACKID + "_" + TYPE + "_index ON " + TABLE_NAME + "(" + TRACKID + ", " + TYPE + ")";
 }
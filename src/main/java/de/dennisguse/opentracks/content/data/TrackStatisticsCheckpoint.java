@@ -0,0 +1,51 @@
+package de.dennisguse.opentracks.content.data;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * A row of {@link TrackStatisticsCheckpointsColumns}: the serialized state of a {@link de.dennisguse.opentracks.stats.TrackStatisticsUpdater} (and optionally of the recording's intervals) after a trackPoint was added.
+ */
+public class TrackStatisticsCheckpoint {
+
+    private final TrackPoint.Id trackPointId;
+    private final int minRecordingDistance;
+    private final byte[] data;
+    private final byte[] intervals;
+
+    public TrackStatisticsCheckpoint(@NonNull TrackPoint.Id trackPointId, int minRecordingDistance, @NonNull byte[] data) {
+        this(trackPointId, minRecordingDistance, data, null);
+    }
+
+    /**
+     * @param trackPointId         the last trackPoint added before the checkpoint
+     * @param minRecordingDistance the min recording distance used for adding the trackPoints
+     * @param data                 see {@link de.dennisguse.opentracks.stats.TrackStatisticsUpdater#toCheckpoint()}
+     * @param intervals            the serialized intervals of the recording; null if not stored
+     */
+    public TrackStatisticsCheckpoint(@NonNull TrackPoint.Id trackPointId, int minRecordingDistance, @NonNull byte[] data, @Nullable byte[] intervals) {
+        this.trackPointId = trackPointId;
+        this.minRecordingDistance = minRecordingDistance;
+        this.data = data;
+        this.intervals = intervals;
+    }
+
+    @NonNull
+    public TrackPoint.Id getTrackPointId() {
+        return trackPointId;
+    }
+
+    public int getMinRecordingDistance() {
+        return minRecordingDistance;
+    }
+
+    @NonNull
+    public byte[] getData() {
+        return data;
+    }
+
+    @Nullable
+    public byte[] getIntervals() {
+        return intervals;
+    }
+}
@@ -0,0 +1,40 @@
+package de.dennisguse.opentracks.content.data;
+
+import android.net.Uri;
+import android.provider.BaseColumns;
+
+import de.dennisguse.opentracks.content.provider.ContentProviderUtils;
+
+/**
+ * Constants for the track statistics checkpoints table.
+ * Each row contains the serialized state of a {@link de.dennisguse.opentracks.stats.TrackStatisticsUpdater} after the {@link TrackPoint} with {@link #TRACKPOINT_ID} was added.
+ * So, the {@link de.dennisguse.opentracks.stats.TrackStatistics} of a track can be continued by only adding the following {@link TrackPoint}s.
+ */
+public interface TrackStatisticsCheckpointsColumns extends BaseColumns {
+
+    String TABLE_NAME = "trackstatistics_checkpoints";
+    Uri CONTENT_URI = Uri.parse(ContentProviderUtils.CONTENT_BASE_URI + "/" + TABLE_NAME);
+    String CONTENT_TYPE = "vnd.android.cursor.dir/vnd.de.dennisguse.trackstatistics_checkpoints";
+    String DEFAULT_SORT_ORDER = "trackpoint_id";
+
+    // Columns
+    String TRACKID = "trackid";
+    String TRACKPOINT_ID = "trackpoint_id";
+    // The min recording distance used for adding the trackPoints; the checkpoint cannot be continued with another one.
+    String MIN_RECORDING_DISTANCE = "min_recording_distance";
+    String DATA = "data";
+    // The intervals of the recording at the checkpoint (see TrackRecordingSession); may be null.
+    String INTERVALS = "intervals";
+
+    String CREATE_TABLE = "CREATE TABLE " + TABLE_NAME + " ("
+            + _ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+            + TRACKID + " INTEGER NOT NULL, "
+            + TRACKPOINT_ID + " INTEGER NOT NULL, "
+            + MIN_RECORDING_DISTANCE + " INTEGER NOT NULL, "
+            + DATA + " BLOB NOT NULL, "
+            + INTERVALS + " BLOB, "
+            + "FOREIGN KEY (" + TRACKID + ") REFERENCES " + TracksColumns.TABLE_NAME + "(" + TracksColumns._ID + ") ON UPDATE CASCADE ON DELETE CASCADE"
+            + ")";
+
+    String CREATE_TABLE_INDEX = "CREATE INDEX " + TABLE_NAME + "_" + TRACKID + "_index ON " + TABLE_NAME + "(" + TRACKID + ", " + TRACKPOINT_ID + ")";
+}
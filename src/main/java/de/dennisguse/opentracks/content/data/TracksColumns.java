@@ -57,6 +57,17 @@ public interface TracksColumns extends BaseColumns {
     String ELEVATIONLOSS = "elevationloss"; // elevation loss
     String ICON = "icon"; // track activity type icon
 
+    // Aggregates of the trackPoints' sensor data (see SensorAggregates)
+    String SENSOR_HEARTRATE_COUNT = "sensor_heartrate_count"; // number of trackPoints with heart rate
+    String SENSOR_HEARTRATE_SUM = "sensor_heartrate_sum"; // sum of heart rates
+    String SENSOR_HEARTRATE_MAX = "sensor_heartrate_max"; // maximum heart rate
+    String SENSOR_CADENCE_COUNT = "sensor_cadence_count"; // number of trackPoints with cadence
+    String SENSOR_CADENCE_SUM = "sensor_cadence_sum"; // sum of cadences
+    String SENSOR_CADENCE_MAX = "sensor_cadence_max"; // maximum cadence
+    String SENSOR_POWER_COUNT = "sensor_power_count"; // number of trackPoints with power
+    String SENSOR_POWER_SUM = "sensor_power_sum"; // sum of power
+    String SENSOR_POWER_MAX = "sensor_power_max"; // maximum power
+
     String CREATE_TABLE = "CREATE TABLE " + TABLE_NAME + " ("
             + _ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
             + NAME + " TEXT, "
@@ -76,7 +87,16 @@ public interface TracksColumns extends BaseColumns {
             + ELEVATIONGAIN + " FLOAT, "
             + ICON + " TEXT, "
             + UUID + " BLOB, "
-            + ELEVATIONLOSS + " FLOAT)";
+            + ELEVATIONLOSS + " FLOAT, "
+            + SENSOR_HEARTRATE_COUNT + " INTEGER, "
+            + SENSOR_HEARTRATE_SUM + " FLOAT, "
+            + SENSOR_HEARTRATE_MAX + " FLOAT, "
+            + SENSOR_CADENCE_COUNT + " INTEGER, "
+            + SENSOR_CADENCE_SUM + " FLOAT, "
+            + SENSOR_CADENCE_MAX + " FLOAT, "
+            + SENSOR_POWER_COUNT + " INTEGER, "
+            + SENSOR_POWER_SUM + " FLOAT, "
+            + SENSOR_POWER_MAX + " FLOAT)";
 
     String CREATE_TABLE_INDEX = "CREATE UNIQUE INDEX " + TABLE_NAME + "_" + UUID + "_index ON " + TABLE_NAME + "(" + UUID + ")";
 
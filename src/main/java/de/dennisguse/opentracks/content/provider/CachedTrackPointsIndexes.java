@@ -6,8 +6,12 @@ import de.dennisguse.opentracks.content.data.TrackPointsColumns;
 
 /**
  * A cache of track points indexes.
+ * Columns not contained in the cursor (see {@link TrackPointProjection}) have the index {@link #MISSING}.
  */
 class CachedTrackPointsIndexes {
+
+    static final int MISSING = -1;
+
     final int idIndex;
     final int typeIndex;
     final int longitudeIndex;
@@ -26,17 +30,17 @@ class CachedTrackPointsIndexes {
     CachedTrackPointsIndexes(Cursor cursor) {
         idIndex = cursor.getColumnIndex(TrackPointsColumns._ID);
         typeIndex = cursor.getColumnIndex(TrackPointsColumns.TYPE);
-        longitudeIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.LONGITUDE);
-        latitudeIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.LATITUDE);
-        timeIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.TIME);
-        altitudeIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.ALTITUDE);
-        accuracyIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.ACCURACY);
-        speedIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.SPEED);
-        bearingIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.BEARING);
-        sensorHeartRateIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.SENSOR_HEARTRATE);
-        sensorCadenceIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.SENSOR_CADENCE);
-        sensorPowerIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.SENSOR_POWER);
-        elevationGainIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.ELEVATION_GAIN);
-        elevationLossIndex = cursor.getColumnIndexOrThrow(TrackPointsColumns.ELEVATION_LOSS);
+        longitudeIndex = cursor.getColumnIndex(TrackPointsColumns.LONGITUDE);
+        latitudeIndex = cursor.getColumnIndex(TrackPointsColumns.LATITUDE);
+        timeIndex = cursor.getColumnIndex(TrackPointsColumns.TIME);
+        altitudeIndex = cursor.getColumnIndex(TrackPointsColumns.ALTITUDE);
+        accuracyIndex = cursor.getColumnIndex(TrackPointsColumns.ACCURACY);
+        speedIndex = cursor.getColumnIndex(TrackPointsColumns.SPEED);
+        bearingIndex = cursor.getColumnIndex(TrackPointsColumns.BEARING);
+        sensorHeartRateIndex = cursor.getColumnIndex(TrackPointsColumns.SENSOR_HEARTRATE);
+        sensorCadenceIndex = cursor.getColumnIndex(TrackPointsColumns.SENSOR_CADENCE);
+        sensorPowerIndex = cursor.getColumnIndex(TrackPointsColumns.SENSOR_POWER);
+        elevationGainIndex = cursor.getColumnIndex(TrackPointsColumns.ELEVATION_GAIN);
+        elevationLossIndex = cursor.getColumnIndex(TrackPointsColumns.ELEVATION_LOSS);
     }
 }
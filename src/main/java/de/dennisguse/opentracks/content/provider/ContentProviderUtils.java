@@ -16,12 +16,19 @@
 
 package de.dennisguse.opentracks.content.provider;
 
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentResolver;
+import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteException;
 import android.location.Location;
 import android.net.Uri;
+import android.os.Bundle;
+import android.os.RemoteException;
 import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
@@ -36,14 +43,20 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Predicate;
 
 import de.dennisguse.opentracks.BuildConfig;
 import de.dennisguse.opentracks.content.data.Marker;
 import de.dennisguse.opentracks.content.data.MarkerColumns;
 import de.dennisguse.opentracks.content.data.Track;
 import de.dennisguse.opentracks.content.data.TrackPoint;
+import de.dennisguse.opentracks.content.data.TrackPointBuffer;
+import de.dennisguse.opentracks.content.data.TrackPointsArchiveColumns;
 import de.dennisguse.opentracks.content.data.TrackPointsColumns;
+import de.dennisguse.opentracks.content.data.TrackStatisticsCheckpoint;
+import de.dennisguse.opentracks.content.data.TrackStatisticsCheckpointsColumns;
 import de.dennisguse.opentracks.content.data.TracksColumns;
+import de.dennisguse.opentracks.stats.SensorAggregates;
 import de.dennisguse.opentracks.stats.SensorStatistics;
 import de.dennisguse.opentracks.stats.TrackStatistics;
 import de.dennisguse.opentracks.util.FileUtils;
@@ -68,6 +81,32 @@ public class ContentProviderUtils {
 
     private static final String ID_SEPARATOR = ",";
 
+    // Selections of the frequently used trackPoint queries; all must be answered by index searches (see ContentProviderUtilsQueryPlanTest).
+    @VisibleForTesting
+    static final String SELECTION_TRACKPOINTS = TrackPointsColumns.TRACKID + "=?";
+    @VisibleForTesting
+    static final String SELECTION_TRACKPOINTS_FROM = TrackPointsColumns.TRACKID + "=? AND " + TrackPointsColumns._ID + ">=?";
+    @VisibleForTesting
+    static final String SELECTION_TRACKPOINTS_AFTER = TrackPointsColumns.TRACKID + "=? AND " + TrackPointsColumns._ID + ">?";
+    @VisibleForTesting
+    static final String SELECTION_FIRST_TRACKPOINT_ID = TrackPointsColumns._ID + "=(SELECT MIN(" + TrackPointsColumns._ID + ") FROM " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=?)";
+    @VisibleForTesting
+    static final String SELECTION_LAST_TRACKPOINT_ID = TrackPointsColumns._ID + "=(SELECT MAX(" + TrackPointsColumns._ID + ") FROM " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=?)";
+    @VisibleForTesting
+    static final String SELECTION_TRACKPOINT_ID_BY_TIME = TrackPointsColumns._ID + "=(SELECT MAX(" + TrackPointsColumns._ID + ") FROM " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=? AND " + TrackPointsColumns.TIME + "=?)";
+    @VisibleForTesting
+    static final String SELECTION_LAST_VALID_TRACKPOINT = TrackPointsColumns._ID + "=(SELECT MAX(" + TrackPointsColumns._ID + ") FROM " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=? AND " + TrackPointsColumns.TYPE + " IN (" + TrackPoint.Type.SEGMENT_START_AUTOMATIC.type_db + "," + TrackPoint.Type.TRACKPOINT.type_db + "))";
+    @VisibleForTesting
+    static final String SELECTION_ARCHIVED_TRACKPOINTS = TrackPointsArchiveColumns.TRACKID + "=?";
+    @VisibleForTesting
+    static final String SELECTION_ARCHIVED_TRACKPOINTS_AFTER = TrackPointsArchiveColumns.TRACKID + "=? AND " + TrackPointsArchiveColumns.LAST_TRACKPOINT_ID + ">?";
+    @VisibleForTesting
+    static final String SELECTION_TRACKSTATISTICS_CHECKPOINTS = TrackStatisticsCheckpointsColumns.TRACKID + "=? AND " + TrackStatisticsCheckpointsColumns.MIN_RECORDING_DISTANCE + "=?";
+
+    // Keeps the rows of trackpoints_archive small enough for a CursorWindow.
+    @VisibleForTesting
+    static final int MAX_ARCHIVED_TRACKPOINTS_PER_ROW = 10000;
+
     private final ContentResolver contentResolver;
     private int defaultCursorBatchSize = 2000;
 
@@ -102,6 +141,15 @@ public class ContentProviderUtils {
         int elevationGainIndex = cursor.getColumnIndexOrThrow(TracksColumns.ELEVATIONGAIN);
         int elevationLossIndex = cursor.getColumnIndexOrThrow(TracksColumns.ELEVATIONLOSS);
         int iconIndex = cursor.getColumnIndexOrThrow(TracksColumns.ICON);
+        int heartRateCountIndex = cursor.getColumnIndexOrThrow(TracksColumns.SENSOR_HEARTRATE_COUNT);
+        int heartRateSumIndex = cursor.getColumnIndexOrThrow(TracksColumns.SENSOR_HEARTRATE_SUM);
+        int heartRateMaxIndex = cursor.getColumnIndexOrThrow(TracksColumns.SENSOR_HEARTRATE_MAX);
+        int cadenceCountIndex = cursor.getColumnIndexOrThrow(TracksColumns.SENSOR_CADENCE_COUNT);
+        int cadenceSumIndex = cursor.getColumnIndexOrThrow(TracksColumns.SENSOR_CADENCE_SUM);
+        int cadenceMaxIndex = cursor.getColumnIndexOrThrow(TracksColumns.SENSOR_CADENCE_MAX);
+        int powerCountIndex = cursor.getColumnIndexOrThrow(TracksColumns.SENSOR_POWER_COUNT);
+        int powerSumIndex = cursor.getColumnIndexOrThrow(TracksColumns.SENSOR_POWER_SUM);
+        int powerMaxIndex = cursor.getColumnIndexOrThrow(TracksColumns.SENSOR_POWER_MAX);
 
         Track track = new Track();
         TrackStatistics trackStatistics = track.getTrackStatistics();
@@ -153,9 +201,20 @@ public class ContentProviderUtils {
         if (!cursor.isNull(iconIndex)) {
             track.setIcon(cursor.getString(iconIndex));
         }
+        track.setSensorAggregates(new SensorAggregates(
+                createAggregate(cursor, heartRateCountIndex, heartRateSumIndex, heartRateMaxIndex),
+                createAggregate(cursor, cadenceCountIndex, cadenceSumIndex, cadenceMaxIndex),
+                createAggregate(cursor, powerCountIndex, powerSumIndex, powerMaxIndex)));
         return track;
     }
 
+    private static SensorAggregates.Aggregate createAggregate(Cursor cursor, int countIndex, int sumIndex, int maxIndex) {
+        if (cursor.isNull(countIndex) || cursor.getLong(countIndex) == 0) {
+            return new SensorAggregates.Aggregate();
+        }
+        return new SensorAggregates.Aggregate(cursor.getLong(countIndex), cursor.getDouble(sumIndex), cursor.getFloat(maxIndex));
+    }
+
     @VisibleForTesting
     public void deleteAllTracks(Context context) {
         contentResolver.delete(TrackPointsColumns.CONTENT_URI_BY_ID, null, null);
@@ -263,7 +322,6 @@ public class ContentProviderUtils {
 
     private ContentValues createContentValues(Track track) {
         ContentValues values = new ContentValues();
-        TrackStatistics trackStatistics = track.getTrackStatistics();
 
         if (track.getId() != null) {
             values.put(TracksColumns._ID, track.getId().getId());
@@ -272,6 +330,15 @@ public class ContentProviderUtils {
         values.put(TracksColumns.NAME, track.getName());
         values.put(TracksColumns.DESCRIPTION, track.getDescription());
         values.put(TracksColumns.CATEGORY, track.getCategory());
+        values.putAll(createContentValues(track.getTrackStatistics()));
+        values.putAll(createContentValues(track.getSensorAggregates()));
+        values.put(TracksColumns.ICON, track.getIcon());
+
+        return values;
+    }
+
+    private ContentValues createContentValues(TrackStatistics trackStatistics) {
+        ContentValues values = new ContentValues();
         if (trackStatistics.getStartTime() != null) {
             values.put(TracksColumns.STARTTIME, trackStatistics.getStartTime().toEpochMilli());
         }
@@ -288,7 +355,21 @@ public class ContentProviderUtils {
         values.put(TracksColumns.MAXELEVATION, trackStatistics.getMaxElevation());
         values.put(TracksColumns.ELEVATIONGAIN, trackStatistics.getTotalElevationGain());
         values.put(TracksColumns.ELEVATIONLOSS, trackStatistics.getTotalElevationLoss());
-        values.put(TracksColumns.ICON, track.getIcon());
+
+        return values;
+    }
+
+    private ContentValues createContentValues(SensorAggregates sensorAggregates) {
+        ContentValues values = new ContentValues();
+        values.put(TracksColumns.SENSOR_HEARTRATE_COUNT, sensorAggregates.getHeartRate().getCount());
+        values.put(TracksColumns.SENSOR_HEARTRATE_SUM, sensorAggregates.getHeartRate().getSum());
+        values.put(TracksColumns.SENSOR_HEARTRATE_MAX, sensorAggregates.getHeartRate().getMax());
+        values.put(TracksColumns.SENSOR_CADENCE_COUNT, sensorAggregates.getCadence().getCount());
+        values.put(TracksColumns.SENSOR_CADENCE_SUM, sensorAggregates.getCadence().getSum());
+        values.put(TracksColumns.SENSOR_CADENCE_MAX, sensorAggregates.getCadence().getMax());
+        values.put(TracksColumns.SENSOR_POWER_COUNT, sensorAggregates.getPower().getCount());
+        values.put(TracksColumns.SENSOR_POWER_SUM, sensorAggregates.getPower().getSum());
+        values.put(TracksColumns.SENSOR_POWER_MAX, sensorAggregates.getPower().getMax());
 
         return values;
     }
@@ -519,56 +600,63 @@ public class ContentProviderUtils {
 
     /**
      * Fills a {@link TrackPoint} from a cursor.
+     * Properties whose columns are not contained in the cursor remain unset (see {@link TrackPointProjection}).
      *
      * @param cursor  the cursor pointing to a trackPoint.
      * @param indexes the cached trackPoints indexes
      */
     static TrackPoint fillTrackPoint(Cursor cursor, CachedTrackPointsIndexes indexes) {
-        TrackPoint trackPoint = new TrackPoint(TrackPoint.Type.getById(cursor.getInt(indexes.typeIndex)));
-        trackPoint.setId(new TrackPoint.Id(cursor.getInt(indexes.idIndex)));
+        TrackPoint trackPoint = new TrackPoint(hasValue(cursor, indexes.typeIndex) ? TrackPoint.Type.getById(cursor.getInt(indexes.typeIndex)) : TrackPoint.Type.TRACKPOINT);
+        if (hasValue(cursor, indexes.idIndex)) {
+            trackPoint.setId(new TrackPoint.Id(cursor.getInt(indexes.idIndex)));
+        }
 
-        if (!cursor.isNull(indexes.longitudeIndex)) {
+        if (hasValue(cursor, indexes.longitudeIndex)) {
             trackPoint.setLongitude(((double) cursor.getInt(indexes.longitudeIndex)) / 1E6);
         }
-        if (!cursor.isNull(indexes.latitudeIndex)) {
+        if (hasValue(cursor, indexes.latitudeIndex)) {
             trackPoint.setLatitude(((double) cursor.getInt(indexes.latitudeIndex)) / 1E6);
         }
-        if (!cursor.isNull(indexes.timeIndex)) {
+        if (hasValue(cursor, indexes.timeIndex)) {
             trackPoint.setTime(Instant.ofEpochMilli(cursor.getLong(indexes.timeIndex)));
         }
-        if (!cursor.isNull(indexes.altitudeIndex)) {
+        if (hasValue(cursor, indexes.altitudeIndex)) {
             trackPoint.setAltitude(cursor.getFloat(indexes.altitudeIndex));
         }
-        if (!cursor.isNull(indexes.accuracyIndex)) {
+        if (hasValue(cursor, indexes.accuracyIndex)) {
             trackPoint.setAccuracy(cursor.getFloat(indexes.accuracyIndex));
         }
-        if (!cursor.isNull(indexes.speedIndex)) {
+        if (hasValue(cursor, indexes.speedIndex)) {
             trackPoint.setSpeed(cursor.getFloat(indexes.speedIndex));
         }
-        if (!cursor.isNull(indexes.bearingIndex)) {
+        if (hasValue(cursor, indexes.bearingIndex)) {
             trackPoint.setBearing(cursor.getFloat(indexes.bearingIndex));
         }
 
-        if (!cursor.isNull(indexes.sensorHeartRateIndex)) {
+        if (hasValue(cursor, indexes.sensorHeartRateIndex)) {
             trackPoint.setHeartRate_bpm(cursor.getFloat(indexes.sensorHeartRateIndex));
         }
-        if (!cursor.isNull(indexes.sensorCadenceIndex)) {
+        if (hasValue(cursor, indexes.sensorCadenceIndex)) {
             trackPoint.setCyclingCadence_rpm(cursor.getFloat(indexes.sensorCadenceIndex));
         }
-        if (!cursor.isNull(indexes.sensorPowerIndex)) {
+        if (hasValue(cursor, indexes.sensorPowerIndex)) {
             trackPoint.setPower(cursor.getFloat(indexes.sensorPowerIndex));
         }
 
-        if (!cursor.isNull(indexes.elevationGainIndex)) {
+        if (hasValue(cursor, indexes.elevationGainIndex)) {
             trackPoint.setElevationGain(cursor.getFloat(indexes.elevationGainIndex));
         }
-        if (!cursor.isNull(indexes.elevationLossIndex)) {
+        if (hasValue(cursor, indexes.elevationLossIndex)) {
             trackPoint.setElevationLoss(cursor.getFloat(indexes.elevationLossIndex));
         }
 
         return trackPoint;
     }
 
+    private static boolean hasValue(Cursor cursor, int index) {
+        return index != CachedTrackPointsIndexes.MISSING && !cursor.isNull(index);
+    }
+
     //TODO Only used for file import; might be better to replace it.
     public int bulkInsertTrackPoint(List<TrackPoint> trackPoints, Track.Id trackId) {
         ContentValues[] values = new ContentValues[trackPoints.size()];
@@ -586,13 +674,19 @@ public class ContentProviderUtils {
      */
     @Deprecated
     public Track.Id getFirstTrackPointId(Track.Id trackId) {
-        String selection = TrackPointsColumns._ID + "=(SELECT MIN(" + TrackPointsColumns._ID + ") FROM " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=?)";
         String[] selectionArgs = new String[]{Long.toString(trackId.getId())};
-        try (Cursor cursor = getTrackPointCursor(new String[]{TrackPointsColumns._ID}, selection, selectionArgs, TrackPointsColumns._ID)) {
+        try (Cursor cursor = getTrackPointCursor(new String[]{TrackPointsColumns._ID}, SELECTION_FIRST_TRACKPOINT_ID, selectionArgs, TrackPointsColumns._ID)) {
             if (cursor != null && cursor.moveToFirst()) {
                 return new Track.Id(cursor.getLong(cursor.getColumnIndexOrThrow(TrackPointsColumns._ID)));
             }
         }
+
+        String[] projection = new String[]{"MIN(" + TrackPointsArchiveColumns.FIRST_TRACKPOINT_ID + ")"};
+        try (Cursor cursor = contentResolver.query(TrackPointsArchiveColumns.CONTENT_URI, projection, SELECTION_ARCHIVED_TRACKPOINTS, selectionArgs, null)) {
+            if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) {
+                return new Track.Id(cursor.getLong(0));
+            }
+        }
         return null;
     }
 
@@ -604,13 +698,19 @@ public class ContentProviderUtils {
      */
     @Deprecated
     public TrackPoint.Id getLastTrackPointId(@NonNull Track.Id trackId) {
-        String selection = TrackPointsColumns._ID + "=(SELECT MAX(" + TrackPointsColumns._ID + ") from " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=?)";
         String[] selectionArgs = new String[]{Long.toString(trackId.getId())};
-        try (Cursor cursor = getTrackPointCursor(new String[]{TrackPointsColumns._ID}, selection, selectionArgs, TrackPointsColumns._ID)) {
+        try (Cursor cursor = getTrackPointCursor(new String[]{TrackPointsColumns._ID}, SELECTION_LAST_TRACKPOINT_ID, selectionArgs, TrackPointsColumns._ID)) {
             if (cursor != null && cursor.moveToFirst()) {
                 return new TrackPoint.Id(cursor.getLong(cursor.getColumnIndexOrThrow(TrackPointsColumns._ID)));
             }
         }
+
+        String[] projection = new String[]{"MAX(" + TrackPointsArchiveColumns.LAST_TRACKPOINT_ID + ")"};
+        try (Cursor cursor = contentResolver.query(TrackPointsArchiveColumns.CONTENT_URI, projection, SELECTION_ARCHIVED_TRACKPOINTS, selectionArgs, null)) {
+            if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) {
+                return new TrackPoint.Id(cursor.getLong(0));
+            }
+        }
         return null;
     }
 
@@ -622,14 +722,15 @@ public class ContentProviderUtils {
      * @return trackPoint id if the location is in the track. -1L otherwise.
      */
     public TrackPoint.Id getTrackPointId(Track.Id trackId, Location location) {
-        String selection = TrackPointsColumns._ID + "=(SELECT MAX(" + TrackPointsColumns._ID + ") FROM " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=? AND " + TrackPointsColumns.TIME + "=?)";
         String[] selectionArgs = new String[]{Long.toString(trackId.getId()), Long.toString(location.getTime())};
-        try (Cursor cursor = getTrackPointCursor(new String[]{TrackPointsColumns._ID}, selection, selectionArgs, TrackPointsColumns._ID)) {
+        try (Cursor cursor = getTrackPointCursor(new String[]{TrackPointsColumns._ID}, SELECTION_TRACKPOINT_ID_BY_TIME, selectionArgs, TrackPointsColumns._ID)) {
             if (cursor != null && cursor.moveToFirst()) {
                 return new TrackPoint.Id(cursor.getLong(cursor.getColumnIndexOrThrow(TrackPointsColumns._ID)));
             }
         }
-        return null;
+
+        TrackPoint trackPoint = findLastArchivedTrackPoint(trackId, archivedTrackPoint -> archivedTrackPoint.getTime().toEpochMilli() == location.getTime());
+        return trackPoint != null ? trackPoint.getId() : null;
     }
 
     /**
@@ -652,10 +753,10 @@ public class ContentProviderUtils {
         String selection;
         String[] selectionArgs;
         if (startTrackPointId != null) {
-            selection = TrackPointsColumns.TRACKID + "=? AND " + TrackPointsColumns._ID + ">=?";
+            selection = SELECTION_TRACKPOINTS_FROM;
             selectionArgs = new String[]{Long.toString(trackId.getId()), Long.toString(startTrackPointId.getId())};
         } else {
-            selection = TrackPointsColumns.TRACKID + "=?";
+            selection = SELECTION_TRACKPOINTS;
             selectionArgs = new String[]{Long.toString(trackId.getId())};
         }
 
@@ -666,6 +767,196 @@ public class ContentProviderUtils {
         return getTrackPointCursor(null, selection, selectionArgs, sortOrder);
     }
 
+    /**
+     * Creates a trackPoint cursor for keyset pagination (i.e., the trackPoints with `_id > afterTrackPointId`).
+     * The caller owns the returned cursor and is responsible for closing it.
+     *
+     * @param trackId           the track id
+     * @param afterTrackPointId the id of the last already read trackPoint. `null` to start with the first trackPoint
+     * @param maxTrackPoints    maximum number of trackPoints to return
+     */
+    Cursor getTrackPointCursorAfter(@NonNull Track.Id trackId, @Nullable TrackPoint.Id afterTrackPointId, int maxTrackPoints) {
+        return getTrackPointCursorAfter(trackId, afterTrackPointId, maxTrackPoints, TrackPointProjection.FULL);
+    }
+
+    /**
+     * Like {@link #getTrackPointCursorAfter(Track.Id, TrackPoint.Id, int)}, but only loads the columns of the projection.
+     */
+    Cursor getTrackPointCursorAfter(@NonNull Track.Id trackId, @Nullable TrackPoint.Id afterTrackPointId, int maxTrackPoints, @NonNull TrackPointProjection projection) {
+        String selection;
+        String[] selectionArgs;
+        if (afterTrackPointId != null) {
+            selection = SELECTION_TRACKPOINTS_AFTER;
+            selectionArgs = new String[]{Long.toString(trackId.getId()), Long.toString(afterTrackPointId.getId())};
+        } else {
+            selection = SELECTION_TRACKPOINTS;
+            selectionArgs = new String[]{Long.toString(trackId.getId())};
+        }
+
+        return getTrackPointCursor(projection.getColumns(), selection, selectionArgs, TrackPointsColumns.DEFAULT_SORT_ORDER + " LIMIT " + maxTrackPoints);
+    }
+
+    /**
+     * Returns true if the trackPoints of the track are stored in {@link TrackPointsArchiveColumns}.
+     *
+     * @param trackId the track id
+     */
+    public boolean isTrackArchived(@NonNull Track.Id trackId) {
+        try (Cursor cursor = contentResolver.query(TrackPointsArchiveColumns.CONTENT_URI, new String[]{TrackPointsArchiveColumns._ID}, SELECTION_ARCHIVED_TRACKPOINTS, new String[]{Long.toString(trackId.getId())}, TrackPointsArchiveColumns.DEFAULT_SORT_ORDER + " LIMIT 1")) {
+            return cursor != null && cursor.moveToFirst();
+        }
+    }
+
+    /**
+     * Loads the archived trackPoints of one row of {@link TrackPointsArchiveColumns}: the first row containing trackPoints with `_id > afterTrackPointId`.
+     * Only these trackPoints are returned.
+     *
+     * @param trackId           the track id
+     * @param afterTrackPointId the id of the last already read trackPoint. `null` to start with the first trackPoint
+     * @return the trackPoints; empty if there are no more trackPoints
+     */
+    @NonNull
+    List<TrackPoint> getArchivedTrackPointsAfter(@NonNull Track.Id trackId, @Nullable TrackPoint.Id afterTrackPointId) {
+        String selection;
+        String[] selectionArgs;
+        if (afterTrackPointId != null) {
+            selection = SELECTION_ARCHIVED_TRACKPOINTS_AFTER;
+            selectionArgs = new String[]{Long.toString(trackId.getId()), Long.toString(afterTrackPointId.getId())};
+        } else {
+            selection = SELECTION_ARCHIVED_TRACKPOINTS;
+            selectionArgs = new String[]{Long.toString(trackId.getId())};
+        }
+
+        List<TrackPoint> trackPoints = new ArrayList<>();
+        try (Cursor cursor = contentResolver.query(TrackPointsArchiveColumns.CONTENT_URI, new String[]{TrackPointsArchiveColumns.DATA}, selection, selectionArgs, TrackPointsArchiveColumns.DEFAULT_SORT_ORDER + " LIMIT 1")) {
+            if (cursor != null && cursor.moveToFirst()) {
+                trackPoints.addAll(TrackPointCodec.decode(cursor.getBlob(0)));
+            }
+        }
+        if (afterTrackPointId != null) {
+            trackPoints.removeIf(trackPoint -> trackPoint.getId().getId() <= afterTrackPointId.getId());
+        }
+        return trackPoints;
+    }
+
+    /**
+     * Moves the trackPoints of a finished track into {@link TrackPointsArchiveColumns} (one row per segment).
+     * Afterwards, the trackPoints are still available via {@link #getTrackPointLocationIterator(Track.Id, TrackPoint.Id)}.
+     * Does nothing if the track is already archived or has no trackPoints.
+     *
+     * @param trackId the track id
+     * @throws SQLiteException if the transaction could not be committed; then nothing was changed.
+     */
+    public void archiveTrack(@NonNull Track.Id trackId) {
+        if (isTrackArchived(trackId)) {
+            return;
+        }
+
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        List<TrackPoint> trackPoints = new ArrayList<>();
+        try (TrackPointIterator trackPointIterator = getTrackPointLocationIterator(trackId, null)) {
+            while (trackPointIterator.hasNext()) {
+                TrackPoint trackPoint = trackPointIterator.next();
+                if (!trackPoints.isEmpty() && (trackPoint.isSegmentStart() || trackPoints.size() >= MAX_ARCHIVED_TRACKPOINTS_PER_ROW)) {
+                    operations.add(createArchiveInsert(trackPoints, trackId));
+                    trackPoints.clear();
+                }
+                trackPoints.add(trackPoint);
+            }
+        }
+        if (!trackPoints.isEmpty()) {
+            operations.add(createArchiveInsert(trackPoints, trackId));
+        }
+        if (operations.isEmpty()) {
+            return;
+        }
+
+        operations.add(ContentProviderOperation.newDelete(TrackPointsColumns.CONTENT_URI_BY_ID)
+                .withSelection(SELECTION_TRACKPOINTS, new String[]{Long.toString(trackId.getId())})
+                .build());
+        applyBatch(operations, trackId);
+    }
+
+    private ContentProviderOperation createArchiveInsert(List<TrackPoint> trackPoints, Track.Id trackId) {
+        ContentValues values = new ContentValues();
+        values.put(TrackPointsArchiveColumns.TRACKID, trackId.getId());
+        values.put(TrackPointsArchiveColumns.FIRST_TRACKPOINT_ID, trackPoints.get(0).getId().getId());
+        values.put(TrackPointsArchiveColumns.LAST_TRACKPOINT_ID, trackPoints.get(trackPoints.size() - 1).getId().getId());
+        values.put(TrackPointsArchiveColumns.NUM_TRACKPOINTS, trackPoints.size());
+        values.put(TrackPointsArchiveColumns.DATA, TrackPointCodec.encode(trackPoints));
+        return ContentProviderOperation.newInsert(TrackPointsArchiveColumns.CONTENT_URI)
+                .withValues(values)
+                .build();
+    }
+
+    /**
+     * Moves the trackPoints of an archived track back into {@link TrackPointsColumns} (keeping their ids); e.g., before the track is resumed.
+     * Does nothing if the track is not archived.
+     *
+     * @param trackId the track id
+     * @throws SQLiteException if the transaction could not be committed; then nothing was changed.
+     */
+    public void restoreArchivedTrack(@NonNull Track.Id trackId) {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        String[] selectionArgs = new String[]{Long.toString(trackId.getId())};
+        try (Cursor cursor = contentResolver.query(TrackPointsArchiveColumns.CONTENT_URI, new String[]{TrackPointsArchiveColumns.DATA}, SELECTION_ARCHIVED_TRACKPOINTS, selectionArgs, TrackPointsArchiveColumns.DEFAULT_SORT_ORDER)) {
+            while (cursor != null && cursor.moveToNext()) {
+                for (TrackPoint trackPoint : TrackPointCodec.decode(cursor.getBlob(0))) {
+                    ContentValues values = createContentValues(trackPoint, trackId);
+                    values.put(TrackPointsColumns._ID, trackPoint.getId().getId());
+                    operations.add(ContentProviderOperation.newInsert(TrackPointsColumns.CONTENT_URI_BY_ID)
+                            .withValues(values)
+                            .build());
+                }
+            }
+        }
+        if (operations.isEmpty()) {
+            return;
+        }
+
+        operations.add(ContentProviderOperation.newDelete(TrackPointsArchiveColumns.CONTENT_URI)
+                .withSelection(SELECTION_ARCHIVED_TRACKPOINTS, selectionArgs)
+                .build());
+        applyBatch(operations, trackId);
+    }
+
+    /**
+     * Stores a checkpoint of the track's statistics computation; it is deleted together with the track.
+     *
+     * @param trackId    the track id
+     * @param checkpoint the checkpoint; its trackPoint must be stored
+     */
+    public void insertTrackStatisticsCheckpoint(@NonNull Track.Id trackId, @NonNull TrackStatisticsCheckpoint checkpoint) {
+        ContentValues values = new ContentValues();
+        values.put(TrackStatisticsCheckpointsColumns.TRACKID, trackId.getId());
+        values.put(TrackStatisticsCheckpointsColumns.TRACKPOINT_ID, checkpoint.getTrackPointId().getId());
+        values.put(TrackStatisticsCheckpointsColumns.MIN_RECORDING_DISTANCE, checkpoint.getMinRecordingDistance());
+        values.put(TrackStatisticsCheckpointsColumns.DATA, checkpoint.getData());
+        if (checkpoint.getIntervals() != null) {
+            values.put(TrackStatisticsCheckpointsColumns.INTERVALS, checkpoint.getIntervals());
+        }
+        contentResolver.insert(TrackStatisticsCheckpointsColumns.CONTENT_URI, values);
+    }
+
+    /**
+     * Gets the last checkpoint of the track's statistics computation; the trackPoints after {@link TrackStatisticsCheckpoint#getTrackPointId()} still need to be added.
+     *
+     * @param trackId              the track id
+     * @param minRecordingDistance the min recording distance the checkpoint was computed with
+     * @return null if there is no such checkpoint
+     */
+    @Nullable
+    public TrackStatisticsCheckpoint getTrackStatisticsCheckpoint(@NonNull Track.Id trackId, int minRecordingDistance) {
+        String[] selectionArgs = new String[]{Long.toString(trackId.getId()), Integer.toString(minRecordingDistance)};
+        String[] projection = new String[]{TrackStatisticsCheckpointsColumns.TRACKPOINT_ID, TrackStatisticsCheckpointsColumns.DATA, TrackStatisticsCheckpointsColumns.INTERVALS};
+        try (Cursor cursor = contentResolver.query(TrackStatisticsCheckpointsColumns.CONTENT_URI, projection, SELECTION_TRACKSTATISTICS_CHECKPOINTS, selectionArgs, TrackStatisticsCheckpointsColumns.DEFAULT_SORT_ORDER + " DESC LIMIT 1")) {
+            if (cursor != null && cursor.moveToFirst()) {
+                return new TrackStatisticsCheckpoint(new TrackPoint.Id(cursor.getLong(0)), minRecordingDistance, cursor.getBlob(1), cursor.isNull(2) ? null : cursor.getBlob(2));
+            }
+        }
+        return null;
+    }
+
     /**
      * Gets the last valid location for a track.
      * Returns null if it doesn't exist.
@@ -674,9 +965,33 @@ public class ContentProviderUtils {
      */
     @Deprecated
     public TrackPoint getLastValidTrackPoint(Track.Id trackId) {
-        String selection = TrackPointsColumns._ID + "=(SELECT MAX(" + TrackPointsColumns._ID + ") FROM " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=? AND " + TrackPointsColumns.TYPE + " IN (" + TrackPoint.Type.SEGMENT_START_AUTOMATIC.type_db + "," + TrackPoint.Type.TRACKPOINT.type_db + "))";
         String[] selectionArgs = new String[]{Long.toString(trackId.getId())};
-        return findTrackPointBy(selection, selectionArgs);
+        TrackPoint trackPoint = findTrackPointBy(SELECTION_LAST_VALID_TRACKPOINT, selectionArgs);
+        if (trackPoint != null) {
+            return trackPoint;
+        }
+        return findLastArchivedTrackPoint(trackId, archivedTrackPoint -> archivedTrackPoint.getType() == TrackPoint.Type.SEGMENT_START_AUTOMATIC || archivedTrackPoint.getType() == TrackPoint.Type.TRACKPOINT);
+    }
+
+    /**
+     * Finds the archived trackPoint with the highest id matching the filter; decodes the rows of {@link TrackPointsArchiveColumns} starting with the last one.
+     *
+     * @return the trackPoint or null if the track is not archived or no trackPoint matches
+     */
+    @Nullable
+    private TrackPoint findLastArchivedTrackPoint(@NonNull Track.Id trackId, @NonNull Predicate<TrackPoint> filter) {
+        String[] selectionArgs = new String[]{Long.toString(trackId.getId())};
+        try (Cursor cursor = contentResolver.query(TrackPointsArchiveColumns.CONTENT_URI, new String[]{TrackPointsArchiveColumns.DATA}, SELECTION_ARCHIVED_TRACKPOINTS, selectionArgs, TrackPointsArchiveColumns.DEFAULT_SORT_ORDER + " DESC")) {
+            while (cursor != null && cursor.moveToNext()) {
+                List<TrackPoint> trackPoints = TrackPointCodec.decode(cursor.getBlob(0));
+                for (int i = trackPoints.size() - 1; i >= 0; i--) {
+                    if (filter.test(trackPoints.get(i))) {
+                        return trackPoints.get(i);
+                    }
+                }
+            }
+        }
+        return null;
     }
 
     /**
@@ -690,6 +1005,66 @@ public class ContentProviderUtils {
         return contentResolver.insert(TrackPointsColumns.CONTENT_URI_BY_ID, createContentValues(trackPoint, trackId));
     }
 
+    /**
+     * Inserts trackPoints and updates the {@link TrackStatistics} and {@link SensorAggregates} of their track within one transaction.
+     * Other columns of the track (e.g., name) are not modified.
+     * Observers are notified once after the commit.
+     * The ids of the inserted trackPoints are set.
+     *
+     * @param trackPoints the trackPoints (in order)
+     * @param track       the track incl. the trackPoints' statistics and sensor aggregates; must have an id
+     * @throws SQLiteException if the transaction could not be committed; then nothing was stored.
+     */
+    public void insertTrackPointsAndUpdateTrackStatistics(@NonNull List<TrackPoint> trackPoints, @NonNull Track track) {
+        Track.Id trackId = track.getId();
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(trackPoints.size() + 1);
+        for (TrackPoint trackPoint : trackPoints) {
+            operations.add(ContentProviderOperation.newInsert(TrackPointsColumns.CONTENT_URI_BY_ID)
+                    .withValues(createContentValues(trackPoint, trackId))
+                    .build());
+        }
+        ContentValues trackValues = createContentValues(track.getTrackStatistics());
+        trackValues.putAll(createContentValues(track.getSensorAggregates()));
+        operations.add(ContentProviderOperation.newUpdate(TracksColumns.CONTENT_URI)
+                .withValues(trackValues)
+                .withSelection(TracksColumns._ID + "=?", new String[]{Long.toString(trackId.getId())})
+                .build());
+
+        ContentProviderResult[] results = applyBatch(operations, trackId);
+        for (int i = 0; i < trackPoints.size(); i++) {
+            trackPoints.get(i).setId(new TrackPoint.Id(ContentUris.parseId(results[i].uri)));
+        }
+    }
+
+    /**
+     * Applies operations on the trackPoints of a track within one transaction.
+     *
+     * @throws SQLiteException if the transaction could not be committed.
+     */
+    private ContentProviderResult[] applyBatch(ArrayList<ContentProviderOperation> operations, Track.Id trackId) {
+        try {
+            return contentResolver.applyBatch(AUTHORITY_PACKAGE, operations);
+        } catch (RemoteException | OperationApplicationException e) {
+            throw new SQLiteException("Could not commit trackPoints of track " + trackId, e);
+        }
+    }
+
+    /**
+     * Moves the write-ahead log into the database and truncates it.
+     * Blocks while other connections write; so, should be called from a background thread if the database is expected to be idle.
+     */
+    public void checkpointDatabase() {
+        contentResolver.call(Uri.parse(CONTENT_BASE_URI), CustomContentProvider.METHOD_CHECKPOINT, null, null);
+    }
+
+    /**
+     * Returns the space of the database file that is not used (e.g., of deleted tracks) and is going to be reclaimed in the background.
+     */
+    public long getReclaimableDatabaseBytes() {
+        Bundle result = contentResolver.call(Uri.parse(CONTENT_BASE_URI), CustomContentProvider.METHOD_GET_RECLAIMABLE_BYTES, null, null);
+        return result != null ? result.getLong(CustomContentProvider.KEY_RECLAIMABLE_BYTES) : 0;
+    }
+
     /**
      * Creates the {@link ContentValues} for a {@link TrackPoint}.
      *
@@ -702,8 +1077,8 @@ public class ContentProviderUtils {
         values.put(TrackPointsColumns.TYPE, trackPoint.getType().type_db);
 
         if (trackPoint.hasLocation()) {
-            values.put(TrackPointsColumns.LONGITUDE, (int) (trackPoint.getLongitude() * 1E6));
-            values.put(TrackPointsColumns.LATITUDE, (int) (trackPoint.getLatitude() * 1E6));
+            values.put(TrackPointsColumns.LONGITUDE, (int) Math.round(trackPoint.getLongitude() * 1E6));
+            values.put(TrackPointsColumns.LATITUDE, (int) Math.round(trackPoint.getLatitude() * 1E6));
         }
         values.put(TrackPointsColumns.TIME, trackPoint.getTime().toEpochMilli());
         if (trackPoint.hasAltitude()) {
@@ -743,7 +1118,7 @@ public class ContentProviderUtils {
      * Creates a new read-only iterator over a given track's points.
      * It provides a lightweight way of iterating over long tracks without failing due to the underlying cursor limitations.
      * Since it's a read-only iterator, {@link Iterator#remove()} always throws {@link UnsupportedOperationException}.
-     * Each call to {@link TrackPointIterator#next()} may advance to the next DB record.
+     * The trackPoints are loaded in pages; the next page is loaded in the background.
      * When done with iteration, {@link TrackPointIterator#close()} must be called.
      *
      * @param trackId           the track id
@@ -753,6 +1128,24 @@ public class ContentProviderUtils {
         return new TrackPointIterator(this, trackId, startTrackPointId);
     }
 
+    /**
+     * Like {@link #getTrackPointLocationIterator(Track.Id, TrackPoint.Id)}, but loads pageSize trackPoints per query.
+     *
+     * @param pageSize the number of trackPoints loaded per query
+     */
+    public TrackPointIterator getTrackPointLocationIterator(final Track.Id trackId, final TrackPoint.Id startTrackPointId, int pageSize) {
+        return new TrackPointIterator(this, trackId, startTrackPointId, pageSize, TrackPointProjection.FULL);
+    }
+
+    /**
+     * Like {@link #getTrackPointLocationIterator(Track.Id, TrackPoint.Id)}, but only loads the properties of the projection.
+     *
+     * @param projection the columns to load
+     */
+    public TrackPointIterator getTrackPointLocationIterator(final Track.Id trackId, final TrackPoint.Id startTrackPointId, @NonNull TrackPointProjection projection) {
+        return new TrackPointIterator(this, trackId, startTrackPointId, getDefaultCursorBatchSize(), projection);
+    }
+
     private TrackPoint findTrackPointBy(String selection, String[] selectionArgs) {
         try (Cursor cursor = getTrackPointCursor(null, selection, selectionArgs, TrackPointsColumns._ID)) {
             if (cursor != null && cursor.moveToNext()) {
@@ -776,20 +1169,140 @@ public class ContentProviderUtils {
 
     @VisibleForTesting
     public List<TrackPoint> getTrackPoints(Track.Id trackId) {
-        List<TrackPoint> trackPoints = null;
-
-        try (Cursor trackPointCursor = getTrackPointCursor(trackId, null, null)) {
-            if (trackPointCursor != null) {
-                trackPointCursor.moveToFirst();
-                trackPoints = new ArrayList<>(trackPointCursor.getCount());
-                for (int i = 0; i < trackPointCursor.getCount(); i++) {
-                    trackPoints.add(createTrackPoint(trackPointCursor));
-                    trackPointCursor.moveToNext();
+        return getTrackPoints(trackId, TrackPointProjection.FULL);
+    }
+
+    /**
+     * @param projection the columns to load
+     */
+    public List<TrackPoint> getTrackPoints(Track.Id trackId, @NonNull TrackPointProjection projection) {
+        List<TrackPoint> trackPoints = new ArrayList<>();
+        try (TrackPointIterator trackPointIterator = getTrackPointLocationIterator(trackId, null, projection)) {
+            trackPointIterator.forEachRemaining(trackPoints::add);
+        }
+        return trackPoints;
+    }
+
+    /**
+     * Reads all trackPoints of a track into a new {@link TrackPointBuffer}.
+     *
+     * @param projection the columns to load
+     */
+    @NonNull
+    public TrackPointBuffer readTrackPoints(@NonNull Track.Id trackId, @NonNull TrackPointProjection projection) {
+        TrackPointBuffer buffer = new TrackPointBuffer();
+        readTrackPoints(trackId, null, projection, buffer);
+        return buffer;
+    }
+
+    /**
+     * Appends the trackPoints of a track with `_id > afterTrackPointId` to a buffer without creating {@link TrackPoint}s.
+     * The trackPoints are read in pages of {@link #getDefaultCursorBatchSize()} (keyset pagination).
+     * If the track is archived or restored meanwhile, the remaining trackPoints are read from the other table.
+     *
+     * @param afterTrackPointId the id of the last already read trackPoint; null to read all trackPoints
+     * @param projection        the columns to load; archived tracks are always loaded completely
+     * @param buffer            the buffer to append to
+     */
+    public void readTrackPoints(@NonNull Track.Id trackId, @Nullable TrackPoint.Id afterTrackPointId, @NonNull TrackPointProjection projection, @NonNull TrackPointBuffer buffer) {
+        boolean archived = isTrackArchived(trackId);
+        afterTrackPointId = readTrackPoints(trackId, archived, afterTrackPointId, projection, buffer);
+        if (archived != isTrackArchived(trackId)) {
+            // Archiving and restoring move all trackPoints in one transaction.
+            readTrackPoints(trackId, !archived, afterTrackPointId, projection, buffer);
+        }
+    }
+
+    /**
+     * @return the id of the last read trackPoint (afterTrackPointId if none was read)
+     */
+    @Nullable
+    private TrackPoint.Id readTrackPoints(@NonNull Track.Id trackId, boolean archived, @Nullable TrackPoint.Id afterTrackPointId, @NonNull TrackPointProjection projection, @NonNull TrackPointBuffer buffer) {
+        int size = buffer.size();
+        if (archived) {
+            readArchivedTrackPoints(trackId, afterTrackPointId, buffer);
+        } else {
+            int pageSize = getDefaultCursorBatchSize();
+            TrackPoint.Id pageAfterTrackPointId = afterTrackPointId;
+            while (true) {
+                int pageCount = 0;
+                try (Cursor cursor = getTrackPointCursorAfter(trackId, pageAfterTrackPointId, pageSize, projection)) {
+                    if (cursor == null) {
+                        break;
+                    }
+                    CachedTrackPointsIndexes indexes = new CachedTrackPointsIndexes(cursor);
+                    while (cursor.moveToNext()) {
+                        fillTrackPointBuffer(cursor, indexes, buffer);
+                        pageCount++;
+                    }
+                }
+                if (pageCount < pageSize) {
+                    break;
+                }
+                pageAfterTrackPointId = new TrackPoint.Id(buffer.getId(buffer.size() - 1));
+            }
+        }
+        return buffer.size() > size ? new TrackPoint.Id(buffer.getId(buffer.size() - 1)) : afterTrackPointId;
+    }
+
+    private void readArchivedTrackPoints(@NonNull Track.Id trackId, @Nullable TrackPoint.Id afterTrackPointId, @NonNull TrackPointBuffer buffer) {
+        String selection;
+        String[] selectionArgs;
+        if (afterTrackPointId != null) {
+            selection = SELECTION_ARCHIVED_TRACKPOINTS_AFTER;
+            selectionArgs = new String[]{Long.toString(trackId.getId()), Long.toString(afterTrackPointId.getId())};
+        } else {
+            selection = SELECTION_ARCHIVED_TRACKPOINTS;
+            selectionArgs = new String[]{Long.toString(trackId.getId())};
+        }
+
+        try (Cursor cursor = contentResolver.query(TrackPointsArchiveColumns.CONTENT_URI, new String[]{TrackPointsArchiveColumns.DATA}, selection, selectionArgs, TrackPointsArchiveColumns.DEFAULT_SORT_ORDER)) {
+            boolean isFirstRow = true;
+            while (cursor != null && cursor.moveToNext()) {
+                if (isFirstRow && afterTrackPointId != null) {
+                    // Only the first row may contain already read trackPoints.
+                    TrackPointBuffer row = new TrackPointBuffer();
+                    TrackPointCodec.decode(cursor.getBlob(0), row);
+                    for (int i = 0; i < row.size(); i++) {
+                        if (row.getId(i) > afterTrackPointId.getId()) {
+                            buffer.append(row, i);
+                        }
+                    }
+                } else {
+                    TrackPointCodec.decode(cursor.getBlob(0), buffer);
                 }
+                isFirstRow = false;
             }
         }
+    }
 
-        return trackPoints;
+    /**
+     * Appends the trackPoint of a cursor to a buffer; like {@link #fillTrackPoint(Cursor, CachedTrackPointsIndexes)}.
+     */
+    private static void fillTrackPointBuffer(Cursor cursor, CachedTrackPointsIndexes indexes, TrackPointBuffer buffer) {
+        int index = buffer.append(
+                cursor.getLong(indexes.idIndex),
+                TrackPoint.Type.getById(cursor.getInt(indexes.typeIndex)),
+                hasValue(cursor, indexes.timeIndex) ? cursor.getLong(indexes.timeIndex) : 0);
+
+        if (hasValue(cursor, indexes.latitudeIndex) && hasValue(cursor, indexes.longitudeIndex)) {
+            buffer.setLocation(index, cursor.getInt(indexes.latitudeIndex), cursor.getInt(indexes.longitudeIndex));
+        }
+        fillChannel(cursor, indexes.altitudeIndex, buffer, index, TrackPointBuffer.CHANNEL_ALTITUDE);
+        fillChannel(cursor, indexes.accuracyIndex, buffer, index, TrackPointBuffer.CHANNEL_ACCURACY);
+        fillChannel(cursor, indexes.speedIndex, buffer, index, TrackPointBuffer.CHANNEL_SPEED);
+        fillChannel(cursor, indexes.bearingIndex, buffer, index, TrackPointBuffer.CHANNEL_BEARING);
+        fillChannel(cursor, indexes.sensorHeartRateIndex, buffer, index, TrackPointBuffer.CHANNEL_HEARTRATE);
+        fillChannel(cursor, indexes.sensorCadenceIndex, buffer, index, TrackPointBuffer.CHANNEL_CADENCE);
+        fillChannel(cursor, indexes.sensorPowerIndex, buffer, index, TrackPointBuffer.CHANNEL_POWER);
+        fillChannel(cursor, indexes.elevationGainIndex, buffer, index, TrackPointBuffer.CHANNEL_ELEVATION_GAIN);
+        fillChannel(cursor, indexes.elevationLossIndex, buffer, index, TrackPointBuffer.CHANNEL_ELEVATION_LOSS);
+    }
+
+    private static void fillChannel(Cursor cursor, int columnIndex, TrackPointBuffer buffer, int index, int channel) {
+        if (hasValue(cursor, columnIndex)) {
+            buffer.setChannel(index, channel, cursor.getFloat(columnIndex));
+        }
     }
 
     int getDefaultCursorBatchSize() {
@@ -837,31 +1350,13 @@ public class ContentProviderUtils {
         return TextUtils.split(url.getLastPathSegment(), ID_SEPARATOR);
     }
 
+    /**
+     * Returns the {@link SensorStatistics} of a track from its {@link SensorAggregates} (i.e., without reading the trackPoints).
+     *
+     * @return null if the track does not exist
+     */
     public SensorStatistics getSensorStats(Track.Id trackId) {
-        if (trackId == null) {
-            return null;
-        }
-        String[] projection = {
-                "MAX(" + TrackPointsColumns.SENSOR_HEARTRATE + ") max_hr",
-                "AVG(" + TrackPointsColumns.SENSOR_HEARTRATE + ") avg_hr",
-                "MAX(" + TrackPointsColumns.SENSOR_CADENCE + ") max_cadence",
-                "AVG(" + TrackPointsColumns.SENSOR_CADENCE + ") avg_cadence",
-                "AVG(" + TrackPointsColumns.SENSOR_POWER + ") avg_power"
-        };
-        String selection = TrackPointsColumns.TRACKID + "=?";
-        String[] selectionArgs = new String[]{Long.toString(trackId.getId())};
-        SensorStatistics sensorStatistics = null;
-        try (Cursor cursor = getTrackPointCursor(projection, selection, selectionArgs, null)) {
-            if (cursor != null && cursor.moveToFirst()) {
-                sensorStatistics = new SensorStatistics(
-                        !cursor.isNull(cursor.getColumnIndexOrThrow("max_hr")) ? cursor.getFloat(cursor.getColumnIndexOrThrow("max_hr")) : null,
-                        !cursor.isNull(cursor.getColumnIndexOrThrow("avg_hr")) ? cursor.getFloat(cursor.getColumnIndexOrThrow("avg_hr")) : null,
-                        !cursor.isNull(cursor.getColumnIndexOrThrow("max_cadence")) ? cursor.getFloat(cursor.getColumnIndexOrThrow("max_cadence")) : null,
-                        !cursor.isNull(cursor.getColumnIndexOrThrow("avg_cadence")) ? cursor.getFloat(cursor.getColumnIndexOrThrow("avg_cadence")) : null,
-                        !cursor.isNull(cursor.getColumnIndexOrThrow("avg_power")) ? cursor.getFloat(cursor.getColumnIndexOrThrow("avg_power")) : null
-                );
-            }
-        }
-        return sensorStatistics;
+        Track track = getTrack(trackId);
+        return track != null ? track.getSensorAggregates().toSensorStatistics() : null;
     }
 }
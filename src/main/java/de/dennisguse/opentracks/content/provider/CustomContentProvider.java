@@ -17,9 +17,12 @@
 package de.dennisguse.opentracks.content.provider;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
 import android.database.SQLException;
@@ -27,22 +30,34 @@ import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteQueryBuilder;
 import android.net.Uri;
+import android.os.Bundle;
 import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 import de.dennisguse.opentracks.content.data.MarkerColumns;
+import de.dennisguse.opentracks.content.data.TrackPointsArchiveColumns;
 import de.dennisguse.opentracks.content.data.TrackPointsColumns;
+import de.dennisguse.opentracks.content.data.TrackStatisticsCheckpointsColumns;
 import de.dennisguse.opentracks.content.data.TracksColumns;
 
 /**
- * A {@link ContentProvider} that handles access to track points, tracks, and markers tables.
+ * A {@link ContentProvider} that handles access to track points, archived track points, track statistics checkpoints, tracks, and markers tables.
  * <p>
  * Data consistency is enforced using Foreign Key Constraints within the database incl. cascading deletes.
+ * <p>
+ * {@link #applyBatch(ArrayList)} executes all operations in one transaction and sends one change notification per affected URI after the commit.
+ * <p>
+ * The database uses write-ahead logging: queries run concurrently on a pool of read connections and are not blocked by writes.
+ * Writes are serialized on the primary connection; errors (e.g., SQLITE_BUSY) are thrown as {@link SQLiteException}.
+ * Space of deleted data is reclaimed in the background by {@link IncrementalVacuumScheduler}.
  *
  * @author Leif Hendrik Wilden
  */
@@ -52,10 +67,26 @@ public class CustomContentProvider extends ContentProvider {
 
     private static final String SQL_LIST_DELIMITER = ",";
 
+    /**
+     * {@link #call(String, String, Bundle)} method: writes the WAL into the database and truncates it; to be used if the database will be idle (e.g., a recording was stopped).
+     */
+    static final String METHOD_CHECKPOINT = "checkpoint";
+
+    /**
+     * {@link #call(String, String, Bundle)} method: returns the unused space of the database file in {@link #KEY_RECLAIMABLE_BYTES}.
+     */
+    static final String METHOD_GET_RECLAIMABLE_BYTES = "getReclaimableBytes";
+    static final String KEY_RECLAIMABLE_BYTES = "reclaimableBytes";
+
     private final UriMatcher uriMatcher;
 
     private SQLiteDatabase db;
 
+    private IncrementalVacuumScheduler vacuumScheduler;
+
+    // URIs to be notified after the batch of the current thread was committed; null if not in a batch.
+    private final ThreadLocal<Set<Uri>> batchNotificationUris = new ThreadLocal<>();
+
     public CustomContentProvider() {
         uriMatcher = new UriMatcher(UriMatcher.NO_MATCH);
         uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, TrackPointsColumns.CONTENT_URI_BY_ID.getPath(), UrlType.TRACKPOINTS.ordinal());
@@ -68,6 +99,9 @@ public class CustomContentProvider extends ContentProvider {
         uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, MarkerColumns.CONTENT_URI.getPath(), UrlType.MARKERS.ordinal());
         uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, MarkerColumns.CONTENT_URI.getPath() + "/#", UrlType.MARKERS_BY_ID.ordinal());
         uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, MarkerColumns.CONTENT_URI_BY_TRACKID.getPath() + "/*", UrlType.MARKERS_BY_TRACKID.ordinal());
+
+        uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, TrackPointsArchiveColumns.CONTENT_URI.getPath(), UrlType.TRACKPOINTS_ARCHIVE.ordinal());
+        uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, TrackStatisticsCheckpointsColumns.CONTENT_URI.getPath(), UrlType.TRACKSTATISTICS_CHECKPOINTS.ordinal());
     }
 
     @Override
@@ -90,25 +124,41 @@ public class CustomContentProvider extends ContentProvider {
             db.setForeignKeyConstraintsEnabled(true);
         } catch (SQLiteException e) {
             Log.e(TAG, "Unable to open database for writing.", e);
+            return false;
+        }
+
+        vacuumScheduler = new IncrementalVacuumScheduler(context, db);
+        vacuumScheduler.schedule();
+        return true;
+    }
+
+    @Override
+    public void shutdown() {
+        if (vacuumScheduler != null) {
+            vacuumScheduler.stop();
         }
-        return db != null;
+        super.shutdown();
     }
 
     @Override
     public int delete(@NonNull Uri url, String where, String[] selectionArgs) {
         String table;
-        boolean shouldVacuum = false;
         switch (getUrlType(url)) {
             case TRACKPOINTS:
                 table = TrackPointsColumns.TABLE_NAME;
                 break;
             case TRACKS:
                 table = TracksColumns.TABLE_NAME;
-                shouldVacuum = true;
                 break;
             case MARKERS:
                 table = MarkerColumns.TABLE_NAME;
                 break;
+            case TRACKPOINTS_ARCHIVE:
+                table = TrackPointsArchiveColumns.TABLE_NAME;
+                break;
+            case TRACKSTATISTICS_CHECKPOINTS:
+                table = TrackStatisticsCheckpointsColumns.TABLE_NAME;
+                break;
             default:
                 throw new IllegalArgumentException("Unknown URL " + url);
         }
@@ -116,19 +166,21 @@ public class CustomContentProvider extends ContentProvider {
         Log.w(TAG, "Deleting table " + table);
         int count;
         try {
-            db.beginTransaction();
+            db.beginTransactionNonExclusive();
             count = db.delete(table, where, selectionArgs);
             db.setTransactionSuccessful();
         } finally {
             db.endTransaction();
         }
-        getContext().getContentResolver().notifyChange(url, null, false);
-
-        if (shouldVacuum) {
-            // If a potentially large amount of data was deleted, reclaim its space.
-            Log.i(TAG, "Vacuuming the database.");
-            db.execSQL("VACUUM");
+        vacuumScheduler.onWrite();
+        if (table.equals(TracksColumns.TABLE_NAME)) {
+            // The trackPoints of the tracks were deleted as well.
+            notifyChange(TrackPointsColumns.CONTENT_URI_INVALIDATED);
         }
+        notifyChange(url);
+
+        // A potentially large amount of data was deleted; reclaim its space when idle.
+        vacuumScheduler.schedule();
         return count;
     }
 
@@ -149,6 +201,10 @@ public class CustomContentProvider extends ContentProvider {
             case MARKERS_BY_ID:
             case MARKERS_BY_TRACKID:
                 return MarkerColumns.CONTENT_ITEMTYPE;
+            case TRACKPOINTS_ARCHIVE:
+                return TrackPointsArchiveColumns.CONTENT_TYPE;
+            case TRACKSTATISTICS_CHECKPOINTS:
+                return TrackStatisticsCheckpointsColumns.CONTENT_TYPE;
             default:
                 throw new IllegalArgumentException("Unknown URL " + url);
         }
@@ -161,13 +217,14 @@ public class CustomContentProvider extends ContentProvider {
         }
         Uri result;
         try {
-            db.beginTransaction();
+            db.beginTransactionNonExclusive();
             result = insertContentValues(url, getUrlType(url), initialValues);
             db.setTransactionSuccessful();
         } finally {
             db.endTransaction();
         }
-        getContext().getContentResolver().notifyChange(url, null, false);
+        vacuumScheduler.onWrite();
+        notifyChange(url);
         return result;
     }
 
@@ -176,7 +233,7 @@ public class CustomContentProvider extends ContentProvider {
         int numInserted;
         try {
             // Use a transaction in order to make the insertions run as a single batch
-            db.beginTransaction();
+            db.beginTransactionNonExclusive();
 
             UrlType urlType = getUrlType(url);
             for (numInserted = 0; numInserted < valuesBulk.length; numInserted++) {
@@ -190,10 +247,57 @@ public class CustomContentProvider extends ContentProvider {
         } finally {
             db.endTransaction();
         }
-        getContext().getContentResolver().notifyChange(url, null, false);
+        vacuumScheduler.onWrite();
+        notifyChange(url);
         return numInserted;
     }
 
+    @NonNull
+    @Override
+    public ContentProviderResult[] applyBatch(@NonNull ArrayList<ContentProviderOperation> operations) throws OperationApplicationException {
+        Set<Uri> notificationUris = new LinkedHashSet<>();
+        ContentProviderResult[] results;
+        try {
+            batchNotificationUris.set(notificationUris);
+            db.beginTransactionNonExclusive();
+            results = super.applyBatch(operations);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            batchNotificationUris.remove();
+        }
+        vacuumScheduler.onWrite();
+
+        for (Uri url : notificationUris) {
+            notifyChange(url);
+        }
+        return results;
+    }
+
+    @Override
+    public Bundle call(@NonNull String method, String arg, Bundle extras) {
+        if (METHOD_CHECKPOINT.equals(method)) {
+            checkpoint();
+            // The recording was stopped: reclaim the space of the deleted data now.
+            vacuumScheduler.schedule();
+            return null;
+        }
+        if (METHOD_GET_RECLAIMABLE_BYTES.equals(method)) {
+            Bundle result = new Bundle();
+            result.putLong(KEY_RECLAIMABLE_BYTES, IncrementalVacuumScheduler.getReclaimableBytes(db));
+            return result;
+        }
+        return super.call(method, arg, extras);
+    }
+
+    private void checkpoint() {
+        try (Cursor cursor = db.rawQuery("PRAGMA wal_checkpoint(TRUNCATE)", null)) {
+            if (cursor.moveToFirst() && cursor.getInt(0) != 0) {
+                Log.w(TAG, "WAL checkpoint was blocked by a reader or writer; checkpointed " + cursor.getInt(2) + " of " + cursor.getInt(1) + " pages.");
+            }
+        }
+    }
+
     @Override
     public Cursor query(@NonNull Uri url, String[] projection, String selection, String[] selectionArgs, String sort) {
         SQLiteQueryBuilder queryBuilder = new SQLiteQueryBuilder();
@@ -235,6 +339,14 @@ public class CustomContentProvider extends ContentProvider {
                 queryBuilder.setTables(MarkerColumns.TABLE_NAME);
                 queryBuilder.appendWhere(MarkerColumns.TRACKID + " IN (" + TextUtils.join(SQL_LIST_DELIMITER, ContentProviderUtils.parseTrackIdsFromUri(url)) + ")");
                 break;
+            case TRACKPOINTS_ARCHIVE:
+                queryBuilder.setTables(TrackPointsArchiveColumns.TABLE_NAME);
+                sortOrder = sort != null ? sort : TrackPointsArchiveColumns.DEFAULT_SORT_ORDER;
+                break;
+            case TRACKSTATISTICS_CHECKPOINTS:
+                queryBuilder.setTables(TrackStatisticsCheckpointsColumns.TABLE_NAME);
+                sortOrder = sort != null ? sort : TrackStatisticsCheckpointsColumns.DEFAULT_SORT_ORDER;
+                break;
             default:
                 throw new IllegalArgumentException("Unknown url " + url);
         }
@@ -287,16 +399,34 @@ public class CustomContentProvider extends ContentProvider {
         }
         int count;
         try {
-            db.beginTransaction();
+            db.beginTransactionNonExclusive();
             count = db.update(table, values, whereClause, selectionArgs);
             db.setTransactionSuccessful();
         } finally {
             db.endTransaction();
         }
-        getContext().getContentResolver().notifyChange(url, null, false);
+        vacuumScheduler.onWrite();
+        if (table.equals(TrackPointsColumns.TABLE_NAME)) {
+            // TrackPoints are otherwise only appended or moved by archiving (keeping ids and values).
+            notifyChange(TrackPointsColumns.CONTENT_URI_INVALIDATED);
+        }
+        notifyChange(url);
         return count;
     }
 
+    /**
+     * Notifies observers about a change of url.
+     * Within {@link #applyBatch(ArrayList)} the notification is deferred until the batch was committed.
+     */
+    private void notifyChange(Uri url) {
+        Set<Uri> notificationUris = batchNotificationUris.get();
+        if (notificationUris != null) {
+            notificationUris.add(url);
+            return;
+        }
+        getContext().getContentResolver().notifyChange(url, null, false);
+    }
+
     @NonNull
     private UrlType getUrlType(Uri url) {
         UrlType[] urlTypes = UrlType.values();
@@ -323,6 +453,10 @@ public class CustomContentProvider extends ContentProvider {
                 return insertTrack(url, contentValues);
             case MARKERS:
                 return insertMarker(url, contentValues);
+            case TRACKPOINTS_ARCHIVE:
+                return insertTrackPointsArchive(url, contentValues);
+            case TRACKSTATISTICS_CHECKPOINTS:
+                return insertTrackStatisticsCheckpoint(url, contentValues);
             default:
                 throw new IllegalArgumentException("Unknown url " + url);
         }
@@ -333,7 +467,7 @@ public class CustomContentProvider extends ContentProvider {
         if (!hasTime) {
             throw new IllegalArgumentException("Latitude, longitude, and time values are required.");
         }
-        long rowId = db.insert(TrackPointsColumns.TABLE_NAME, TrackPointsColumns._ID, values);
+        long rowId = db.insertOrThrow(TrackPointsColumns.TABLE_NAME, TrackPointsColumns._ID, values);
         if (rowId >= 0) {
             return ContentUris.appendId(TrackPointsColumns.CONTENT_URI_BY_ID.buildUpon(), rowId).build();
         }
@@ -341,7 +475,7 @@ public class CustomContentProvider extends ContentProvider {
     }
 
     private Uri insertTrack(Uri url, ContentValues contentValues) {
-        long rowId = db.insert(TracksColumns.TABLE_NAME, TracksColumns._ID, contentValues);
+        long rowId = db.insertOrThrow(TracksColumns.TABLE_NAME, TracksColumns._ID, contentValues);
         if (rowId >= 0) {
             return ContentUris.appendId(TracksColumns.CONTENT_URI.buildUpon(), rowId).build();
         }
@@ -349,13 +483,29 @@ public class CustomContentProvider extends ContentProvider {
     }
 
     private Uri insertMarker(Uri url, ContentValues contentValues) {
-        long rowId = db.insert(MarkerColumns.TABLE_NAME, MarkerColumns._ID, contentValues);
+        long rowId = db.insertOrThrow(MarkerColumns.TABLE_NAME, MarkerColumns._ID, contentValues);
         if (rowId >= 0) {
             return ContentUris.appendId(MarkerColumns.CONTENT_URI.buildUpon(), rowId).build();
         }
         throw new SQLException("Failed to insert a marker " + url);
     }
 
+    private Uri insertTrackPointsArchive(Uri url, ContentValues contentValues) {
+        long rowId = db.insertOrThrow(TrackPointsArchiveColumns.TABLE_NAME, TrackPointsArchiveColumns._ID, contentValues);
+        if (rowId >= 0) {
+            return ContentUris.appendId(TrackPointsArchiveColumns.CONTENT_URI.buildUpon(), rowId).build();
+        }
+        throw new SQLException("Failed to insert archived track points " + url);
+    }
+
+    private Uri insertTrackStatisticsCheckpoint(Uri url, ContentValues contentValues) {
+        long rowId = db.insertOrThrow(TrackStatisticsCheckpointsColumns.TABLE_NAME, TrackStatisticsCheckpointsColumns._ID, contentValues);
+        if (rowId >= 0) {
+            return ContentUris.appendId(TrackStatisticsCheckpointsColumns.CONTENT_URI.buildUpon(), rowId).build();
+        }
+        throw new SQLException("Failed to insert track statistics checkpoint " + url);
+    }
+
     @VisibleForTesting
     enum UrlType {
         TRACKPOINTS,
@@ -365,6 +515,8 @@ public class CustomContentProvider extends ContentProvider {
         TRACKS_BY_ID,
         MARKERS,
         MARKERS_BY_ID,
-        MARKERS_BY_TRACKID
+        MARKERS_BY_TRACKID,
+        TRACKPOINTS_ARCHIVE,
+        TRACKSTATISTICS_CHECKPOINTS
     }
 }
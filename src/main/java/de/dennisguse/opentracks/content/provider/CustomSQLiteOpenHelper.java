@@ -13,8 +13,12 @@ import java.util.UUID;
 
 import de.dennisguse.opentracks.content.data.MarkerColumns;
 import de.dennisguse.opentracks.content.data.Track;
+import de.dennisguse.opentracks.content.data.TrackPoint;
+import de.dennisguse.opentracks.content.data.TrackPointsArchiveColumns;
 import de.dennisguse.opentracks.content.data.TrackPointsColumns;
+import de.dennisguse.opentracks.content.data.TrackStatisticsCheckpointsColumns;
 import de.dennisguse.opentracks.content.data.TracksColumns;
+import de.dennisguse.opentracks.stats.SensorAggregates;
 import de.dennisguse.opentracks.util.UUIDUtils;
 
 /**
@@ -25,35 +29,85 @@ public class CustomSQLiteOpenHelper extends SQLiteOpenHelper {
 
     private static final String TAG = CustomSQLiteOpenHelper.class.getSimpleName();
 
-    private static final int DATABASE_VERSION = 30;
+    private static final int DATABASE_VERSION = 35;
 
     @VisibleForTesting
     public static final String DATABASE_NAME = "database.db";
 
+    // While recording, every commit appends to the WAL; a commit exceeding this many pages in the WAL runs a checkpoint on the writing thread.
+    // Android's default (100 pages) would let the recording pay for a checkpoint every few commits; the WAL is truncated after a track was stopped instead (see CustomContentProvider#METHOD_CHECKPOINT).
+    @VisibleForTesting
+    static final int WAL_AUTOCHECKPOINT_PAGES = 1000;
+
+    // Size of the WAL file that is kept after a checkpoint.
+    private static final long JOURNAL_SIZE_LIMIT_BYTES = 4 * 1024 * 1024;
+
+    // Value of PRAGMA auto_vacuum: free pages are kept until they are reclaimed by PRAGMA incremental_vacuum (see IncrementalVacuumScheduler).
+    // Databases created before version 35 are converted by IncrementalVacuumScheduler (requires a VACUUM).
+    @VisibleForTesting
+    static final int AUTO_VACUUM_INCREMENTAL = 2;
+
     public CustomSQLiteOpenHelper(Context context) {
         this(context, DATABASE_NAME);
     }
 
     @VisibleForTesting
     public CustomSQLiteOpenHelper(Context context, String databaseName) {
-        super(context, databaseName, null, DATABASE_VERSION);
+        this(context, databaseName, DATABASE_VERSION);
     }
 
     @VisibleForTesting
     public CustomSQLiteOpenHelper(Context context, String databaseName, int databaseVersion) {
         super(context, databaseName, null, databaseVersion);
+        // Readers (e.g., TrackDataHub, charts, Dashboard API) use their own connections and are not blocked by the recording.
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        // Only the checkpoints sync to disk; a commit survives a crash of the app, but not necessarily a power loss.
+        db.execSQL("PRAGMA synchronous=NORMAL");
+        executePragma(db, "wal_autocheckpoint=" + WAL_AUTOCHECKPOINT_PAGES);
+        executePragma(db, "journal_size_limit=" + JOURNAL_SIZE_LIMIT_BYTES);
+    }
+
+    @VisibleForTesting
+    static int getAutoVacuum(SQLiteDatabase db) {
+        try (Cursor cursor = db.rawQuery("PRAGMA auto_vacuum", null)) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        }
+    }
+
+    /**
+     * Executes a PRAGMA that returns a result (not supported by {@link SQLiteDatabase#execSQL(String)}).
+     */
+    private static void executePragma(SQLiteDatabase db, String pragma) {
+        try (Cursor cursor = db.rawQuery("PRAGMA " + pragma, null)) {
+            cursor.moveToFirst();
+        }
     }
 
     @Override
     public void onCreate(SQLiteDatabase db) {
+        // Must be set before the first table is created.
+        db.execSQL("PRAGMA auto_vacuum=INCREMENTAL");
+
         db.execSQL(TrackPointsColumns.CREATE_TABLE);
         db.execSQL(TrackPointsColumns.CREATE_TABLE_INDEX);
+        db.execSQL(TrackPointsColumns.CREATE_TABLE_INDEX_TIME);
+        db.execSQL(TrackPointsColumns.CREATE_TABLE_INDEX_TYPE);
 
         db.execSQL(TracksColumns.CREATE_TABLE);
         db.execSQL(TracksColumns.CREATE_TABLE_INDEX);
 
         db.execSQL(MarkerColumns.CREATE_TABLE);
         db.execSQL(MarkerColumns.CREATE_TABLE_INDEX);
+
+        db.execSQL(TrackPointsArchiveColumns.CREATE_TABLE);
+        db.execSQL(TrackPointsArchiveColumns.CREATE_TABLE_INDEX);
+
+        db.execSQL(TrackStatisticsCheckpointsColumns.CREATE_TABLE);
+        db.execSQL(TrackStatisticsCheckpointsColumns.CREATE_TABLE_INDEX);
     }
 
     @Override
@@ -82,6 +136,21 @@ public class CustomSQLiteOpenHelper extends SQLiteOpenHelper {
                 case 30:
                     upgradeFrom29to30(db);
                     break;
+                case 31:
+                    upgradeFrom30to31(db);
+                    break;
+                case 32:
+                    upgradeFrom31to32(db);
+                    break;
+                case 33:
+                    upgradeFrom32to33(db);
+                    break;
+                case 34:
+                    upgradeFrom33to34(db);
+                    break;
+                case 35:
+                    upgradeFrom34to35(db);
+                    break;
 
                 default:
                     throw new RuntimeException("Not implemented: upgrade to " + toVersion);
@@ -115,6 +184,21 @@ public class CustomSQLiteOpenHelper extends SQLiteOpenHelper {
                 case 29:
                     downgradeFrom30to29(db);
                     break;
+                case 30:
+                    downgradeFrom31to30(db);
+                    break;
+                case 31:
+                    downgradeFrom32to31(db);
+                    break;
+                case 32:
+                    downgradeFrom33to32(db);
+                    break;
+                case 33:
+                    downgradeFrom34to33(db);
+                    break;
+                case 34:
+                    downgradeFrom35to34(db);
+                    break;
 
                 default:
                     throw new RuntimeException("Not implemented: downgrade to " + toVersion);
@@ -394,4 +478,201 @@ public class CustomSQLiteOpenHelper extends SQLiteOpenHelper {
         db.setTransactionSuccessful();
         db.endTransaction();
     }
+
+    /**
+     * Add table for archived (i.e., compactly encoded) trackPoints of finished tracks.
+     */
+    private void upgradeFrom30to31(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("CREATE TABLE trackpoints_archive (_id INTEGER PRIMARY KEY AUTOINCREMENT, trackid INTEGER NOT NULL, first_trackpoint_id INTEGER NOT NULL, last_trackpoint_id INTEGER NOT NULL, numpoints INTEGER NOT NULL, data BLOB NOT NULL, FOREIGN KEY (trackid) REFERENCES tracks(_id) ON UPDATE CASCADE ON DELETE CASCADE)");
+        db.execSQL("CREATE INDEX trackpoints_archive_trackid_index ON trackpoints_archive(trackid, first_trackpoint_id)");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    private void downgradeFrom31to30(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        // Restore archived trackPoints
+        try (Cursor cursor = db.query("trackpoints_archive", new String[]{"trackid", "data"}, null, null, null, null, "_id")) {
+            while (cursor.moveToNext()) {
+                long trackId = cursor.getLong(0);
+                for (TrackPoint trackPoint : TrackPointCodec.decode(cursor.getBlob(1))) {
+                    ContentValues cv = new ContentValues();
+                    cv.put("_id", trackPoint.getId().getId());
+                    cv.put("trackid", trackId);
+                    cv.put("type", trackPoint.getType().type_db);
+                    if (trackPoint.hasLocation()) {
+                        cv.put("longitude", (int) Math.round(trackPoint.getLongitude() * 1E6));
+                        cv.put("latitude", (int) Math.round(trackPoint.getLatitude() * 1E6));
+                    }
+                    cv.put("time", trackPoint.getTime().toEpochMilli());
+                    cv.put("elevation", trackPoint.hasAltitude() ? trackPoint.getAltitude() : null);
+                    cv.put("accuracy", trackPoint.hasAccuracy() ? trackPoint.getAccuracy() : null);
+                    cv.put("speed", trackPoint.hasSpeed() ? trackPoint.getSpeed() : null);
+                    cv.put("bearing", trackPoint.hasBearing() ? trackPoint.getBearing() : null);
+                    cv.put("sensor_heartrate", trackPoint.hasHeartRate() ? trackPoint.getHeartRate_bpm() : null);
+                    cv.put("sensor_cadence", trackPoint.getCyclingCadence_rpm());
+                    cv.put("sensor_power", trackPoint.getPower());
+                    cv.put("elevation_gain", trackPoint.getElevationGain());
+                    cv.put("elevation_loss", trackPoint.hasElevationLoss() ? trackPoint.getElevationLoss() : null);
+                    db.insert("trackpoints", null, cv);
+                }
+            }
+        }
+
+        db.execSQL("DROP INDEX trackpoints_archive_trackid_index");
+        db.execSQL("DROP TABLE trackpoints_archive");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    /**
+     * Replace trackpoints index on trackid by composite indexes on (trackid, _id), (trackid, time), and (trackid, type).
+     */
+    private void upgradeFrom31to32(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("DROP INDEX trackpoints_trackid_index");
+        db.execSQL("CREATE INDEX trackpoints_trackid_id_index ON trackpoints(trackid, _id)");
+        db.execSQL("CREATE INDEX trackpoints_trackid_time_index ON trackpoints(trackid, time)");
+        db.execSQL("CREATE INDEX trackpoints_trackid_type_index ON trackpoints(trackid, type)");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    private void downgradeFrom32to31(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("DROP INDEX trackpoints_trackid_id_index");
+        db.execSQL("DROP INDEX trackpoints_trackid_time_index");
+        db.execSQL("DROP INDEX trackpoints_trackid_type_index");
+        db.execSQL("CREATE INDEX trackpoints_trackid_index ON trackpoints(trackid)");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    /**
+     * Switch to auto_vacuum=INCREMENTAL; the required VACUUM is done when idle by {@link IncrementalVacuumScheduler#enableIncrementalVacuum(SQLiteDatabase)}.
+     */
+    private void upgradeFrom32to33(SQLiteDatabase db) {
+        db.execSQL("PRAGMA auto_vacuum=INCREMENTAL");
+    }
+
+    /**
+     * Version 32 works with any auto_vacuum mode; so, incremental vacuum is kept.
+     */
+    private void downgradeFrom33to32(SQLiteDatabase db) {
+    }
+
+    /**
+     * Add aggregates of the sensor data (heart rate, cadence, and power) to tracks; computed from the trackPoints and the archived trackPoints.
+     */
+    private void upgradeFrom33to34(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        String[] sensors = {"heartrate", "cadence", "power"};
+        for (String sensor : sensors) {
+            db.execSQL("ALTER TABLE tracks ADD COLUMN sensor_" + sensor + "_count INTEGER");
+            db.execSQL("ALTER TABLE tracks ADD COLUMN sensor_" + sensor + "_sum FLOAT");
+            db.execSQL("ALTER TABLE tracks ADD COLUMN sensor_" + sensor + "_max FLOAT");
+        }
+
+        try (Cursor cursor = db.rawQuery("SELECT trackid, COUNT(sensor_heartrate), SUM(sensor_heartrate), MAX(sensor_heartrate), COUNT(sensor_cadence), SUM(sensor_cadence), MAX(sensor_cadence), COUNT(sensor_power), SUM(sensor_power), MAX(sensor_power) FROM trackpoints GROUP BY trackid", null)) {
+            while (cursor.moveToNext()) {
+                ContentValues cv = new ContentValues();
+                for (int i = 0; i < sensors.length; i++) {
+                    cv.put("sensor_" + sensors[i] + "_count", cursor.getLong(1 + 3 * i));
+                    cv.put("sensor_" + sensors[i] + "_sum", cursor.getDouble(2 + 3 * i));
+                    cv.put("sensor_" + sensors[i] + "_max", cursor.isNull(3 + 3 * i) ? null : cursor.getFloat(3 + 3 * i));
+                }
+                db.update("tracks", cv, "_id = ?", new String[]{String.valueOf(cursor.getLong(0))});
+            }
+        }
+
+        try (Cursor cursor = db.query("trackpoints_archive", new String[]{"trackid", "data"}, null, null, null, null, "trackid, first_trackpoint_id")) {
+            long trackId = -1;
+            SensorAggregates sensorAggregates = null;
+            while (cursor.moveToNext()) {
+                if (cursor.getLong(0) != trackId) {
+                    updateSensorAggregates(db, trackId, sensorAggregates);
+                    trackId = cursor.getLong(0);
+                    sensorAggregates = new SensorAggregates();
+                }
+                for (TrackPoint trackPoint : TrackPointCodec.decode(cursor.getBlob(1))) {
+                    sensorAggregates.add(trackPoint);
+                }
+            }
+            updateSensorAggregates(db, trackId, sensorAggregates);
+        }
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    private static void updateSensorAggregates(SQLiteDatabase db, long trackId, SensorAggregates sensorAggregates) {
+        if (sensorAggregates == null) {
+            return;
+        }
+        ContentValues cv = new ContentValues();
+        cv.put("sensor_heartrate_count", sensorAggregates.getHeartRate().getCount());
+        cv.put("sensor_heartrate_sum", sensorAggregates.getHeartRate().getSum());
+        cv.put("sensor_heartrate_max", sensorAggregates.getHeartRate().getMax());
+        cv.put("sensor_cadence_count", sensorAggregates.getCadence().getCount());
+        cv.put("sensor_cadence_sum", sensorAggregates.getCadence().getSum());
+        cv.put("sensor_cadence_max", sensorAggregates.getCadence().getMax());
+        cv.put("sensor_power_count", sensorAggregates.getPower().getCount());
+        cv.put("sensor_power_sum", sensorAggregates.getPower().getSum());
+        cv.put("sensor_power_max", sensorAggregates.getPower().getMax());
+        db.update("tracks", cv, "_id = ?", new String[]{String.valueOf(trackId)});
+    }
+
+    private void downgradeFrom34to33(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        // Keep the foreign keys of trackpoints, markers, and trackpoints_archive referencing tracks (and not tracks_old).
+        db.execSQL("PRAGMA legacy_alter_table=ON");
+
+        db.execSQL("DROP INDEX tracks_uuid_index");
+
+        db.execSQL("ALTER TABLE tracks RENAME TO tracks_old");
+        db.execSQL("CREATE TABLE tracks (_id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT, description TEXT, category TEXT, starttime INTEGER, stoptime INTEGER, numpoints INTEGER, totaldistance FLOAT, totaltime INTEGER, movingtime INTEGER, avgspeed FLOAT, avgmovingspeed FLOAT, maxspeed FLOAT, minelevation FLOAT, maxelevation FLOAT, elevationgain FLOAT, icon TEXT, uuid BLOB, elevationloss FLOAT)");
+        db.execSQL("INSERT INTO tracks SELECT _id, name, description, category, starttime, stoptime, numpoints, totaldistance, totaltime, movingtime, avgspeed, avgmovingspeed, maxspeed, minelevation, maxelevation, elevationgain, icon, uuid, elevationloss FROM tracks_old");
+        db.execSQL("DROP TABLE tracks_old");
+
+        db.execSQL("CREATE UNIQUE INDEX tracks_uuid_index ON tracks(uuid)");
+
+        db.execSQL("PRAGMA legacy_alter_table=OFF");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    /**
+     * Add table for checkpoints of the track statistics computation; existing tracks have no checkpoints.
+     */
+    private void upgradeFrom34to35(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("CREATE TABLE trackstatistics_checkpoints (_id INTEGER PRIMARY KEY AUTOINCREMENT, trackid INTEGER NOT NULL, trackpoint_id INTEGER NOT NULL, min_recording_distance INTEGER NOT NULL, data BLOB NOT NULL, intervals BLOB, FOREIGN KEY (trackid) REFERENCES tracks(_id) ON UPDATE CASCADE ON DELETE CASCADE)");
+        db.execSQL("CREATE INDEX trackstatistics_checkpoints_trackid_index ON trackstatistics_checkpoints(trackid, trackpoint_id)");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    private void downgradeFrom35to34(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("DROP INDEX trackstatistics_checkpoints_trackid_index");
+        db.execSQL("DROP TABLE trackstatistics_checkpoints");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
 }
@@ -0,0 +1,152 @@
+package de.dennisguse.opentracks.content.provider;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import de.dennisguse.opentracks.util.PreferencesUtils;
+
+/**
+ * Reclaims the free pages of the database (e.g., after tracks were deleted) using `PRAGMA incremental_vacuum` in bounded steps.
+ * Steps only run while the database is idle (i.e., no write for {@link #IDLE_DELAY_MS}) and no track is recorded.
+ * So, in contrast to a VACUUM, neither the recording nor other content provider calls wait for rewriting the whole database file.
+ * <p>
+ * Databases created without incremental auto_vacuum are converted once by the first step (see {@link #enableIncrementalVacuum(SQLiteDatabase)}); if this fails (e.g., not enough space), it is retried when idle again.
+ */
+class IncrementalVacuumScheduler {
+
+    private static final String TAG = IncrementalVacuumScheduler.class.getSimpleName();
+
+    // Pages reclaimed per step; each step is one short write transaction.
+    @VisibleForTesting
+    static final int PAGES_PER_STEP = 256;
+
+    // Free pages are reused by the next inserts; so, a few are kept.
+    @VisibleForTesting
+    static final int MIN_FREE_PAGES = 64;
+
+    private static final long IDLE_DELAY_MS = 10000;
+    private static final long STEP_DELAY_MS = 200;
+
+    private final Context context;
+    private final SQLiteDatabase db;
+    private final HandlerThread handlerThread;
+    private final Handler handler;
+
+    private final Runnable stepRunnable = this::step;
+
+    private volatile long lastWriteTime = 0;
+
+    IncrementalVacuumScheduler(Context context, SQLiteDatabase db) {
+        this.context = context;
+        this.db = db;
+        handlerThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        handlerThread.start();
+        handler = new Handler(handlerThread.getLooper());
+    }
+
+    /**
+     * To be called after each write; postpones reclaiming until the database is idle.
+     */
+    void onWrite() {
+        lastWriteTime = SystemClock.elapsedRealtime();
+    }
+
+    /**
+     * Reclaims the free pages once the database is idle.
+     */
+    void schedule() {
+        handler.removeCallbacks(stepRunnable);
+        handler.postDelayed(stepRunnable, IDLE_DELAY_MS);
+    }
+
+    void stop() {
+        handler.removeCallbacks(stepRunnable);
+        handlerThread.quit();
+    }
+
+    private void step() {
+        if (!db.isOpen()) {
+            return;
+        }
+        if (PreferencesUtils.isRecording(context)) {
+            // Scheduled again after the recording was stopped (see CustomContentProvider#METHOD_CHECKPOINT).
+            Log.d(TAG, "Not reclaiming free pages while recording.");
+            return;
+        }
+
+        long idleMillis = SystemClock.elapsedRealtime() - lastWriteTime;
+        if (idleMillis < IDLE_DELAY_MS) {
+            handler.postDelayed(stepRunnable, IDLE_DELAY_MS - idleMillis);
+            return;
+        }
+
+        try {
+            if (CustomSQLiteOpenHelper.getAutoVacuum(db) != CustomSQLiteOpenHelper.AUTO_VACUUM_INCREMENTAL) {
+                enableIncrementalVacuum(db);
+            }
+
+            int freePages = getFreePageCount(db);
+            if (freePages <= MIN_FREE_PAGES) {
+                Log.i(TAG, "Reclaimable space: " + getReclaimableBytes(db) + " bytes.");
+                return;
+            }
+
+            incrementalVacuum(db, Math.min(PAGES_PER_STEP, freePages - MIN_FREE_PAGES));
+        } catch (SQLiteException e) {
+            Log.w(TAG, "Could not reclaim free pages; will retry when idle.", e);
+            handler.postDelayed(stepRunnable, IDLE_DELAY_MS);
+            return;
+        }
+        handler.postDelayed(stepRunnable, STEP_DELAY_MS);
+    }
+
+    /**
+     * Space of the database file that is not used and could be reclaimed by {@link #incrementalVacuum(SQLiteDatabase, int)}.
+     */
+    static long getReclaimableBytes(SQLiteDatabase db) {
+        return (long) getFreePageCount(db) * getPragma(db, "page_size");
+    }
+
+    private static int getFreePageCount(SQLiteDatabase db) {
+        return getPragma(db, "freelist_count");
+    }
+
+    private static int getPragma(SQLiteDatabase db, String pragma) {
+        try (Cursor cursor = db.rawQuery("PRAGMA " + pragma, null)) {
+            return cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        }
+    }
+
+    /**
+     * Changes auto_vacuum of an existing database to incremental; rewrites the whole database file (needs up to twice its size).
+     * Cannot be done within a transaction (e.g., of {@link CustomSQLiteOpenHelper#onUpgrade(SQLiteDatabase, int, int)}).
+     */
+    @VisibleForTesting
+    static void enableIncrementalVacuum(SQLiteDatabase db) {
+        Log.i(TAG, "Enabling incremental vacuum.");
+        db.execSQL("PRAGMA auto_vacuum=INCREMENTAL");
+        db.execSQL("VACUUM");
+    }
+
+    /**
+     * Removes up to maxPages free pages from the database file.
+     */
+    @VisibleForTesting
+    static void incrementalVacuum(SQLiteDatabase db, int maxPages) {
+        // One page is freed per step of the statement; so, the cursor must be read completely.
+        try (Cursor cursor = db.rawQuery("PRAGMA incremental_vacuum(" + maxPages + ")", null)) {
+            while (cursor.moveToNext()) {
+                // Nothing to read.
+            }
+        }
+    }
+}
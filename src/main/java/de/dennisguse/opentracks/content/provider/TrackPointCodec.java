@@ -0,0 +1,293 @@
+package de.dennisguse.opentracks.content.provider;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Arrays;
+import java.util.List;
+
+import de.dennisguse.opentracks.content.data.TrackPoint;
+import de.dennisguse.opentracks.content.data.TrackPointBuffer;
+import de.dennisguse.opentracks.content.data.TrackPointsArchiveColumns;
+
+/**
+ * Compact columnar encoding of {@link TrackPoint}s for {@link TrackPointsArchiveColumns}.
+ * <p>
+ * Every attribute is stored in its own column; each column contains only the present values.
+ * A column stores the difference to the previous present value as zigzag-encoded varint.
+ * Per trackPoint, a header stores the {@link TrackPoint.Type} and a presence bitmap of the optional attributes.
+ * <p>
+ * Values are stored as they are read from {@link de.dennisguse.opentracks.content.data.TrackPointsColumns}:
+ * latitude/longitude as micro degrees and all other attributes as float.
+ * A float is stored in hundredths if this is exact (e.g., heart rate or altitude of 312.5m) and otherwise via its raw bits.
+ * So, decoding an encoded trackPoint yields the same trackPoint as reading it from the trackpoints table.
+ * <p>
+ * Layout: version, number of trackPoints, byte length of each column, and the columns.
+ */
+public final class TrackPointCodec {
+
+    @VisibleForTesting
+    static final int VERSION = 1;
+
+    private static final int COLUMN_HEADER = 0;
+    private static final int COLUMN_ID = 1;
+    private static final int COLUMN_TIME = 2;
+    private static final int COLUMN_LATITUDE = 3;
+    private static final int COLUMN_LONGITUDE = 4;
+    // Columns of float channels start here; one column per channel.
+    private static final int COLUMN_FIRST_CHANNEL = 5;
+
+    // Channels as defined by TrackPointBuffer.
+    private static final int NUM_CHANNELS = TrackPointBuffer.NUM_CHANNELS;
+
+    private static final int NUM_COLUMNS = COLUMN_FIRST_CHANNEL + NUM_CHANNELS;
+
+    // Header: presence bitmap followed by the type (2 bits).
+    private static final int TYPE_BITS = 2;
+    private static final int TYPE_OFFSET = -TrackPoint.Type.SEGMENT_START_MANUAL.type_db;
+    private static final int HAS_LOCATION = 1;
+    private static final int HAS_FIRST_CHANNEL = 1 << 1;
+
+    private static final double CHANNEL_SCALE = 100;
+    // Larger values are stored via their raw bits; prevents overflows of the scaled differences.
+    private static final float MAX_SCALED_VALUE = 1E9f;
+
+    private TrackPointCodec() {
+    }
+
+    /**
+     * @param trackPoints the trackPoints (in order); must have ids and times.
+     */
+    @NonNull
+    public static byte[] encode(@NonNull List<TrackPoint> trackPoints) {
+        Writer[] columns = new Writer[NUM_COLUMNS];
+        for (int i = 0; i < NUM_COLUMNS; i++) {
+            columns[i] = new Writer();
+        }
+
+        long previousId = 0;
+        long previousTime = 0;
+        long previousLatitude = 0;
+        long previousLongitude = 0;
+        long[] previousScaledChannels = new long[NUM_CHANNELS];
+        int[] previousChannels = new int[NUM_CHANNELS];
+
+        for (TrackPoint trackPoint : trackPoints) {
+            if (trackPoint.getId() == null) {
+                throw new IllegalArgumentException("trackPoint without id can not be encoded.");
+            }
+
+            int presence = 0;
+            if (trackPoint.hasLocation()) {
+                presence |= HAS_LOCATION;
+            }
+            for (int channel = 0; channel < NUM_CHANNELS; channel++) {
+                if (TrackPointBuffer.getChannel(trackPoint, channel) != null) {
+                    presence |= HAS_FIRST_CHANNEL << channel;
+                }
+            }
+            columns[COLUMN_HEADER].writeVarLong(((long) presence << TYPE_BITS) | (trackPoint.getType().type_db + TYPE_OFFSET));
+
+            long id = trackPoint.getId().getId();
+            columns[COLUMN_ID].writeSignedVarLong(id - previousId);
+            previousId = id;
+
+            long time = trackPoint.getTime().toEpochMilli();
+            columns[COLUMN_TIME].writeSignedVarLong(time - previousTime);
+            previousTime = time;
+
+            if (trackPoint.hasLocation()) {
+                // Identical to the conversion for the trackpoints table; rounding restores the stored micro degrees exactly.
+                int latitude = (int) Math.round(trackPoint.getLatitude() * 1E6);
+                int longitude = (int) Math.round(trackPoint.getLongitude() * 1E6);
+                columns[COLUMN_LATITUDE].writeSignedVarLong(latitude - previousLatitude);
+                columns[COLUMN_LONGITUDE].writeSignedVarLong(longitude - previousLongitude);
+                previousLatitude = latitude;
+                previousLongitude = longitude;
+            }
+
+            for (int channel = 0; channel < NUM_CHANNELS; channel++) {
+                Float value = TrackPointBuffer.getChannel(trackPoint, channel);
+                if (value == null) {
+                    continue;
+                }
+                // Lowest bit: 0 if scaled, 1 if raw bits.
+                Writer column = columns[COLUMN_FIRST_CHANNEL + channel];
+                long scaled = Math.round(value * CHANNEL_SCALE);
+                int bits = Float.floatToIntBits(value);
+                if (Math.abs(value) < MAX_SCALED_VALUE && Float.floatToIntBits((float) (scaled / CHANNEL_SCALE)) == bits) {
+                    column.writeVarLong(zigzag(scaled - previousScaledChannels[channel]) << 1);
+                    previousScaledChannels[channel] = scaled;
+                } else {
+                    column.writeVarLong(zigzag((long) bits - previousChannels[channel]) << 1 | 1);
+                }
+                previousChannels[channel] = bits;
+            }
+        }
+
+        Writer data = new Writer();
+        data.writeVarLong(VERSION);
+        data.writeVarLong(trackPoints.size());
+        for (Writer column : columns) {
+            data.writeVarLong(column.size);
+        }
+        for (Writer column : columns) {
+            data.write(column);
+        }
+        return data.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException if data was not created by {@link #encode(List)}.
+     */
+    @NonNull
+    public static List<TrackPoint> decode(@NonNull byte[] data) {
+        TrackPointBuffer buffer = new TrackPointBuffer();
+        decode(data, buffer);
+        return buffer.toTrackPoints();
+    }
+
+    /**
+     * Appends the decoded trackPoints to the buffer without creating {@link TrackPoint}s.
+     *
+     * @throws IllegalArgumentException if data was not created by {@link #encode(List)}.
+     */
+    public static void decode(@NonNull byte[] data, @NonNull TrackPointBuffer buffer) {
+        Reader reader = new Reader(data, 0, data.length);
+        long version = reader.readVarLong();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported version " + version);
+        }
+        int count = (int) reader.readVarLong();
+
+        int[] columnLengths = new int[NUM_COLUMNS];
+        for (int i = 0; i < NUM_COLUMNS; i++) {
+            columnLengths[i] = (int) reader.readVarLong();
+        }
+        Reader[] columns = new Reader[NUM_COLUMNS];
+        int offset = reader.position;
+        for (int i = 0; i < NUM_COLUMNS; i++) {
+            columns[i] = new Reader(data, offset, offset + columnLengths[i]);
+            offset += columnLengths[i];
+        }
+        if (offset != data.length) {
+            throw new IllegalArgumentException("Invalid length.");
+        }
+
+        long id = 0;
+        long time = 0;
+        long latitude = 0;
+        long longitude = 0;
+        long[] scaledChannels = new long[NUM_CHANNELS];
+        int[] channels = new int[NUM_CHANNELS];
+
+        for (int i = 0; i < count; i++) {
+            long header = columns[COLUMN_HEADER].readVarLong();
+            int presence = (int) (header >>> TYPE_BITS);
+            TrackPoint.Type type = TrackPoint.Type.getById((int) (header & ((1 << TYPE_BITS) - 1)) - TYPE_OFFSET);
+
+            id += columns[COLUMN_ID].readSignedVarLong();
+            time += columns[COLUMN_TIME].readSignedVarLong();
+            int index = buffer.append(id, type, time);
+
+            if ((presence & HAS_LOCATION) != 0) {
+                latitude += columns[COLUMN_LATITUDE].readSignedVarLong();
+                longitude += columns[COLUMN_LONGITUDE].readSignedVarLong();
+                buffer.setLocation(index, (int) latitude, (int) longitude);
+            }
+
+            for (int channel = 0; channel < NUM_CHANNELS; channel++) {
+                if ((presence & (HAS_FIRST_CHANNEL << channel)) == 0) {
+                    continue;
+                }
+                long encoded = columns[COLUMN_FIRST_CHANNEL + channel].readVarLong();
+                float value;
+                if ((encoded & 1) == 0) {
+                    scaledChannels[channel] += unzigzag(encoded >>> 1);
+                    value = (float) (scaledChannels[channel] / CHANNEL_SCALE);
+                    channels[channel] = Float.floatToIntBits(value);
+                } else {
+                    channels[channel] += (int) unzigzag(encoded >>> 1);
+                    value = Float.intBitsToFloat(channels[channel]);
+                }
+                buffer.setChannel(index, channel, value);
+            }
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Writer {
+        private byte[] buffer = new byte[64];
+        private int size = 0;
+
+        void writeVarLong(long value) {
+            ensureCapacity(size + 10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeSignedVarLong(long value) {
+            writeVarLong(zigzag(value));
+        }
+
+        void write(Writer other) {
+            ensureCapacity(size + other.size);
+            System.arraycopy(other.buffer, 0, buffer, size, other.size);
+            size += other.size;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(capacity, buffer.length * 2));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+
+    private static final class Reader {
+        private final byte[] data;
+        private final int limit;
+        private int position;
+
+        Reader(byte[] data, int position, int limit) {
+            if (limit > data.length) {
+                throw new IllegalArgumentException("Invalid length.");
+            }
+            this.data = data;
+            this.position = position;
+            this.limit = limit;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                if (position >= limit) {
+                    throw new IllegalArgumentException("Unexpected end of data.");
+                }
+                byte b = data[position++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Invalid varint.");
+        }
+
+        long readSignedVarLong() {
+            return unzigzag(readVarLong());
+        }
+    }
+}
@@ -3,96 +3,209 @@ package de.dennisguse.opentracks.content.provider;
 import android.database.Cursor;
 import android.util.Log;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import de.dennisguse.opentracks.content.data.Track;
 import de.dennisguse.opentracks.content.data.TrackPoint;
 
 /**
- * A lightweight wrapper around the original {@link Cursor} with a method to clean up.
+ * Iterates over the {@link TrackPoint}s of a track in pages using keyset pagination (i.e., `_id > lastId` on the (trackid, _id) order).
+ * While the caller consumes the current page, the next page is loaded in the background.
+ * So, query setup and reading the {@link Cursor} are not done by the consuming thread (except for the first page).
+ * <p>
+ * For archived tracks (see {@link ContentProviderUtils#archiveTrack(Track.Id)}), a page is one decoded row of {@link de.dennisguse.opentracks.content.data.TrackPointsArchiveColumns}.
+ * If the track is archived or restored while iterating, the remaining trackPoints are loaded from the other table.
  */
-//TODO Remove batching; that should be handled by the database/contentprovider (i.e., already in place as we use a cursor)!
 public class TrackPointIterator implements Iterator<TrackPoint>, AutoCloseable {
 
     private static final String TAG = TrackPointIterator.class.getSimpleName();
 
+    // Each iterator has at most one pending page; more iterators wait for a thread (idle threads are stopped).
+    private static final int PREFETCH_THREADS = 2;
+    private static final long PREFETCH_KEEP_ALIVE_SECONDS = 30;
+    private static final AtomicInteger PREFETCH_THREAD_NUMBER = new AtomicInteger();
+    private static final ExecutorService PREFETCH_EXECUTOR = createPrefetchExecutor();
+
+    private static ExecutorService createPrefetchExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(PREFETCH_THREADS, PREFETCH_THREADS, PREFETCH_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "TrackPointPrefetch-" + PREFETCH_THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     private final ContentProviderUtils contentProviderUtils;
     private final Track.Id trackId;
-    private final CachedTrackPointsIndexes indexes;
-    private TrackPoint.Id lastTrackPointId = null;
-    private Cursor cursor;
+    private final int pageSize;
+    private final TrackPointProjection projection;
+    private boolean archived;
+
+    private List<TrackPoint> page;
+    // The id of the last loaded trackPoint; null if none was loaded.
+    private TrackPoint.Id lastTrackPointId;
+    private int pageIndex = 0;
+    private Future<List<TrackPoint>> nextPage;
 
     public TrackPointIterator(ContentProviderUtils contentProviderUtils, Track.Id trackId, TrackPoint.Id startTrackPointId) {
+        this(contentProviderUtils, trackId, startTrackPointId, contentProviderUtils.getDefaultCursorBatchSize());
+    }
+
+    /**
+     * @param startTrackPointId the first trackPoint id; null to start at the beginning
+     * @param pageSize          the number of trackPoints loaded per query; not used for archived tracks
+     */
+    public TrackPointIterator(ContentProviderUtils contentProviderUtils, Track.Id trackId, @Nullable TrackPoint.Id startTrackPointId, int pageSize) {
+        this(contentProviderUtils, trackId, startTrackPointId, pageSize, TrackPointProjection.FULL);
+    }
+
+    /**
+     * @param startTrackPointId the first trackPoint id; null to start at the beginning
+     * @param pageSize          the number of trackPoints loaded per query; not used for archived tracks
+     * @param projection        the columns to load; archived tracks are always loaded completely
+     */
+    public TrackPointIterator(ContentProviderUtils contentProviderUtils, Track.Id trackId, @Nullable TrackPoint.Id startTrackPointId, int pageSize, @NonNull TrackPointProjection projection) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("pageSize must be greater than 0.");
+        }
         this.contentProviderUtils = contentProviderUtils;
         this.trackId = trackId;
+        this.pageSize = pageSize;
+        this.projection = projection;
+        this.archived = contentProviderUtils.isTrackArchived(trackId);
 
-        cursor = getCursor(startTrackPointId);
-        indexes = cursor != null ? new CachedTrackPointsIndexes(cursor)
-                : null;
+        lastTrackPointId = startTrackPointId != null ? new TrackPoint.Id(startTrackPointId.getId() - 1) : null;
+        setPage(loadPage(archived, lastTrackPointId));
+        prefetchNextPage();
     }
 
     /**
-     * Gets the track point cursor.
+     * Loads the trackPoints with `_id > afterTrackPointId`.
      *
-     * @param trackPointId the starting track point id
+     * @param archived          load from the archive
+     * @param afterTrackPointId the id of the last loaded trackPoint; null to load the first page
      */
-    private Cursor getCursor(TrackPoint.Id trackPointId) {
-        return contentProviderUtils.getTrackPointCursor(trackId, trackPointId, contentProviderUtils.getDefaultCursorBatchSize());
+    @NonNull
+    private List<TrackPoint> loadPage(boolean archived, @Nullable TrackPoint.Id afterTrackPointId) {
+        if (archived) {
+            return contentProviderUtils.getArchivedTrackPointsAfter(trackId, afterTrackPointId);
+        }
+
+        try (Cursor cursor = contentProviderUtils.getTrackPointCursorAfter(trackId, afterTrackPointId, pageSize, projection)) {
+            if (cursor == null) {
+                return Collections.emptyList();
+            }
+
+            List<TrackPoint> trackPoints = new ArrayList<>(cursor.getCount());
+            CachedTrackPointsIndexes indexes = new CachedTrackPointsIndexes(cursor);
+            while (cursor.moveToNext()) {
+                trackPoints.add(ContentProviderUtils.fillTrackPoint(cursor, indexes));
+            }
+            return trackPoints;
+        }
     }
 
     /**
-     * Advances the cursor to the next batch. Returns true if successful.
+     * Starts loading the next page in the background, if the current page is full (i.e., there may be more trackPoints).
+     * For archived tracks, every non-empty page may be followed by another one.
      */
-    private boolean advanceCursorToNextBatch() {
-        TrackPoint.Id trackPointId = lastTrackPointId == null ? null : new TrackPoint.Id(lastTrackPointId.getId() + 1);
-        Log.d(TAG, "Advancing track point id: " + trackPointId);
-        cursor.close();
-        cursor = getCursor(trackPointId);
-        return cursor != null;
+    private void prefetchNextPage() {
+        if (archived ? page.isEmpty() : page.size() < pageSize) {
+            nextPage = null;
+            return;
+        }
+
+        boolean loadArchived = archived;
+        TrackPoint.Id afterTrackPointId = lastTrackPointId;
+        nextPage = PREFETCH_EXECUTOR.submit(() -> loadPage(loadArchived, afterTrackPointId));
     }
 
-    @Override
-    public boolean hasNext() {
-        if (cursor == null) {
-            return false;
+    private void setPage(List<TrackPoint> page) {
+        this.page = page;
+        pageIndex = 0;
+        if (page != null && !page.isEmpty()) {
+            lastTrackPointId = page.get(page.size() - 1).getId();
         }
-        if (cursor.isAfterLast()) {
+    }
+
+    /**
+     * Continues with the other table, if the track was archived or restored meanwhile (i.e., the current table has no more trackPoints).
+     *
+     * @return true if the trackPoints are loaded from the other table now
+     */
+    private boolean switchTableIfChanged() {
+        boolean isArchived = contentProviderUtils.isTrackArchived(trackId);
+        if (isArchived == archived) {
             return false;
         }
-        if (cursor.isLast()) {
-            if (cursor.getCount() != contentProviderUtils.getDefaultCursorBatchSize()) {
-                return false;
+        Log.d(TAG, "Track " + trackId.getId() + " was " + (isArchived ? "archived" : "restored") + " while iterating.");
+        archived = isArchived;
+        setPage(loadPage(archived, lastTrackPointId));
+        prefetchNextPage();
+        return true;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (page != null && pageIndex >= page.size()) {
+            if (nextPage == null) {
+                if (!switchTableIfChanged()) {
+                    return false;
+                }
+                continue;
             }
-            return advanceCursorToNextBatch() && !cursor.isAfterLast();
+            setPage(awaitNextPage());
+            prefetchNextPage();
+        }
+        return page != null;
+    }
+
+    private List<TrackPoint> awaitNextPage() {
+        try {
+            return nextPage.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not load trackPoints of track " + trackId, e.getCause());
+        } catch (InterruptedException | CancellationException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Loading trackPoints of track " + trackId + " was interrupted", e);
         }
-        return true;
     }
 
     @Override
     public TrackPoint next() {
-        if (cursor == null) {
+        if (!hasNext()) {
             throw new NoSuchElementException();
         }
-        if (!cursor.moveToNext()) {
-            if (!advanceCursorToNextBatch() || !cursor.moveToNext()) {
-                throw new NoSuchElementException();
-            }
-        }
-        lastTrackPointId = new TrackPoint.Id(cursor.getLong(indexes.idIndex));
-        return ContentProviderUtils.fillTrackPoint(cursor, indexes);
+        return page.get(pageIndex++);
     }
 
     @Override
     public void close() {
-        if (cursor != null) {
-            cursor.close();
-            cursor = null;
+        if (nextPage != null) {
+            nextPage.cancel(false);
+            nextPage = null;
         }
+        page = null;
     }
 
     @Override
     public void remove() {
         throw new UnsupportedOperationException();
     }
-}
\ No newline at end of file
+}
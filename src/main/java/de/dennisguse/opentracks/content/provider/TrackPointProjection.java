@@ -0,0 +1,50 @@
+package de.dennisguse.opentracks.content.provider;
+
+import androidx.annotation.Nullable;
+
+import de.dennisguse.opentracks.content.data.TrackPoint;
+import de.dennisguse.opentracks.content.data.TrackPointsColumns;
+
+/**
+ * The columns of {@link TrackPointsColumns} loaded into a {@link TrackPoint}; the other properties remain unset.
+ * Loading only the needed columns reduces the data copied per row and fits more rows into one {@link android.database.CursorWindow}.
+ * <p>
+ * Archived trackPoints are always decoded completely.
+ */
+public enum TrackPointProjection {
+
+    /**
+     * Time and location (e.g., for maps and distances).
+     */
+    LOCATION(TrackPointsColumns._ID, TrackPointsColumns.TYPE, TrackPointsColumns.TIME, TrackPointsColumns.LATITUDE, TrackPointsColumns.LONGITUDE),
+
+    /**
+     * Time, location, altitude, and elevation gain/loss (e.g., for {@link de.dennisguse.opentracks.viewmodels.IntervalStatistics}).
+     */
+    LOCATION_ELEVATION(TrackPointsColumns._ID, TrackPointsColumns.TYPE, TrackPointsColumns.TIME, TrackPointsColumns.LATITUDE, TrackPointsColumns.LONGITUDE,
+            TrackPointsColumns.ALTITUDE, TrackPointsColumns.ELEVATION_GAIN, TrackPointsColumns.ELEVATION_LOSS),
+
+    /**
+     * Time and sensor data (i.e., heart rate, cadence, and power).
+     */
+    SENSORS(TrackPointsColumns._ID, TrackPointsColumns.TYPE, TrackPointsColumns.TIME, TrackPointsColumns.SENSOR_HEARTRATE, TrackPointsColumns.SENSOR_CADENCE, TrackPointsColumns.SENSOR_POWER),
+
+    /**
+     * All columns.
+     */
+    FULL();
+
+    private final String[] columns;
+
+    TrackPointProjection(String... columns) {
+        this.columns = columns;
+    }
+
+    /**
+     * @return the projection for queries; null for all columns
+     */
+    @Nullable
+    String[] getColumns() {
+        return columns.length > 0 ? columns.clone() : null;
+    }
+}
@@ -29,6 +29,7 @@ import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentActivity;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 import de.dennisguse.opentracks.R;
@@ -37,6 +38,8 @@ import de.dennisguse.opentracks.chart.ChartPoint;
 import de.dennisguse.opentracks.chart.ChartView;
 import de.dennisguse.opentracks.content.TrackDataHub;
 import de.dennisguse.opentracks.content.TrackDataListener;
+import de.dennisguse.opentracks.content.TrackPointBatch;
+import de.dennisguse.opentracks.content.TrackPointSampler;
 import de.dennisguse.opentracks.content.data.Marker;
 import de.dennisguse.opentracks.content.data.Track;
 import de.dennisguse.opentracks.content.data.TrackPoint;
@@ -223,6 +226,23 @@ public class ChartFragment extends Fragment implements TrackDataListener {
         }
     }
 
+    /**
+     * The chart only keeps the sampled in trackPoints; it chooses the resolution depending on zoom (see {@link ChartView}).
+     * The sampled out trackPoints are only used for the statistics.
+     */
+    @Override
+    public void onTrackPoints(TrackPointBatch batch) {
+        if (isResumed()) {
+            for (int i = 0; i < batch.size(); i++) {
+                if (batch.isSampledIn(i)) {
+                    pendingPoints.add(createPendingPoint(batch.get(i)));
+                } else {
+                    trackStatisticsUpdater.addTrackPoint(batch.get(i), recordingDistanceInterval);
+                }
+            }
+        }
+    }
+
     @Override
     public void onSampledInTrackPoint(TrackPoint trackPoint) {
         if (isResumed()) {
@@ -233,9 +253,17 @@ public class ChartFragment extends Fragment implements TrackDataListener {
     @Override
     public void onSampledOutTrackPoint(TrackPoint trackPoint) {
         if (isResumed()) {
-            if (trackStatisticsUpdater != null) {
-                trackStatisticsUpdater.addTrackPoint(trackPoint, recordingDistanceInterval);
-            }
+            trackStatisticsUpdater.addTrackPoint(trackPoint, recordingDistanceInterval);
+        }
+    }
+
+    @Override
+    public void onSampledInTrackPointsDecimated(BitSet keptPositions) {
+        if (isResumed()) {
+            // The kept positions include the pending points.
+            chartView.addChartPoints(pendingPoints);
+            pendingPoints.clear();
+            chartView.decimateChartPoints(keptPositions);
         }
     }
 
@@ -285,7 +313,7 @@ public class ChartFragment extends Fragment implements TrackDataListener {
      */
     private synchronized void resumeTrackDataHub() {
         trackDataHub = ((TrackActivityDataHubInterface) getActivity()).getTrackDataHub();
-        trackDataHub.registerTrackDataListener(this, true, true, true, true);
+        trackDataHub.registerTrackDataListener(this, true, true, true, true, TrackPointSampler.Type.LTTB);
     }
 
     /**
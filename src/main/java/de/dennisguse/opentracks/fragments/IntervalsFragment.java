@@ -15,11 +15,14 @@ import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentActivity;
 
+import java.util.BitSet;
+
 import de.dennisguse.opentracks.R;
 import de.dennisguse.opentracks.TrackActivityDataHubInterface;
 import de.dennisguse.opentracks.adapters.IntervalStatisticsAdapter;
 import de.dennisguse.opentracks.content.TrackDataHub;
 import de.dennisguse.opentracks.content.TrackDataListener;
+import de.dennisguse.opentracks.content.TrackPointBatch;
 import de.dennisguse.opentracks.content.data.Marker;
 import de.dennisguse.opentracks.content.data.Track;
 import de.dennisguse.opentracks.content.data.TrackPoint;
@@ -197,6 +200,13 @@ public class IntervalsFragment extends Fragment implements TrackDataListener {
         }
     }
 
+    @Override
+    public void onTrackPoints(TrackPointBatch batch) {
+        if (isResumed()) {
+            viewModel.addAll(batch.getTrackPoints());
+        }
+    }
+
     @Override
     public void onSampledInTrackPoint(TrackPoint trackPoint) {
         if (isResumed()) {
@@ -211,6 +221,11 @@ public class IntervalsFragment extends Fragment implements TrackDataListener {
         }
     }
 
+    @Override
+    public void onSampledInTrackPointsDecimated(BitSet keptPositions) {
+        // We get all track points (sampled in and out).
+    }
+
     @Override
     public void onNewTrackPointsDone() {
         if (isResumed()) {
@@ -16,6 +16,7 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
 
 import de.dennisguse.opentracks.R;
@@ -23,6 +24,7 @@ import de.dennisguse.opentracks.TrackRecordingActivity;
 import de.dennisguse.opentracks.adapters.SensorsAdapter;
 import de.dennisguse.opentracks.content.TrackDataHub;
 import de.dennisguse.opentracks.content.TrackDataListener;
+import de.dennisguse.opentracks.content.TrackPointBatch;
 import de.dennisguse.opentracks.content.data.Marker;
 import de.dennisguse.opentracks.content.data.Track;
 import de.dennisguse.opentracks.content.data.TrackPoint;
@@ -173,6 +175,11 @@ public class StatisticsRecordingFragment extends Fragment implements TrackDataLi
         lastTrackPoint = null;
     }
 
+    @Override
+    public void onTrackPoints(TrackPointBatch batch) {
+        lastTrackPoint = batch.getLast();
+    }
+
     @Override
     public void onSampledInTrackPoint(TrackPoint trackPoint) {
         lastTrackPoint = trackPoint;
@@ -183,6 +190,11 @@ public class StatisticsRecordingFragment extends Fragment implements TrackDataLi
         lastTrackPoint = trackPoint;
     }
 
+    @Override
+    public void onSampledInTrackPointsDecimated(BitSet keptPositions) {
+        // We only need the last track point.
+    }
+
     @Override
     public void onNewTrackPointsDone() {
         if (isResumed()) {
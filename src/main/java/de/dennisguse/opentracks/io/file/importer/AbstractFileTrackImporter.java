@@ -44,6 +44,7 @@ import de.dennisguse.opentracks.content.data.Track;
 import de.dennisguse.opentracks.content.data.TrackPoint;
 import de.dennisguse.opentracks.content.provider.ContentProviderUtils;
 import de.dennisguse.opentracks.content.provider.TrackPointIterator;
+import de.dennisguse.opentracks.stats.SensorAggregates;
 import de.dennisguse.opentracks.stats.TrackStatisticsUpdater;
 import de.dennisguse.opentracks.util.FileUtils;
 import de.dennisguse.opentracks.util.LocationUtils;
@@ -248,14 +249,17 @@ abstract class AbstractFileTrackImporter extends DefaultHandler implements Track
         }
 
         TrackStatisticsUpdater statistics = new TrackStatisticsUpdater();
+        SensorAggregates sensorAggregates = new SensorAggregates();
         //TODO I guess, we should not filter by recordingDistanceInterval on import; the data is already recorded, so we should not change it.
         for (TrackPoint trackPoint : trackData.bufferedTrackPoints) {
             statistics.addTrackPoint(trackPoint, recordingDistanceInterval);
+            sensorAggregates.add(trackPoint);
         }
         if (!statistics.isTrackInitialized()) {
             throw new ImportParserException("Track did not contain any locations.");
         }
         trackData.track.setTrackStatistics(statistics.getTrackStatistics());
+        trackData.track.setSensorAggregates(sensorAggregates);
 
         Track track = contentProviderUtils.getTrack(trackData.track.getUuid());
         if (track != null) {
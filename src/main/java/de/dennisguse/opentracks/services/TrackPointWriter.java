@@ -0,0 +1,178 @@
+package de.dennisguse.opentracks.services;
+
+import android.database.sqlite.SQLiteException;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import de.dennisguse.opentracks.content.data.Track;
+import de.dennisguse.opentracks.content.data.TrackPoint;
+import de.dennisguse.opentracks.content.data.TrackStatisticsCheckpoint;
+import de.dennisguse.opentracks.content.provider.ContentProviderUtils;
+import de.dennisguse.opentracks.stats.TrackStatistics;
+import de.dennisguse.opentracks.stats.TrackStatisticsUpdater;
+
+/**
+ * Buffers the {@link TrackPoint}s of the recording track and stores them together with the track's {@link TrackStatistics} as one transaction (group commit).
+ * <p>
+ * A commit is done if
+ * * {@link #MAX_BUFFERED_TRACKPOINTS} are buffered,
+ * * the oldest buffered {@link TrackPoint} was buffered {@link #MAX_BUFFER_DURATION} ago,
+ * * a segment starts or ends (i.e., start, pause, resume, and stop) or the first {@link TrackPoint} of a segment is inserted, or
+ * * {@link #flush()} is called.
+ * So, at most {@link #MAX_BUFFER_DURATION} of a recording is lost if the process gets killed.
+ * If a commit fails, the {@link TrackPoint}s remain buffered and are committed with the next commit.
+ * <p>
+ * A checkpoint of the {@link TrackStatisticsUpdater} is stored after the commit of the {@link TrackPoint} it was taken at (i.e., when that trackPoint has an id).
+ * <p>
+ * The timed commit runs on the recording executor (i.e., the thread inserting the {@link TrackPoint}s of the location updates); so, the UI thread does not wait for the database.
+ * The buffer is guarded by this object's lock ({@link TrackPoint}s are also inserted from the main thread on start/pause/stop).
+ * The {@link Track} is read by a commit without copying it; so, it must only be modified while holding this object's lock.
+ */
+class TrackPointWriter {
+
+    private static final String TAG = TrackPointWriter.class.getSimpleName();
+
+    @VisibleForTesting
+    static final int MAX_BUFFERED_TRACKPOINTS = 10;
+
+    @VisibleForTesting
+    static final Duration MAX_BUFFER_DURATION = Duration.ofSeconds(10);
+
+    private final ContentProviderUtils contentProviderUtils;
+    private final ScheduledExecutorService executor;
+    private final Runnable flushRunnable = this::flushQuietly;
+    private ScheduledFuture<?> scheduledFlush;
+
+    private final List<TrackPoint> buffer = new ArrayList<>(MAX_BUFFERED_TRACKPOINTS);
+    // The track (incl. statistics) to be stored with the next commit.
+    private Track track;
+    // Elapsed realtime when the oldest buffered TrackPoint was inserted.
+    private long bufferStartRealtime;
+    // The last inserted TrackPoint (buffered or committed).
+    private TrackPoint lastInsertedTrackPoint;
+    // The checkpoint to be stored once its TrackPoint was committed.
+    private TrackPoint checkpointTrackPoint;
+    private int checkpointMinRecordingDistance;
+    private byte[] checkpoint;
+    private byte[] checkpointIntervals;
+
+    /**
+     * @param executor runs the timed commit; should be the executor inserting the trackPoints.
+     */
+    TrackPointWriter(@NonNull ContentProviderUtils contentProviderUtils, @NonNull ScheduledExecutorService executor) {
+        this.contentProviderUtils = contentProviderUtils;
+        this.executor = executor;
+    }
+
+    /**
+     * Inserts a trackPoint; it may be buffered.
+     *
+     * @param track      the track containing the current {@link TrackStatistics}; must have an id.
+     * @param trackPoint the trackPoint
+     * @throws SQLiteException if a commit was necessary and failed.
+     */
+    synchronized void insertTrackPoint(@NonNull Track track, @NonNull TrackPoint trackPoint) {
+        if (this.track != null && !this.track.getId().equals(track.getId())) {
+            flush();
+        }
+
+        boolean commitImmediately = trackPoint.getType() != TrackPoint.Type.TRACKPOINT
+                || lastInsertedTrackPoint == null
+                || lastInsertedTrackPoint.isSegmentStart();
+
+        if (buffer.isEmpty()) {
+            bufferStartRealtime = SystemClock.elapsedRealtime();
+            if (!commitImmediately && !executor.isShutdown()) {
+                scheduledFlush = executor.schedule(flushRunnable, MAX_BUFFER_DURATION.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+        buffer.add(trackPoint);
+        this.track = track;
+        lastInsertedTrackPoint = trackPoint;
+
+        if (commitImmediately
+                || buffer.size() >= MAX_BUFFERED_TRACKPOINTS
+                || SystemClock.elapsedRealtime() - bufferStartRealtime >= MAX_BUFFER_DURATION.toMillis()) {
+            flush();
+        }
+    }
+
+    /**
+     * Sets the checkpoint to be stored after trackPoint was committed; replaces a checkpoint that was not stored yet.
+     *
+     * @param trackPoint           the last trackPoint added to the {@link TrackStatisticsUpdater}; (to be) inserted via {@link #insertTrackPoint(Track, TrackPoint)}
+     * @param minRecordingDistance the min recording distance used by the {@link TrackStatisticsUpdater}
+     * @param checkpoint           see {@link TrackStatisticsUpdater#toCheckpoint()}
+     * @param intervals            see {@link TrackRecordingSession#intervalsToCheckpoint()}
+     */
+    synchronized void setStatisticsCheckpoint(@NonNull TrackPoint trackPoint, int minRecordingDistance, @NonNull byte[] checkpoint, @Nullable byte[] intervals) {
+        this.checkpointTrackPoint = trackPoint;
+        this.checkpointMinRecordingDistance = minRecordingDistance;
+        this.checkpoint = checkpoint;
+        this.checkpointIntervals = intervals;
+        insertStatisticsCheckpoint();
+    }
+
+    /**
+     * Commits all buffered {@link TrackPoint}s and the track's {@link TrackStatistics}.
+     *
+     * @throws SQLiteException if the commit failed.
+     */
+    synchronized void flush() {
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        if (buffer.isEmpty()) {
+            return;
+        }
+
+        contentProviderUtils.insertTrackPointsAndUpdateTrackStatistics(buffer, track);
+        buffer.clear();
+        insertStatisticsCheckpoint();
+    }
+
+    /**
+     * Stores the checkpoint if its trackPoint was committed; a failure only loses the checkpoint.
+     */
+    private void insertStatisticsCheckpoint() {
+        if (checkpoint == null || checkpointTrackPoint.getId() == null || track == null) {
+            return;
+        }
+        try {
+            contentProviderUtils.insertTrackStatisticsCheckpoint(track.getId(), new TrackStatisticsCheckpoint(checkpointTrackPoint.getId(), checkpointMinRecordingDistance, checkpoint, checkpointIntervals));
+        } catch (SQLiteException e) {
+            Log.w(TAG, "Could not store statistics checkpoint.", e);
+        }
+        checkpointTrackPoint = null;
+        checkpoint = null;
+        checkpointIntervals = null;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLiteException e) {
+            Log.w(TAG, "Could not commit buffered trackPoints; will retry with the next commit.", e);
+        }
+    }
+
+    /**
+     * Flushes and forgets the current segment; to be called if recording was paused or stopped.
+     */
+    synchronized void close() {
+        lastInsertedTrackPoint = null;
+        flush();
+    }
+}
@@ -32,6 +32,7 @@ import android.os.PowerManager.WakeLock;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.core.app.TaskStackBuilder;
 
@@ -39,6 +40,9 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 import de.dennisguse.opentracks.R;
 import de.dennisguse.opentracks.TrackListActivity;
@@ -46,9 +50,11 @@ import de.dennisguse.opentracks.TrackRecordingActivity;
 import de.dennisguse.opentracks.content.data.Marker;
 import de.dennisguse.opentracks.content.data.Track;
 import de.dennisguse.opentracks.content.data.TrackPoint;
+import de.dennisguse.opentracks.content.data.TrackStatisticsCheckpoint;
 import de.dennisguse.opentracks.content.provider.ContentProviderUtils;
 import de.dennisguse.opentracks.content.provider.CustomContentProvider;
 import de.dennisguse.opentracks.content.provider.TrackPointIterator;
+import de.dennisguse.opentracks.content.provider.TrackPointProjection;
 import de.dennisguse.opentracks.content.sensor.SensorDataSet;
 import de.dennisguse.opentracks.io.file.exporter.ExportServiceResultReceiver;
 import de.dennisguse.opentracks.services.handlers.GpsStatusValue;
@@ -67,6 +73,7 @@ import de.dennisguse.opentracks.util.SystemUtils;
 import de.dennisguse.opentracks.util.TrackIconUtils;
 import de.dennisguse.opentracks.util.TrackNameUtils;
 import de.dennisguse.opentracks.util.TrackPointUtils;
+import de.dennisguse.opentracks.viewmodels.IntervalStatistics;
 
 /**
  * A background service that registers a location listener and records track points.
@@ -78,8 +85,15 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
 
     private static final String TAG = TrackRecordingService.class.getSimpleName();
 
+    // Archives, checkpoints and exports finished tracks; outlives the service as it may be destroyed right after ending a track.
+    private static final ExecutorService FINISHED_TRACK_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "FinishedTrack"));
+
+    // Serializes archiving finished tracks (in the background) and resuming tracks (also across service instances).
+    private static final Object ARCHIVE_LOCK = new Object();
+
     // The following variables are set in onCreate:
     private ContentProviderUtils contentProviderUtils;
+    private TrackPointWriter trackPointWriter;
     private PeriodicTaskExecutor voiceExecutor;
     private TrackRecordingServiceNotificationManager notificationManager;
 
@@ -125,12 +139,14 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
     private ElevationSumManager elevationSumManager;
 
     private TrackStatisticsUpdater trackStatisticsUpdater;
-    private TrackPoint lastTrackPoint;
-    private boolean isIdle;
+    // Volatile: read by announcements from another thread.
+    private volatile TrackRecordingSession recordingSession;
 
     private TrackRecordingServiceBinder binder = new TrackRecordingServiceBinder(this);
 
     private HandlerServer handlerServer;
+    // Processes the location updates and runs the timed commit of the trackPointWriter.
+    private ScheduledExecutorService recordingExecutor;
 
     private List<TrackRecordingServiceCallback> listeners = new ArrayList<>();
 
@@ -138,9 +154,11 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
     public void onCreate() {
         super.onCreate();
 
-        handlerServer = new HandlerServer(this);
+        recordingExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> new Thread(runnable, "TrackRecording"));
+        handlerServer = new HandlerServer(this, recordingExecutor);
 
         contentProviderUtils = new ContentProviderUtils(this);
+        trackPointWriter = new TrackPointWriter(contentProviderUtils, recordingExecutor);
         voiceExecutor = new PeriodicTaskExecutor(this, new AnnouncementPeriodicTaskFactory());
 
         notificationManager = new TrackRecordingServiceNotificationManager(this);
@@ -190,6 +208,16 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
         // Reverse order from onCreate
         showNotification(false); //TODO Why?
 
+        recordingExecutor.shutdownNow();
+        recordingExecutor = null;
+
+        try {
+            trackPointWriter.flush();
+        } catch (SQLiteException e) {
+            Log.e(TAG, "Could not commit buffered trackPoints.", e);
+        }
+        trackPointWriter = null;
+
         PreferencesUtils.unregister(this, sharedPreferenceChangeListener);
 
 
@@ -229,6 +257,18 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
         return trackStatisticsUpdater.getTrackStatistics();
     }
 
+    /**
+     * @return the last completed interval (1km or 1mi) of the recording track or null
+     */
+    @Nullable
+    public IntervalStatistics.Interval getLastInterval(boolean metricUnits) {
+        TrackRecordingSession recordingSession = this.recordingSession;
+        if (recordingSession == null) {
+            return null;
+        }
+        return recordingSession.getLastInterval(metricUnits);
+    }
+
     //TODO Throw exception, when not recording.
     public Duration getTotalTime() {
         if (trackStatisticsUpdater == null) {
@@ -256,12 +296,19 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
             name = getString(R.string.marker_name_format, nextMarkerNumber + 1);
         }
 
-        TrackPoint trackPoint = getLastValidTrackPointInCurrentSegment(recordingTrackId);
+        TrackPoint trackPoint = getLastValidTrackPointInCurrentSegment();
         if (trackPoint == null) {
             Log.i(TAG, "Could not create a marker as trackPoint is unknown.");
             return null;
         }
 
+        // Markers should not refer to trackPoints that are not yet stored.
+        try {
+            trackPointWriter.flush();
+        } catch (SQLiteException e) {
+            Log.w(TAG, "SQLiteException", e);
+        }
+
         category = category != null ? category : "";
         description = description != null ? description : "";
         String icon = getString(R.string.marker_icon_url);
@@ -298,10 +345,11 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
 
         // Update database
         track.setId(trackId);
+        recordingSession = new TrackRecordingSession(track);
 
         TrackPoint segmentStartTrackPoint = TrackPoint.createSegmentStartManual();
         trackStatisticsUpdater = new TrackStatisticsUpdater();
-        insertTrackPoint(track, segmentStartTrackPoint);
+        insertTrackPoint(segmentStartTrackPoint);
 
         //TODO Pass TrackPoint
         track.setName(TrackNameUtils.getTrackName(this, trackId, segmentStartTrackPoint.getTime()));
@@ -323,20 +371,37 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
      * @param trackId the id of the track to be resumed.
      */
     void resumeTrack(Track.Id trackId) {
-        Track track = contentProviderUtils.getTrack(trackId);
-        if (track == null) {
-            Log.e(TAG, "Ignore resumeTrack. Track " + trackId.getId() + " does not exists.");
-            return;
-        }
+        synchronized (ARCHIVE_LOCK) {
+            Track track = contentProviderUtils.getTrack(trackId);
+            if (track == null) {
+                Log.e(TAG, "Ignore resumeTrack. Track " + trackId.getId() + " does not exists.");
+                return;
+            }
+
+            try {
+                contentProviderUtils.restoreArchivedTrack(trackId);
+            } catch (SQLiteException e) {
+                Log.e(TAG, "Ignore resumeTrack. Could not restore archived track " + trackId.getId(), e);
+                return;
+            }
 
-        // Sync the real time setting the stop time with current time.
-        track.getTrackStatistics().setStopTime(Instant.now());
-        trackStatisticsUpdater = new TrackStatisticsUpdater(track.getTrackStatistics());
+            recordingSession = new TrackRecordingSession(track);
+            trackStatisticsUpdater = restoreFromStatisticsCheckpoint(recordingSession);
+            if (trackStatisticsUpdater != null) {
+                // The resumed segment starts now; the checkpoint may still contain the last segment.
+                trackStatisticsUpdater.resetSegment();
+            } else {
+                // Sync the real time setting the stop time with current time.
+                track.getTrackStatistics().setStopTime(Instant.now());
+                trackStatisticsUpdater = new TrackStatisticsUpdater(track.getTrackStatistics());
+                addToIntervals(recordingSession);
+            }
 
-        insertTrackPoint(track, TrackPoint.createSegmentStartManual());
+            insertTrackPoint(TrackPoint.createSegmentStartManual());
 
-        // Update shared preferences.
-        updateRecordingState(trackId, false);
+            // Update shared preferences.
+            updateRecordingState(trackId, false);
+        }
 
         startRecording();
     }
@@ -357,16 +422,71 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
 
         Log.d(TAG, "Restarting track: " + track.getId());
 
-        trackStatisticsUpdater = new TrackStatisticsUpdater();
-
-        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(track.getId(), null)) {
-            trackStatisticsUpdater.addTrackPoint(trackPointIterator, recordingDistanceInterval);
+        recordingSession = new TrackRecordingSession(track);
+        try {
+            trackStatisticsUpdater = restoreFromStatisticsCheckpoint(recordingSession);
+            if (trackStatisticsUpdater == null) {
+                trackStatisticsUpdater = new TrackStatisticsUpdater();
+                try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(track.getId(), null)) {
+                    while (trackPointIterator.hasNext()) {
+                        TrackPoint trackPoint = trackPointIterator.next();
+                        trackStatisticsUpdater.addTrackPoint(trackPoint, recordingDistanceInterval);
+                        recordingSession.addToIntervals(trackPoint);
+                    }
+                }
+            }
         } catch (RuntimeException e) {
             Log.e(TAG, "RuntimeException", e);
+            if (trackStatisticsUpdater == null) {
+                trackStatisticsUpdater = new TrackStatisticsUpdater();
+            }
         }
         startRecording();
     }
 
+    /**
+     * Restores the {@link TrackStatisticsUpdater} and the intervals of the recordingSession from the track's last checkpoint and adds the trackPoints stored after it.
+     * The intervals are computed from all trackPoints if the checkpoint does not contain them.
+     *
+     * @return null if the track has no usable checkpoint for the current recording distance interval; the recordingSession is unchanged then.
+     */
+    @Nullable
+    private TrackStatisticsUpdater restoreFromStatisticsCheckpoint(@NonNull TrackRecordingSession recordingSession) {
+        Track.Id trackId = recordingSession.getTrackId();
+        TrackStatisticsCheckpoint checkpoint = contentProviderUtils.getTrackStatisticsCheckpoint(trackId, recordingDistanceInterval);
+        if (checkpoint == null) {
+            return null;
+        }
+        TrackStatisticsUpdater updater = TrackStatisticsUpdater.fromCheckpoint(checkpoint.getData());
+        if (updater == null) {
+            return null;
+        }
+
+        boolean intervalsRestored = checkpoint.getIntervals() != null && recordingSession.restoreIntervals(checkpoint.getIntervals());
+        if (!intervalsRestored) {
+            addToIntervals(recordingSession);
+        }
+
+        TrackPoint.Id nextTrackPointId = new TrackPoint.Id(checkpoint.getTrackPointId().getId() + 1);
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(trackId, nextTrackPointId)) {
+            while (trackPointIterator.hasNext()) {
+                TrackPoint trackPoint = trackPointIterator.next();
+                updater.addTrackPoint(trackPoint, recordingDistanceInterval);
+                if (intervalsRestored) {
+                    recordingSession.addToIntervals(trackPoint);
+                }
+            }
+        }
+        return updater;
+    }
+
+    /**
+     * Adds all stored trackPoints to the intervals of the recordingSession; read into a buffer without creating a {@link TrackPoint} per row.
+     */
+    private void addToIntervals(@NonNull TrackRecordingSession recordingSession) {
+        recordingSession.addToIntervals(contentProviderUtils.readTrackPoints(recordingSession.getTrackId(), TrackPointProjection.LOCATION_ELEVATION));
+    }
+
     void resumeCurrentTrack() {
         if (!isRecording() || !isPaused()) {
             Log.d(TAG, "Ignore resumeCurrentTrack. Not recording or not paused.");
@@ -376,9 +496,8 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
         updateRecordingState(recordingTrackId, false);
 
         // Update database
-        Track track = contentProviderUtils.getTrack(recordingTrackId);
-        if (track != null) {
-            insertTrackPoint(track, TrackPoint.createSegmentStartManual());
+        if (recordingSession != null) {
+            insertTrackPoint(TrackPoint.createSegmentStartManual());
         }
 
         startRecording();
@@ -395,8 +514,9 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
         elevationSumManager = new ElevationSumManager();
         elevationSumManager.start(this);
 
-        lastTrackPoint = null;
-        isIdle = false;
+        if (recordingSession != null) {
+            recordingSession.resetSegment();
+        }
 
         startGps();
 
@@ -428,22 +548,61 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
 
         updateRecordingState(null, true);
 
-        if (!wasPause) {
+        if (!wasPause && recordingSession != null) {
             // Update database
-            Track track = contentProviderUtils.getTrack(trackId);
-            if (track != null) {
-                if (lastTrackPoint != null) {
-                    insertTrackPointIfNewer(track, lastTrackPoint);
-                }
-
-                insertTrackPoint(track, TrackPoint.createSegmentEnd());
+            TrackPoint lastTrackPoint = recordingSession.getLastTrackPoint();
+            if (lastTrackPoint != null) {
+                insertTrackPointIfNewer(lastTrackPoint);
             }
+
+            insertTrackPoint(TrackPoint.createSegmentEnd());
         }
 
         Track track = contentProviderUtils.getTrack(trackId);
-        ExportUtils.postWorkoutExport(this, track, new ExportServiceResultReceiver(new Handler(), this));
+        ExportServiceResultReceiver resultReceiver = new ExportServiceResultReceiver(new Handler(), this);
 
         endRecording(true);
+
+        boolean archive = PreferencesUtils.shouldArchiveFinishedTracks(this);
+        // The service may be destroyed before the work is done: do not use its fields.
+        Context context = getApplicationContext();
+        ContentProviderUtils finishedTrackContentProviderUtils = new ContentProviderUtils(context);
+        // Export afterwards, so the export does not read the trackPoints while they are moved or checkpointed.
+        FINISHED_TRACK_EXECUTOR.execute(() -> {
+            if (archive) {
+                archiveTrack(context, finishedTrackContentProviderUtils, trackId);
+            }
+            checkpointDatabase(finishedTrackContentProviderUtils);
+            ExportUtils.postWorkoutExport(context, track, resultReceiver);
+        });
+    }
+
+    /**
+     * Writes the changes of the recording from the write-ahead log into the database.
+     * Done once after recording instead of during recording (see {@link de.dennisguse.opentracks.content.provider.CustomSQLiteOpenHelper}).
+     */
+    private static void checkpointDatabase(ContentProviderUtils contentProviderUtils) {
+        try {
+            contentProviderUtils.checkpointDatabase();
+        } catch (SQLiteException e) {
+            Log.w(TAG, "Could not checkpoint the database.", e);
+        }
+    }
+
+    /**
+     * Archives the trackPoints of a finished track unless the track was resumed in the meantime.
+     */
+    private static void archiveTrack(Context context, ContentProviderUtils contentProviderUtils, Track.Id trackId) {
+        synchronized (ARCHIVE_LOCK) {
+            if (trackId.equals(PreferencesUtils.getRecordingTrackId(context))) {
+                return;
+            }
+            try {
+                contentProviderUtils.archiveTrack(trackId);
+            } catch (SQLiteException e) {
+                Log.e(TAG, "Could not archive track " + trackId.getId(), e);
+            }
+        }
     }
 
     void pauseCurrentTrack() {
@@ -455,12 +614,12 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
         updateRecordingState(recordingTrackId, true);
 
         // Update database
-        Track track = contentProviderUtils.getTrack(recordingTrackId);
-        if (track != null) {
+        if (recordingSession != null) {
+            TrackPoint lastTrackPoint = recordingSession.getLastTrackPoint();
             if (lastTrackPoint != null) {
-                insertTrackPointIfNewer(track, lastTrackPoint);
+                insertTrackPointIfNewer(lastTrackPoint);
             }
-            insertTrackPoint(track, TrackPoint.createSegmentEnd());
+            insertTrackPoint(TrackPoint.createSegmentEnd());
         }
 
         endRecording(false);
@@ -487,7 +646,18 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
             elevationSumManager = null;
         }
 
-        lastTrackPoint = null;
+        if (recordingSession != null) {
+            recordingSession.resetSegment();
+        }
+        if (trackStopped) {
+            recordingSession = null;
+        }
+
+        try {
+            trackPointWriter.close();
+        } catch (SQLiteException e) {
+            Log.e(TAG, "Could not commit buffered trackPoints.", e);
+        }
 
         handlerServer.stop(this);
 
@@ -513,18 +683,13 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
     /**
      * Gets the last valid track point in the current segment.
      *
-     * @param trackId the track id
      * @return the location or null
      */
-    private TrackPoint getLastValidTrackPointInCurrentSegment(Track.Id trackId) {
-        if (!currentSegmentHasTrackPoint()) {
+    private TrackPoint getLastValidTrackPointInCurrentSegment() {
+        if (recordingSession == null) {
             return null;
         }
-        return contentProviderUtils.getLastValidTrackPoint(trackId);
-    }
-
-    private boolean currentSegmentHasTrackPoint() {
-        return lastTrackPoint != null;
+        return recordingSession.getLastValidTrackPoint();
     }
 
     /**
@@ -549,8 +714,8 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
             return;
         }
 
-        Track track = contentProviderUtils.getTrack(recordingTrackId);
-        if (track == null) {
+        TrackRecordingSession session = recordingSession;
+        if (session == null) {
             Log.w(TAG, "Ignore newTrackPoint. No track.");
             return;
         }
@@ -559,65 +724,64 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
 
         notificationManager.updateTrackPoint(this, trackPoint, recordingGpsAccuracy);
 
-        //TODO Figure out how to avoid loading the lastValidTrackPoint from the database
-        TrackPoint lastValidTrackPoint = getLastValidTrackPointInCurrentSegment(track.getId());
+        TrackPoint lastValidTrackPoint = session.getLastValidTrackPoint();
 
         //Storing trackPoint
 
         // Always insert the first segment location
-        if (!currentSegmentHasTrackPoint()) {
-            insertTrackPoint(track, trackPoint);
-            lastTrackPoint = trackPoint;
+        if (!session.currentSegmentHasTrackPoint()) {
+            insertTrackPoint(trackPoint);
+            session.setLastTrackPoint(trackPoint);
             return;
         }
 
         double distanceToLastTrackLocation = trackPoint.distanceTo(lastValidTrackPoint);
         if (distanceToLastTrackLocation > maxRecordingDistance) {
-            insertTrackPointIfNewer(track, lastTrackPoint);
+            insertTrackPointIfNewer(session.getLastTrackPoint());
 
             trackPoint.setType(TrackPoint.Type.SEGMENT_START_AUTOMATIC);
-            insertTrackPoint(track, trackPoint);
+            insertTrackPoint(trackPoint);
 
-            isIdle = false;
-            lastTrackPoint = trackPoint;
+            session.setIdle(false);
+            session.setLastTrackPoint(trackPoint);
             return;
         }
 
         if (trackPoint.hasSensorData() || distanceToLastTrackLocation >= recordingDistanceInterval) {
-            insertTrackPointIfNewer(track, lastTrackPoint);
+            insertTrackPointIfNewer(session.getLastTrackPoint());
 
-            insertTrackPoint(track, trackPoint);
+            insertTrackPoint(trackPoint);
 
-            isIdle = false;
+            session.setIdle(false);
 
-            lastTrackPoint = trackPoint;
+            session.setLastTrackPoint(trackPoint);
             return;
         }
 
-        if (!isIdle && !TrackPointUtils.isMoving(trackPoint)) {
-            insertTrackPointIfNewer(track, lastTrackPoint);
+        if (!session.isIdle() && !TrackPointUtils.isMoving(trackPoint)) {
+            insertTrackPointIfNewer(session.getLastTrackPoint());
 
-            insertTrackPoint(track, trackPoint);
+            insertTrackPoint(trackPoint);
 
-            isIdle = true;
+            session.setIdle(true);
 
-            lastTrackPoint = trackPoint;
+            session.setLastTrackPoint(trackPoint);
             return;
         }
 
-        if (isIdle && TrackPointUtils.isMoving(trackPoint)) {
-            insertTrackPointIfNewer(track, lastTrackPoint);
+        if (session.isIdle() && TrackPointUtils.isMoving(trackPoint)) {
+            insertTrackPointIfNewer(session.getLastTrackPoint());
 
-            insertTrackPoint(track, trackPoint);
+            insertTrackPoint(trackPoint);
 
-            isIdle = false;
+            session.setIdle(false);
 
-            lastTrackPoint = trackPoint;
+            session.setLastTrackPoint(trackPoint);
             return;
         }
 
         Log.d(TAG, "Not recording TrackPoint, idle");
-        lastTrackPoint = trackPoint;
+        session.setLastTrackPoint(trackPoint);
     }
 
     @Override
@@ -637,42 +801,49 @@ public class TrackRecordingService extends Service implements HandlerServer.Hand
     /**
      * Inserts a trackPoint if this trackPoint is different than lastValidTrackPoint.
      *
-     * @param track      the track
      * @param trackPoint the trackPoint
      */
-    private void insertTrackPointIfNewer(@NonNull Track track, @NonNull TrackPoint trackPoint) {
-        TrackPoint lastValidTrackPoint = getLastValidTrackPointInCurrentSegment(track.getId());
+    private void insertTrackPointIfNewer(@NonNull TrackPoint trackPoint) {
+        TrackPoint lastValidTrackPoint = getLastValidTrackPointInCurrentSegment();
         if (lastValidTrackPoint != null && trackPoint.getTime().equals(lastValidTrackPoint.getTime())) {
             // Do not insert if inserted already
             Log.w(TAG, "Ignore insertTrackPoint. trackPoint time same as last valid track point time.");
             return;
         }
 
-        insertTrackPoint(track, trackPoint);
+        insertTrackPoint(trackPoint);
     }
 
     /**
-     * Inserts a trackPoint.
+     * Inserts a trackPoint into the recording track and updates the track's statistics and sensor aggregates.
+     * Both are stored by {@link TrackPointWriter} (maybe delayed).
      *
-     * @param track      the track
      * @param trackPoint the trackPoint
      */
-    private void insertTrackPoint(@NonNull Track track, @NonNull TrackPoint trackPoint) {
+    private void insertTrackPoint(@NonNull TrackPoint trackPoint) {
+        Track track = recordingSession.getTrack();
         try {
             if (elevationSumManager != null) {
                 trackPoint.setElevationGain(elevationSumManager.getElevationGain_m());
                 trackPoint.setElevationLoss(elevationSumManager.getElevationLoss_m());
                 elevationSumManager.reset();
             }
-            contentProviderUtils.insertTrackPoint(trackPoint, track.getId());
             trackStatisticsUpdater.addTrackPoint(trackPoint, recordingDistanceInterval);
 
-            track.setTrackStatistics(trackStatisticsUpdater.getTrackStatistics());
-            contentProviderUtils.updateTrack(track);
+            // A commit of trackPointWriter (timed on the recording executor or started on the main thread) reads the track; so, it is only modified under the writer's lock.
+            synchronized (trackPointWriter) {
+                track.setTrackStatistics(trackStatisticsUpdater.getTrackStatistics());
+                track.getSensorAggregates().add(trackPoint);
+            }
+            recordingSession.onTrackPointInserted(trackPoint);
+            if (recordingSession.isStatisticsCheckpointDue(trackPoint)) {
+                trackPointWriter.setStatisticsCheckpoint(trackPoint, recordingDistanceInterval, trackStatisticsUpdater.toCheckpoint(), recordingSession.intervalsToCheckpoint());
+            }
+            trackPointWriter.insertTrackPoint(track, trackPoint);
         } catch (SQLiteException e) {
             /*
-             * Insert failed, most likely because of SqlLite error code 5 (SQLite_BUSY).
-             * This is expected to happen extremely rarely (if our listener gets invoked twice at about the same time).
+             * Commit failed, most likely because of SqlLite error code 5 (SQLite_BUSY).
+             * The trackPoints remain buffered and are stored with the next commit.
              */
             Log.w(TAG, "SQLiteException", e);
         }
@@ -0,0 +1,200 @@
+package de.dennisguse.opentracks.services;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import de.dennisguse.opentracks.content.data.Track;
+import de.dennisguse.opentracks.content.data.TrackPoint;
+import de.dennisguse.opentracks.content.data.TrackPointBuffer;
+import de.dennisguse.opentracks.util.UnitConversions;
+import de.dennisguse.opentracks.viewmodels.IntervalStatistics;
+
+/**
+ * In-memory state of the recording track.
+ * Avoids loading the {@link Track} and the last valid {@link TrackPoint} from the database for every new {@link TrackPoint}.
+ * It is only created from the database if an existing track is resumed or the {@link TrackRecordingService} was restarted.
+ * <p>
+ * Also keeps the last completed interval (1km and 1mi) for announcements; so, announcements do not load the track.
+ */
+class TrackRecordingSession {
+
+    private static final String TAG = TrackRecordingSession.class.getSimpleName();
+
+    // Interval checkpoints of other versions are ignored.
+    private static final int INTERVALS_CHECKPOINT_VERSION = 1;
+
+    // Number of trackPoints between two checkpoints of the TrackStatisticsUpdater; additionally, a checkpoint is stored at the end of each segment.
+    @VisibleForTesting
+    static final int STATISTICS_CHECKPOINT_INTERVAL = 1000;
+
+    @NonNull
+    private final Track track;
+
+    // The last received TrackPoint of the current segment; might not be stored.
+    private TrackPoint lastTrackPoint;
+
+    // The last stored TrackPoint of the current segment of type TRACKPOINT or SEGMENT_START_AUTOMATIC.
+    private TrackPoint lastValidTrackPoint;
+
+    private boolean isIdle;
+
+    private int trackPointsSinceStatisticsCheckpoint;
+
+    // Guarded by this: announcements read from another thread.
+    private IntervalStatistics metricIntervals = new IntervalStatistics((float) UnitConversions.KM_TO_M, 1);
+    private IntervalStatistics imperialIntervals = new IntervalStatistics((float) UnitConversions.MI_TO_M, 1);
+
+    TrackRecordingSession(@NonNull Track track) {
+        this.track = track;
+    }
+
+    @NonNull
+    Track getTrack() {
+        return track;
+    }
+
+    Track.Id getTrackId() {
+        return track.getId();
+    }
+
+    /**
+     * Resets the state of the current segment; to be called if a segment starts or ends.
+     */
+    void resetSegment() {
+        lastTrackPoint = null;
+        lastValidTrackPoint = null;
+        isIdle = false;
+    }
+
+    boolean currentSegmentHasTrackPoint() {
+        return lastTrackPoint != null;
+    }
+
+    @Nullable
+    TrackPoint getLastTrackPoint() {
+        return lastTrackPoint;
+    }
+
+    void setLastTrackPoint(TrackPoint lastTrackPoint) {
+        this.lastTrackPoint = lastTrackPoint;
+    }
+
+    /**
+     * Returns the last stored valid {@link TrackPoint} of the current segment or null.
+     */
+    @Nullable
+    TrackPoint getLastValidTrackPoint() {
+        if (!currentSegmentHasTrackPoint()) {
+            return null;
+        }
+        return lastValidTrackPoint;
+    }
+
+    /**
+     * To be called if a {@link TrackPoint} was stored.
+     */
+    void onTrackPointInserted(@NonNull TrackPoint trackPoint) {
+        addToIntervals(trackPoint);
+        switch (trackPoint.getType()) {
+            case TRACKPOINT:
+            case SEGMENT_START_AUTOMATIC:
+                lastValidTrackPoint = trackPoint;
+                break;
+            default:
+                lastValidTrackPoint = null;
+        }
+    }
+
+    /**
+     * Adds a stored {@link TrackPoint} to the intervals; e.g., to restore them from the database.
+     */
+    synchronized void addToIntervals(@NonNull TrackPoint trackPoint) {
+        metricIntervals.add(trackPoint);
+        imperialIntervals.add(trackPoint);
+    }
+
+    /**
+     * Adds stored trackPoints to the intervals without creating {@link TrackPoint}s.
+     */
+    synchronized void addToIntervals(@NonNull TrackPointBuffer trackPoints) {
+        metricIntervals.addAll(trackPoints);
+        imperialIntervals.addAll(trackPoints);
+    }
+
+    /**
+     * Serializes the intervals; stored with the checkpoints of the {@link de.dennisguse.opentracks.stats.TrackStatisticsUpdater}.
+     */
+    @NonNull
+    synchronized byte[] intervalsToCheckpoint() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(INTERVALS_CHECKPOINT_VERSION);
+            metricIntervals.writeTo(out);
+            imperialIntervals.writeTo(out);
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw.
+            throw new RuntimeException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Restores the intervals from {@link #intervalsToCheckpoint()}; the trackPoints stored afterwards still need to be added.
+     *
+     * @return false if the checkpoint could not be read; the intervals are unchanged then.
+     */
+    synchronized boolean restoreIntervals(@NonNull byte[] checkpoint) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(checkpoint))) {
+            int version = in.readInt();
+            if (version != INTERVALS_CHECKPOINT_VERSION) {
+                Log.w(TAG, "Ignoring intervals checkpoint of version " + version);
+                return false;
+            }
+            IntervalStatistics metricIntervals = IntervalStatistics.readFrom(in);
+            IntervalStatistics imperialIntervals = IntervalStatistics.readFrom(in);
+            this.metricIntervals = metricIntervals;
+            this.imperialIntervals = imperialIntervals;
+            return true;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Could not read intervals checkpoint", e);
+            return false;
+        }
+    }
+
+    /**
+     * @return the last completed interval (1km or 1mi) or null
+     */
+    @Nullable
+    synchronized IntervalStatistics.Interval getLastInterval(boolean metricUnits) {
+        return (metricUnits ? metricIntervals : imperialIntervals).getLastInterval();
+    }
+
+    /**
+     * Returns true if a checkpoint of the {@link de.dennisguse.opentracks.stats.TrackStatisticsUpdater} should be stored after trackPoint was added.
+     */
+    boolean isStatisticsCheckpointDue(@NonNull TrackPoint trackPoint) {
+        trackPointsSinceStatisticsCheckpoint++;
+        if (trackPointsSinceStatisticsCheckpoint >= STATISTICS_CHECKPOINT_INTERVAL || trackPoint.isSegmentEnd()) {
+            trackPointsSinceStatisticsCheckpoint = 0;
+            return true;
+        }
+        return false;
+    }
+
+    boolean isIdle() {
+        return isIdle;
+    }
+
+    void setIdle(boolean idle) {
+        isIdle = idle;
+    }
+}
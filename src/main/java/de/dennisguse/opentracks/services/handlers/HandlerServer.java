@@ -6,7 +6,6 @@ import android.content.SharedPreferences;
 import androidx.annotation.VisibleForTesting;
 
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 import de.dennisguse.opentracks.content.data.TrackPoint;
 
@@ -16,21 +15,28 @@ public class HandlerServer {
 
     private final LocationHandler locationHandler;
     private final HandlerServerInterface service;
-    private ExecutorService serviceExecutor;
-
-    public HandlerServer(HandlerServerInterface service) {
+    // Owned by the service; also used for the service's other recording work (e.g., the timed commit of TrackPointWriter).
+    private final ExecutorService serviceExecutor;
+    private volatile boolean started = false;
+
+    /**
+     * @param serviceExecutor the executor to call {@link HandlerServerInterface#newTrackPoint(TrackPoint, int)}
+     */
+    public HandlerServer(HandlerServerInterface service, ExecutorService serviceExecutor) {
         this.locationHandler = new LocationHandler(this);
         this.service = service;
+        this.serviceExecutor = serviceExecutor;
     }
 
     @VisibleForTesting
-    HandlerServer(LocationHandler locationHandler, HandlerServerInterface service) {
+    HandlerServer(LocationHandler locationHandler, HandlerServerInterface service, ExecutorService serviceExecutor) {
         this.locationHandler = locationHandler;
         this.service = service;
+        this.serviceExecutor = serviceExecutor;
     }
 
     public void start(Context context) {
-        serviceExecutor = Executors.newSingleThreadExecutor();
+        started = true;
 
         locationHandler.onStart(context);
         locationHandler.onSharedPreferenceChanged(context, null, null);
@@ -39,10 +45,7 @@ public class HandlerServer {
     public void stop(Context context) {
         locationHandler.onStop(context);
 
-        if (serviceExecutor != null) {
-            serviceExecutor.shutdownNow();
-        }
-        serviceExecutor = null;
+        started = false;
     }
 
     public void onSharedPreferenceChanged(Context context, SharedPreferences preferences, String key) {
@@ -50,7 +53,7 @@ public class HandlerServer {
     }
 
     public void sendTrackPoint(TrackPoint trackPoint, int recordingGpsAccuracy) {
-        if (serviceExecutor == null || serviceExecutor.isTerminated() || serviceExecutor.isShutdown()) {
+        if (!started || serviceExecutor.isShutdown()) {
             return;
         }
         serviceExecutor.execute(() -> service.newTrackPoint(trackPoint, recordingGpsAccuracy));
@@ -22,17 +22,16 @@ import android.speech.tts.TextToSpeech;
 import android.speech.tts.UtteranceProgressListener;
 import android.util.Log;
 
-import java.util.List;
+import androidx.annotation.Nullable;
+
 import java.util.Locale;
 
 import de.dennisguse.opentracks.content.data.Track;
-import de.dennisguse.opentracks.content.data.TrackPoint;
 import de.dennisguse.opentracks.content.provider.ContentProviderUtils;
 import de.dennisguse.opentracks.services.TrackRecordingService;
 import de.dennisguse.opentracks.stats.TrackStatistics;
 import de.dennisguse.opentracks.util.AnnouncementUtils;
 import de.dennisguse.opentracks.util.PreferencesUtils;
-import de.dennisguse.opentracks.util.UnitConversions;
 import de.dennisguse.opentracks.viewmodels.IntervalStatistics;
 
 /**
@@ -132,15 +131,16 @@ public class AnnouncementPeriodicTask implements PeriodicTask {
             Log.e(TAG, "TrackRecordingService is null.");
             return;
         }
-        announce(trackRecordingService.getTrackStatistics());
+        announce(trackRecordingService.getTrackStatistics(), trackRecordingService.getLastInterval(PreferencesUtils.isMetricUnits(context)));
     }
 
     /**
      * Runs this task.
      *
      * @param trackStatistics the track statistics
+     * @param lastInterval    the last completed interval (kept by the {@link TrackRecordingService}; so, the track is not loaded)
      */
-    private void announce(TrackStatistics trackStatistics) {
+    private void announce(TrackStatistics trackStatistics, @Nullable IntervalStatistics.Interval lastInterval) {
         if (trackStatistics == null) {
             Log.e(TAG, "TrackStatistics is null.");
             return;
@@ -167,10 +167,6 @@ public class AnnouncementPeriodicTask implements PeriodicTask {
         Track track = contentProviderUtils.getTrack(PreferencesUtils.getRecordingTrackId(context));
         String category = track != null ? track.getCategory() : "";
 
-        List<TrackPoint> trackPoints = contentProviderUtils.getTrackPoints(track.getId());
-        IntervalStatistics intervalStatistics = new IntervalStatistics(trackPoints, (float) (PreferencesUtils.isMetricUnits(context) ? 1d * UnitConversions.KM_TO_M : 1d * UnitConversions.MI_TO_M));
-        IntervalStatistics.Interval lastInterval = intervalStatistics.getLastInterval();
-
         String announcement = AnnouncementUtils.getAnnouncement(context, trackStatistics, category, lastInterval);
         speakAnnouncement(announcement);
     }
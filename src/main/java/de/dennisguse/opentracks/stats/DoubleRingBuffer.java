@@ -18,14 +18,20 @@ package de.dennisguse.opentracks.stats;
 
 import androidx.annotation.NonNull;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 /**
  * This class maintains a ring buffer of doubles.
  * This buffer is a convenient class for storing a series of doubles and calculating information about them.
  * This is a FIFO buffer.
+ * <p>
+ * The average is a {@link SmoothingFilter.Type#MOVING_AVERAGE}: the sum is kept while adding (compensated summation); so, getting the average is O(1).
  *
  * @author Sandor Dornbush
  */
-class DoubleRingBuffer {
+class DoubleRingBuffer implements SmoothingFilter {
 
     // The sliding buffer of doubles.
     private final double[] buffer;
@@ -36,6 +42,10 @@ class DoubleRingBuffer {
     // True if the buffer is full
     private boolean isFull;
 
+    // The sum of the buffer and its compensation for lost low-order bits (Neumaier's summation)
+    private double sum;
+    private double sumCompensation;
+
     /**
      * Creates a buffer with a certain size.
      *
@@ -52,31 +62,32 @@ class DoubleRingBuffer {
     /**
      * Resets the buffer.
      */
+    @Override
     public void reset() {
         index = 0;
         isFull = false;
+        sum = 0;
+        sumCompensation = 0;
     }
 
     /**
      * Returns true if the buffer is full.
      */
-    boolean isFull() {
+    @Override
+    public boolean isFull() {
         return isFull;
     }
 
     /**
      * Gets the average of the buffer.
      */
-    public double getAverage() {
+    @Override
+    public double getValue() {
         int numberOfEntries = isFull ? buffer.length : index;
         if (numberOfEntries == 0) {
             return 0;
         }
-        double sum = 0;
-        for (int i = 0; i < numberOfEntries; i++) {
-            sum += buffer[i];
-        }
-        return sum / numberOfEntries;
+        return (sum + sumCompensation) / numberOfEntries;
     }
 
     /**
@@ -85,10 +96,15 @@ class DoubleRingBuffer {
      *
      * @param value the double to add
      */
+    @Override
     public void setNext(double value) {
         if (index == buffer.length) {
             index = 0;
         }
+        if (isFull) {
+            addToSum(-buffer[index]);
+        }
+        addToSum(value);
         buffer[index] = value;
         index++;
         if (index == buffer.length) {
@@ -96,6 +112,48 @@ class DoubleRingBuffer {
         }
     }
 
+    @Override
+    public Type getType() {
+        return Type.MOVING_AVERAGE;
+    }
+
+    @Override
+    public int getSize() {
+        return buffer.length;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(index);
+        out.writeBoolean(isFull);
+        out.writeDouble(sum);
+        out.writeDouble(sumCompensation);
+        for (double value : buffer) {
+            out.writeDouble(value);
+        }
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        index = in.readInt();
+        isFull = in.readBoolean();
+        sum = in.readDouble();
+        sumCompensation = in.readDouble();
+        for (int i = 0; i < buffer.length; i++) {
+            buffer[i] = in.readDouble();
+        }
+    }
+
+    private void addToSum(double value) {
+        double newSum = sum + value;
+        if (Math.abs(sum) >= Math.abs(value)) {
+            sumCompensation += (sum - newSum) + value;
+        } else {
+            sumCompensation += (value - newSum) + sum;
+        }
+        sum = newSum;
+    }
+
     @NonNull
     @Override
     public String toString() {
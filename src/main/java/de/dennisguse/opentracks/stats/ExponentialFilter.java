@@ -0,0 +1,76 @@
+package de.dennisguse.opentracks.stats;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Exponential moving average; the weight of a reading is 2 / (size + 1) like for the commonly used N-period exponential moving average.
+ */
+class ExponentialFilter implements SmoothingFilter {
+
+    private final int size;
+    private final double alpha;
+
+    private int numberOfEntries;
+    private double value;
+
+    ExponentialFilter(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("The size must be greater than 1.");
+        }
+        this.size = size;
+        this.alpha = 2.0 / (size + 1);
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        numberOfEntries = 0;
+        value = 0;
+    }
+
+    @Override
+    public boolean isFull() {
+        return numberOfEntries >= size;
+    }
+
+    @Override
+    public double getValue() {
+        return value;
+    }
+
+    @Override
+    public void setNext(double value) {
+        if (numberOfEntries == 0) {
+            this.value = value;
+        } else {
+            this.value += alpha * (value - this.value);
+        }
+        if (numberOfEntries < size) {
+            numberOfEntries++;
+        }
+    }
+
+    @Override
+    public Type getType() {
+        return Type.EXPONENTIAL;
+    }
+
+    @Override
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(numberOfEntries);
+        out.writeDouble(value);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        numberOfEntries = in.readInt();
+        value = in.readDouble();
+    }
+}
@@ -0,0 +1,204 @@
+package de.dennisguse.opentracks.stats;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Median of the last size readings: the lower half of the readings is kept in a max-heap, the upper half in a min-heap.
+ * The oldest reading is replaced in place; so, adding is O(log(size)) and getting the median is O(1).
+ * Allocation-free after construction.
+ */
+class MedianFilter implements SmoothingFilter {
+
+    private static final int LOWER = 0;
+    private static final int UPPER = 1;
+
+    // The readings by slot (ring buffer).
+    private final double[] values;
+    // The heap and the position in the heap of a slot.
+    private final int[] heapOfSlot;
+    private final int[] positionOfSlot;
+    // The slots of the heaps.
+    private final int[][] heaps;
+    private final int[] heapSizes = new int[2];
+
+    private int nextSlot;
+    private int numberOfEntries;
+
+    MedianFilter(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("The size must be greater than 1.");
+        }
+        values = new double[size];
+        heapOfSlot = new int[size];
+        positionOfSlot = new int[size];
+        heaps = new int[][]{new int[size], new int[size]};
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        nextSlot = 0;
+        numberOfEntries = 0;
+        heapSizes[LOWER] = 0;
+        heapSizes[UPPER] = 0;
+    }
+
+    @Override
+    public boolean isFull() {
+        return numberOfEntries == values.length;
+    }
+
+    @Override
+    public double getValue() {
+        if (numberOfEntries == 0) {
+            return 0;
+        }
+        double lower = values[heaps[LOWER][0]];
+        if (heapSizes[LOWER] > heapSizes[UPPER]) {
+            return lower;
+        }
+        return (lower + values[heaps[UPPER][0]]) / 2;
+    }
+
+    @Override
+    public void setNext(double value) {
+        int slot = nextSlot;
+        nextSlot = (nextSlot + 1) % values.length;
+        values[slot] = value;
+
+        if (isFull()) {
+            // Replace the oldest reading.
+            int heap = heapOfSlot[slot];
+            siftDown(heap, siftUp(heap, positionOfSlot[slot]));
+            if (heapSizes[UPPER] > 0 && values[heaps[LOWER][0]] > values[heaps[UPPER][0]]) {
+                swapTops();
+            }
+            return;
+        }
+
+        numberOfEntries++;
+        if (heapSizes[LOWER] == 0 || value <= values[heaps[LOWER][0]]) {
+            push(LOWER, slot);
+        } else {
+            push(UPPER, slot);
+        }
+        // Keep the heaps balanced: the lower half has the same number of readings or one more.
+        if (heapSizes[LOWER] > heapSizes[UPPER] + 1) {
+            push(UPPER, pop(LOWER));
+        } else if (heapSizes[UPPER] > heapSizes[LOWER]) {
+            push(LOWER, pop(UPPER));
+        }
+    }
+
+    @Override
+    public Type getType() {
+        return Type.MEDIAN;
+    }
+
+    @Override
+    public int getSize() {
+        return values.length;
+    }
+
+    /**
+     * Writes the readings from oldest to newest; the heaps are rebuilt by {@link #readState(DataInput)}.
+     */
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(numberOfEntries);
+        int oldestSlot = isFull() ? nextSlot : 0;
+        for (int i = 0; i < numberOfEntries; i++) {
+            out.writeDouble(values[(oldestSlot + i) % values.length]);
+        }
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        reset();
+        int entries = in.readInt();
+        for (int i = 0; i < entries; i++) {
+            setNext(in.readDouble());
+        }
+    }
+
+    private void swapTops() {
+        int lowerTop = heaps[LOWER][0];
+        int upperTop = heaps[UPPER][0];
+        set(LOWER, 0, upperTop);
+        set(UPPER, 0, lowerTop);
+        siftDown(LOWER, 0);
+        siftDown(UPPER, 0);
+    }
+
+    private void push(int heap, int slot) {
+        int position = heapSizes[heap]++;
+        set(heap, position, slot);
+        siftUp(heap, position);
+    }
+
+    private int pop(int heap) {
+        int top = heaps[heap][0];
+        int last = heaps[heap][--heapSizes[heap]];
+        if (heapSizes[heap] > 0) {
+            set(heap, 0, last);
+            siftDown(heap, 0);
+        }
+        return top;
+    }
+
+    /**
+     * @return the new position
+     */
+    private int siftUp(int heap, int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (!isBefore(heap, heaps[heap][position], heaps[heap][parent])) {
+                break;
+            }
+            swap(heap, position, parent);
+            position = parent;
+        }
+        return position;
+    }
+
+    private void siftDown(int heap, int position) {
+        int size = heapSizes[heap];
+        while (true) {
+            int first = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && isBefore(heap, heaps[heap][left], heaps[heap][first])) {
+                first = left;
+            }
+            if (right < size && isBefore(heap, heaps[heap][right], heaps[heap][first])) {
+                first = right;
+            }
+            if (first == position) {
+                return;
+            }
+            swap(heap, position, first);
+            position = first;
+        }
+    }
+
+    /**
+     * @return true if slot a belongs closer to the top of the heap than slot b
+     */
+    private boolean isBefore(int heap, int slotA, int slotB) {
+        return heap == LOWER ? values[slotA] > values[slotB] : values[slotA] < values[slotB];
+    }
+
+    private void swap(int heap, int positionA, int positionB) {
+        int slotA = heaps[heap][positionA];
+        set(heap, positionA, heaps[heap][positionB]);
+        set(heap, positionB, slotA);
+    }
+
+    private void set(int heap, int position, int slot) {
+        heaps[heap][position] = slot;
+        heapOfSlot[slot] = heap;
+        positionOfSlot[slot] = position;
+    }
+}
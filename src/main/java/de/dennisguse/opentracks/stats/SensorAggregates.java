@@ -0,0 +1,132 @@
+package de.dennisguse.opentracks.stats;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import de.dennisguse.opentracks.content.data.TrackPoint;
+
+/**
+ * Aggregates of the sensor data (heart rate, cadence, and power) of the {@link TrackPoint}s of a {@link de.dennisguse.opentracks.content.data.Track}.
+ * Updated per {@link TrackPoint} in O(1) and stored with the track; so, {@link SensorStatistics} do not require reading the trackPoints.
+ */
+public class SensorAggregates {
+
+    private final Aggregate heartRate;
+    private final Aggregate cadence;
+    private final Aggregate power;
+
+    public SensorAggregates() {
+        this(new Aggregate(), new Aggregate(), new Aggregate());
+    }
+
+    public SensorAggregates(@NonNull Aggregate heartRate, @NonNull Aggregate cadence, @NonNull Aggregate power) {
+        this.heartRate = heartRate;
+        this.cadence = cadence;
+        this.power = power;
+    }
+
+    /**
+     * Copy constructor.
+     */
+    public SensorAggregates(@NonNull SensorAggregates other) {
+        this(new Aggregate(other.heartRate), new Aggregate(other.cadence), new Aggregate(other.power));
+    }
+
+    public void add(@NonNull TrackPoint trackPoint) {
+        if (trackPoint.hasHeartRate()) {
+            heartRate.add(trackPoint.getHeartRate_bpm());
+        }
+        if (trackPoint.hasCyclingCadence()) {
+            cadence.add(trackPoint.getCyclingCadence_rpm());
+        }
+        if (trackPoint.hasPower()) {
+            power.add(trackPoint.getPower());
+        }
+    }
+
+    @NonNull
+    public Aggregate getHeartRate() {
+        return heartRate;
+    }
+
+    @NonNull
+    public Aggregate getCadence() {
+        return cadence;
+    }
+
+    @NonNull
+    public Aggregate getPower() {
+        return power;
+    }
+
+    @NonNull
+    public SensorStatistics toSensorStatistics() {
+        return new SensorStatistics(heartRate.getMax(), heartRate.getAverage(), cadence.getMax(), cadence.getAverage(), power.getAverage());
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "SensorAggregates{heartRate=" + heartRate + ", cadence=" + cadence + ", power=" + power + "}";
+    }
+
+    /**
+     * Count, sum, and max of the values of one sensor.
+     */
+    public static class Aggregate {
+
+        private long count;
+        private double sum;
+        private float max;
+
+        public Aggregate() {
+            this(0, 0, Float.NEGATIVE_INFINITY);
+        }
+
+        public Aggregate(long count, double sum, float max) {
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public Aggregate(@NonNull Aggregate other) {
+            this(other.count, other.sum, other.max);
+        }
+
+        void add(float value) {
+            count++;
+            sum += value;
+            max = Math.max(max, value);
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getSum() {
+            return sum;
+        }
+
+        /**
+         * @return null if there are no values
+         */
+        @Nullable
+        public Float getMax() {
+            return count > 0 ? max : null;
+        }
+
+        /**
+         * @return null if there are no values
+         */
+        @Nullable
+        public Float getAverage() {
+            return count > 0 ? (float) (sum / count) : null;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "{count=" + count + ", sum=" + sum + ", max=" + getMax() + "}";
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package de.dennisguse.opentracks.stats;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Smooths a stream of noisy readings (e.g., elevation or speed); adding a reading and getting the smoothed value cost O(1) (or O(log(size)) for {@link Type#MEDIAN}) independent of the number of readings.
+ */
+interface SmoothingFilter {
+
+    enum Type {
+        // The mean of the last size readings.
+        MOVING_AVERAGE,
+        // Weighs recent readings exponentially more; comparable to a moving average of size readings.
+        EXPONENTIAL,
+        // The median of the last size readings; robust against outliers.
+        MEDIAN
+    }
+
+    /**
+     * Creates a filter with the state written by {@link #writeTo(DataOutput)}.
+     */
+    static SmoothingFilter readFrom(DataInput in) throws IOException {
+        Type type = Type.values()[in.readByte()];
+        SmoothingFilter filter = create(type, in.readInt());
+        filter.readState(in);
+        return filter;
+    }
+
+    static SmoothingFilter create(Type type, int size) {
+        switch (type) {
+            case EXPONENTIAL:
+                return new ExponentialFilter(size);
+            case MEDIAN:
+                return new MedianFilter(size);
+            case MOVING_AVERAGE:
+            default:
+                return new DoubleRingBuffer(size);
+        }
+    }
+
+    /**
+     * Removes all readings.
+     */
+    void reset();
+
+    /**
+     * Returns true if enough readings were added to fill the window.
+     */
+    boolean isFull();
+
+    /**
+     * Gets the smoothed value; 0 if there are no readings.
+     */
+    double getValue();
+
+    /**
+     * Adds a reading.
+     */
+    void setNext(double value);
+
+    Type getType();
+
+    int getSize();
+
+    /**
+     * Writes the type, the size, and the state; see {@link #readFrom(DataInput)}.
+     */
+    default void writeTo(DataOutput out) throws IOException {
+        out.writeByte(getType().ordinal());
+        out.writeInt(getSize());
+        writeState(out);
+    }
+
+    void writeState(DataOutput out) throws IOException;
+
+    void readState(DataInput in) throws IOException;
+}
@@ -19,6 +19,9 @@ package de.dennisguse.opentracks.stats;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
 
@@ -324,6 +327,70 @@ public class TrackStatistics {
         totalElevationLoss_m += loss_m;
     }
 
+    /**
+     * Writes all fields; see {@link #readFrom(DataInput)}.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        writeInstant(out, startTime);
+        writeInstant(out, stopTime);
+        out.writeDouble(totalDistance_m);
+        writeDuration(out, totalTime);
+        writeDuration(out, movingTime);
+        out.writeDouble(maxSpeed_mps);
+        out.writeDouble(elevationExtremities.getMin());
+        out.writeDouble(elevationExtremities.getMax());
+        writeFloat(out, totalElevationGain_m);
+        writeFloat(out, totalElevationLoss_m);
+    }
+
+    static TrackStatistics readFrom(DataInput in) throws IOException {
+        TrackStatistics statistics = new TrackStatistics();
+        statistics.startTime = readInstant(in);
+        statistics.stopTime = readInstant(in);
+        statistics.totalDistance_m = in.readDouble();
+        statistics.totalTime = readDuration(in);
+        statistics.movingTime = readDuration(in);
+        statistics.maxSpeed_mps = in.readDouble();
+        statistics.elevationExtremities.set(in.readDouble(), in.readDouble());
+        statistics.totalElevationGain_m = readFloat(in);
+        statistics.totalElevationLoss_m = readFloat(in);
+        return statistics;
+    }
+
+    static void writeInstant(DataOutput out, @Nullable Instant instant) throws IOException {
+        out.writeBoolean(instant != null);
+        if (instant != null) {
+            out.writeLong(instant.getEpochSecond());
+            out.writeInt(instant.getNano());
+        }
+    }
+
+    @Nullable
+    static Instant readInstant(DataInput in) throws IOException {
+        return in.readBoolean() ? Instant.ofEpochSecond(in.readLong(), in.readInt()) : null;
+    }
+
+    private static void writeDuration(DataOutput out, Duration duration) throws IOException {
+        out.writeLong(duration.getSeconds());
+        out.writeInt(duration.getNano());
+    }
+
+    private static Duration readDuration(DataInput in) throws IOException {
+        return Duration.ofSeconds(in.readLong(), in.readInt());
+    }
+
+    static void writeFloat(DataOutput out, @Nullable Float value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeFloat(value);
+        }
+    }
+
+    @Nullable
+    static Float readFloat(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readFloat() : null;
+    }
+
     @NonNull
     @Override
     public String toString() {
@@ -19,8 +19,16 @@ package de.dennisguse.opentracks.stats;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.time.Duration;
 
 import de.dennisguse.opentracks.content.data.TrackPoint;
@@ -58,26 +66,29 @@ public class TrackStatisticsUpdater {
      */
     private static final double MAX_ACCELERATION = 0.02;
 
+    // Checkpoints of other versions are ignored.
+    private static final int CHECKPOINT_VERSION = 1;
+
     private boolean trackInitialized = false;
     private boolean segmentInitialized = false;
 
     // The track's statistics
     private final TrackStatistics trackStatistics;
 
-    // A buffer of the recent elevation readings (m)
-    private final DoubleRingBuffer elevationBuffer_m = new DoubleRingBuffer(ELEVATION_SMOOTHING_FACTOR);
-    // A buffer of the recent speed readings (m/s) for calculating max speed
-    private final DoubleRingBuffer speedBuffer_ms = new DoubleRingBuffer(SPEED_SMOOTHING_FACTOR);
+    // Smooths the recent elevation readings (m)
+    private final SmoothingFilter elevationBuffer_m;
+    // Smooths the recent speed readings (m/s) for calculating max speed
+    private final SmoothingFilter speedBuffer_ms;
 
     // The current segment's statistics
-    private final TrackStatistics currentSegment = new TrackStatistics();
+    private final TrackStatistics currentSegment;
     // Current segment's last trackPoint
     private TrackPoint lastTrackPoint;
     // Current segment's last moving trackPoint
     private TrackPoint lastMovingTrackPoint;
 
     public TrackStatisticsUpdater() {
-        trackStatistics = new TrackStatistics();
+        this(new TrackStatistics(), false, SmoothingFilter.Type.MOVING_AVERAGE, SmoothingFilter.Type.MOVING_AVERAGE);
     }
 
     /**
@@ -86,8 +97,100 @@ public class TrackStatisticsUpdater {
      * @param trackStatistics a {@link TrackStatisticsUpdater}
      */
     public TrackStatisticsUpdater(TrackStatistics trackStatistics) {
+        this(trackStatistics, true, SmoothingFilter.Type.MOVING_AVERAGE, SmoothingFilter.Type.MOVING_AVERAGE);
+    }
+
+    /**
+     * @param elevationFilter the smoothing of the elevation readings
+     * @param speedFilter     the smoothing of the speed readings
+     */
+    @VisibleForTesting
+    TrackStatisticsUpdater(TrackStatistics trackStatistics, boolean trackInitialized, SmoothingFilter.Type elevationFilter, SmoothingFilter.Type speedFilter) {
+        this(trackStatistics, trackInitialized, new TrackStatistics(), SmoothingFilter.create(elevationFilter, ELEVATION_SMOOTHING_FACTOR), SmoothingFilter.create(speedFilter, SPEED_SMOOTHING_FACTOR));
+    }
+
+    private TrackStatisticsUpdater(TrackStatistics trackStatistics, boolean trackInitialized, TrackStatistics currentSegment, SmoothingFilter elevationBuffer_m, SmoothingFilter speedBuffer_ms) {
         this.trackStatistics = trackStatistics;
-        trackInitialized = true;
+        this.trackInitialized = trackInitialized;
+        this.currentSegment = currentSegment;
+        this.elevationBuffer_m = elevationBuffer_m;
+        this.speedBuffer_ms = speedBuffer_ms;
+    }
+
+    /**
+     * Restores a {@link TrackStatisticsUpdater} from {@link #toCheckpoint()}.
+     * Adding the trackPoints following the checkpoint yields the same {@link TrackStatistics} as adding all trackPoints to a new {@link TrackStatisticsUpdater}.
+     *
+     * @return null if the checkpoint could not be read (e.g., created by another version)
+     */
+    @Nullable
+    public static TrackStatisticsUpdater fromCheckpoint(@NonNull byte[] checkpoint) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(checkpoint))) {
+            int version = in.readInt();
+            if (version != CHECKPOINT_VERSION) {
+                Log.w(TAG, "Ignoring checkpoint of version " + version);
+                return null;
+            }
+            boolean trackInitialized = in.readBoolean();
+            TrackStatistics trackStatistics = TrackStatistics.readFrom(in);
+            TrackStatistics currentSegment = TrackStatistics.readFrom(in);
+            SmoothingFilter elevationBuffer_m = SmoothingFilter.readFrom(in);
+            SmoothingFilter speedBuffer_ms = SmoothingFilter.readFrom(in);
+
+            TrackStatisticsUpdater updater = new TrackStatisticsUpdater(trackStatistics, trackInitialized, currentSegment, elevationBuffer_m, speedBuffer_ms);
+            updater.segmentInitialized = in.readBoolean();
+            updater.lastTrackPoint = readTrackPoint(in);
+            boolean lastTrackPointIsMoving = in.readBoolean();
+            updater.lastMovingTrackPoint = lastTrackPointIsMoving ? updater.lastTrackPoint : readTrackPoint(in);
+            return updater;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Could not read checkpoint", e);
+            return null;
+        }
+    }
+
+    /**
+     * Serializes the complete state (incl. the current segment and the smoothing); so, a track can be continued from here without adding its previous trackPoints again.
+     */
+    @NonNull
+    public byte[] toCheckpoint() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(CHECKPOINT_VERSION);
+            out.writeBoolean(trackInitialized);
+            trackStatistics.writeTo(out);
+            currentSegment.writeTo(out);
+            elevationBuffer_m.writeTo(out);
+            speedBuffer_ms.writeTo(out);
+
+            out.writeBoolean(segmentInitialized);
+            writeTrackPoint(out, lastTrackPoint);
+            out.writeBoolean(lastMovingTrackPoint == lastTrackPoint);
+            if (lastMovingTrackPoint != lastTrackPoint) {
+                writeTrackPoint(out, lastMovingTrackPoint);
+            }
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw.
+            throw new RuntimeException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Closes the current segment; the next trackPoint starts a new segment.
+     * For continuing a stopped track: the time since its last trackPoint is not counted (like a new {@link TrackStatisticsUpdater} for the track's {@link TrackStatistics}).
+     */
+    public void resetSegment() {
+        if (segmentInitialized) {
+            trackStatistics.merge(currentSegment);
+            currentSegment.reset();
+            segmentInitialized = false;
+        }
+
+        lastTrackPoint = null;
+        lastMovingTrackPoint = null;
+        elevationBuffer_m.reset();
+        speedBuffer_ms.reset();
     }
 
     public TrackStatistics getTrackStatistics() {
@@ -199,11 +302,11 @@ public class TrackStatisticsUpdater {
      * The elevation readings is noisy so the smoothed elevation is better than the raw elevation for many tasks.
      */
     public double getSmoothedElevation() {
-        return elevationBuffer_m.getAverage();
+        return elevationBuffer_m.getValue();
     }
 
     public double getSmoothedSpeed() {
-        return speedBuffer_ms.getAverage();
+        return speedBuffer_ms.getValue();
     }
 
     /**
@@ -215,8 +318,9 @@ public class TrackStatisticsUpdater {
             speedBuffer_ms.reset();
         } else if (isValidSpeed(trackPoint, lastTrackPoint)) {
             speedBuffer_ms.setNext(trackPoint.getSpeed());
-            if (speedBuffer_ms.getAverage() > currentSegment.getMaxSpeed()) {
-                currentSegment.setMaxSpeed(speedBuffer_ms.getAverage());
+            double smoothedSpeed = speedBuffer_ms.getValue();
+            if (smoothedSpeed > currentSegment.getMaxSpeed()) {
+                currentSegment.setMaxSpeed(smoothedSpeed);
             }
         } else {
             Log.d(TAG, "Invalid speed. speed: " + trackPoint.getSpeed() + " lastLocationSpeed: " + lastTrackPoint.getSpeed());
@@ -232,9 +336,9 @@ public class TrackStatisticsUpdater {
     @VisibleForTesting
     private double updateAbsoluteElevation(double elevation) {
         // Update elevation using the smoothed average
-        double oldAverage = elevationBuffer_m.getAverage();
+        double oldAverage = elevationBuffer_m.getValue();
         elevationBuffer_m.setNext(elevation);
-        double newAverage = elevationBuffer_m.getAverage();
+        double newAverage = elevationBuffer_m.getValue();
 
         currentSegment.updateElevationExtremities(newAverage);
 
@@ -261,11 +365,43 @@ public class TrackStatisticsUpdater {
 
         // Only check if the speed buffer is full. Check that the speed is less than 10X the smoothed average and the speed difference doesn't imply 2g acceleration.
         if (speedBuffer_ms.isFull()) {
-            double average = speedBuffer_ms.getAverage();
+            double average = speedBuffer_ms.getValue();
             double diff = Math.abs(average - trackPoint.getSpeed());
             return (trackPoint.getSpeed() < average * 10) && (diff < MAX_ACCELERATION * timeDifference.toMillis());
         }
 
         return true;
     }
+
+    /**
+     * Writes the attributes of a trackPoint that are used by {@link #addTrackPoint(TrackPoint, int)} for the following trackPoints.
+     */
+    private static void writeTrackPoint(DataOutput out, @Nullable TrackPoint trackPoint) throws IOException {
+        out.writeBoolean(trackPoint != null);
+        if (trackPoint == null) {
+            return;
+        }
+        out.writeInt(trackPoint.getType().type_db);
+        TrackStatistics.writeInstant(out, trackPoint.getTime());
+        out.writeBoolean(trackPoint.hasLocation());
+        if (trackPoint.hasLocation()) {
+            out.writeDouble(trackPoint.getLatitude());
+            out.writeDouble(trackPoint.getLongitude());
+        }
+        TrackStatistics.writeFloat(out, trackPoint.hasSpeed() ? trackPoint.getSpeed() : null);
+    }
+
+    @Nullable
+    private static TrackPoint readTrackPoint(DataInput in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        TrackPoint trackPoint = new TrackPoint(TrackPoint.Type.getById(in.readInt()), TrackStatistics.readInstant(in));
+        if (in.readBoolean()) {
+            trackPoint.setLatitude(in.readDouble());
+            trackPoint.setLongitude(in.readDouble());
+        }
+        trackPoint.setSpeed(TrackStatistics.readFloat(in));
+        return trackPoint;
+    }
 }
@@ -0,0 +1,167 @@
+package de.dennisguse.opentracks.util;
+
+/**
+ * Distance and initial bearing between two coordinates on the WGS84 ellipsoid; like {@link android.location.Location#distanceTo(android.location.Location)} and {@link android.location.Location#bearingTo(android.location.Location)}.
+ * <p>
+ * Short hops (e.g., between consecutive trackPoints) are computed by projecting onto the local tangent plane using the ellipsoid's radii of curvature at the mean latitude (error below a centimeter).
+ * Longer distances are computed by Vincenty's inverse formula (like Android).
+ * <p>
+ * Pure Java and allocation-free; so, it can be used in the innermost loops (e.g., {@link de.dennisguse.opentracks.stats.TrackStatisticsUpdater}).
+ */
+public class GeodesicUtils {
+
+    // WGS84
+    private static final double A = 6378137.0;
+    private static final double F = 1.0 / 298.257223563;
+    private static final double B = A * (1.0 - F);
+    private static final double E2 = F * (2.0 - F);
+
+    // About 11km; the error of the local tangent plane grows quadratically with the distance.
+    private static final double MAX_SHORT_HOP_DEGREES = 0.1;
+    // Near the poles, the meridians converge too fast for the local tangent plane.
+    private static final double MAX_SHORT_HOP_LATITUDE = 85.0;
+
+    private static final int MAX_ITERATIONS = 20;
+    private static final double CONVERGENCE_THRESHOLD = 1.0e-12;
+
+    private GeodesicUtils() {
+    }
+
+    /**
+     * @return the distance in meters
+     */
+    public static double distance(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double deltaLongitude = normalizeLongitude(longitude2 - longitude1);
+        if (isShortHop(latitude1, latitude2, deltaLongitude)) {
+            double meanLatitude = Math.toRadians((latitude1 + latitude2) / 2);
+            double north = getMeridionalRadius(meanLatitude) * Math.toRadians(latitude2 - latitude1);
+            double east = getParallelRadius(meanLatitude) * Math.toRadians(deltaLongitude);
+            return Math.sqrt(north * north + east * east);
+        }
+        return vincenty(latitude1, latitude2, deltaLongitude, false);
+    }
+
+    /**
+     * @return the initial bearing in degrees east of true north (-180, 180]
+     */
+    public static double bearing(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double deltaLongitude = normalizeLongitude(longitude2 - longitude1);
+        if (isShortHop(latitude1, latitude2, deltaLongitude)) {
+            double meanLatitude = Math.toRadians((latitude1 + latitude2) / 2);
+            double north = getMeridionalRadius(meanLatitude) * Math.toRadians(latitude2 - latitude1);
+            double east = getParallelRadius(meanLatitude) * Math.toRadians(deltaLongitude);
+            return Math.toDegrees(Math.atan2(east, north));
+        }
+        return vincenty(latitude1, latitude2, deltaLongitude, true);
+    }
+
+    /**
+     * Like {@link #distance(double, double, double, double)} with coordinates in micro degrees.
+     */
+    public static double distanceE6(int latitude1E6, int longitude1E6, int latitude2E6, int longitude2E6) {
+        return distance(latitude1E6 * 1.0E-6, longitude1E6 * 1.0E-6, latitude2E6 * 1.0E-6, longitude2E6 * 1.0E-6);
+    }
+
+    /**
+     * Like {@link #bearing(double, double, double, double)} with coordinates in micro degrees.
+     */
+    public static double bearingE6(int latitude1E6, int longitude1E6, int latitude2E6, int longitude2E6) {
+        return bearing(latitude1E6 * 1.0E-6, longitude1E6 * 1.0E-6, latitude2E6 * 1.0E-6, longitude2E6 * 1.0E-6);
+    }
+
+    private static boolean isShortHop(double latitude1, double latitude2, double deltaLongitude) {
+        return Math.abs(latitude2 - latitude1) < MAX_SHORT_HOP_DEGREES
+                && Math.abs(deltaLongitude) < MAX_SHORT_HOP_DEGREES
+                && Math.abs(latitude1) < MAX_SHORT_HOP_LATITUDE
+                && Math.abs(latitude2) < MAX_SHORT_HOP_LATITUDE;
+    }
+
+    /**
+     * @return the longitude difference in [-180, 180]
+     */
+    private static double normalizeLongitude(double deltaLongitude) {
+        if (deltaLongitude > 180) {
+            return deltaLongitude - 360;
+        }
+        if (deltaLongitude < -180) {
+            return deltaLongitude + 360;
+        }
+        return deltaLongitude;
+    }
+
+    /**
+     * Radius of curvature along the meridian (north-south).
+     */
+    private static double getMeridionalRadius(double latitudeRadians) {
+        double sin = Math.sin(latitudeRadians);
+        double w2 = 1.0 - E2 * sin * sin;
+        return A * (1.0 - E2) / (w2 * Math.sqrt(w2));
+    }
+
+    /**
+     * Radius of the parallel (east-west).
+     */
+    private static double getParallelRadius(double latitudeRadians) {
+        double sin = Math.sin(latitudeRadians);
+        return A * Math.cos(latitudeRadians) / Math.sqrt(1.0 - E2 * sin * sin);
+    }
+
+    /**
+     * Vincenty's inverse formula; see https://en.wikipedia.org/wiki/Vincenty%27s_formulae
+     *
+     * @return the initial bearing in degrees if bearing is true; otherwise, the distance in meters
+     */
+    private static double vincenty(double latitude1, double latitude2, double deltaLongitude, boolean bearing) {
+        double l = Math.toRadians(deltaLongitude);
+        double u1 = Math.atan((1.0 - F) * Math.tan(Math.toRadians(latitude1)));
+        double u2 = Math.atan((1.0 - F) * Math.tan(Math.toRadians(latitude2)));
+        double sinU1 = Math.sin(u1);
+        double cosU1 = Math.cos(u1);
+        double sinU2 = Math.sin(u2);
+        double cosU2 = Math.cos(u2);
+
+        double lambda = l;
+        double sinLambda = 0.0;
+        double cosLambda = 0.0;
+        double sinSigma = 0.0;
+        double cosSigma = 0.0;
+        double sigma = 0.0;
+        double cosSqAlpha = 0.0;
+        double cos2SigmaM = 0.0;
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            sinLambda = Math.sin(lambda);
+            cosLambda = Math.cos(lambda);
+            double t1 = cosU2 * sinLambda;
+            double t2 = cosU1 * sinU2 - sinU1 * cosU2 * cosLambda;
+            sinSigma = Math.sqrt(t1 * t1 + t2 * t2);
+            if (sinSigma == 0.0) {
+                // Coincident points
+                return 0.0;
+            }
+            cosSigma = sinU1 * sinU2 + cosU1 * cosU2 * cosLambda;
+            sigma = Math.atan2(sinSigma, cosSigma);
+            double sinAlpha = cosU1 * cosU2 * sinLambda / sinSigma;
+            cosSqAlpha = 1.0 - sinAlpha * sinAlpha;
+            // On the equator cosSqAlpha is 0
+            cos2SigmaM = cosSqAlpha == 0.0 ? 0.0 : cosSigma - 2.0 * sinU1 * sinU2 / cosSqAlpha;
+            double c = F / 16.0 * cosSqAlpha * (4.0 + F * (4.0 - 3.0 * cosSqAlpha));
+
+            double lambdaPrevious = lambda;
+            lambda = l + (1.0 - c) * F * sinAlpha * (sigma + c * sinSigma * (cos2SigmaM + c * cosSigma * (-1.0 + 2.0 * cos2SigmaM * cos2SigmaM)));
+            if (Math.abs(lambda - lambdaPrevious) < CONVERGENCE_THRESHOLD) {
+                break;
+            }
+        }
+
+        if (bearing) {
+            return Math.toDegrees(Math.atan2(cosU2 * sinLambda, cosU1 * sinU2 - sinU1 * cosU2 * cosLambda));
+        }
+
+        double uSq = cosSqAlpha * (A * A - B * B) / (B * B);
+        double a = 1.0 + uSq / 16384.0 * (4096.0 + uSq * (-768.0 + uSq * (320.0 - 175.0 * uSq)));
+        double b = uSq / 1024.0 * (256.0 + uSq * (-128.0 + uSq * (74.0 - 47.0 * uSq)));
+        double deltaSigma = b * sinSigma * (cos2SigmaM + b / 4.0 * (cosSigma * (-1.0 + 2.0 * cos2SigmaM * cos2SigmaM)
+                - b / 6.0 * cos2SigmaM * (-3.0 + 4.0 * sinSigma * sinSigma) * (-3.0 + 4.0 * cos2SigmaM * cos2SigmaM)));
+        return B * a * (sigma - deltaSigma);
+    }
+}
@@ -351,6 +351,11 @@ public class PreferencesUtils {
         }
     }
 
+    public static boolean shouldArchiveFinishedTracks(Context context) {
+        final boolean ARCHIVE_FINISHED_TRACKS_DEFAULT = context.getResources().getBoolean(R.bool.archive_finished_tracks_default);
+        return getBoolean(context, R.string.archive_finished_tracks_key, ARCHIVE_FINISHED_TRACKS_DEFAULT);
+    }
+
     public static boolean getPreventReimportTracks(Context context) {
         final boolean defaultValue = getBoolean(context, R.bool.import_prevent_reimport_default, false);
         return getBoolean(context, R.string.import_prevent_reimport_key, defaultValue);
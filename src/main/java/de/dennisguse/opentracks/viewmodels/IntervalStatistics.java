@@ -2,62 +2,235 @@ package de.dennisguse.opentracks.viewmodels;
 
 import androidx.annotation.NonNull;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 
 import de.dennisguse.opentracks.content.data.TrackPoint;
+import de.dennisguse.opentracks.content.data.TrackPointBuffer;
+import de.dennisguse.opentracks.util.GeodesicUtils;
 import de.dennisguse.opentracks.util.UnitConversions;
 
+/**
+ * Splits a track into intervals of a distance; trackPoints are appended and an interval is closed as soon as its distance is reached.
+ * So, updating is O(1) per trackPoint.
+ */
 public class IntervalStatistics {
+    // The completed intervals
     private final List<Interval> intervalList = new ArrayList<>();
     private final float distanceInterval_m;
+    private final int maxCompletedIntervals;
+
+    // The running partial interval
+    private Interval interval = new Interval();
+    private TrackPoint lastTrackPoint;
+
+    /**
+     * @param distanceInterval_m the meters of every interval.
+     */
+    public IntervalStatistics(float distanceInterval_m) {
+        this(distanceInterval_m, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param distanceInterval_m    the meters of every interval.
+     * @param maxCompletedIntervals the number of completed intervals to keep (the last ones); so, the memory does not grow with the track.
+     */
+    public IntervalStatistics(float distanceInterval_m, int maxCompletedIntervals) {
+        this.distanceInterval_m = distanceInterval_m;
+        this.maxCompletedIntervals = maxCompletedIntervals;
+    }
 
     /**
      * @param trackPoints        the list of TrackPoint.
      * @param distanceInterval_m the meters of every interval.
      */
     public IntervalStatistics(@NonNull List<TrackPoint> trackPoints, float distanceInterval_m) {
-        intervalList.clear();
-        this.distanceInterval_m = distanceInterval_m;
+        this(distanceInterval_m);
+        for (TrackPoint trackPoint : trackPoints) {
+            add(trackPoint);
+        }
+    }
 
-        if (trackPoints.size() == 0) {
-            return;
+    /**
+     * Creates a snapshot.
+     */
+    public IntervalStatistics(@NonNull IntervalStatistics other) {
+        intervalList.addAll(other.intervalList);
+        distanceInterval_m = other.distanceInterval_m;
+        maxCompletedIntervals = other.maxCompletedIntervals;
+        interval = new Interval(other.interval);
+        lastTrackPoint = other.lastTrackPoint;
+    }
+
+    /**
+     * Restores {@link IntervalStatistics} from {@link #writeTo(DataOutput)}.
+     */
+    @NonNull
+    public static IntervalStatistics readFrom(@NonNull DataInput in) throws IOException {
+        IntervalStatistics intervalStatistics = new IntervalStatistics(in.readFloat(), in.readInt());
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            intervalStatistics.intervalList.add(Interval.readFrom(in));
         }
+        intervalStatistics.interval = Interval.readFrom(in);
 
-        Interval interval = new Interval();
-        interval.gain_m += trackPoints.get(0).hasElevationGain() ? trackPoints.get(0).getElevationGain() : 0;
-        interval.loss_m += trackPoints.get(0).hasElevationLoss() ? trackPoints.get(0).getElevationLoss() : 0;
-        for (int i = 1; i < trackPoints.size(); i++) {
-            TrackPoint prevTrackPoint = trackPoints.get(i - 1);
-            TrackPoint trackPoint = trackPoints.get(i);
+        if (in.readBoolean()) {
+            TrackPoint lastTrackPoint = new TrackPoint(TrackPoint.Type.TRACKPOINT, Instant.ofEpochSecond(in.readLong(), in.readInt()));
+            if (in.readBoolean()) {
+                lastTrackPoint.setLatitude(in.readDouble());
+                lastTrackPoint.setLongitude(in.readDouble());
+            }
+            intervalStatistics.lastTrackPoint = lastTrackPoint;
+        }
+        return intervalStatistics;
+    }
 
-            if (trackPoint.hasLocation() && prevTrackPoint.hasLocation()) {
-                interval.distance_m += prevTrackPoint.distanceTo(trackPoint);
-                interval.time = interval.time.plus(Duration.between(prevTrackPoint.getTime(), trackPoint.getTime()));
-                interval.gain_m += trackPoint.hasElevationGain() ? trackPoint.getElevationGain() : 0;
-                interval.loss_m += trackPoint.hasElevationLoss() ? trackPoint.getElevationLoss() : 0;
+    /**
+     * Serializes the complete state; so, the following trackPoints can be added without adding the previous trackPoints again.
+     */
+    public void writeTo(@NonNull DataOutput out) throws IOException {
+        out.writeFloat(distanceInterval_m);
+        out.writeInt(maxCompletedIntervals);
+        out.writeInt(intervalList.size());
+        for (Interval completedInterval : intervalList) {
+            completedInterval.writeTo(out);
+        }
+        interval.writeTo(out);
+
+        // Only the attributes used by add()
+        out.writeBoolean(lastTrackPoint != null);
+        if (lastTrackPoint != null) {
+            out.writeLong(lastTrackPoint.getTime().getEpochSecond());
+            out.writeInt(lastTrackPoint.getTime().getNano());
+            out.writeBoolean(lastTrackPoint.hasLocation());
+            if (lastTrackPoint.hasLocation()) {
+                out.writeDouble(lastTrackPoint.getLatitude());
+                out.writeDouble(lastTrackPoint.getLongitude());
+            }
+        }
+    }
+
+    public void add(@NonNull TrackPoint trackPoint) {
+        if (lastTrackPoint == null) {
+            addFirst(getElevationGain(trackPoint), getElevationLoss(trackPoint));
+        } else if (trackPoint.hasLocation() && lastTrackPoint.hasLocation()) {
+            addHop(lastTrackPoint.distanceTo(trackPoint), Duration.between(lastTrackPoint.getTime(), trackPoint.getTime()), getElevationGain(trackPoint), getElevationLoss(trackPoint));
+        }
+        lastTrackPoint = trackPoint;
+    }
 
-                if (interval.distance_m >= distanceInterval_m) {
-                    float adjustFactor = distanceInterval_m / interval.distance_m;
-                    Interval adjustedInterval = new Interval(interval);
-                    adjustedInterval.adjust(adjustFactor);
+    /**
+     * Adds the trackPoints of a buffer in order; like {@link #add(TrackPoint)} for each, but without creating a {@link TrackPoint} per trackPoint.
+     */
+    public void addAll(@NonNull TrackPointBuffer trackPoints) {
+        int size = trackPoints.size();
+        if (size == 0) {
+            return;
+        }
 
-                    intervalList.add(adjustedInterval);
+        int start = 0;
+        boolean previousHasLocation;
+        double previousLatitude = 0;
+        double previousLongitude = 0;
+        long previousTime_ms;
+        if (lastTrackPoint == null) {
+            addFirst(getElevationGain(trackPoints, 0), getElevationLoss(trackPoints, 0));
+            previousHasLocation = trackPoints.hasLocation(0);
+            if (previousHasLocation) {
+                previousLatitude = trackPoints.getLatitude(0);
+                previousLongitude = trackPoints.getLongitude(0);
+            }
+            previousTime_ms = trackPoints.getTime_ms(0);
+            start = 1;
+        } else {
+            previousHasLocation = lastTrackPoint.hasLocation();
+            if (previousHasLocation) {
+                previousLatitude = lastTrackPoint.getLatitude();
+                previousLongitude = lastTrackPoint.getLongitude();
+            }
+            previousTime_ms = lastTrackPoint.getTime().toEpochMilli();
+        }
 
-                    interval = new Interval(interval.distance_m - adjustedInterval.distance_m, interval.time.minus(adjustedInterval.time));
+        for (int index = start; index < size; index++) {
+            boolean hasLocation = trackPoints.hasLocation(index);
+            long time_ms = trackPoints.getTime_ms(index);
+            if (hasLocation) {
+                double latitude = trackPoints.getLatitude(index);
+                double longitude = trackPoints.getLongitude(index);
+                if (previousHasLocation) {
+                    float distance_m = (float) GeodesicUtils.distance(previousLatitude, previousLongitude, latitude, longitude);
+                    addHop(distance_m, Duration.ofMillis(time_ms - previousTime_ms), getElevationGain(trackPoints, index), getElevationLoss(trackPoints, index));
                 }
+                previousLatitude = latitude;
+                previousLongitude = longitude;
             }
+            previousHasLocation = hasLocation;
+            previousTime_ms = time_ms;
         }
+        lastTrackPoint = trackPoints.toTrackPoint(size - 1);
+    }
 
-        if (interval.distance_m > 1f) {
-            intervalList.add(interval);
+    /**
+     * Adds the first trackPoint.
+     */
+    void addFirst(float gain_m, float loss_m) {
+        interval.gain_m += gain_m;
+        interval.loss_m += loss_m;
+    }
+
+    /**
+     * Adds the way from the previous trackPoint to the next trackPoint (both with location).
+     */
+    void addHop(float distance_m, @NonNull Duration time, float gain_m, float loss_m) {
+        interval.distance_m += distance_m;
+        interval.time = interval.time.plus(time);
+        interval.gain_m += gain_m;
+        interval.loss_m += loss_m;
+
+        if (interval.distance_m >= distanceInterval_m) {
+            float adjustFactor = distanceInterval_m / interval.distance_m;
+            Interval adjustedInterval = new Interval(interval);
+            adjustedInterval.adjust(adjustFactor);
+
+            intervalList.add(adjustedInterval);
+            if (intervalList.size() > maxCompletedIntervals) {
+                intervalList.remove(0);
+            }
+
+            interval = new Interval(interval.distance_m - adjustedInterval.distance_m, interval.time.minus(adjustedInterval.time));
         }
     }
 
+    static float getElevationGain(@NonNull TrackPoint trackPoint) {
+        return trackPoint.hasElevationGain() ? trackPoint.getElevationGain() : 0;
+    }
+
+    static float getElevationLoss(@NonNull TrackPoint trackPoint) {
+        return trackPoint.hasElevationLoss() ? trackPoint.getElevationLoss() : 0;
+    }
+
+    private static float getElevationGain(@NonNull TrackPointBuffer trackPoints, int index) {
+        return trackPoints.hasChannel(index, TrackPointBuffer.CHANNEL_ELEVATION_GAIN) ? trackPoints.getChannel(index, TrackPointBuffer.CHANNEL_ELEVATION_GAIN) : 0;
+    }
+
+    private static float getElevationLoss(@NonNull TrackPointBuffer trackPoints, int index) {
+        return trackPoints.hasChannel(index, TrackPointBuffer.CHANNEL_ELEVATION_LOSS) ? trackPoints.getChannel(index, TrackPointBuffer.CHANNEL_ELEVATION_LOSS) : 0;
+    }
 
+    /**
+     * @return the completed intervals and the partial interval (if longer than 1m).
+     */
     public List<Interval> getIntervalList() {
-        return intervalList;
+        List<Interval> intervals = new ArrayList<>(intervalList);
+        if (interval.distance_m > 1f) {
+            intervals.add(new Interval(interval));
+        }
+        return intervals;
     }
 
     /**
@@ -67,13 +240,14 @@ public class IntervalStatistics {
      * @return the interval object or null if any interval is completed.
      */
     public Interval getLastInterval() {
+        List<Interval> intervalList = getIntervalList();
         if (intervalList.size() == 1 && intervalList.get(0).getDistance_m() < distanceInterval_m) {
             return null;
         }
 
         for (int i = intervalList.size() - 1; i >= 0; i--) {
             if (intervalList.get(i).getDistance_m() >= distanceInterval_m) {
-                return this.intervalList.get(i);
+                return intervalList.get(i);
             }
         }
 
@@ -101,6 +275,21 @@ public class IntervalStatistics {
             loss_m = i.loss_m;
         }
 
+        private static Interval readFrom(DataInput in) throws IOException {
+            Interval interval = new Interval(in.readFloat(), Duration.ofSeconds(in.readLong(), in.readInt()));
+            interval.gain_m = in.readFloat();
+            interval.loss_m = in.readFloat();
+            return interval;
+        }
+
+        private void writeTo(DataOutput out) throws IOException {
+            out.writeFloat(distance_m);
+            out.writeLong(time.getSeconds());
+            out.writeInt(time.getNano());
+            out.writeFloat(gain_m);
+            out.writeFloat(loss_m);
+        }
+
         public float getDistance_m() {
             return distance_m;
         }
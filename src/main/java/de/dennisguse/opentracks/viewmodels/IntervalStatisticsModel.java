@@ -2,7 +2,7 @@ package de.dennisguse.opentracks.viewmodels;
 
 import androidx.annotation.Nullable;
 
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.List;
 
 import de.dennisguse.opentracks.content.data.TrackPoint;
@@ -11,32 +11,75 @@ import de.dennisguse.opentracks.util.UnitConversions;
 /**
  * This model is used to load intervals for a track.
  * It uses a default interval but it can be set from outside to manage the interval length.
+ * <p>
+ * The intervals of all {@link IntervalOption}s (metric and imperial) are updated in one pass as trackPoints are added; so, changing the interval is instant.
  */
 public class IntervalStatisticsModel {
 
-    private final List<TrackPoint> trackPoints = new ArrayList<>();
+    // Per IntervalOption: metric and imperial
+    private final IntervalStatistics[] metricIntervals = new IntervalStatistics[IntervalOption.values().length];
+    private final IntervalStatistics[] imperialIntervals = new IntervalStatistics[IntervalOption.values().length];
+    private TrackPoint lastTrackPoint;
+
+    public IntervalStatisticsModel() {
+        clear();
+    }
 
     public IntervalStatistics getIntervalStats(boolean metricUnits, @Nullable IntervalOption interval) {
-        synchronized (trackPoints) {
+        synchronized (metricIntervals) {
             if (interval == null) {
                 interval = IntervalOption.OPTION_1;
             }
 
-            float distanceInterval = metricUnits ? (float) (interval.getValue() * UnitConversions.KM_TO_M) : (float) (interval.getValue() * UnitConversions.MI_TO_M);
-            return new IntervalStatistics(trackPoints, distanceInterval);
+            IntervalStatistics[] intervals = metricUnits ? metricIntervals : imperialIntervals;
+            return new IntervalStatistics(intervals[interval.ordinal()]);
         }
     }
 
     public void add(TrackPoint trackPoint) {
-        synchronized (trackPoints) {
-            trackPoints.add(trackPoint);
+        synchronized (metricIntervals) {
+            addToIntervals(trackPoint);
+        }
+    }
+
+    public void addAll(List<TrackPoint> trackPoints) {
+        synchronized (metricIntervals) {
+            for (TrackPoint trackPoint : trackPoints) {
+                addToIntervals(trackPoint);
+            }
         }
     }
 
     public void clear() {
-        synchronized (trackPoints) {
-            trackPoints.clear();
+        synchronized (metricIntervals) {
+            for (IntervalOption option : IntervalOption.values()) {
+                metricIntervals[option.ordinal()] = new IntervalStatistics((float) (option.getValue() * UnitConversions.KM_TO_M));
+                imperialIntervals[option.ordinal()] = new IntervalStatistics((float) (option.getValue() * UnitConversions.MI_TO_M));
+            }
+            lastTrackPoint = null;
+        }
+    }
+
+    /**
+     * Computes the way from the last trackPoint once for all intervals.
+     */
+    private void addToIntervals(TrackPoint trackPoint) {
+        float gain_m = IntervalStatistics.getElevationGain(trackPoint);
+        float loss_m = IntervalStatistics.getElevationLoss(trackPoint);
+        if (lastTrackPoint == null) {
+            for (int i = 0; i < metricIntervals.length; i++) {
+                metricIntervals[i].addFirst(gain_m, loss_m);
+                imperialIntervals[i].addFirst(gain_m, loss_m);
+            }
+        } else if (trackPoint.hasLocation() && lastTrackPoint.hasLocation()) {
+            float distance_m = lastTrackPoint.distanceTo(trackPoint);
+            Duration time = Duration.between(lastTrackPoint.getTime(), trackPoint.getTime());
+            for (int i = 0; i < metricIntervals.length; i++) {
+                metricIntervals[i].addHop(distance_m, time, gain_m, loss_m);
+                imperialIntervals[i].addHop(distance_m, time, gain_m, loss_m);
+            }
         }
+        lastTrackPoint = trackPoint;
     }
 
     /**